@@ -0,0 +1,203 @@
+package com.splout.db.benchmark;
+
+/*
+ * #%L
+ * Splout SQL commons
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds, to be recorded concurrently by many threads. Unlike
+ * {@link HistogramWithStats}, recording doesn't take any lock: each thread increments the counters of its own stripe
+ * (chosen by thread id, so threads rarely share one) and stripes are only merged when a {@link Snapshot} is taken.
+ * <p>
+ * Buckets are log-linear as in HdrHistogram: each power of two is split into {@link #SUB_BUCKETS} linear buckets, so
+ * that percentiles have a relative error below 1 / {@link #SUB_BUCKETS} regardless of their magnitude. Values below
+ * {@link #SUB_BUCKETS} nanoseconds get a bucket each and values above {@link #MAX_VALUE} go to the last bucket.
+ */
+public class LatencyHistogram {
+
+	final static int SUB_BUCKET_BITS = 4;
+	public final static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// ~68 seconds
+	public final static long MAX_VALUE = (1l << 36) - 1;
+	final static int BUCKETS = bucketIndex(MAX_VALUE) + 1;
+
+	// Extra slots of each stripe after the buckets
+	private final static int COUNT = BUCKETS;
+	private final static int SUM = BUCKETS + 1;
+	private final static int MAX = BUCKETS + 2;
+
+	// Created on first use, so that stripes of threads that never record don't take memory
+	private final AtomicReferenceArray<AtomicLongArray> stripes;
+
+	/**
+	 * @param stripes
+	 *          Number of stripes, a power of two. More stripes mean less contention but slower snapshots and more memory
+	 *          (about 4 KB per stripe in use).
+	 */
+	public LatencyHistogram(int stripes) {
+		if(Integer.bitCount(stripes) != 1) {
+			throw new IllegalArgumentException("The number of stripes must be a power of two: " + stripes);
+		}
+		this.stripes = new AtomicReferenceArray<AtomicLongArray>(stripes);
+	}
+
+	static int bucketIndex(long value) {
+		if(value < SUB_BUCKETS) {
+			return (int) Math.max(0, value);
+		}
+		value = Math.min(value, MAX_VALUE);
+		// Position of the highest bit, >= SUB_BUCKET_BITS
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		// The highest bit is implicit, the next SUB_BUCKET_BITS ones select the linear bucket
+		return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Highest value that falls in a bucket.
+	 */
+	static long bucketUpperValue(int index) {
+		if(index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		long base = SUB_BUCKETS + (index & (SUB_BUCKETS - 1));
+		return ((base + 1) << shift) - 1;
+	}
+
+	/**
+	 * Records a latency in nanoseconds.
+	 */
+	public void record(long nanos) {
+		nanos = Math.max(0, nanos);
+		AtomicLongArray stripe = getStripe();
+		stripe.incrementAndGet(bucketIndex(nanos));
+		stripe.addAndGet(SUM, nanos);
+		long max = stripe.get(MAX);
+		while(nanos > max && !stripe.compareAndSet(MAX, max, nanos)) {
+			max = stripe.get(MAX);
+		}
+		// Last, so that snapshots never see more values than bucket counts
+		stripe.incrementAndGet(COUNT);
+	}
+
+	private AtomicLongArray getStripe() {
+		int index = (int) (Thread.currentThread().getId() & (stripes.length() - 1));
+		AtomicLongArray stripe = stripes.get(index);
+		if(stripe == null) {
+			stripes.compareAndSet(index, null, new AtomicLongArray(BUCKETS + 3));
+			stripe = stripes.get(index);
+		}
+		return stripe;
+	}
+
+	/**
+	 * Number of values recorded so far. Much cheaper than a {@link #snapshot()}.
+	 */
+	public long getCount() {
+		long count = 0;
+		for(int i = 0; i < stripes.length(); i++) {
+			AtomicLongArray stripe = stripes.get(i);
+			if(stripe != null) {
+				count += stripe.get(COUNT);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Merges the stripes into a point-in-time view of the histogram. Values that are being recorded meanwhile may or may
+	 * not be part of it.
+	 */
+	public Snapshot snapshot() {
+		long[] buckets = new long[BUCKETS];
+		long count = 0;
+		long sum = 0;
+		long max = 0;
+		for(int i = 0; i < stripes.length(); i++) {
+			AtomicLongArray stripe = stripes.get(i);
+			if(stripe == null) {
+				continue;
+			}
+			count += stripe.get(COUNT);
+			sum += stripe.get(SUM);
+			max = Math.max(max, stripe.get(MAX));
+			for(int j = 0; j < BUCKETS; j++) {
+				buckets[j] += stripe.get(j);
+			}
+		}
+		return new Snapshot(buckets, count, sum, max);
+	}
+
+	/**
+	 * Merged contents of a {@link LatencyHistogram}. All values are in nanoseconds.
+	 */
+	public static class Snapshot {
+
+		private final long[] buckets;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		Snapshot(long[] buckets, long count, long sum, long max) {
+			this.buckets = buckets;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMean() {
+			return count == 0 ? 0 : (double) sum / count;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * The value below which the given fraction (0 to 1) of the recorded values fall, as the highest value of its
+		 * bucket (bounded by the maximum). 0 if nothing has been recorded.
+		 */
+		public long getPercentile(double fraction) {
+			long total = 0;
+			for(long bucket : buckets) {
+				total += bucket;
+			}
+			if(total == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(fraction * total));
+			long seen = 0;
+			for(int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if(seen >= rank) {
+					return Math.min(bucketUpperValue(i), max);
+				}
+			}
+			return max;
+		}
+	}
+}
@@ -0,0 +1,250 @@
+package com.splout.db.benchmark;
+
+/*
+ * #%L
+ * Splout SQL commons
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.splout.db.common.QueryFingerprint;
+import com.splout.db.dnode.beans.FingerprintStats;
+
+/**
+ * Keeps the most frequent query fingerprints (see {@link QueryFingerprint}) of each tablespace, with their count,
+ * total time and total result bytes, in bounded memory. Each tablespace has a "Space-Saving" sketch of a fixed number
+ * of counters: a fingerprint that is not being tracked when the sketch is full replaces the one with the lowest count
+ * and inherits its count, which is remembered as its maximum overestimation. Any fingerprint more frequent than
+ * 1 / capacity of the queries of the tablespace is guaranteed to be in the sketch.
+ * <p>
+ * Queries are recorded asynchronously, so that serving threads don't fingerprint SQL nor contend for the sketches: they
+ * only add the query to a lock-free queue, which a background thread drains into the sketches every
+ * {@link #DRAIN_INTERVAL_MILLIS} ms (and readers before reading). If the queue is full the query is not recorded, see
+ * {@link #getDroppedQueries()}.
+ */
+public class QueryFingerprintStats {
+
+	public final static long DRAIN_INTERVAL_MILLIS = 100;
+	public final static int DEFAULT_MAX_PENDING = 10000;
+
+	private final int capacity;
+	private final int maxPending;
+	private final ConcurrentMap<String, Sketch> sketches = new ConcurrentHashMap<String, Sketch>();
+	private final ConcurrentLinkedQueue<Query> pending = new ConcurrentLinkedQueue<Query>();
+	private final AtomicInteger nPending = new AtomicInteger(0);
+	private final AtomicLong dropped = new AtomicLong(0);
+	private final Thread drainer;
+
+	/**
+	 * @param capacity
+	 *          Number of fingerprints tracked per tablespace.
+	 */
+	public QueryFingerprintStats(int capacity) {
+		this(capacity, DEFAULT_MAX_PENDING);
+	}
+
+	/**
+	 * @param capacity
+	 *          Number of fingerprints tracked per tablespace.
+	 * @param maxPending
+	 *          Maximum number of queries waiting to be recorded.
+	 */
+	public QueryFingerprintStats(int capacity, int maxPending) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.maxPending = maxPending;
+		this.drainer = new Thread("Query fingerprint recorder") {
+
+			@Override
+			public void run() {
+				try {
+					while(!isInterrupted()) {
+						Thread.sleep(DRAIN_INTERVAL_MILLIS);
+						drain();
+					}
+				} catch(InterruptedException e) {
+					// closed
+				}
+			}
+		};
+		drainer.setDaemon(true);
+		drainer.start();
+	}
+
+	/**
+	 * Records a query served for a tablespace. Its SQL is fingerprinted later, by the background thread.
+	 */
+	public void record(String tablespace, String sql, long millis, long bytes) {
+		if(nPending.incrementAndGet() > maxPending) {
+			nPending.decrementAndGet();
+			dropped.incrementAndGet();
+			return;
+		}
+		pending.add(new Query(tablespace, sql, millis, bytes));
+	}
+
+	/*
+	 * Moves the pending queries into the sketches.
+	 */
+	private synchronized void drain() {
+		Query query;
+		while((query = pending.poll()) != null) {
+			nPending.decrementAndGet();
+			recordNow(query.tablespace, query.sql, query.millis, query.bytes);
+		}
+	}
+
+	private void recordNow(String tablespace, String sql, long millis, long bytes) {
+		Sketch sketch = sketches.get(tablespace);
+		if(sketch == null) {
+			sketch = new Sketch(capacity);
+			Sketch existing = sketches.putIfAbsent(tablespace, sketch);
+			if(existing != null) {
+				sketch = existing;
+			}
+		}
+		sketch.record(QueryFingerprint.fingerprint(sql), millis, bytes);
+	}
+
+	/**
+	 * The fingerprints of a tablespace, most frequent first.
+	 */
+	public List<FingerprintStats> getTop(String tablespace) {
+		drain();
+		Sketch sketch = sketches.get(tablespace);
+		if(sketch == null) {
+			return Collections.emptyList();
+		}
+		return sketch.top();
+	}
+
+	/**
+	 * The fingerprints of every tablespace, most frequent first.
+	 */
+	public Map<String, List<FingerprintStats>> getTop() {
+		drain();
+		Map<String, List<FingerprintStats>> top = new HashMap<String, List<FingerprintStats>>();
+		for(Map.Entry<String, Sketch> entry : sketches.entrySet()) {
+			top.put(entry.getKey(), entry.getValue().top());
+		}
+		return top;
+	}
+
+	/**
+	 * Number of queries that were not recorded because too many were waiting to be.
+	 */
+	public long getDroppedQueries() {
+		return dropped.get();
+	}
+
+	/**
+	 * Stops the background thread. Queries recorded afterwards are only recorded when reading the statistics.
+	 */
+	public void close() {
+		drainer.interrupt();
+	}
+
+	private static class Query {
+
+		final String tablespace;
+		final String sql;
+		final long millis;
+		final long bytes;
+
+		Query(String tablespace, String sql, long millis, long bytes) {
+			this.tablespace = tablespace;
+			this.sql = sql;
+			this.millis = millis;
+			this.bytes = bytes;
+		}
+	}
+
+	private static class Counter {
+
+		String fingerprint;
+		long count;
+		long error;
+		long totalMillis;
+		long totalBytes;
+	}
+
+	private static class Sketch {
+
+		private final int capacity;
+		private final Map<String, Counter> counters;
+
+		Sketch(int capacity) {
+			this.capacity = capacity;
+			this.counters = new HashMap<String, Counter>(capacity * 2);
+		}
+
+		synchronized void record(String fingerprint, long millis, long bytes) {
+			Counter counter = counters.get(fingerprint);
+			if(counter == null) {
+				if(counters.size() < capacity) {
+					counter = new Counter();
+				} else {
+					// Replace the least frequent fingerprint
+					counter = null;
+					for(Counter candidate : counters.values()) {
+						if(counter == null || candidate.count < counter.count) {
+							counter = candidate;
+						}
+					}
+					counters.remove(counter.fingerprint);
+					counter.error = counter.count;
+					counter.totalMillis = 0;
+					counter.totalBytes = 0;
+				}
+				counter.fingerprint = fingerprint;
+				counters.put(fingerprint, counter);
+			}
+			counter.count++;
+			counter.totalMillis += millis;
+			counter.totalBytes += bytes;
+		}
+
+		synchronized List<FingerprintStats> top() {
+			List<FingerprintStats> top = new ArrayList<FingerprintStats>(counters.size());
+			for(Counter counter : counters.values()) {
+				top.add(new FingerprintStats(counter.fingerprint, counter.count, counter.error, counter.totalMillis,
+				    counter.totalBytes));
+			}
+			Collections.sort(top, new Comparator<FingerprintStats>() {
+
+				@Override
+				public int compare(FingerprintStats o1, FingerprintStats o2) {
+					return o1.getCount() > o2.getCount() ? -1 : (o1.getCount() == o2.getCount() ? 0 : 1);
+				}
+			});
+			return top;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package com.splout.db.common;
+
+/*
+ * #%L
+ * Splout SQL commons
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Normalizes SQL queries to their "fingerprint": the shape of the query without its literal values, so that queries
+ * that only differ in them can be aggregated. String, blob and numeric literals are replaced by "?", lists of them in
+ * "IN (...)" are collapsed to a single "?", comments are removed, whitespace is collapsed and everything out of quoted
+ * identifiers is lower-cased. For example, {@code SELECT * FROM t WHERE a = 'foo' AND b IN (1, 2, 3)} and
+ * {@code select * from t where a='bar' and b in (4)} share the fingerprint
+ * {@code select * from t where a = ? and b in (?)}.
+ * <p>
+ * This is a lexical normalization, it doesn't parse the SQL: invalid SQL still gets a (probably meaningless)
+ * fingerprint.
+ */
+public class QueryFingerprint {
+
+	private QueryFingerprint() {
+	}
+
+	public static String fingerprint(String sql) {
+		StringBuilder out = new StringBuilder(sql.length());
+		int length = sql.length();
+		int i = 0;
+		while(i < length) {
+			char c = sql.charAt(i);
+			if(Character.isWhitespace(c)) {
+				i++;
+				continue;
+			}
+			if(c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+				// Comment until the end of the line
+				while(i < length && sql.charAt(i) != '\n') {
+					i++;
+				}
+				continue;
+			}
+			if(c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+				int end = sql.indexOf("*/", i + 2);
+				i = (end == -1) ? length : end + 2;
+				continue;
+			}
+			int start = i;
+			String token;
+			if(c == '\'') {
+				i = skipQuoted(sql, i, '\'');
+				token = "?";
+			} else if((c == 'x' || c == 'X') && i + 1 < length && sql.charAt(i + 1) == '\'') {
+				i = skipQuoted(sql, i + 1, '\'');
+				token = "?";
+			} else if(c == '"' || c == '`') {
+				i = skipQuoted(sql, i, c);
+				token = sql.substring(start, i);
+			} else if(c == '[') {
+				int end = sql.indexOf(']', i);
+				i = (end == -1) ? length : end + 1;
+				token = sql.substring(start, i);
+			} else if(Character.isDigit(c) || (c == '.' && i + 1 < length && Character.isDigit(sql.charAt(i + 1)))) {
+				i = skipNumber(sql, i);
+				token = "?";
+			} else if(isIdentifierChar(c)) {
+				while(i < length && isIdentifierChar(sql.charAt(i))) {
+					i++;
+				}
+				token = sql.substring(start, i).toLowerCase();
+			} else if(isOperatorChar(c)) {
+				// Multi-char operators such as "<=" or "||"
+				while(i < length && isOperatorChar(sql.charAt(i))) {
+					i++;
+				}
+				token = sql.substring(start, i);
+			} else {
+				i++;
+				token = String.valueOf(c);
+			}
+			append(out, token);
+		}
+		// Trailing semicolons don't change the query
+		while(out.length() > 0 && (out.charAt(out.length() - 1) == ';' || out.charAt(out.length() - 1) == ' ')) {
+			out.setLength(out.length() - 1);
+		}
+		return out.toString();
+	}
+
+	/*
+	 * Appends a token separated by a single space from the previous one, except around punctuation where no space is
+	 * needed. Lists of "?" in parenthesis are collapsed as they are appended.
+	 */
+	private static void append(StringBuilder out, String token) {
+		if(token.equals(")") && endsWithParameterList(out)) {
+			// Collapse "(?, ?, ..., ?)" into "(?)"
+			int open = out.lastIndexOf("(");
+			out.setLength(open + 2);
+		}
+		if(token.equals(",") || token.equals(")") || token.equals(".") || out.length() == 0
+		    || out.charAt(out.length() - 1) == '(' || out.charAt(out.length() - 1) == '.') {
+			out.append(token);
+		} else {
+			out.append(' ').append(token);
+		}
+	}
+
+	/*
+	 * Whether the output ends with a list of at least two "?" after an opening parenthesis.
+	 */
+	private static boolean endsWithParameterList(StringBuilder out) {
+		int i = out.length() - 1;
+		// Walk back over ", ?" pairs
+		while(i >= 3 && out.charAt(i) == '?' && out.charAt(i - 1) == ' ' && out.charAt(i - 2) == ',') {
+			i -= 3;
+		}
+		return i >= 1 && i < out.length() - 1 && out.charAt(i) == '?' && out.charAt(i - 1) == '(';
+	}
+
+	private static int skipQuoted(String sql, int i, char quote) {
+		i++;
+		while(i < sql.length()) {
+			if(sql.charAt(i) == quote) {
+				// Quotes are escaped by doubling them
+				if(i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+					i += 2;
+					continue;
+				}
+				return i + 1;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	private static int skipNumber(String sql, int i) {
+		int length = sql.length();
+		if(sql.startsWith("0x", i) || sql.startsWith("0X", i)) {
+			i += 2;
+			while(i < length && Character.digit(sql.charAt(i), 16) != -1) {
+				i++;
+			}
+			return i;
+		}
+		while(i < length) {
+			char c = sql.charAt(i);
+			if(Character.isDigit(c) || c == '.') {
+				i++;
+			} else if((c == 'e' || c == 'E') && i + 1 < length) {
+				i++;
+				if(sql.charAt(i) == '+' || sql.charAt(i) == '-') {
+					i++;
+				}
+			} else {
+				break;
+			}
+		}
+		return i;
+	}
+
+	private static boolean isOperatorChar(char c) {
+		return c == '<' || c == '>' || c == '=' || c == '!' || c == '|';
+	}
+
+	private static boolean isIdentifierChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+	}
+}
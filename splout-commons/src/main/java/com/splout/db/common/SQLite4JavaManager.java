@@ -20,21 +20,26 @@ package com.splout.db.common;
  * #L%
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
 
 import com.almworks.sqlite4java.SQLiteConnection;
+import com.almworks.sqlite4java.SQLiteConstants;
 import com.almworks.sqlite4java.SQLiteException;
 import com.almworks.sqlite4java.SQLiteStatement;
 import com.splout.db.common.JSONSerDe.JSONSerDeException;
+import com.splout.db.common.SQLiteConnectionPool.PooledConnection;
 
 /**
  * SQL Wrapper for querying SQLite by using sqlite4java (http://code.google.com/p/sqlite4java).
@@ -42,32 +47,56 @@ import com.splout.db.common.JSONSerDe.JSONSerDeException;
 public class SQLite4JavaManager implements ISQLiteManager {
 
 	private final static Log log = LogFactory.getLog(SQLite4JavaManager.class);
+
+	// Jackson factory used for streaming results straight from the SQLiteStatement into JSON
+	private final static JsonFactory jsonFactory = new JsonFactory();
+	// Serving threads keep their serialization buffer across queries unless it grew bigger than this
+	final static int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+	private final static ThreadLocal<ByteArrayOutputStream> resultBuffer = new ThreadLocal<ByteArrayOutputStream>() {
+
+		protected ByteArrayOutputStream initialValue() {
+			return new ByteArrayOutputStream(8192);
+		}
+	};
 	
+	// Number of prepared statements that each connection keeps by default, see {@link #setStatementCache(int, StatementCacheStats)}
+	public final static int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+	// Connections that each manager may open by default, see {@link #setConnectionPoolLimits(SQLiteConnectionPool.Limits)}
+	public final static int DEFAULT_MAX_CONNECTIONS = 16;
+	public final static long DEFAULT_BORROW_TIMEOUT = 60 * 1000;
+
 	private final File dbFile;
 	private final List<String> initStatements;
 	
 	// If present, will monitor long-running queries and kill them if needed
 	private TimeoutThread timeoutThread = null;
-	
-	ThreadLocal<SQLiteConnection> db = new ThreadLocal<SQLiteConnection>() {
 
-		protected SQLiteConnection initialValue() {
-			log.info(Thread.currentThread().getName() + " requests a new connection to " + dbFile);
-			SQLiteConnection conn = new SQLiteConnection(dbFile);
-			try {
-				conn.open(true);
-				if(initStatements != null) {
-					for(String initStatement: initStatements) {
-						conn.exec(initStatement);
-					}
-				}
-			} catch(SQLiteException e) {
-				e.printStackTrace();
-				return null;
-			}
-			return conn;
+	private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+	private StatementCacheStats statementCacheStats = new StatementCacheStats();
+	private SQLiteConnectionPool.Limits poolLimits;
+	private SQLiteConnectionSettings connectionSettings = new SQLiteConnectionSettings();
+
+	// Created on the first query so that the configuration setters can be called before
+	private volatile SQLiteConnectionPool pool;
+
+	/**
+	 * Hit / miss counters of the prepared statement caches. The same instance can be shared by many managers so that
+	 * statistics are aggregated and survive the managers themselves.
+	 */
+	public static class StatementCacheStats {
+
+		private final AtomicLong hits = new AtomicLong(0);
+		private final AtomicLong misses = new AtomicLong(0);
+
+		public long getHits() {
+			return hits.get();
 		}
-	};
+
+		public long getMisses() {
+			return misses.get();
+		}
+	}
 
 	public SQLite4JavaManager(String dbFile, List<String> initStatements) throws SQLException {
 		this.dbFile = new File(dbFile);
@@ -76,62 +105,440 @@ public class SQLite4JavaManager implements ISQLiteManager {
 
 	/**
 	 * Optionally sets a {@link TimeoutThread} that will take care of cancelling long-running queries.
-	 * If present, each SQLiteConnectiona associated with each thread will be monitored by this thread
-	 * to see if there is some query that needs to be interrupted.
+	 * If present, a timeout is armed for each query, which is interrupted if it doesn't finish before
+	 * its deadline.
 	 */
 	public void setTimeoutThread(TimeoutThread timeoutThread) {
 		this.timeoutThread = timeoutThread;
 	}
+
+	/**
+	 * Sets the maximum number of prepared statements that each connection will keep for reuse (0 disables
+	 * caching) and the counters where cache hits and misses will be accounted. Must be called before the first query.
+	 */
+	public void setStatementCache(int maxStatements, StatementCacheStats stats) {
+		this.statementCacheSize = maxStatements;
+		this.statementCacheStats = stats;
+	}
+
+	public StatementCacheStats getStatementCacheStats() {
+		return statementCacheStats;
+	}
+
+	/**
+	 * Sets the limits of the connection pool of this manager, which are usually shared with other managers so that there
+	 * is a global limit on the number of connections. By default each manager may open up to
+	 * {@link #DEFAULT_MAX_CONNECTIONS} connections that are never reaped. Must be called before the first query.
+	 */
+	public void setConnectionPoolLimits(SQLiteConnectionPool.Limits limits) {
+		this.poolLimits = limits;
+	}
+
+	/**
+	 * Sets the open flags and PRAGMAs of the connections of this manager, which are executed before the init statements.
+	 * By default connections are opened with the SQLite defaults. Must be called before the first query.
+	 */
+	public void setConnectionSettings(SQLiteConnectionSettings settings) {
+		this.connectionSettings = settings;
+	}
+
+	/*
+	 * Returns the pool of connections of this manager, creating it on first use.
+	 */
+	SQLiteConnectionPool getConnectionPool() {
+		SQLiteConnectionPool connectionPool = pool;
+		if(connectionPool == null) {
+			synchronized(this) {
+				connectionPool = pool;
+				if(connectionPool == null) {
+					if(poolLimits == null) {
+						poolLimits = new SQLiteConnectionPool.Limits(0, DEFAULT_MAX_CONNECTIONS, Integer.MAX_VALUE, 0,
+						    DEFAULT_BORROW_TIMEOUT);
+					}
+					connectionPool = new SQLiteConnectionPool(dbFile, initStatements, connectionSettings,
+					    statementCacheSize, poolLimits);
+					pool = connectionPool;
+				}
+			}
+		}
+		return connectionPool;
+	}
 	
 	@Override
 	public String exec(String query) throws SQLException, JSONSerDeException {
+		SQLiteConnectionPool connectionPool = getConnectionPool();
+		PooledConnection connection = connectionPool.borrow();
 		try {
-			db.get().exec(query);
+			connection.conn.exec(query);
 			return "[{ \"status\": \"OK\" }]";
 		} catch(SQLiteException e) {
 			throw new SQLException(e);
+		} finally {
+			connectionPool.release(connection);
 		}
 	}
 
+	/**
+	 * Receives the result of a query row by row, straight from the {@link SQLiteStatement}, so that it can be serialized
+	 * into any format without materializing it first.
+	 */
+	public static interface ResultHandler<T> {
+
+		/**
+		 * Called once, before stepping through the result, with the names of the columns that it will have.
+		 */
+		public void startResult(String[] columnNames) throws SQLiteException, IOException;
+
+		/**
+		 * Called for each row of the result, with the statement positioned on it.
+		 */
+		public void addRow(SQLiteStatement st, int columnCount) throws SQLiteException, IOException;
+
+		/**
+		 * Called once the whole result has been read, returns the serialized result.
+		 */
+		public T endResult() throws IOException;
+	}
+
+	/**
+	 * The result is streamed row by row into a JSON array of JSON objects (column name -> value) using a buffer that is
+	 * reused by each serving thread.
+	 */
 	@Override
 	public String query(String query, int maxResults) throws SQLException, JSONSerDeException {
+		try {
+			return query(query, maxResults, new JSONResultHandler());
+		} catch(IOException e) {
+			throw new JSONSerDeException(e);
+		}
+	}
+
+	/**
+	 * Executes the query and streams its result to the provided {@link ResultHandler}. Column names are resolved only once
+	 * per statement and the hard limit on the number of results is checked while streaming so that we stop reading as
+	 * soon as it is reached.
+	 */
+	public <T> T query(String query, int maxResults, ResultHandler<T> handler) throws SQLException, IOException {
+		return query(query, null, maxResults, handler);
+	}
+
+	/**
+	 * Like {@link #query(String, int, ResultHandler)} but binding the given values to the "?" parameters of the query, in
+	 * order. Because the SQL text doesn't change with the values, queries that only differ in them share the same cached
+	 * prepared statement. Values can be null, Numbers, Strings, Booleans or byte arrays.
+	 */
+	public <T> T query(String query, List<?> params, int maxResults, ResultHandler<T> handler) throws SQLException,
+	    IOException {
+		return query(query, params, maxResults, handler, 0);
+	}
+
+	/**
+	 * Like {@link #query(String, List, int, ResultHandler)} but interrupting the query if it is still running at the
+	 * given deadline (a System.currentTimeMillis() instant) instead of after the default timeout of the
+	 * {@link TimeoutThread}. A deadline of 0 means the default timeout.
+	 */
+	public <T> T query(String query, List<?> params, int maxResults, ResultHandler<T> handler, long deadline)
+	    throws SQLException, IOException {
+		return query(query, params, maxResults, handler, new QueryBudget(deadline, 0));
+	}
+
+	/**
+	 * What a query is allowed to consume: a deadline (a System.currentTimeMillis() instant, 0 for the default timeout
+	 * of the {@link TimeoutThread}) and a maximum CPU time in milliseconds (0 for no limit). Unlike the deadline, the
+	 * CPU time only depends on the work the query does and not on how many other queries run at the same time. After
+	 * the query, the budget holds the CPU time that it consumed and the rows that it returned.
+	 */
+	public static class QueryBudget {
+
+		private final long deadline;
+		private final long maxCpuMillis;
+		private long cpuMicros = 0;
+		private long rows = 0;
+
+		public QueryBudget(long deadline, long maxCpuMillis) {
+			this.deadline = deadline;
+			this.maxCpuMillis = maxCpuMillis;
+		}
+
+		public long getDeadline() {
+			return deadline;
+		}
+
+		public long getMaxCpuMillis() {
+			return maxCpuMillis;
+		}
+
+		/**
+		 * CPU time consumed by the query in microseconds, or 0 if it can't be measured (see
+		 * {@link SQLite4JavaManager#isCpuTimeSupported()}).
+		 */
+		public long getCpuMicros() {
+			return cpuMicros;
+		}
+
+		/**
+		 * Rows returned by the query.
+		 */
+		public long getRows() {
+			return rows;
+		}
+	}
+
+	/**
+	 * Thrown by queries that exceed their budget of CPU time, which would also exceed it if they were retried.
+	 */
+	@SuppressWarnings("serial")
+	public static class BudgetExceededException extends SQLException {
+
+		public BudgetExceededException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Whether the CPU time of queries can be measured, which is needed for giving them a budget of CPU time (see
+	 * {@link QueryBudget}).
+	 */
+	public static boolean isCpuTimeSupported() {
+		return ThreadCpuTime.isSupported();
+	}
+
+	/**
+	 * Why the CPU time of queries can't be measured, or null if it can.
+	 */
+	public static String getCpuTimeUnsupportedReason() {
+		return ThreadCpuTime.getUnsupportedReason();
+	}
+
+	/**
+	 * Like {@link #query(String, List, int, ResultHandler)} but within the given {@link QueryBudget}. A query that
+	 * exceeds its budget of CPU time is interrupted with a SQLException: by the {@link TimeoutThread} in the middle of
+	 * a step if there is one, and otherwise as soon as the step that exceeded the budget returns.
+	 */
+	public <T> T query(String query, List<?> params, int maxResults, ResultHandler<T> handler, QueryBudget budget)
+	    throws SQLException, IOException {
+		SQLiteConnectionPool connectionPool = getConnectionPool();
+		PooledConnection connection = connectionPool.borrow();
 		SQLiteStatement st = null;
+		TimeoutThread.QueryTimeout queryTimeout = null;
+		long startCpuNanos = ThreadCpuTime.current();
+		long maxCpuMillis = budget.getMaxCpuMillis();
+		int nResults = 0;
 		try {
-			SQLiteConnection conn = db.get();
-			if(timeoutThread != null) {
-				timeoutThread.startQuery(conn, query);
+			if(maxCpuMillis > 0 && !isCpuTimeSupported()) {
+				throw new SQLException("Query has a budget of " + maxCpuMillis
+				    + " ms of CPU but CPU time can't be measured: " + getCpuTimeUnsupportedReason());
 			}
-			st = conn.prepare(query);
+			SQLiteConnection conn = connection.conn;
 			if(timeoutThread != null) {
-				timeoutThread.endQuery(conn);
+				long deadline = budget.getDeadline() > 0 ? budget.getDeadline() : System.currentTimeMillis()
+				    + timeoutThread.getTimeout();
+				queryTimeout = timeoutThread.startQuery(conn, query, deadline, maxCpuMillis);
 			}
-			List<Map<String, Object>> list = new ArrayList<Map<String, Object>>();
-			if(st.step()) {
-				do {
-					// true if there is data (SQLITE_ROW) was returned, false if statement has been completed (SQLITE_DONE)
-					Map<String, Object> objectToRead = new HashMap<String, Object>();
-					for(int i = 0; i < st.columnCount(); i++) {
-						objectToRead.put(st.getColumnName(i), st.columnValue(i));
-					}
-					list.add(objectToRead);
-				} while(st.step() && list.size() < maxResults);
+			st = prepare(connection, query);
+			if(params != null) {
+				bind(st, params);
 			}
-			if(list.size() == maxResults) {
-				throw new SQLException("Hard limit on number of results reached (" + maxResults + "), please use a LIMIT for this query.");
+			int columnCount = st.columnCount();
+			String[] columnNames = new String[columnCount];
+			for(int i = 0; i < columnCount; i++) {
+				columnNames[i] = st.getColumnName(i);
+			}
+			handler.startResult(columnNames);
+			// true if there is data (SQLITE_ROW) was returned, false if statement has been completed (SQLITE_DONE)
+			while(step(st, query, maxCpuMillis, startCpuNanos + maxCpuMillis * 1000000)) {
+				handler.addRow(st, columnCount);
+				nResults++;
+				if(nResults == maxResults) {
+					throw new SQLException("Hard limit on number of results reached (" + maxResults
+					    + "), please use a LIMIT for this query.");
+				}
 			}
-			return JSONSerDe.ser(list);
+			return handler.endResult();
 		} catch(SQLiteException e) {
+			if(queryTimeout != null && queryTimeout.isExpired()) {
+				throw new SQLException("Query interrupted as it reached its deadline: " + query, e);
+			}
+			if(queryTimeout != null && queryTimeout.isOverBudget()) {
+				throw overBudget(query, maxCpuMillis);
+			}
 			throw new SQLException(e);
 		} finally {
+			budget.cpuMicros = (ThreadCpuTime.current() - startCpuNanos) / 1000;
+			budget.rows = nResults;
+			if(queryTimeout != null) {
+				timeoutThread.endQuery(queryTimeout);
+			}
+			if(st != null) {
+				release(connection, query, st);
+			}
+			connectionPool.release(connection);
+		}
+	}
+
+	/*
+	 * Steps the statement, failing if the thread ran past the given CPU time limit (if the query has a budget).
+	 */
+	private static boolean step(SQLiteStatement st, String query, long maxCpuMillis, long cpuLimitNanos)
+	    throws SQLiteException, SQLException {
+		boolean hasRow = st.step();
+		if(maxCpuMillis > 0 && ThreadCpuTime.current() > cpuLimitNanos) {
+			throw overBudget(query, maxCpuMillis);
+		}
+		return hasRow;
+	}
+
+	private static BudgetExceededException overBudget(String query, long maxCpuMillis) {
+		return new BudgetExceededException("Query interrupted as it exceeded its budget of " + maxCpuMillis
+		    + " ms of CPU: " + query);
+	}
+
+	/*
+	 * Binds each value to its parameter (1-based) according to its Java type.
+	 */
+	private static void bind(SQLiteStatement st, List<?> params) throws SQLiteException {
+		for(int i = 0; i < params.size(); i++) {
+			Object param = params.get(i);
+			if(param == null) {
+				st.bindNull(i + 1);
+			} else if(param instanceof Integer || param instanceof Long || param instanceof Short
+			    || param instanceof Byte) {
+				st.bind(i + 1, ((Number) param).longValue());
+			} else if(param instanceof Number) {
+				st.bind(i + 1, ((Number) param).doubleValue());
+			} else if(param instanceof Boolean) {
+				st.bind(i + 1, ((Boolean) param) ? 1 : 0);
+			} else if(param instanceof byte[]) {
+				st.bind(i + 1, (byte[]) param);
+			} else {
+				st.bind(i + 1, param.toString());
+			}
+		}
+	}
+
+	/*
+	 * Looks for the statement in the connection's cache, preparing it if it is not there. Statements are prepared
+	 * without sqlite4java's own (unbounded) cache as we manage their lifecycle here.
+	 */
+	private SQLiteStatement prepare(PooledConnection connection, String query) throws SQLiteException {
+		if(statementCacheSize > 0) {
+			SQLiteStatement st = connection.statements.remove(query);
 			if(st != null) {
-				st.dispose();
+				statementCacheStats.hits.incrementAndGet();
+				return st;
+			}
+			statementCacheStats.misses.incrementAndGet();
+		}
+		return connection.conn.prepare(query, false);
+	}
+
+	/*
+	 * Gives the statement back to the connection's cache after resetting it. Cached statements are removed while in use
+	 * so that the cache only holds idle ones. If the statement can't be reset it is disposed.
+	 */
+	private void release(PooledConnection connection, String query, SQLiteStatement st) {
+		if(statementCacheSize > 0) {
+			try {
+				st.reset(true);
+				SQLiteStatement previous = connection.statements.put(query, st);
+				if(previous != null) {
+					previous.dispose();
+				}
+				return;
+			} catch(SQLiteException e) {
+				log.warn("Couldn't reset statement [" + query + "], disposing it", e);
 			}
 		}
+		st.dispose();
 	}
 
+	/**
+	 * {@link ResultHandler} that writes each row as a JSON object (column name -> value) into a JSON array, using the
+	 * serialization buffer of the calling thread.
+	 */
+	public static class JSONResultHandler implements ResultHandler<String> {
+
+		private final ByteArrayOutputStream buffer;
+		private JsonGenerator generator;
+		private String[] columnNames;
+
+		public JSONResultHandler() {
+			this.buffer = getResultBuffer();
+		}
+
+		@Override
+		public void startResult(String[] columnNames) throws IOException {
+			this.columnNames = columnNames;
+			generator = jsonFactory.createJsonGenerator(buffer, JsonEncoding.UTF8);
+			generator.writeStartArray();
+		}
+
+		@Override
+		public void addRow(SQLiteStatement st, int columnCount) throws SQLiteException, IOException {
+			generator.writeStartObject();
+			for(int i = 0; i < columnCount; i++) {
+				generator.writeFieldName(columnNames[i]);
+				writeColumnValue(st, i, generator);
+			}
+			generator.writeEndObject();
+		}
+
+		@Override
+		public String endResult() throws IOException {
+			generator.writeEndArray();
+			generator.close();
+			return buffer.toString("UTF-8");
+		}
+	}
+
+	/*
+	 * Writes the value of the current row's column without boxing it, according to its SQLite storage class.
+	 */
+	private static void writeColumnValue(SQLiteStatement st, int column, JsonGenerator generator)
+	    throws SQLiteException, IOException {
+		switch(st.columnType(column)) {
+		case SQLiteConstants.SQLITE_NULL:
+			generator.writeNull();
+			break;
+		case SQLiteConstants.SQLITE_INTEGER:
+			generator.writeNumber(st.columnLong(column));
+			break;
+		case SQLiteConstants.SQLITE_FLOAT:
+			generator.writeNumber(st.columnDouble(column));
+			break;
+		case SQLiteConstants.SQLITE_BLOB:
+			generator.writeBinary(st.columnBlob(column));
+			break;
+		default:
+			generator.writeString(st.columnString(column));
+		}
+	}
+
+	/*
+	 * Returns this thread's serialization buffer, empty and ready to be used. Buffers that grew too much because of a big
+	 * result are not retained so that each serving thread doesn't keep a big chunk of memory forever.
+	 */
+	private static ByteArrayOutputStream getResultBuffer() {
+		ByteArrayOutputStream buffer = resultBuffer.get();
+		if(buffer.size() > MAX_RETAINED_BUFFER_SIZE) {
+			buffer = new ByteArrayOutputStream(8192);
+			resultBuffer.set(buffer);
+		} else {
+			buffer.reset();
+		}
+		return buffer;
+	}
+
+	/**
+	 * Closes the pool of connections of this manager together with their cached statements. Connections that are being
+	 * used are closed as soon as their query finishes.
+	 */
 	@Override
 	public void close() {
-		db.get().dispose();
+		SQLiteConnectionPool connectionPool = pool;
+		if(connectionPool != null) {
+			connectionPool.close();
+		}
 	}
 
 	@Override
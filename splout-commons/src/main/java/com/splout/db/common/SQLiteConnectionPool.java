@@ -0,0 +1,670 @@
+package com.splout.db.common;
+
+/*
+ * #%L
+ * Splout SQL commons
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.almworks.sqlite4java.SQLiteConnection;
+import com.almworks.sqlite4java.SQLiteException;
+import com.almworks.sqlite4java.SQLiteStatement;
+
+/**
+ * A bounded pool of connections to one SQLite file that threads borrow from and return to. The number of connections
+ * is bounded per pool and, through the {@link Limits} shared by all the pools of a DNode, globally, and connections
+ * that are idle for too long are reaped, so that the open connections (and their page caches) follow the load.
+ * <p>
+ * sqlite4java confines each connection to the thread that opened it, so the pool is made of per-thread pools: a thread
+ * only borrows the connections that it opened, kept in a lock-free LIFO stack so that the most recently used (and
+ * warmest) one is handed out first. When a connection has to be closed by another thread - to make room for a thread
+ * that has none, by the reaper or when the pool is closed - it is disposed by its owner the next time it borrows or
+ * returns a connection of any pool, and it counts for the limits until then. Connections of threads that died are
+ * disposed by the thread that closes them, typically the reaper.
+ * <p>
+ * A thread that finds the pool (or the global limit) full waits until a connection is returned or disposed. Meanwhile
+ * the threads that return connections close them instead of keeping them idle, so that the waiting thread can open its
+ * own. Connections are therefore handed over by closing and reopening them when more threads than the maximum query a
+ * pool concurrently, which is why the maximum per pool should not be lower than the number of serving threads.
+ */
+public class SQLiteConnectionPool {
+
+	private final static Log log = LogFactory.getLog(SQLiteConnectionPool.class);
+
+	// Connections closed by other threads, to be disposed by the thread that owns them. Shared by all the pools.
+	private final static ConcurrentMap<Thread, ConcurrentLinkedQueue<PooledConnection>> ORPHANS = new ConcurrentHashMap<Thread, ConcurrentLinkedQueue<PooledConnection>>();
+	// The thread that a connection is confined to, see PooledConnection#disposeAbandoned()
+	private final static Field CONFINEMENT = confinementField();
+
+	/**
+	 * Sizing of the connection pools. The same instance is shared by all the pools whose connections count for the same
+	 * global limit - typically all the pools of a DNode. If the idle timeout is positive, a daemon thread closes the
+	 * connections that have been idle for longer than it, keeping at least the minimum number of connections per pool.
+	 */
+	public static class Limits {
+
+		private final int minConnections;
+		private final int maxConnections;
+		private final int maxTotalConnections;
+		private final long idleTimeoutMillis;
+		private final long borrowTimeoutMillis;
+
+		private final AtomicInteger totalConnections = new AtomicInteger(0);
+		private final ConcurrentLinkedQueue<SQLiteConnectionPool> pools = new ConcurrentLinkedQueue<SQLiteConnectionPool>();
+		// Bumped whenever a connection is returned or disposed, so that waiting borrowers try again
+		private final AtomicLong releases = new AtomicLong(0);
+		private final AtomicInteger waiters = new AtomicInteger(0);
+		private final Object releaseMonitor = new Object();
+		private Timer reaper;
+
+		/**
+		 * @param minConnections
+		 *          Connections per pool that are never reaped.
+		 * @param maxConnections
+		 *          Maximum number of connections per pool, which is also the maximum number of concurrent queries per pool.
+		 * @param maxTotalConnections
+		 *          Maximum number of connections among all the pools sharing these limits.
+		 * @param idleTimeoutMillis
+		 *          Connections that are idle for longer than this are closed. Non-positive values disable reaping.
+		 * @param borrowTimeoutMillis
+		 *          How long a query may wait for a connection before failing.
+		 */
+		public Limits(int minConnections, int maxConnections, int maxTotalConnections, long idleTimeoutMillis,
+		    long borrowTimeoutMillis) {
+			if(maxConnections < 1 || minConnections > maxConnections) {
+				throw new IllegalArgumentException("Invalid connection pool sizes: min (" + minConnections + "), max ("
+				    + maxConnections + ")");
+			}
+			this.minConnections = minConnections;
+			this.maxConnections = maxConnections;
+			this.maxTotalConnections = maxTotalConnections;
+			this.idleTimeoutMillis = idleTimeoutMillis;
+			this.borrowTimeoutMillis = borrowTimeoutMillis;
+			if(idleTimeoutMillis > 0) {
+				reaper = new Timer("SQLite connection reaper", true);
+				long period = Math.max(idleTimeoutMillis / 2, 100);
+				reaper.schedule(new TimerTask() {
+
+					@Override
+					public void run() {
+						reapIdleConnections();
+					}
+				}, period, period);
+			}
+		}
+
+		/**
+		 * Number of open connections among all the pools sharing these limits.
+		 */
+		public int getTotalConnections() {
+			return totalConnections.get();
+		}
+
+		/**
+		 * Closes the connections that have been idle for too long in every pool, if reaping is enabled.
+		 */
+		public void reapIdleConnections() {
+			if(idleTimeoutMillis <= 0) {
+				return;
+			}
+			long now = System.currentTimeMillis();
+			for(SQLiteConnectionPool pool : pools) {
+				pool.reap(now);
+			}
+			disposeDeadOrphans();
+		}
+
+		/**
+		 * Stops reaping idle connections. Pools are closed by their owners.
+		 */
+		public void close() {
+			if(reaper != null) {
+				reaper.cancel();
+			}
+		}
+
+		/*
+		 * Reserves one connection of the global limit.
+		 */
+		private boolean tryReserve() {
+			for(;;) {
+				int total = totalConnections.get();
+				if(total >= maxTotalConnections) {
+					return false;
+				}
+				if(totalConnections.compareAndSet(total, total + 1)) {
+					return true;
+				}
+			}
+		}
+
+		private boolean isFull() {
+			return totalConnections.get() >= maxTotalConnections;
+		}
+
+		/*
+		 * Wakes up the borrowers waiting for a connection, if any.
+		 */
+		private void signalRelease() {
+			releases.incrementAndGet();
+			if(waiters.get() > 0) {
+				synchronized(releaseMonitor) {
+					releaseMonitor.notifyAll();
+				}
+			}
+		}
+
+		/*
+		 * Waits until a connection is returned or disposed after the given count of releases was read. Returns false if
+		 * the deadline passes first.
+		 */
+		private boolean awaitRelease(long seenReleases, long deadline) throws InterruptedException {
+			synchronized(releaseMonitor) {
+				while(releases.get() == seenReleases) {
+					long remaining = deadline - System.currentTimeMillis();
+					if(remaining <= 0) {
+						return false;
+					}
+					releaseMonitor.wait(remaining);
+				}
+			}
+			return true;
+		}
+
+		/*
+		 * Makes room in the global limit by closing an idle connection of any pool.
+		 */
+		private boolean closeAnyIdleConnection() {
+			for(SQLiteConnectionPool pool : pools) {
+				if(pool.closeIdleConnection()) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * A connection together with its LRU cache of prepared statements, keyed by SQL text. Cached statements are reset
+	 * between uses and disposed when they are evicted or when the connection is closed.
+	 */
+	static class PooledConnection {
+
+		final SQLiteConnectionPool pool;
+		final SQLiteConnection conn;
+		// The thread that opened the connection, the only one that may use it
+		final Thread owner;
+		final Map<String, SQLiteStatement> statements;
+		long idleSince;
+
+		@SuppressWarnings("serial")
+		PooledConnection(SQLiteConnectionPool pool, SQLiteConnection conn, final int maxStatements) {
+			this.pool = pool;
+			this.conn = conn;
+			this.owner = Thread.currentThread();
+			this.statements = new LinkedHashMap<String, SQLiteStatement>(16, 0.75f, true) {
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+					if(size() > maxStatements) {
+						eldest.getValue().dispose();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		void dispose() {
+			try {
+				for(SQLiteStatement st : statements.values()) {
+					st.dispose();
+				}
+				statements.clear();
+				conn.dispose();
+			} finally {
+				pool.disposed();
+			}
+		}
+
+		/*
+		 * Disposes the connection of a thread that died. sqlite4java only lets the confining thread dispose a connection
+		 * and has no way to hand it over, so it is confined to the calling thread first: the owner is gone, so nothing
+		 * else can be using it.
+		 */
+		void disposeAbandoned() {
+			if(CONFINEMENT == null) {
+				return;
+			}
+			try {
+				CONFINEMENT.set(conn, Thread.currentThread());
+			} catch(IllegalAccessException e) {
+				log.warn("Couldn't dispose the SQLite connection of dead thread " + owner.getName(), e);
+				return;
+			}
+			dispose();
+		}
+	}
+
+	/*
+	 * Treiber stack of idle connections. Nodes are never reused so there is no ABA problem.
+	 */
+	static class IdleStack {
+
+		static class Node {
+			final PooledConnection connection;
+			Node next;
+
+			Node(PooledConnection connection) {
+				this.connection = connection;
+			}
+		}
+
+		private final AtomicReference<Node> top = new AtomicReference<Node>();
+
+		void push(PooledConnection connection) {
+			Node node = new Node(connection);
+			Node current;
+			do {
+				current = top.get();
+				node.next = current;
+			} while(!top.compareAndSet(current, node));
+		}
+
+		PooledConnection pop() {
+			Node current;
+			do {
+				current = top.get();
+				if(current == null) {
+					return null;
+				}
+			} while(!top.compareAndSet(current, current.next));
+			return current.connection;
+		}
+	}
+
+	private final File dbFile;
+	private final List<String> initStatements;
+	private final SQLiteConnectionSettings settings;
+	private final int statementCacheSize;
+	private final Limits limits;
+
+	// The idle connections of each thread
+	private final ConcurrentMap<Thread, IdleStack> idle = new ConcurrentHashMap<Thread, IdleStack>();
+	// Bounds the number of concurrent borrowers to the maximum number of connections
+	private final Semaphore permits;
+	private final AtomicInteger openConnections = new AtomicInteger(0);
+	// Borrowers waiting for a connection, see release()
+	private final AtomicInteger waiting = new AtomicInteger(0);
+	private volatile boolean closed = false;
+
+	public SQLiteConnectionPool(File dbFile, List<String> initStatements, SQLiteConnectionSettings settings,
+	    int statementCacheSize, Limits limits) {
+		this.dbFile = dbFile;
+		this.initStatements = initStatements;
+		this.settings = settings;
+		this.statementCacheSize = statementCacheSize;
+		this.limits = limits;
+		this.permits = new Semaphore(limits.maxConnections);
+		limits.pools.add(this);
+	}
+
+	/**
+	 * Number of connections currently open by this pool, either idle or borrowed.
+	 */
+	public int getOpenConnections() {
+		return openConnections.get();
+	}
+
+	/**
+	 * Borrows a connection opened by this thread, waiting for one to be returned if the pool or the global limit is
+	 * exhausted. The connection must be given back with {@link #release(PooledConnection)} by the same thread.
+	 */
+	PooledConnection borrow() throws SQLException {
+		disposeOrphans();
+		if(closed) {
+			throw new SQLException("Connection pool to " + dbFile + " is closed.");
+		}
+		long deadline = System.currentTimeMillis() + limits.borrowTimeoutMillis;
+		try {
+			if(!permits.tryAcquire()) {
+				// Counted as waiting so that the connection released to us is closed, as we may need to open our own
+				waiting.incrementAndGet();
+				try {
+					if(!permits.tryAcquire(limits.borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+						throw new SQLException("Timeout waiting for a connection to " + dbFile + " (" + limits.maxConnections
+						    + " connections busy).");
+					}
+				} finally {
+					waiting.decrementAndGet();
+				}
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection to " + dbFile);
+		}
+		try {
+			IdleStack ownIdle = idleConnections(Thread.currentThread());
+			PooledConnection connection = ownIdle.pop();
+			if(connection != null) {
+				return connection;
+			}
+			if(tryReserve()) {
+				return open();
+			}
+			return awaitConnection(ownIdle, deadline);
+		} catch(SQLException e) {
+			permits.release();
+			throw e;
+		} catch(RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/*
+	 * The other threads have all the connections of this pool, or the global limit has been reached. Closes one idle
+	 * connection of another thread, if there is any, and waits for a connection to be returned or disposed.
+	 */
+	private PooledConnection awaitConnection(IdleStack ownIdle, long deadline) throws SQLException {
+		waiting.incrementAndGet();
+		limits.waiters.incrementAndGet();
+		try {
+			boolean evicted = false;
+			for(;;) {
+				long seenReleases = limits.releases.get();
+				PooledConnection connection = ownIdle.pop();
+				if(connection != null) {
+					return connection;
+				}
+				if(tryReserve()) {
+					return open();
+				}
+				// Only one per borrower: an evicted connection counts until its owner disposes it, so evicting more would
+				// only close the connections of other threads without making room any sooner
+				if(!evicted) {
+					evicted = closeIdleConnection() || limits.closeAnyIdleConnection();
+					if(evicted) {
+						continue;
+					}
+				}
+				if(!limits.awaitRelease(seenReleases, deadline)) {
+					throw new SQLException("Timeout waiting for a connection to " + dbFile + " (" + openConnections.get()
+					    + " connections open in the pool, " + limits.getTotalConnections() + " in total).");
+				}
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection to " + dbFile);
+		} finally {
+			waiting.decrementAndGet();
+			limits.waiters.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Gives a borrowed connection back to the pool. If other threads are waiting for room the connection is closed
+	 * instead, so that they can open their own.
+	 */
+	void release(PooledConnection connection) {
+		connection.idleSince = System.currentTimeMillis();
+		if(closed || isWanted()) {
+			dispose(connection);
+		} else {
+			idleConnections(connection.owner).push(connection);
+			if(closed) {
+				// close() may have drained the stack before our push
+				disposeIdle();
+			}
+		}
+		permits.release();
+		limits.signalRelease();
+		disposeOrphans();
+	}
+
+	/**
+	 * Closes every idle connection and makes borrowed connections be closed as soon as they are released.
+	 */
+	public void close() {
+		closed = true;
+		limits.pools.remove(this);
+		disposeIdle();
+	}
+
+	/**
+	 * Disposes the connections of the calling thread that other threads closed. Called whenever the thread borrows or
+	 * returns a connection.
+	 */
+	static void disposeOrphans() {
+		ConcurrentLinkedQueue<PooledConnection> orphans = ORPHANS.get(Thread.currentThread());
+		if(orphans != null) {
+			PooledConnection connection;
+			while((connection = orphans.poll()) != null) {
+				connection.dispose();
+			}
+		}
+	}
+
+	/*
+	 * The orphans of threads that died are disposed by the reaper.
+	 */
+	private static void disposeDeadOrphans() {
+		Iterator<Map.Entry<Thread, ConcurrentLinkedQueue<PooledConnection>>> it = ORPHANS.entrySet().iterator();
+		while(it.hasNext()) {
+			Map.Entry<Thread, ConcurrentLinkedQueue<PooledConnection>> entry = it.next();
+			if(!entry.getKey().isAlive()) {
+				it.remove();
+				PooledConnection connection;
+				while((connection = entry.getValue().poll()) != null) {
+					connection.disposeAbandoned();
+				}
+			}
+		}
+	}
+
+	private static Field confinementField() {
+		try {
+			Field field = SQLiteConnection.class.getDeclaredField("myConfinement");
+			field.setAccessible(true);
+			return field;
+		} catch(Exception e) {
+			log.warn("SQLite connections of threads that die will not be disposed: " + e);
+			return null;
+		}
+	}
+
+	IdleStack idleConnections(Thread thread) {
+		IdleStack stack = idle.get(thread);
+		if(stack == null) {
+			IdleStack newStack = new IdleStack();
+			stack = idle.putIfAbsent(thread, newStack);
+			if(stack == null) {
+				stack = newStack;
+			}
+		}
+		return stack;
+	}
+
+	/*
+	 * Whether a borrower is waiting for the room taken by a connection of this pool.
+	 */
+	private boolean isWanted() {
+		return (waiting.get() > 0 && openConnections.get() >= limits.maxConnections)
+		    || (limits.waiters.get() > 0 && limits.isFull());
+	}
+
+	/*
+	 * Makes room for another connection by closing an idle one of any thread.
+	 */
+	private boolean closeIdleConnection() {
+		for(IdleStack stack : idle.values()) {
+			PooledConnection connection = stack.pop();
+			if(connection != null) {
+				dispose(connection);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Reserves a connection in both this pool and the global limit.
+	 */
+	private boolean tryReserve() {
+		for(;;) {
+			int open = openConnections.get();
+			if(open >= limits.maxConnections) {
+				return false;
+			}
+			if(openConnections.compareAndSet(open, open + 1)) {
+				break;
+			}
+		}
+		if(!limits.tryReserve()) {
+			openConnections.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	private PooledConnection open() throws SQLException {
+		log.info(Thread.currentThread().getName() + " opens a new connection to " + dbFile);
+		SQLiteConnection conn = new SQLiteConnection(dbFile);
+		try {
+			conn.openV2(settings.getOpenFlags());
+			if(settings.getStepsPerCallback() > 0) {
+				conn.setStepsPerCallback(settings.getStepsPerCallback());
+			}
+			for(String pragma : settings.getPragmas(dbFile)) {
+				conn.exec(pragma);
+			}
+			if(initStatements != null) {
+				for(String initStatement : initStatements) {
+					conn.exec(initStatement);
+				}
+			}
+		} catch(SQLiteException e) {
+			conn.dispose();
+			disposed();
+			throw new SQLException(e);
+		}
+		return new PooledConnection(this, conn, statementCacheSize);
+	}
+
+	private void disposeIdle() {
+		for(IdleStack stack : idle.values()) {
+			PooledConnection connection;
+			while((connection = stack.pop()) != null) {
+				dispose(connection);
+			}
+		}
+	}
+
+	/*
+	 * Pops all the idle connections of each thread and pushes back, in the same order, the ones that must be kept.
+	 * Meanwhile borrowers may find their stack empty and open new connections, which is fine as they are still bounded
+	 * by the limits.
+	 */
+	private void reap(long now) {
+		int kept = 0;
+		Iterator<Map.Entry<Thread, IdleStack>> it = idle.entrySet().iterator();
+		while(it.hasNext()) {
+			Map.Entry<Thread, IdleStack> entry = it.next();
+			IdleStack stack = entry.getValue();
+			List<PooledConnection> popped = new ArrayList<PooledConnection>();
+			PooledConnection connection;
+			while((connection = stack.pop()) != null) {
+				popped.add(connection);
+			}
+			if(!entry.getKey().isAlive()) {
+				it.remove();
+				for(PooledConnection candidate : popped) {
+					candidate.disposeAbandoned();
+				}
+				continue;
+			}
+			List<PooledConnection> keep = new ArrayList<PooledConnection>(popped.size());
+			for(PooledConnection candidate : popped) {
+				if(kept < limits.minConnections || now - candidate.idleSince < limits.idleTimeoutMillis) {
+					keep.add(candidate);
+					kept++;
+				} else {
+					dispose(candidate);
+				}
+			}
+			for(int i = keep.size() - 1; i >= 0; i--) {
+				stack.push(keep.get(i));
+			}
+		}
+		if(closed) {
+			disposeIdle();
+		}
+	}
+
+	/*
+	 * Closes a connection that is not borrowed: right away if the calling thread owns it or its owner died, or else the
+	 * next time that its owner borrows or returns a connection.
+	 */
+	private static void dispose(PooledConnection connection) {
+		if(connection.owner == Thread.currentThread()) {
+			connection.dispose();
+		} else if(!connection.owner.isAlive()) {
+			connection.disposeAbandoned();
+		} else {
+			ConcurrentLinkedQueue<PooledConnection> orphans = ORPHANS.get(connection.owner);
+			if(orphans == null) {
+				ConcurrentLinkedQueue<PooledConnection> newOrphans = new ConcurrentLinkedQueue<PooledConnection>();
+				orphans = ORPHANS.putIfAbsent(connection.owner, newOrphans);
+				if(orphans == null) {
+					orphans = newOrphans;
+				}
+			}
+			orphans.add(connection);
+		}
+	}
+
+	/*
+	 * Called once a connection of this pool has been disposed: only then it stops counting for the limits.
+	 */
+	private void disposed() {
+		openConnections.decrementAndGet();
+		limits.totalConnections.decrementAndGet();
+		limits.signalRelease();
+	}
+}
@@ -0,0 +1,185 @@
+package com.splout.db.common;
+
+/*
+ * #%L
+ * Splout SQL commons
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.almworks.sqlite4java.SQLiteConstants;
+
+/**
+ * How SQL connections are opened and tuned: open flags and the PRAGMAs that are executed before the user's
+ * initialization statements, so that the latter can still override them. Page cache and memory-mapping sizes can be
+ * derived from the size of the database file and the physical memory of the machine by setting them to {@link #AUTO}.
+ * <p>
+ * The defaults are those of SQLite, so that files can be created and written.
+ */
+public class SQLiteConnectionSettings {
+
+	/**
+	 * Value of the size settings that makes them be derived from the database file size and the physical memory.
+	 */
+	public final static long AUTO = -1;
+
+	// Minimum page cache per connection when sized automatically, the SQLite default (2000 pages of 1 KB)
+	final static long MIN_AUTO_CACHE_SIZE_KB = 2000;
+	// Maximum page cache per connection when sized automatically, as a fraction of the physical memory
+	final static int AUTO_CACHE_SIZE_RAM_FRACTION = 1024;
+
+	private boolean readOnly = false;
+	private boolean immutable = false;
+	private long mmapSize = 0;
+	private long cacheSizeKb = 0;
+	private String tempStore = null;
+	private int stepsPerCallback = 0;
+
+	/**
+	 * Opens connections with SQLITE_OPEN_READONLY.
+	 */
+	public SQLiteConnectionSettings setReadOnly(boolean readOnly) {
+		this.readOnly = readOnly;
+		return this;
+	}
+
+	/**
+	 * Declares that the files will not change while they are open, which together with {@link #setReadOnly(boolean)}
+	 * allows connections to keep their shared lock and their page cache across queries instead of validating them at the
+	 * start of every read transaction (locking_mode=EXCLUSIVE, as the SQLite library bundled with sqlite4java predates
+	 * the "immutable" URI parameter).
+	 */
+	public SQLiteConnectionSettings setImmutable(boolean immutable) {
+		this.immutable = immutable;
+		return this;
+	}
+
+	/**
+	 * Bytes of the database file that SQLite accesses through memory-mapped I/O (mmap_size), {@link #AUTO} for the whole
+	 * file or 0 for the SQLite default. Ignored by SQLite versions older than 3.7.17.
+	 */
+	public SQLiteConnectionSettings setMmapSize(long mmapSize) {
+		this.mmapSize = mmapSize;
+		return this;
+	}
+
+	/**
+	 * Page cache of each connection in KB (cache_size), {@link #AUTO} for the size of the file bounded by a fraction of
+	 * the physical memory or 0 for the SQLite default.
+	 */
+	public SQLiteConnectionSettings setCacheSizeKb(long cacheSizeKb) {
+		this.cacheSizeKb = cacheSizeKb;
+		return this;
+	}
+
+	/**
+	 * Where temporary tables and indices used by sorts and groupings are stored (temp_store): DEFAULT, FILE or MEMORY.
+	 * Null for the SQLite default.
+	 */
+	public SQLiteConnectionSettings setTempStore(String tempStore) {
+		this.tempStore = tempStore;
+		return this;
+	}
+
+	/**
+	 * Number of SQLite VM steps between two calls of the progress handler that sqlite4java installs on connections (see
+	 * SQLiteConnection.setStepsPerCallback()), which checks whether the statement has been cancelled. Higher values make
+	 * the handler cheaper but cancellation coarser. 0 for the sqlite4java default (1).
+	 */
+	public SQLiteConnectionSettings setStepsPerCallback(int stepsPerCallback) {
+		this.stepsPerCallback = stepsPerCallback;
+		return this;
+	}
+
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	public boolean isImmutable() {
+		return immutable;
+	}
+
+	public long getMmapSize() {
+		return mmapSize;
+	}
+
+	public long getCacheSizeKb() {
+		return cacheSizeKb;
+	}
+
+	public String getTempStore() {
+		return tempStore;
+	}
+
+	public int getStepsPerCallback() {
+		return stepsPerCallback;
+	}
+
+	/**
+	 * Flags to be passed to SQLiteConnection.openV2().
+	 */
+	public int getOpenFlags() {
+		if(readOnly) {
+			return SQLiteConstants.SQLITE_OPEN_READONLY;
+		}
+		return SQLiteConstants.SQLITE_OPEN_READWRITE | SQLiteConstants.SQLITE_OPEN_CREATE;
+	}
+
+	/**
+	 * PRAGMA statements that apply these settings to a new connection to the given file.
+	 */
+	public List<String> getPragmas(File dbFile) {
+		List<String> pragmas = new ArrayList<String>();
+		if(immutable && readOnly) {
+			pragmas.add("PRAGMA locking_mode=EXCLUSIVE;");
+		}
+		if(mmapSize == AUTO) {
+			pragmas.add("PRAGMA mmap_size=" + dbFile.length() + ";");
+		} else if(mmapSize > 0) {
+			pragmas.add("PRAGMA mmap_size=" + mmapSize + ";");
+		}
+		long cacheSize = cacheSizeKb;
+		if(cacheSize == AUTO) {
+			cacheSize = Math.max(MIN_AUTO_CACHE_SIZE_KB,
+			    Math.min(dbFile.length() / 1024, getPhysicalMemory() / 1024 / AUTO_CACHE_SIZE_RAM_FRACTION));
+		}
+		if(cacheSize > 0) {
+			// Negative values are a size in KB instead of a number of pages
+			pragmas.add("PRAGMA cache_size=-" + cacheSize + ";");
+		}
+		if(tempStore != null) {
+			pragmas.add("PRAGMA temp_store=" + tempStore + ";");
+		}
+		return pragmas;
+	}
+
+	/**
+	 * Physical memory of the machine in bytes if the JVM exposes it, otherwise the maximum heap size.
+	 */
+	public static long getPhysicalMemory() {
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if(os instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize();
+		}
+		return Runtime.getRuntime().maxMemory();
+	}
+}
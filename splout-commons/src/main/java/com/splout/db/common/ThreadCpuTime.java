@@ -0,0 +1,90 @@
+package com.splout.db.common;
+
+/*
+ * #%L
+ * Splout SQL commons
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The CPU time consumed by threads, as measured by the JVM. SQLite connections are confined to the thread that serves
+ * their queries, so the CPU time that this thread consumes while a query runs is the CPU cost of the query. Unlike
+ * the wall-clock time, it doesn't depend on how loaded the machine is. It can be read from another thread (e.g. the
+ * {@link TimeoutThread}) while the query runs.
+ * <p>
+ * If the JVM can't measure the CPU time of threads {@link #isSupported()} returns false, and queries with a CPU
+ * budget fail instead of running without limit.
+ */
+class ThreadCpuTime {
+
+	private final static Log log = LogFactory.getLog(ThreadCpuTime.class);
+
+	private final static ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private final static String UNSUPPORTED_REASON;
+
+	static {
+		String unsupportedReason = null;
+		try {
+			if(!THREADS.isThreadCpuTimeSupported()) {
+				unsupportedReason = "the JVM doesn't support measuring the CPU time of threads";
+			} else if(!THREADS.isThreadCpuTimeEnabled()) {
+				THREADS.setThreadCpuTimeEnabled(true);
+			}
+		} catch(Exception e) {
+			unsupportedReason = "couldn't enable measuring the CPU time of threads: " + e;
+		}
+		UNSUPPORTED_REASON = unsupportedReason;
+		if(UNSUPPORTED_REASON != null) {
+			log.warn("CPU time of queries will not be measured: " + UNSUPPORTED_REASON);
+		}
+	}
+
+	private ThreadCpuTime() {
+	}
+
+	static boolean isSupported() {
+		return UNSUPPORTED_REASON == null;
+	}
+
+	/**
+	 * Why the CPU time of threads can't be measured, or null if it can.
+	 */
+	static String getUnsupportedReason() {
+		return UNSUPPORTED_REASON;
+	}
+
+	/**
+	 * CPU time consumed so far by the current thread, in nanoseconds, or 0 if it can't be measured.
+	 */
+	static long current() {
+		return isSupported() ? Math.max(0, THREADS.getCurrentThreadCpuTime()) : 0;
+	}
+
+	/**
+	 * CPU time consumed so far by the given thread, in nanoseconds, or -1 if the thread is dead or its CPU time can't be
+	 * measured.
+	 */
+	static long of(Thread thread) {
+		return isSupported() ? THREADS.getThreadCpuTime(thread.getId()) : -1;
+	}
+}
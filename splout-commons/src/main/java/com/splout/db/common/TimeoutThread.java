@@ -21,9 +21,11 @@ package com.splout.db.common;
  */
 
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -33,127 +35,308 @@ import com.almworks.sqlite4java.SQLiteException;
 
 /**
  * A Thread that is in charge of killing long-running queries.
+ * <p>
+ * Each query arms a {@link QueryTimeout} when it starts and disarms it when it ends. Timeouts are kept in a hashed
+ * timer wheel: a circular array of buckets, one per tick, where each timeout is placed in the bucket of the tick its
+ * deadline falls in. Arming and disarming are O(1) and don't take any shared lock: they just enqueue the timeout, and
+ * this thread moves it into (or out of) its bucket. On each tick the thread only looks at the timeouts of the current
+ * bucket, so queries are interrupted at most one tick after their deadline, regardless of the number of connections.
+ * <p>
+ * Queries can also be given a budget of CPU time. This thread checks the CPU time consumed by the threads that run
+ * those queries on each tick and interrupts the ones that exceed it, so that a runaway scan is cut off in the middle
+ * of a step() call.
  */
 public class TimeoutThread extends Thread {
 
 	private final static Log log = LogFactory.getLog(TimeoutThread.class);
 
-	private ConcurrentHashMap<SQLiteConnection, QueryAndTime> currentQueries = new ConcurrentHashMap<SQLiteConnection, QueryAndTime>();
-	private Set<SQLiteConnection> connections = Collections.synchronizedSet(new HashSet<SQLiteConnection>());
-	
-	private long timeout;
+	// Default resolution of the deadlines, in milliseconds
+	public final static long DEFAULT_TICK_MILLIS = 10;
+	// Number of buckets of the wheel, a power of two
+	final static int WHEEL_SIZE = 512;
 
-	static class QueryAndTime {
-		String query;
-		Long time;
+	private final static int ARMED = 0;
+	private final static int DISARMED = 1;
+	private final static int EXPIRED = 2;
+	private final static int OVER_BUDGET = 3;
 
-		public QueryAndTime(String query, Long time) {
+	/**
+	 * The timeout of a running query, returned by {@link TimeoutThread#startQuery(SQLiteConnection, String)} and to be
+	 * given back to {@link TimeoutThread#endQuery(QueryTimeout)} when the query ends.
+	 */
+	public static class QueryTimeout {
+
+		final SQLiteConnection connection;
+		final String query;
+		final long deadline;
+		final Thread thread;
+		final long startCpuNanos;
+		final long maxCpuMillis;
+		final AtomicInteger state = new AtomicInteger(ARMED);
+
+		// The following are only accessed by the timeout thread
+		long remainingRounds;
+		Bucket bucket;
+		QueryTimeout previous;
+		QueryTimeout next;
+
+		QueryTimeout(SQLiteConnection connection, String query, long deadline, long maxCpuMillis) {
+			this.connection = connection;
 			this.query = query;
-			this.time = time;
+			this.deadline = deadline;
+			this.thread = Thread.currentThread();
+			this.startCpuNanos = maxCpuMillis > 0 ? ThreadCpuTime.current() : 0;
+			this.maxCpuMillis = maxCpuMillis;
+		}
+
+		/**
+		 * Whether the query was interrupted because it reached its deadline.
+		 */
+		public boolean isExpired() {
+			return state.get() == EXPIRED;
+		}
+
+		/**
+		 * Whether the query was interrupted because it exceeded its budget of CPU time.
+		 */
+		public boolean isOverBudget() {
+			return state.get() == OVER_BUDGET;
+		}
+	}
+
+	/*
+	 * A doubly-linked list of the timeouts whose deadline falls in a tick of the wheel.
+	 */
+	static class Bucket {
+
+		QueryTimeout head;
+
+		void add(QueryTimeout timeout) {
+			timeout.bucket = this;
+			timeout.next = head;
+			if(head != null) {
+				head.previous = timeout;
+			}
+			head = timeout;
+		}
+
+		void remove(QueryTimeout timeout) {
+			if(timeout.previous != null) {
+				timeout.previous.next = timeout.next;
+			} else {
+				head = timeout.next;
+			}
+			if(timeout.next != null) {
+				timeout.next.previous = timeout.previous;
+			}
+			timeout.bucket = null;
+			timeout.previous = null;
+			timeout.next = null;
 		}
 	}
 
+	private final long timeout;
+	private final long tickMillis;
+	private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+	// Timeouts armed or disarmed since the last tick, to be moved into or out of the wheel by this thread
+	private final ConcurrentLinkedQueue<QueryTimeout> armed = new ConcurrentLinkedQueue<QueryTimeout>();
+	private final ConcurrentLinkedQueue<QueryTimeout> disarmed = new ConcurrentLinkedQueue<QueryTimeout>();
+	private final AtomicInteger pendingTimeouts = new AtomicInteger(0);
+	// Running queries that have a budget of CPU time
+	private final Set<QueryTimeout> budgeted = Collections.newSetFromMap(new ConcurrentHashMap<QueryTimeout, Boolean>());
+
+	private long startTime;
+	private long tick = 0;
+
 	/**
 	 * @param timeout
 	 *          The timeout in milliseconds. If a SQLite connection monitored by this Thread has a query that runs for
 	 *          more than this, it will be interrupted and the query will return an error.
 	 */
 	public TimeoutThread(long timeout) {
+		this(timeout, DEFAULT_TICK_MILLIS);
+	}
+
+	/**
+	 * @param timeout
+	 *          The default timeout of queries in milliseconds.
+	 * @param tickMillis
+	 *          The resolution of the deadlines: queries are interrupted at most this amount of milliseconds after them.
+	 */
+	public TimeoutThread(long timeout, long tickMillis) {
+		super("Timeout Thread");
+		setDaemon(true);
 		this.timeout = timeout;
+		this.tickMillis = tickMillis;
+		for(int i = 0; i < WHEEL_SIZE; i++) {
+			wheel[i] = new Bucket();
+		}
 	}
 
 	@Override
 	public void run() {
 		log.info("Starting Timeout Thread...");
+		startTime = System.currentTimeMillis();
 		try {
-			while(true) {
-				long now = System.currentTimeMillis();
-				for(SQLiteConnection conn : connections) {
-					QueryAndTime queryAndTime = currentQueries.get(conn);
-					long time = queryAndTime.time;
-					if(time < 0) { // means this connection is not active
-						continue;
-					}
-					synchronized(conn) {
-						if((now - time) > timeout) {
-							// Timeout: we should interrupt this connection!
-
-							try {
-
-								/*
-								 * Even though SQLiteConnections are not thread-safe, this method *IS* thread-safe and that's why we can
-								 * implement this thread. The thread that launched the query is busy waiting for the result so another
-								 * thread must interrupt it!
-								 * 
-								 * SQLite4Java docs:
-								 * http://almworks.com/sqlite4java/javadoc/com/almworks/sqlite4java/SQLiteConnection.html#interrupt()
-								 * SQLite docs: http://www.sqlite.org/c3ref/interrupt.html
-								 */
-								log.info("Long running query [" + queryAndTime.query + "] ran for more than ["
-								    + timeout + "] ms. Interrupting it!");
-								conn.interrupt();
-							} catch(SQLiteException e) {
-								//
-							} finally {
-								queryAndTime.query = null;
-								queryAndTime.time = -1l; // connection will not be considered until a new query is executed
-							}
-						}
-					}
-				}
-				long andNow = System.currentTimeMillis();
-				if((andNow - now) < 1000) {
-					Thread.sleep(1000 - (andNow - now));
+			while(!isInterrupted()) {
+				long sleep = startTime + (tick + 1) * tickMillis - System.currentTimeMillis();
+				if(sleep > 0) {
+					Thread.sleep(sleep);
 				}
+				long now = System.currentTimeMillis();
+				removeDisarmed();
+				addArmed();
+				expire(wheel[(int) (tick & (WHEEL_SIZE - 1))], now);
+				checkBudgets();
+				tick++;
 			}
 		} catch(InterruptedException e) {
-			throw new RuntimeException(e);
+			// Stopped
 		}
+		log.info("Timeout Thread stopped.");
 	}
 
-	/**
-	 * A Thread provides its thread-local connection to be monitored when a query starts. The SQL query is provided just
-	 * for logging purposes.
-	 */
-	public void startQuery(SQLiteConnection connection, String query) {
-		synchronized(connection) {
-			if(!connections.contains(connection)) {
-				connections.add(connection);
+	private void removeDisarmed() {
+		QueryTimeout queryTimeout;
+		while((queryTimeout = disarmed.poll()) != null) {
+			if(queryTimeout.bucket != null) {
+				queryTimeout.bucket.remove(queryTimeout);
+				pendingTimeouts.decrementAndGet();
 			}
-			QueryAndTime qAndTime = currentQueries.get(connection);
-			if(qAndTime == null) {
-				qAndTime = new QueryAndTime(query, System.currentTimeMillis());
-				currentQueries.put(connection, qAndTime);
-			} else {
-				qAndTime.query = query;
-				qAndTime.time = System.currentTimeMillis();
+		}
+	}
+
+	private void addArmed() {
+		QueryTimeout queryTimeout;
+		while((queryTimeout = armed.poll()) != null) {
+			if(queryTimeout.state.get() != ARMED) {
+				// Disarmed before reaching the wheel
+				pendingTimeouts.decrementAndGet();
+				continue;
 			}
+			// Deadlines that already passed go to the current tick
+			long deadlineTick = Math.max(tick, (queryTimeout.deadline - startTime) / tickMillis);
+			queryTimeout.remainingRounds = (deadlineTick - tick) / WHEEL_SIZE;
+			wheel[(int) (deadlineTick & (WHEEL_SIZE - 1))].add(queryTimeout);
 		}
 	}
 
+	private void expire(Bucket bucket, long now) {
+		QueryTimeout queryTimeout = bucket.head;
+		while(queryTimeout != null) {
+			QueryTimeout next = queryTimeout.next;
+			if(queryTimeout.remainingRounds > 0) {
+				queryTimeout.remainingRounds--;
+			} else if(queryTimeout.deadline <= now) {
+				bucket.remove(queryTimeout);
+				pendingTimeouts.decrementAndGet();
+				interrupt(queryTimeout, EXPIRED);
+			}
+			queryTimeout = next;
+		}
+	}
+
+	private void checkBudgets() {
+		Iterator<QueryTimeout> iterator = budgeted.iterator();
+		while(iterator.hasNext()) {
+			QueryTimeout queryTimeout = iterator.next();
+			if(queryTimeout.state.get() != ARMED) {
+				iterator.remove();
+			} else if(ThreadCpuTime.of(queryTimeout.thread) - queryTimeout.startCpuNanos > queryTimeout.maxCpuMillis
+			    * 1000000) {
+				iterator.remove();
+				interrupt(queryTimeout, OVER_BUDGET);
+			}
+		}
+	}
+
+	private void interrupt(QueryTimeout queryTimeout, int reason) {
+		// Synchronized with endQuery() so that a connection that has been given to another query is never interrupted
+		synchronized(queryTimeout) {
+			if(!queryTimeout.state.compareAndSet(ARMED, reason)) {
+				return;
+			}
+			try {
+				/*
+				 * Even though SQLiteConnections are not thread-safe, this method *IS* thread-safe and that's why we can
+				 * implement this thread. The thread that launched the query is busy waiting for the result so another
+				 * thread must interrupt it!
+				 * 
+				 * SQLite4Java docs:
+				 * http://almworks.com/sqlite4java/javadoc/com/almworks/sqlite4java/SQLiteConnection.html#interrupt()
+				 * SQLite docs: http://www.sqlite.org/c3ref/interrupt.html
+				 */
+				if(reason == EXPIRED) {
+					log.info("Long running query [" + queryTimeout.query + "] reached its deadline. Interrupting it!");
+				} else {
+					log.info("Query [" + queryTimeout.query + "] exceeded its budget of " + queryTimeout.maxCpuMillis
+					    + " ms of CPU. Interrupting it!");
+				}
+				queryTimeout.connection.interrupt();
+			} catch(SQLiteException e) {
+				//
+			}
+		}
+	}
+
+	/**
+	 * Arms the default timeout for a query that starts in the given connection. The SQL query is provided just for
+	 * logging purposes.
+	 */
+	public QueryTimeout startQuery(SQLiteConnection connection, String query) {
+		return startQuery(connection, query, System.currentTimeMillis() + timeout);
+	}
+
 	/**
-	 * The same Thread that provided this connection in startQuery() removes it from the monitoring list. So it is
-	 * important to understand that this class makes the assumption that each SQLite Thread will use only one connection
-	 * (Thread-local). {@link SQLite4JavaManager} behaves like this.
+	 * Arms a timeout for a query that starts in the given connection, to be interrupted at the given deadline (a
+	 * System.currentTimeMillis() instant).
 	 */
-	public void endQuery(SQLiteConnection connection) {
-		synchronized(connection) {
-			QueryAndTime qAndTime = currentQueries.get(connection);
-			if(qAndTime == null) {
+	public QueryTimeout startQuery(SQLiteConnection connection, String query, long deadline) {
+		return startQuery(connection, query, deadline, 0);
+	}
+
+	/**
+	 * Like {@link #startQuery(SQLiteConnection, String, long)} but also interrupting the query if the calling thread,
+	 * which runs it, consumes more than maxCpuMillis milliseconds of CPU from now on (0 for no budget). See
+	 * {@link ThreadCpuTime}.
+	 */
+	QueryTimeout startQuery(SQLiteConnection connection, String query, long deadline, long maxCpuMillis) {
+		QueryTimeout queryTimeout = new QueryTimeout(connection, query, deadline, maxCpuMillis);
+		pendingTimeouts.incrementAndGet();
+		armed.add(queryTimeout);
+		if(maxCpuMillis > 0 && ThreadCpuTime.isSupported()) {
+			budgeted.add(queryTimeout);
+		}
+		return queryTimeout;
+	}
+
+	/**
+	 * Disarms the timeout of a query that ended, which must be called before the connection is used by another query.
+	 */
+	public void endQuery(QueryTimeout queryTimeout) {
+		synchronized(queryTimeout) {
+			// Expired timeouts are already out of the wheel, those over budget are still in it
+			if(!queryTimeout.state.compareAndSet(ARMED, DISARMED) && !queryTimeout.isOverBudget()) {
 				return;
-			} else {
-				qAndTime.query = null;
-				qAndTime.time = -1l; // connection will not be considered until a new query is executed
 			}
 		}
+		disarmed.add(queryTimeout);
+		if(queryTimeout.maxCpuMillis > 0) {
+			budgeted.remove(queryTimeout);
+		}
 	}
 
-	// --- package-access getters for unit testing --- //
-	
-	ConcurrentHashMap<SQLiteConnection, QueryAndTime> getCurrentQueries() {
-  	return currentQueries;
-  }
-	Set<SQLiteConnection> getConnections() {
-  	return connections;
-  }
+	/**
+	 * The default timeout of queries in milliseconds.
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Number of timeouts that are armed, or were disarmed or expired but not yet removed from the wheel.
+	 */
+	int getPendingTimeouts() {
+		return pendingTimeouts.get();
+	}
 }
@@ -21,6 +21,7 @@ package com.splout.db.dnode.beans;
  */
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * JSON bean that is returned when requesting for the status of the DNode.
@@ -35,9 +36,25 @@ public class DNodeSystemStatus {
 	private int failedQueries;
 	private double slowQueries;
 	private double average;
+	private long statementCacheHits;
+	private long statementCacheMisses;
+	private int openConnections;
+	private int runningQueries;
+	private int queuedQueries;
+	private long rejectedQueries;
+	private long resultCacheHits;
+	private long resultCacheMisses;
+	private double resultCacheHitRatio;
+	private long resultCacheBytes;
+	private int resultCacheEntries;
 	private long occupiedSpaceInDisk;
 	private long freeSpaceInDisk;
 	private List<String> files;
+	private LatencyStats latency;
+	private Map<String, LatencyStats> tablespaceLatencies;
+	private Map<String, LatencyStats> partitionLatencies;
+	private List<SlowQuery> slowQueryLog;
+	private Map<String, List<FingerprintStats>> topQueries;
 	
 	public List<String> getFiles() {
   	return files;
@@ -104,5 +121,101 @@ public class DNodeSystemStatus {
   }
 	public void setLastExceptionTime(long lastExceptionTime) {
   	this.lastExceptionTime = lastExceptionTime;
+  }
+	public long getStatementCacheHits() {
+  	return statementCacheHits;
+  }
+	public void setStatementCacheHits(long statementCacheHits) {
+  	this.statementCacheHits = statementCacheHits;
+  }
+	public long getStatementCacheMisses() {
+  	return statementCacheMisses;
+  }
+	public void setStatementCacheMisses(long statementCacheMisses) {
+  	this.statementCacheMisses = statementCacheMisses;
+  }
+	public int getOpenConnections() {
+  	return openConnections;
+  }
+	public void setOpenConnections(int openConnections) {
+  	this.openConnections = openConnections;
+  }
+	public long getResultCacheHits() {
+  	return resultCacheHits;
+  }
+	public void setResultCacheHits(long resultCacheHits) {
+  	this.resultCacheHits = resultCacheHits;
+  }
+	public long getResultCacheMisses() {
+  	return resultCacheMisses;
+  }
+	public void setResultCacheMisses(long resultCacheMisses) {
+  	this.resultCacheMisses = resultCacheMisses;
+  }
+	public double getResultCacheHitRatio() {
+  	return resultCacheHitRatio;
+  }
+	public void setResultCacheHitRatio(double resultCacheHitRatio) {
+  	this.resultCacheHitRatio = resultCacheHitRatio;
+  }
+	public long getResultCacheBytes() {
+  	return resultCacheBytes;
+  }
+	public void setResultCacheBytes(long resultCacheBytes) {
+  	this.resultCacheBytes = resultCacheBytes;
+  }
+	public int getResultCacheEntries() {
+  	return resultCacheEntries;
+  }
+	public void setResultCacheEntries(int resultCacheEntries) {
+  	this.resultCacheEntries = resultCacheEntries;
+  }
+	public int getRunningQueries() {
+  	return runningQueries;
+  }
+	public void setRunningQueries(int runningQueries) {
+  	this.runningQueries = runningQueries;
+  }
+	public int getQueuedQueries() {
+  	return queuedQueries;
+  }
+	public void setQueuedQueries(int queuedQueries) {
+  	this.queuedQueries = queuedQueries;
+  }
+	public long getRejectedQueries() {
+  	return rejectedQueries;
+  }
+	public void setRejectedQueries(long rejectedQueries) {
+  	this.rejectedQueries = rejectedQueries;
+  }
+	public LatencyStats getLatency() {
+  	return latency;
+  }
+	public void setLatency(LatencyStats latency) {
+  	this.latency = latency;
+  }
+	public Map<String, LatencyStats> getTablespaceLatencies() {
+  	return tablespaceLatencies;
+  }
+	public void setTablespaceLatencies(Map<String, LatencyStats> tablespaceLatencies) {
+  	this.tablespaceLatencies = tablespaceLatencies;
+  }
+	public Map<String, LatencyStats> getPartitionLatencies() {
+  	return partitionLatencies;
+  }
+	public void setPartitionLatencies(Map<String, LatencyStats> partitionLatencies) {
+  	this.partitionLatencies = partitionLatencies;
+  }
+	public List<SlowQuery> getSlowQueryLog() {
+  	return slowQueryLog;
+  }
+	public void setSlowQueryLog(List<SlowQuery> slowQueryLog) {
+  	this.slowQueryLog = slowQueryLog;
+  }
+	public Map<String, List<FingerprintStats>> getTopQueries() {
+  	return topQueries;
+  }
+	public void setTopQueries(Map<String, List<FingerprintStats>> topQueries) {
+  	this.topQueries = topQueries;
   }
 }
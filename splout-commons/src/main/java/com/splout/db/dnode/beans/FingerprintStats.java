@@ -0,0 +1,78 @@
+package com.splout.db.dnode.beans;
+
+/*
+ * #%L
+ * Splout SQL commons
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * JSON bean with the statistics of one query fingerprint (see {@link QueryFingerprint}) in a tablespace: how many times
+ * it was served and the total time and result bytes it took. Counts come from a bounded heavy-hitters sketch, so they
+ * may be overestimated by up to {@link #getError()} and totals only include the queries served since the fingerprint
+ * last entered the sketch.
+ */
+public class FingerprintStats {
+
+	private String fingerprint;
+	private long count;
+	private long error;
+	private long totalMillis;
+	private long totalBytes;
+
+	public FingerprintStats() {
+	}
+
+	public FingerprintStats(String fingerprint, long count, long error, long totalMillis, long totalBytes) {
+		this.fingerprint = fingerprint;
+		this.count = count;
+		this.error = error;
+		this.totalMillis = totalMillis;
+		this.totalBytes = totalBytes;
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+	public void setFingerprint(String fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+	public long getCount() {
+		return count;
+	}
+	public void setCount(long count) {
+		this.count = count;
+	}
+	public long getError() {
+		return error;
+	}
+	public void setError(long error) {
+		this.error = error;
+	}
+	public long getTotalMillis() {
+		return totalMillis;
+	}
+	public void setTotalMillis(long totalMillis) {
+		this.totalMillis = totalMillis;
+	}
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+	public void setTotalBytes(long totalBytes) {
+		this.totalBytes = totalBytes;
+	}
+}
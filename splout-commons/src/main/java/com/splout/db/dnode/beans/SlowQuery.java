@@ -0,0 +1,106 @@
+package com.splout.db.dnode.beans;
+
+/*
+ * #%L
+ * Splout SQL commons
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+
+/**
+ * JSON bean describing a query that took longer than the slow query limit of a DNode, together with its query plan.
+ */
+public class SlowQuery {
+
+	private String tablespace;
+	private long version;
+	private int partition;
+	private String query;
+	private long time;
+	private long rows;
+	private long cpuMicros;
+	private long timestamp;
+	private List<String> queryPlan;
+
+	public String getTablespace() {
+		return tablespace;
+	}
+	public void setTablespace(String tablespace) {
+		this.tablespace = tablespace;
+	}
+	public long getVersion() {
+		return version;
+	}
+	public void setVersion(long version) {
+		this.version = version;
+	}
+	public int getPartition() {
+		return partition;
+	}
+	public void setPartition(int partition) {
+		this.partition = partition;
+	}
+	public String getQuery() {
+		return query;
+	}
+	public void setQuery(String query) {
+		this.query = query;
+	}
+	/**
+	 * Time that it took to serve the query, in milliseconds.
+	 */
+	public long getTime() {
+		return time;
+	}
+	public void setTime(long time) {
+		this.time = time;
+	}
+	public long getRows() {
+		return rows;
+	}
+	public void setRows(long rows) {
+		this.rows = rows;
+	}
+	/**
+	 * CPU time that the query took, in microseconds.
+	 */
+	public long getCpuMicros() {
+		return cpuMicros;
+	}
+	public void setCpuMicros(long cpuMicros) {
+		this.cpuMicros = cpuMicros;
+	}
+	/**
+	 * When the query finished, in milliseconds since the epoch.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+	public void setTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+	/**
+	 * The output of EXPLAIN QUERY PLAN, one line per step of the plan.
+	 */
+	public List<String> getQueryPlan() {
+		return queryPlan;
+	}
+	public void setQueryPlan(List<String> queryPlan) {
+		this.queryPlan = queryPlan;
+	}
+}
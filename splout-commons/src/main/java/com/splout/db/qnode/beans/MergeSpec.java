@@ -0,0 +1,90 @@
+package com.splout.db.qnode.beans;
+
+/*
+ * #%L
+ * Splout SQL commons
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.Map;
+
+import com.splout.db.common.BaseBean;
+
+/**
+ * Bean that is serialized as JSON and sent to the QNodes together with a multi-query for merging the results of all the
+ * partitions into one:
+ * <ul>
+ * <li>groupBy: the columns whose rows are combined with the aggregates.</li>
+ * <li>aggregates: how each aggregated column is combined: SUM, COUNT, MIN, MAX or AVG(countColumn), where countColumn
+ * is the COUNT aggregate that weights each partition's average.</li>
+ * <li>orderBy: the columns the result is sorted by, each one optionally followed by ASC or DESC.</li>
+ * <li>limit: the maximum number of rows of the result.</li>
+ * </ul>
+ * For example, for the query "SELECT country, COUNT(*) n, AVG(age) age FROM users GROUP BY country": groupBy
+ * ["country"], aggregates {"n": "COUNT", "age": "AVG(n)"}, orderBy ["n DESC"] and limit 10.
+ */
+public class MergeSpec extends BaseBean {
+
+	List<String> groupBy;
+	Map<String, String> aggregates;
+	List<String> orderBy;
+	Integer limit;
+
+	public MergeSpec() {
+	}
+
+	public MergeSpec(List<String> groupBy, Map<String, String> aggregates, List<String> orderBy, Integer limit) {
+		this.groupBy = groupBy;
+		this.aggregates = aggregates;
+		this.orderBy = orderBy;
+		this.limit = limit;
+	}
+
+	// ----------------- //
+	public List<String> getGroupBy() {
+		return groupBy;
+	}
+
+	public void setGroupBy(List<String> groupBy) {
+		this.groupBy = groupBy;
+	}
+
+	public Map<String, String> getAggregates() {
+		return aggregates;
+	}
+
+	public void setAggregates(Map<String, String> aggregates) {
+		this.aggregates = aggregates;
+	}
+
+	public List<String> getOrderBy() {
+		return orderBy;
+	}
+
+	public void setOrderBy(List<String> orderBy) {
+		this.orderBy = orderBy;
+	}
+
+	public Integer getLimit() {
+		return limit;
+	}
+
+	public void setLimit(Integer limit) {
+		this.limit = limit;
+	}
+}
@@ -33,6 +33,7 @@ public class QueryStatus extends BaseBean {
   protected ArrayList result;
   protected Integer shard;
   protected Long millis;
+  protected Long cpuMicros;
   protected String error;
 	
 	public String getError() {
@@ -58,5 +59,14 @@ public class QueryStatus extends BaseBean {
   }
 	public void setMillis(Long millis) {
   	this.millis = millis;
+  }
+	/**
+	 * CPU time in microseconds that the query took in the DNode, null if unknown (e.g. DNodes that return JSON results).
+	 */
+	public Long getCpuMicros() {
+  	return cpuMicros;
+  }
+	public void setCpuMicros(Long cpuMicros) {
+  	this.cpuMicros = cpuMicros;
   }
 }
@@ -0,0 +1,95 @@
+package com.splout.db.benchmark;
+
+/*
+ * #%L
+ * Splout SQL commons
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+
+	@Test
+	public void testBuckets() {
+		int previous = -1;
+		for(long value = 0; value < LatencyHistogram.MAX_VALUE; value = value * 5 / 4 + 1) {
+			int index = LatencyHistogram.bucketIndex(value);
+			assertTrue(index >= previous);
+			assertTrue(index < LatencyHistogram.BUCKETS);
+			long upper = LatencyHistogram.bucketUpperValue(index);
+			// The value falls in the bucket and the bucket is narrow
+			assertTrue(value + " -> " + upper, upper >= value);
+			assertTrue(value + " -> " + upper, upper - value <= value / LatencyHistogram.SUB_BUCKETS);
+			assertEquals(index, LatencyHistogram.bucketIndex(upper));
+			assertEquals(index + 1, LatencyHistogram.bucketIndex(upper + 1));
+			previous = index;
+		}
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram(4);
+		assertEquals(0, histogram.snapshot().getPercentile(0.99));
+		// 1 to 1000 microseconds
+		for(int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000l);
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(500500d, snapshot.getMean(), 0.1);
+		assertEquals(1000000, snapshot.getMax());
+		assertPercentile(500000, snapshot.getPercentile(0.5));
+		assertPercentile(950000, snapshot.getPercentile(0.95));
+		assertPercentile(990000, snapshot.getPercentile(0.99));
+		assertPercentile(999000, snapshot.getPercentile(0.999));
+		assertEquals(1000000, snapshot.getPercentile(1));
+	}
+
+	private static void assertPercentile(long expected, long actual) {
+		assertTrue(expected + " ~ " + actual, actual >= expected && actual - expected <= expected
+		    / LatencyHistogram.SUB_BUCKETS);
+	}
+
+	@Test
+	public void testConcurrentRecording() throws Exception {
+		final LatencyHistogram histogram = new LatencyHistogram(2);
+		Thread[] threads = new Thread[8];
+		for(int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					for(int j = 0; j < 100000; j++) {
+						histogram.record(j);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(800000, snapshot.getCount());
+		assertEquals(800000, histogram.getCount());
+		assertEquals(99999, snapshot.getMax());
+		assertEquals(49999.5, snapshot.getMean(), 0.1);
+	}
+}
@@ -0,0 +1,93 @@
+package com.splout.db.benchmark;
+
+/*
+ * #%L
+ * Splout SQL commons
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.splout.db.dnode.beans.FingerprintStats;
+
+public class TestQueryFingerprintStats {
+
+	@Test
+	public void test() {
+		QueryFingerprintStats stats = new QueryFingerprintStats(10);
+		for(int i = 0; i < 100; i++) {
+			stats.record("t1", "SELECT * FROM t WHERE a = " + i, 2, 10);
+			if(i % 2 == 0) {
+				stats.record("t1", "SELECT * FROM t WHERE b = '" + i + "'", 1, 100);
+			}
+		}
+		stats.record("t2", "SELECT 1", 5, 1);
+
+		List<FingerprintStats> top = stats.getTop("t1");
+		assertEquals(2, top.size());
+		assertEquals("select * from t where a = ?", top.get(0).getFingerprint());
+		assertEquals(100, top.get(0).getCount());
+		assertEquals(0, top.get(0).getError());
+		assertEquals(200, top.get(0).getTotalMillis());
+		assertEquals(1000, top.get(0).getTotalBytes());
+		assertEquals("select * from t where b = ?", top.get(1).getFingerprint());
+		assertEquals(50, top.get(1).getCount());
+		assertEquals(5000, top.get(1).getTotalBytes());
+
+		assertEquals(2, stats.getTop().size());
+		assertEquals(1, stats.getTop().get("t2").size());
+		assertEquals(0, stats.getTop("t3").size());
+	}
+
+	@Test
+	public void testHeavyHittersSurviveChurn() {
+		QueryFingerprintStats stats = new QueryFingerprintStats(5);
+		// A frequent query among many distinct ones: each distinct one is a different shape because of its column name
+		for(int i = 0; i < 1000; i++) {
+			stats.record("t", "SELECT a FROM t WHERE k = " + i, 1, 1);
+			stats.record("t", "SELECT c" + i + " FROM t", 1, 1);
+		}
+		List<FingerprintStats> top = stats.getTop("t");
+		assertEquals(5, top.size());
+		assertEquals("select a from t where k = ?", top.get(0).getFingerprint());
+		assertEquals(1000, top.get(0).getCount());
+		// The rest are overestimated, and know it
+		for(FingerprintStats other : top.subList(1, top.size())) {
+			assertTrue(other.getCount() - other.getError() <= 1);
+		}
+	}
+
+	@Test
+	public void testBoundedPendingQueries() {
+		QueryFingerprintStats stats = new QueryFingerprintStats(10, 10);
+		// Without the background thread, queries are only recorded when reading
+		stats.close();
+		for(int i = 0; i < 25; i++) {
+			stats.record("t", "SELECT 1", 1, 1);
+		}
+		assertEquals(15, stats.getDroppedQueries());
+		assertEquals(10, stats.getTop("t").get(0).getCount());
+		// Reading made room again
+		stats.record("t", "SELECT 1", 1, 1);
+		assertEquals(11, stats.getTop("t").get(0).getCount());
+	}
+}
@@ -0,0 +1,64 @@
+package com.splout.db.common;
+
+/*
+ * #%L
+ * Splout SQL commons
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TestQueryFingerprint {
+
+	@Test
+	public void testLiterals() {
+		assertEquals("select * from t where a = ? and b = ? and c = ?",
+		    QueryFingerprint.fingerprint("SELECT * FROM t WHERE a = 'it''s' AND b = 10 AND c = 3.5e-2"));
+		assertEquals("select * from t where a = ? and b = ?",
+		    QueryFingerprint.fingerprint("select *   from t\n\twhere a=x'0A0b' and b = 0xFF;"));
+		assertEquals("select * from t where a = ?", QueryFingerprint.fingerprint("select * from t where a = ?"));
+		assertEquals("select * from t where a = ?", QueryFingerprint.fingerprint("select * from t where a = .5"));
+	}
+
+	@Test
+	public void testIdentifiers() {
+		// Quoted identifiers keep their case, names with digits are not literals
+		assertEquals("select \"Foo\", [Bar], `Baz`, t1.col_2 from t1",
+		    QueryFingerprint.fingerprint("SELECT \"Foo\", [Bar], `Baz`, T1.col_2 FROM t1"));
+		assertEquals("select count (*) from t where a <= ? or b != ?",
+		    QueryFingerprint.fingerprint("SELECT count(*) FROM t WHERE a<=1 OR b!=2"));
+	}
+
+	@Test
+	public void testInLists() {
+		String fingerprint = "select * from t where a in (?) and b in (?)";
+		assertEquals(fingerprint, QueryFingerprint.fingerprint("SELECT * FROM t WHERE a IN (1) AND b IN ('x')"));
+		assertEquals(fingerprint,
+		    QueryFingerprint.fingerprint("SELECT * FROM t WHERE a IN (1, 2,3) AND b IN ('x', 'y', ?, 'z')"));
+		// Only lists of literals
+		assertEquals("select * from t where a in (b, ?)",
+		    QueryFingerprint.fingerprint("SELECT * FROM t WHERE a IN (b, 2)"));
+	}
+
+	@Test
+	public void testComments() {
+		assertEquals("select * from t where a = ?",
+		    QueryFingerprint.fingerprint("-- a comment\nSELECT * /* another \n one */ FROM t WHERE a = 1 -- end"));
+	}
+}
@@ -0,0 +1,298 @@
+package com.splout.db.common;
+
+/*
+ * #%L
+ * Splout SQL commons
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TestSQLite4JavaManager {
+
+	public static String TEST_DB = TestSQLite4JavaManager.class.getName() + ".db";
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testStreamedResultTypes() throws Exception {
+		File dbFile = new File(TEST_DB);
+		if(dbFile.exists()) {
+			dbFile.delete();
+		}
+		SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		manager.exec("CREATE TABLE t (a INT, b TEXT, c REAL, d INT);");
+		manager.exec("INSERT INTO t (a, b, c, d) VALUES (1, 'foo', 1.5, NULL)");
+		manager.exec("INSERT INTO t (a, b, c, d) VALUES (2, 'bar', 2.5, NULL)");
+
+		ArrayList results = JSONSerDe.deSer(manager.query("SELECT * FROM t ORDER BY a;", 100), ArrayList.class);
+		assertEquals(2, results.size());
+		Map row = (Map) results.get(1);
+		assertEquals(2, row.get("a"));
+		assertEquals("bar", row.get("b"));
+		assertEquals(2.5, row.get("c"));
+		assertNull(row.get("d"));
+		assertEquals(true, row.containsKey("d"));
+
+		// The thread-local buffer is reused - make sure results don't leak into each other
+		results = JSONSerDe.deSer(manager.query("SELECT a FROM t WHERE a = 1;", 100), ArrayList.class);
+		assertEquals(1, results.size());
+		assertEquals(1, ((Map) results.get(0)).get("a"));
+
+		results = JSONSerDe.deSer(manager.query("SELECT a FROM t WHERE a = 3;", 100), ArrayList.class);
+		assertEquals(0, results.size());
+
+		manager.close();
+		dbFile.delete();
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testStatementCache() throws Exception {
+		File dbFile = new File(TEST_DB);
+		if(dbFile.exists()) {
+			dbFile.delete();
+		}
+		final SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		SQLite4JavaManager.StatementCacheStats stats = new SQLite4JavaManager.StatementCacheStats();
+		manager.setStatementCache(2, stats);
+		manager.exec("CREATE TABLE t (a INT);");
+		manager.exec("INSERT INTO t (a) VALUES (1)");
+		manager.exec("INSERT INTO t (a) VALUES (2)");
+
+		String q1 = "SELECT a FROM t WHERE a = 1;";
+		String q2 = "SELECT a FROM t WHERE a = 2;";
+		String q3 = "SELECT COUNT(*) AS c FROM t;";
+		
+		for(int i = 0; i < 3; i++) {
+			ArrayList results = JSONSerDe.deSer(manager.query(q1, 100), ArrayList.class);
+			assertEquals(1, ((Map) results.get(0)).get("a"));
+		}
+		assertEquals(1, stats.getMisses());
+		assertEquals(2, stats.getHits());
+
+		// Fill the cache: q1 is the least recently used one so it is evicted
+		manager.query(q2, 100);
+		manager.query(q3, 100);
+		SQLiteConnectionPool.PooledConnection connection = manager.getConnectionPool().idleConnections(Thread.currentThread()).pop();
+		assertEquals(2, connection.statements.size());
+		assertTrue(!connection.statements.containsKey(q1));
+		manager.getConnectionPool().idleConnections(Thread.currentThread()).push(connection);
+		manager.query(q1, 100);
+		assertEquals(4, stats.getMisses());
+
+		// A statement that fails while stepping is not reused in a broken state
+		try {
+			manager.query("SELECT a FROM t;", 1);
+			fail();
+		} catch(java.sql.SQLException e) {
+		}
+		manager.query("SELECT a FROM t;", 100);
+		ArrayList results = JSONSerDe.deSer(manager.query(q1, 100), ArrayList.class);
+		assertEquals(1, results.size());
+
+		// Closing the manager from another thread (e.g. the cache eviction) closes the connection, but only the thread
+		// that opened it can dispose it and its statements. Until then it still counts as open
+		Thread closer = new Thread() {
+			public void run() {
+				manager.close();
+			}
+		};
+		closer.start();
+		closer.join();
+		assertEquals(1, manager.getConnectionPool().getOpenConnections());
+		assertTrue(!connection.conn.isDisposed());
+		SQLiteConnectionPool.disposeOrphans();
+		assertEquals(0, manager.getConnectionPool().getOpenConnections());
+		assertTrue(connection.conn.isDisposed());
+		assertTrue(connection.statements.isEmpty());
+		dbFile.delete();
+	}
+
+	@Test
+	public void testConnectionPool() throws Exception {
+		File dbFile = new File(TEST_DB);
+		if(dbFile.exists()) {
+			dbFile.delete();
+		}
+		SQLiteConnectionPool.Limits limits = new SQLiteConnectionPool.Limits(1, 2, 3, 0, 500);
+		final SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		manager.setConnectionPoolLimits(limits);
+		SQLite4JavaManager otherManager = new SQLite4JavaManager(TEST_DB, null);
+		otherManager.setConnectionPoolLimits(limits);
+		manager.exec("CREATE TABLE t (a INT);");
+		manager.exec("INSERT INTO t (a) VALUES (1)");
+
+		// A thread reuses its connection: as its queries don't overlap, one connection is enough
+		for(int i = 0; i < 4; i++) {
+			manager.query("SELECT a FROM t;", 100);
+		}
+		assertEquals(1, manager.getConnectionPool().getOpenConnections());
+
+		// Connections are confined to the thread that opened them: another thread opens its own
+		final AtomicInteger errors = new AtomicInteger(0);
+		Thread other = new Thread() {
+			public void run() {
+				try {
+					manager.query("SELECT a FROM t;", 100);
+				} catch(Exception e) {
+					errors.incrementAndGet();
+				}
+			}
+		};
+		other.start();
+		other.join();
+		assertEquals(0, errors.get());
+		assertEquals(2, manager.getConnectionPool().getOpenConnections());
+
+		// No more than the maximum per pool: the idle connection of the other thread is closed to make room
+		SQLiteConnectionPool pool = manager.getConnectionPool();
+		SQLiteConnectionPool.PooledConnection c1 = pool.borrow();
+		SQLiteConnectionPool.PooledConnection c2 = pool.borrow();
+		assertTrue(c1.owner == Thread.currentThread() && c2.owner == Thread.currentThread());
+		try {
+			pool.borrow();
+			fail();
+		} catch(java.sql.SQLException e) {
+			// timeout
+		}
+		assertEquals(2, limits.getTotalConnections());
+
+		// The global limit is reached: idle connections of other pools are closed to make room
+		otherManager.query("SELECT a FROM t;", 100);
+		assertEquals(3, limits.getTotalConnections());
+		pool.release(c2);
+		SQLiteConnectionPool.PooledConnection c3 = otherManager.getConnectionPool().borrow();
+		SQLiteConnectionPool.PooledConnection c4 = otherManager.getConnectionPool().borrow();
+		assertEquals(1, manager.getConnectionPool().getOpenConnections());
+		assertEquals(3, limits.getTotalConnections());
+		otherManager.getConnectionPool().release(c3);
+		otherManager.getConnectionPool().release(c4);
+		pool.release(c1);
+
+		// Reaping keeps the minimum
+		Thread.sleep(10);
+		limits.reapIdleConnections();
+		assertEquals(3, limits.getTotalConnections());
+		SQLiteConnectionPool.Limits reapLimits = new SQLiteConnectionPool.Limits(1, 2, 3, 1, 500);
+		manager.close();
+		otherManager.close();
+		assertEquals(0, limits.getTotalConnections());
+		
+		SQLite4JavaManager reapedManager = new SQLite4JavaManager(TEST_DB, null);
+		reapedManager.setConnectionPoolLimits(reapLimits);
+		pool = reapedManager.getConnectionPool();
+		c1 = pool.borrow();
+		c2 = pool.borrow();
+		pool.release(c1);
+		pool.release(c2);
+		Thread.sleep(10);
+		reapLimits.reapIdleConnections();
+		assertEquals(1, pool.getOpenConnections());
+		reapedManager.close();
+		reapLimits.close();
+		dbFile.delete();
+	}
+
+	@Test
+	public void testConnectionHandOver() throws Exception {
+		File dbFile = new File(TEST_DB);
+		if(dbFile.exists()) {
+			dbFile.delete();
+		}
+		SQLiteConnectionPool.Limits limits = new SQLiteConnectionPool.Limits(0, 1, 1, 1, 5000);
+		final SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		manager.setConnectionPoolLimits(limits);
+		manager.exec("CREATE TABLE t (a INT);");
+
+		// A thread that finds the pool full waits until the connection is returned, which closes it to make room
+		SQLiteConnectionPool pool = manager.getConnectionPool();
+		SQLiteConnectionPool.PooledConnection connection = pool.borrow();
+		final AtomicInteger errors = new AtomicInteger(0);
+		Thread waiter = new Thread() {
+			public void run() {
+				try {
+					manager.query("SELECT a FROM t;", 100);
+				} catch(Exception e) {
+					errors.incrementAndGet();
+				}
+			}
+		};
+		waiter.start();
+		Thread.sleep(200);
+		assertTrue(waiter.isAlive());
+		pool.release(connection);
+		waiter.join();
+		assertEquals(0, errors.get());
+		assertTrue(connection.conn.isDisposed());
+
+		// The connection of a thread that died is disposed by the reaper
+		Thread.sleep(10);
+		limits.reapIdleConnections();
+		assertEquals(0, limits.getTotalConnections());
+		manager.close();
+		limits.close();
+		dbFile.delete();
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testConnectionSettings() throws Exception {
+		File dbFile = new File(TEST_DB);
+		if(dbFile.exists()) {
+			dbFile.delete();
+		}
+		SQLite4JavaManager writer = new SQLite4JavaManager(TEST_DB, null);
+		writer.exec("CREATE TABLE t (a INT);");
+		writer.exec("INSERT INTO t (a) VALUES (1)");
+		writer.close();
+
+		SQLiteConnectionSettings settings = new SQLiteConnectionSettings().setReadOnly(true).setImmutable(true)
+		    .setMmapSize(SQLiteConnectionSettings.AUTO).setCacheSizeKb(SQLiteConnectionSettings.AUTO)
+		    .setTempStore("MEMORY");
+		assertTrue(settings.getPragmas(dbFile).contains("PRAGMA mmap_size=" + dbFile.length() + ";"));
+		// Small files get the default page cache
+		assertTrue(settings.getPragmas(dbFile).contains(
+		    "PRAGMA cache_size=-" + SQLiteConnectionSettings.MIN_AUTO_CACHE_SIZE_KB + ";"));
+
+		SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		manager.setConnectionSettings(settings);
+		ArrayList results = JSONSerDe.deSer(manager.query("PRAGMA temp_store;", 100), ArrayList.class);
+		assertEquals(2, ((Map) results.get(0)).get("temp_store"));
+		results = JSONSerDe.deSer(manager.query("PRAGMA locking_mode;", 100), ArrayList.class);
+		assertEquals("exclusive", ((Map) results.get(0)).get("locking_mode"));
+		results = JSONSerDe.deSer(manager.query("SELECT a FROM t;", 100), ArrayList.class);
+		assertEquals(1, results.size());
+		try {
+			manager.exec("INSERT INTO t (a) VALUES (2)");
+			fail("Connections should be read-only");
+		} catch(Exception e) {
+			// expected
+		}
+		manager.close();
+		dbFile.delete();
+	}
+}
@@ -21,120 +21,200 @@ package com.splout.db.common;
  */
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNull;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.verify;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
-import java.util.Map;
+import java.io.File;
+import java.sql.SQLException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.powermock.core.classloader.annotations.PrepareForTest;
-import org.powermock.modules.junit4.PowerMockRunner;
 
 import com.almworks.sqlite4java.SQLiteConnection;
-import com.almworks.sqlite4java.SQLiteException;
-import com.splout.db.common.TimeoutThread.QueryAndTime;
 
-@RunWith(PowerMockRunner.class)
-@PrepareForTest({ SQLiteConnection.class })
 public class TestTimeoutThread {
 
+	public static String TEST_DB = TestTimeoutThread.class.getName() + ".db";
+	// Takes way longer than any timeout of these tests
+	public static String LONG_QUERY = "SELECT count(*) FROM t a, t b, t c;";
+
+	@Before
+	public void createDb() throws Exception {
+		File dbFile = new File(TEST_DB);
+		if(dbFile.exists()) {
+			dbFile.delete();
+		}
+		SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		manager.exec("CREATE TABLE t (a INT);");
+		manager.exec("BEGIN");
+		for(int i = 0; i < 2000; i++) {
+			manager.exec("INSERT INTO t VALUES (" + i + ");");
+		}
+		manager.exec("COMMIT");
+		manager.close();
+	}
+
+	@After
+	public void deleteDb() {
+		new File(TEST_DB).delete();
+	}
+
 	@Test
-	public void testNoInterrupt() throws InterruptedException {
-	  final TimeoutThread timeoutThread = new TimeoutThread(10000);
+	public void testNoInterrupt() throws Exception {
+		final TimeoutThread timeoutThread = new TimeoutThread(10000);
 		timeoutThread.start();
-		
-		final AtomicBoolean failed = new AtomicBoolean(false);
+		final SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		manager.setTimeoutThread(timeoutThread);
 
+		final AtomicBoolean failed = new AtomicBoolean(false);
 		Thread[] t = new Thread[10];
 		for(int i = 0; i < 10; i++) {
 			t[i] = new Thread() {
 				public void run() {
 					try {
-	          Thread.sleep((long)(Math.random()*4000));
-          } catch(InterruptedException e2) {
-	          e2.printStackTrace();
-          }
-					SQLiteConnection conn = mock(SQLiteConnection.class);
-					timeoutThread.startQuery(conn, "MyQuery" + this.getName());
-					try {
-	          Thread.sleep(2000);
-          } catch(InterruptedException e1) {
-	          e1.printStackTrace();
-          }
-					try {
-	          verify(conn).interrupt();
-          	failed.set(true);
-          } catch(Throwable e) {
-          	// expected
-          }
-          timeoutThread.endQuery(conn);
+						for(int j = 0; j < 100; j++) {
+							manager.query("SELECT count(*) FROM t;", 2);
+						}
+					} catch(Exception e) {
+						e.printStackTrace();
+						failed.set(true);
+					}
 				};
 			};
 			t[i].start();
 		}
-		
 		for(int i = 0; i < 10; i++) {
 			t[i].join();
 		}
-		
 		assertEquals(false, failed.get());
-		
-		assertEquals(10, timeoutThread.getConnections().size());
-		assertEquals(10, timeoutThread.getCurrentQueries().size());
-		for(Map.Entry<SQLiteConnection, QueryAndTime> entry: timeoutThread.getCurrentQueries().entrySet()) {
-			assertEquals(new Long(-1l), entry.getValue().time);
-			assertNull(entry.getValue().query);
+		// Disarmed timeouts are removed from the wheel in the next tick
+		waitForPendingTimeouts(timeoutThread, 0);
+		manager.close();
+		timeoutThread.interrupt();
+	}
+
+	@Test
+	public void testInterrupt() throws Exception {
+		TimeoutThread timeoutThread = new TimeoutThread(200);
+		timeoutThread.start();
+		SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		manager.setTimeoutThread(timeoutThread);
+		long start = System.currentTimeMillis();
+		try {
+			manager.query(LONG_QUERY, 2);
+			fail("The query should have been interrupted");
+		} catch(SQLException e) {
+			assertTrue(e.getMessage().contains("deadline"));
 		}
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue("Interrupted after " + elapsed + " ms", elapsed >= 200 && elapsed < 2000);
+		assertEquals(0, timeoutThread.getPendingTimeouts());
+
+		// The connection can be used again
+		assertEquals("[{\"count(*)\":2000}]", manager.query("SELECT count(*) FROM t;", 2));
+		manager.close();
+		timeoutThread.interrupt();
 	}
-	
+
 	@Test
-	public void test() throws SQLiteException, InterruptedException {
-	  final TimeoutThread timeoutThread = new TimeoutThread(2000);
+	public void testPerQueryDeadline() throws Exception {
+		TimeoutThread timeoutThread = new TimeoutThread(60000);
 		timeoutThread.start();
-		
-		final AtomicBoolean failed = new AtomicBoolean(false);
+		SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		manager.setTimeoutThread(timeoutThread);
+		long start = System.currentTimeMillis();
+		try {
+			manager.query(LONG_QUERY, null, 2, new SQLite4JavaManager.JSONResultHandler(), start + 300);
+			fail("The query should have been interrupted");
+		} catch(SQLException e) {
+			assertTrue(e.getMessage().contains("deadline"));
+		}
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue("Interrupted after " + elapsed + " ms", elapsed >= 300 && elapsed < 2000);
+		manager.close();
+		timeoutThread.interrupt();
+	}
 
-		Thread[] t = new Thread[10];
-		for(int i = 0; i < 10; i++) {
-			t[i] = new Thread() {
-				public void run() {
-					try {
-	          Thread.sleep((long)(Math.random()*4000));
-          } catch(InterruptedException e2) {
-	          e2.printStackTrace();
-          }
-					SQLiteConnection conn = mock(SQLiteConnection.class);
-					timeoutThread.startQuery(conn, "MyQuery" + this.getName());
-					try {
-	          Thread.sleep(4000);
-          } catch(InterruptedException e1) {
-	          e1.printStackTrace();
-          }
-					try {
-	          verify(conn).interrupt();
-          } catch(Throwable e) {
-          	failed.set(true);
-	          e.printStackTrace();
-          }
-				};
-			};
-			t[i].start();
+	@Test
+	public void testCpuBudget() throws Exception {
+		TimeoutThread timeoutThread = new TimeoutThread(60000);
+		timeoutThread.start();
+		SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		manager.setConnectionSettings(new SQLiteConnectionSettings().setStepsPerCallback(100));
+		manager.setTimeoutThread(timeoutThread);
+
+		SQLite4JavaManager.QueryBudget budget = new SQLite4JavaManager.QueryBudget(0, 1000);
+		assertEquals("[{\"sum(a)\":1999000}]",
+		    manager.query("SELECT sum(a) FROM t;", null, 2, new SQLite4JavaManager.JSONResultHandler(), budget));
+		assertTrue(budget.getCpuMicros() < 1000000);
+
+		// Interrupted in the middle of its only step, long before the query time
+		long start = System.currentTimeMillis();
+		budget = new SQLite4JavaManager.QueryBudget(0, 200);
+		try {
+			manager.query(LONG_QUERY, null, 2, new SQLite4JavaManager.JSONResultHandler(), budget);
+			fail("The query should have been interrupted");
+		} catch(SQLite4JavaManager.BudgetExceededException e) {
+			assertTrue(e.getMessage().contains("budget of 200 ms of CPU"));
 		}
-		
-		for(int i = 0; i < 10; i++) {
-			t[i].join();
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue("Interrupted after " + elapsed + " ms", elapsed < 2000);
+		assertTrue(budget.getCpuMicros() > 200000);
+		waitForPendingTimeouts(timeoutThread, 0);
+
+		// The connection can be used again
+		assertEquals("[{\"count(*)\":2000}]", manager.query("SELECT count(*) FROM t;", 2));
+		manager.close();
+		timeoutThread.interrupt();
+	}
+
+	@Test
+	public void testCpuBudgetWithoutTimeoutThread() throws Exception {
+		SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		// Without a TimeoutThread the budget is checked after each row
+		SQLite4JavaManager.QueryBudget budget = new SQLite4JavaManager.QueryBudget(0, 10);
+		try {
+			manager.query("SELECT (SELECT count(*) FROM t b WHERE b.a <= a.a) FROM t a;", null, 10000,
+			    new SQLite4JavaManager.JSONResultHandler(), budget);
+			fail("The query should have been interrupted");
+		} catch(SQLite4JavaManager.BudgetExceededException e) {
+			assertTrue(e.getMessage().contains("budget of 10 ms of CPU"));
 		}
-		
-		assertEquals(false, failed.get());
-		
-		assertEquals(10, timeoutThread.getConnections().size());
-		assertEquals(10, timeoutThread.getCurrentQueries().size());
-		for(Map.Entry<SQLiteConnection, QueryAndTime> entry: timeoutThread.getCurrentQueries().entrySet()) {
-			assertEquals(new Long(-1l), entry.getValue().time);
-			assertNull(entry.getValue().query);
+		assertTrue(budget.getCpuMicros() > 10000);
+		assertTrue(budget.getRows() < 2000);
+		manager.close();
+	}
+
+	@Test
+	public void testDisarm() throws Exception {
+		TimeoutThread timeoutThread = new TimeoutThread(1000, 5);
+		timeoutThread.start();
+		SQLiteConnection conn = new SQLiteConnection(new File(TEST_DB));
+		conn.open();
+		// Deadlines further than a whole turn of the wheel
+		for(int i = 0; i < 1000; i++) {
+			TimeoutThread.QueryTimeout queryTimeout = timeoutThread.startQuery(conn, "Query" + i,
+			    System.currentTimeMillis() + TimeoutThread.WHEEL_SIZE * 5 * 2);
+			if(i % 2 == 0) {
+				timeoutThread.endQuery(queryTimeout);
+			}
+		}
+		Thread.sleep(50);
+		assertEquals(500, timeoutThread.getPendingTimeouts());
+		waitForPendingTimeouts(timeoutThread, 0);
+		conn.dispose();
+		timeoutThread.interrupt();
+	}
+
+	private static void waitForPendingTimeouts(TimeoutThread timeoutThread, int pending) throws InterruptedException {
+		long start = System.currentTimeMillis();
+		while(timeoutThread.getPendingTimeouts() != pending) {
+			if(System.currentTimeMillis() - start > 10000) {
+				fail("Pending timeouts: " + timeoutThread.getPendingTimeouts());
+			}
+			Thread.sleep(10);
 		}
 	}
 }
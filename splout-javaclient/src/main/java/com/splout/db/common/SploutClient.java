@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.io.IOUtils;
+import org.codehaus.jackson.type.TypeReference;
 
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpContent;
@@ -41,6 +42,7 @@ import com.google.api.client.http.javanet.NetHttpTransport;
 import com.splout.db.common.JSONSerDe.JSONSerDeException;
 import com.splout.db.qnode.beans.DeployInfo;
 import com.splout.db.qnode.beans.DeployRequest;
+import com.splout.db.qnode.beans.MergeSpec;
 import com.splout.db.qnode.beans.QNodeStatus;
 import com.splout.db.qnode.beans.QueryStatus;
 
@@ -108,21 +110,64 @@ public class SploutClient {
 	 * 
 	 */
 	public QueryStatus query(String tablespace, String key, String query) throws IOException {
+		return query(tablespace, key, query, null);
+	}
+
+	/**
+	 * Queries a SQL with "?" parameters, binding them to the given values in order.
+	 */
+	public QueryStatus query(String tablespace, String key, String query, List<?> params) throws IOException {
 		URI uri;
 		try {
+			String queryString = "key=" + key + "&sql=" + query;
+			if(params != null) {
+				queryString += "&params=" + JSONSerDe.ser(params);
+			}
 			uri = new URI("http", qNodesNoProtocol[(int) (Math.random() * qNodes.length)], "/api/query/"
-			    + tablespace, "key=" + key + "&sql=" + query, null);
+			    + tablespace, queryString, null);
 			HttpRequest request = requestFactory.buildGetRequest(new GenericUrl(uri.toASCIIString()));
-			try {
-				return JSONSerDe.deSer(asString(request.execute().getContent()), QueryStatus.class);
-			} catch(JSONSerDeException e) {
-				throw new IOException(e);
+			return JSONSerDe.deSer(asString(request.execute().getContent()), QueryStatus.class);
+		} catch(JSONSerDeException e) {
+			throw new IOException(e);
+		} catch(URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * Queries all the partitions that contain keys in any of the [keyMins[i], keyMaxs[i]) ranges, or all the partitions
+	 * if there are no ranges. If merge is not null the QNode merges the results of the partitions into one, see
+	 * {@link MergeSpec}: the first {@link QueryStatus} is then the merged one and the rest, if any, are the partitions
+	 * that failed.
+	 */
+	public ArrayList<QueryStatus> multiQuery(String tablespace, List<String> keyMins, List<String> keyMaxs,
+	    String query, List<?> params, MergeSpec merge) throws IOException {
+		URI uri;
+		try {
+			String queryString = "sql=" + query;
+			for(int i = 0; i < keyMins.size(); i++) {
+				queryString += "&keymins=" + keyMins.get(i) + "&keymaxs=" + keyMaxs.get(i);
+			}
+			if(params != null) {
+				queryString += "&params=" + JSONSerDe.ser(params);
 			}
+			if(merge != null) {
+				queryString += "&merge=" + JSONSerDe.ser(merge);
+			}
+			uri = new URI("http", qNodesNoProtocol[(int) (Math.random() * qNodes.length)], "/api/multiquery/"
+			    + tablespace, queryString, null);
+			HttpRequest request = requestFactory.buildGetRequest(new GenericUrl(uri.toASCIIString()));
+			return JSONSerDe.deSer(asString(request.execute().getContent()), MULTIQUERY_REF);
+		} catch(JSONSerDeException e) {
+			throw new IOException(e);
 		} catch(URISyntaxException e) {
 			throw new IllegalArgumentException(e);
 		}
 	}
 
+	private final static TypeReference<ArrayList<QueryStatus>> MULTIQUERY_REF = new TypeReference<ArrayList<QueryStatus>>() {
+	};
+
 	public DeployInfo deploy(String tablespace, PartitionMap partitionMap, ReplicationMap replicationMap,
 	    URI dataUri) throws IOException {
 
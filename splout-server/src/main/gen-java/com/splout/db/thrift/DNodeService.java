@@ -26,6 +26,12 @@ public class DNodeService {
 
     public String sqlQuery(String tablespace, long version, int partition, String query) throws DNodeException, org.apache.thrift.TException;
 
+    public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException, org.apache.thrift.TException;
+
+    public QueryResult sqlQueryWithParams(String tablespace, long version, int partition, String query, List<QueryParam> params) throws DNodeException, org.apache.thrift.TException;
+
+    public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions, String query, List<QueryParam> params) throws DNodeException, org.apache.thrift.TException;
+
     public String deleteOldVersions(List<TablespaceVersion> versions) throws DNodeException, org.apache.thrift.TException;
 
     public String deploy(List<DeployAction> deployActions, long version) throws DNodeException, org.apache.thrift.TException;
@@ -44,6 +50,12 @@ public class DNodeService {
 
     public void sqlQuery(String tablespace, long version, int partition, String query, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.sqlQuery_call> resultHandler) throws org.apache.thrift.TException;
 
+    public void sqlQueryBinary(String tablespace, long version, int partition, String query, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.sqlQueryBinary_call> resultHandler) throws org.apache.thrift.TException;
+
+    public void sqlQueryWithParams(String tablespace, long version, int partition, String query, List<QueryParam> params, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.sqlQueryWithParams_call> resultHandler) throws org.apache.thrift.TException;
+
+    public void sqlQueryMulti(String tablespace, long version, List<Integer> partitions, String query, List<QueryParam> params, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.sqlQueryMulti_call> resultHandler) throws org.apache.thrift.TException;
+
     public void deleteOldVersions(List<TablespaceVersion> versions, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.deleteOldVersions_call> resultHandler) throws org.apache.thrift.TException;
 
     public void deploy(List<DeployAction> deployActions, long version, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.deploy_call> resultHandler) throws org.apache.thrift.TException;
@@ -107,6 +119,95 @@ public class DNodeService {
       throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "sqlQuery failed: unknown result");
     }
 
+    public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException, org.apache.thrift.TException
+    {
+      send_sqlQueryBinary(tablespace, version, partition, query);
+      return recv_sqlQueryBinary();
+    }
+
+    public void send_sqlQueryBinary(String tablespace, long version, int partition, String query) throws org.apache.thrift.TException
+    {
+      sqlQueryBinary_args args = new sqlQueryBinary_args();
+      args.setTablespace(tablespace);
+      args.setVersion(version);
+      args.setPartition(partition);
+      args.setQuery(query);
+      sendBase("sqlQueryBinary", args);
+    }
+
+    public QueryResult recv_sqlQueryBinary() throws DNodeException, org.apache.thrift.TException
+    {
+      sqlQueryBinary_result result = new sqlQueryBinary_result();
+      receiveBase(result, "sqlQueryBinary");
+      if (result.isSetSuccess()) {
+        return result.success;
+      }
+      if (result.excep != null) {
+        throw result.excep;
+      }
+      throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "sqlQueryBinary failed: unknown result");
+    }
+
+    public QueryResult sqlQueryWithParams(String tablespace, long version, int partition, String query, List<QueryParam> params) throws DNodeException, org.apache.thrift.TException
+    {
+      send_sqlQueryWithParams(tablespace, version, partition, query, params);
+      return recv_sqlQueryWithParams();
+    }
+
+    public void send_sqlQueryWithParams(String tablespace, long version, int partition, String query, List<QueryParam> params) throws org.apache.thrift.TException
+    {
+      sqlQueryWithParams_args args = new sqlQueryWithParams_args();
+      args.setTablespace(tablespace);
+      args.setVersion(version);
+      args.setPartition(partition);
+      args.setQuery(query);
+      args.setParams(params);
+      sendBase("sqlQueryWithParams", args);
+    }
+
+    public QueryResult recv_sqlQueryWithParams() throws DNodeException, org.apache.thrift.TException
+    {
+      sqlQueryWithParams_result result = new sqlQueryWithParams_result();
+      receiveBase(result, "sqlQueryWithParams");
+      if (result.isSetSuccess()) {
+        return result.success;
+      }
+      if (result.excep != null) {
+        throw result.excep;
+      }
+      throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "sqlQueryWithParams failed: unknown result");
+    }
+
+    public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions, String query, List<QueryParam> params) throws DNodeException, org.apache.thrift.TException
+    {
+      send_sqlQueryMulti(tablespace, version, partitions, query, params);
+      return recv_sqlQueryMulti();
+    }
+
+    public void send_sqlQueryMulti(String tablespace, long version, List<Integer> partitions, String query, List<QueryParam> params) throws org.apache.thrift.TException
+    {
+      sqlQueryMulti_args args = new sqlQueryMulti_args();
+      args.setTablespace(tablespace);
+      args.setVersion(version);
+      args.setPartitions(partitions);
+      args.setQuery(query);
+      args.setParams(params);
+      sendBase("sqlQueryMulti", args);
+    }
+
+    public List<PartitionQueryResult> recv_sqlQueryMulti() throws DNodeException, org.apache.thrift.TException
+    {
+      sqlQueryMulti_result result = new sqlQueryMulti_result();
+      receiveBase(result, "sqlQueryMulti");
+      if (result.isSetSuccess()) {
+        return result.success;
+      }
+      if (result.excep != null) {
+        throw result.excep;
+      }
+      throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "sqlQueryMulti failed: unknown result");
+    }
+
     public String deleteOldVersions(List<TablespaceVersion> versions) throws DNodeException, org.apache.thrift.TException
     {
       send_deleteOldVersions(versions);
@@ -323,6 +424,135 @@ public class DNodeService {
       }
     }
 
+    public void sqlQueryBinary(String tablespace, long version, int partition, String query, org.apache.thrift.async.AsyncMethodCallback<sqlQueryBinary_call> resultHandler) throws org.apache.thrift.TException {
+      checkReady();
+      sqlQueryBinary_call method_call = new sqlQueryBinary_call(tablespace, version, partition, query, resultHandler, this, ___protocolFactory, ___transport);
+      this.___currentMethod = method_call;
+      ___manager.call(method_call);
+    }
+
+    public static class sqlQueryBinary_call extends org.apache.thrift.async.TAsyncMethodCall {
+      private String tablespace;
+      private long version;
+      private int partition;
+      private String query;
+      public sqlQueryBinary_call(String tablespace, long version, int partition, String query, org.apache.thrift.async.AsyncMethodCallback<sqlQueryBinary_call> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.tablespace = tablespace;
+        this.version = version;
+        this.partition = partition;
+        this.query = query;
+      }
+
+      public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
+        prot.writeMessageBegin(new org.apache.thrift.protocol.TMessage("sqlQueryBinary", org.apache.thrift.protocol.TMessageType.CALL, 0));
+        sqlQueryBinary_args args = new sqlQueryBinary_args();
+        args.setTablespace(tablespace);
+        args.setVersion(version);
+        args.setPartition(partition);
+        args.setQuery(query);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public QueryResult getResult() throws DNodeException, org.apache.thrift.TException {
+        if (getState() != org.apache.thrift.async.TAsyncMethodCall.State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        org.apache.thrift.transport.TMemoryInputTransport memoryTransport = new org.apache.thrift.transport.TMemoryInputTransport(getFrameBuffer().array());
+        org.apache.thrift.protocol.TProtocol prot = client.getProtocolFactory().getProtocol(memoryTransport);
+        return (new Client(prot)).recv_sqlQueryBinary();
+      }
+    }
+
+    public void sqlQueryWithParams(String tablespace, long version, int partition, String query, List<QueryParam> params, org.apache.thrift.async.AsyncMethodCallback<sqlQueryWithParams_call> resultHandler) throws org.apache.thrift.TException {
+      checkReady();
+      sqlQueryWithParams_call method_call = new sqlQueryWithParams_call(tablespace, version, partition, query, params, resultHandler, this, ___protocolFactory, ___transport);
+      this.___currentMethod = method_call;
+      ___manager.call(method_call);
+    }
+
+    public static class sqlQueryWithParams_call extends org.apache.thrift.async.TAsyncMethodCall {
+      private String tablespace;
+      private long version;
+      private int partition;
+      private String query;
+      private List<QueryParam> params;
+      public sqlQueryWithParams_call(String tablespace, long version, int partition, String query, List<QueryParam> params, org.apache.thrift.async.AsyncMethodCallback<sqlQueryWithParams_call> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.tablespace = tablespace;
+        this.version = version;
+        this.partition = partition;
+        this.query = query;
+        this.params = params;
+      }
+
+      public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
+        prot.writeMessageBegin(new org.apache.thrift.protocol.TMessage("sqlQueryWithParams", org.apache.thrift.protocol.TMessageType.CALL, 0));
+        sqlQueryWithParams_args args = new sqlQueryWithParams_args();
+        args.setTablespace(tablespace);
+        args.setVersion(version);
+        args.setPartition(partition);
+        args.setQuery(query);
+        args.setParams(params);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public QueryResult getResult() throws DNodeException, org.apache.thrift.TException {
+        if (getState() != org.apache.thrift.async.TAsyncMethodCall.State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        org.apache.thrift.transport.TMemoryInputTransport memoryTransport = new org.apache.thrift.transport.TMemoryInputTransport(getFrameBuffer().array());
+        org.apache.thrift.protocol.TProtocol prot = client.getProtocolFactory().getProtocol(memoryTransport);
+        return (new Client(prot)).recv_sqlQueryWithParams();
+      }
+    }
+
+    public void sqlQueryMulti(String tablespace, long version, List<Integer> partitions, String query, List<QueryParam> params, org.apache.thrift.async.AsyncMethodCallback<sqlQueryMulti_call> resultHandler) throws org.apache.thrift.TException {
+      checkReady();
+      sqlQueryMulti_call method_call = new sqlQueryMulti_call(tablespace, version, partitions, query, params, resultHandler, this, ___protocolFactory, ___transport);
+      this.___currentMethod = method_call;
+      ___manager.call(method_call);
+    }
+
+    public static class sqlQueryMulti_call extends org.apache.thrift.async.TAsyncMethodCall {
+      private String tablespace;
+      private long version;
+      private List<Integer> partitions;
+      private String query;
+      private List<QueryParam> params;
+      public sqlQueryMulti_call(String tablespace, long version, List<Integer> partitions, String query, List<QueryParam> params, org.apache.thrift.async.AsyncMethodCallback<sqlQueryMulti_call> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.tablespace = tablespace;
+        this.version = version;
+        this.partitions = partitions;
+        this.query = query;
+        this.params = params;
+      }
+
+      public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
+        prot.writeMessageBegin(new org.apache.thrift.protocol.TMessage("sqlQueryMulti", org.apache.thrift.protocol.TMessageType.CALL, 0));
+        sqlQueryMulti_args args = new sqlQueryMulti_args();
+        args.setTablespace(tablespace);
+        args.setVersion(version);
+        args.setPartitions(partitions);
+        args.setQuery(query);
+        args.setParams(params);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public List<PartitionQueryResult> getResult() throws DNodeException, org.apache.thrift.TException {
+        if (getState() != org.apache.thrift.async.TAsyncMethodCall.State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        org.apache.thrift.transport.TMemoryInputTransport memoryTransport = new org.apache.thrift.transport.TMemoryInputTransport(getFrameBuffer().array());
+        org.apache.thrift.protocol.TProtocol prot = client.getProtocolFactory().getProtocol(memoryTransport);
+        return (new Client(prot)).recv_sqlQueryMulti();
+      }
+    }
+
     public void deleteOldVersions(List<TablespaceVersion> versions, org.apache.thrift.async.AsyncMethodCallback<deleteOldVersions_call> resultHandler) throws org.apache.thrift.TException {
       checkReady();
       deleteOldVersions_call method_call = new deleteOldVersions_call(versions, resultHandler, this, ___protocolFactory, ___transport);
@@ -532,6 +762,9 @@ public class DNodeService {
 
     private static <I extends Iface> Map<String,  org.apache.thrift.ProcessFunction<I, ? extends  org.apache.thrift.TBase>> getProcessMap(Map<String,  org.apache.thrift.ProcessFunction<I, ? extends  org.apache.thrift.TBase>> processMap) {
       processMap.put("sqlQuery", new sqlQuery());
+      processMap.put("sqlQueryBinary", new sqlQueryBinary());
+      processMap.put("sqlQueryWithParams", new sqlQueryWithParams());
+      processMap.put("sqlQueryMulti", new sqlQueryMulti());
       processMap.put("deleteOldVersions", new deleteOldVersions());
       processMap.put("deploy", new deploy());
       processMap.put("rollback", new rollback());
@@ -561,6 +794,66 @@ public class DNodeService {
       }
     }
 
+    private static class sqlQueryBinary<I extends Iface> extends org.apache.thrift.ProcessFunction<I, sqlQueryBinary_args> {
+      public sqlQueryBinary() {
+        super("sqlQueryBinary");
+      }
+
+      protected sqlQueryBinary_args getEmptyArgsInstance() {
+        return new sqlQueryBinary_args();
+      }
+
+      protected sqlQueryBinary_result getResult(I iface, sqlQueryBinary_args args) throws org.apache.thrift.TException {
+        sqlQueryBinary_result result = new sqlQueryBinary_result();
+        try {
+          result.success = iface.sqlQueryBinary(args.tablespace, args.version, args.partition, args.query);
+        } catch (DNodeException excep) {
+          result.excep = excep;
+        }
+        return result;
+      }
+    }
+
+    private static class sqlQueryWithParams<I extends Iface> extends org.apache.thrift.ProcessFunction<I, sqlQueryWithParams_args> {
+      public sqlQueryWithParams() {
+        super("sqlQueryWithParams");
+      }
+
+      protected sqlQueryWithParams_args getEmptyArgsInstance() {
+        return new sqlQueryWithParams_args();
+      }
+
+      protected sqlQueryWithParams_result getResult(I iface, sqlQueryWithParams_args args) throws org.apache.thrift.TException {
+        sqlQueryWithParams_result result = new sqlQueryWithParams_result();
+        try {
+          result.success = iface.sqlQueryWithParams(args.tablespace, args.version, args.partition, args.query, args.params);
+        } catch (DNodeException excep) {
+          result.excep = excep;
+        }
+        return result;
+      }
+    }
+
+    private static class sqlQueryMulti<I extends Iface> extends org.apache.thrift.ProcessFunction<I, sqlQueryMulti_args> {
+      public sqlQueryMulti() {
+        super("sqlQueryMulti");
+      }
+
+      protected sqlQueryMulti_args getEmptyArgsInstance() {
+        return new sqlQueryMulti_args();
+      }
+
+      protected sqlQueryMulti_result getResult(I iface, sqlQueryMulti_args args) throws org.apache.thrift.TException {
+        sqlQueryMulti_result result = new sqlQueryMulti_result();
+        try {
+          result.success = iface.sqlQueryMulti(args.tablespace, args.version, args.partitions, args.query, args.params);
+        } catch (DNodeException excep) {
+          result.excep = excep;
+        }
+        return result;
+      }
+    }
+
     private static class deleteOldVersions<I extends Iface> extends org.apache.thrift.ProcessFunction<I, deleteOldVersions_args> {
       public deleteOldVersions() {
         super("deleteOldVersions");
@@ -1627,6 +1920,3174 @@ public class DNodeService {
 
   }
 
+  public static class sqlQueryBinary_args implements org.apache.thrift.TBase<sqlQueryBinary_args, sqlQueryBinary_args._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("sqlQueryBinary_args");
+
+    private static final org.apache.thrift.protocol.TField TABLESPACE_FIELD_DESC = new org.apache.thrift.protocol.TField("tablespace", org.apache.thrift.protocol.TType.STRING, (short)1);
+    private static final org.apache.thrift.protocol.TField VERSION_FIELD_DESC = new org.apache.thrift.protocol.TField("version", org.apache.thrift.protocol.TType.I64, (short)2);
+    private static final org.apache.thrift.protocol.TField PARTITION_FIELD_DESC = new org.apache.thrift.protocol.TField("partition", org.apache.thrift.protocol.TType.I32, (short)3);
+    private static final org.apache.thrift.protocol.TField QUERY_FIELD_DESC = new org.apache.thrift.protocol.TField("query", org.apache.thrift.protocol.TType.STRING, (short)4);
+
+    public String tablespace; // required
+    public long version; // required
+    public int partition; // required
+    public String query; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      TABLESPACE((short)1, "tablespace"),
+      VERSION((short)2, "version"),
+      PARTITION((short)3, "partition"),
+      QUERY((short)4, "query");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 1: // TABLESPACE
+            return TABLESPACE;
+          case 2: // VERSION
+            return VERSION;
+          case 3: // PARTITION
+            return PARTITION;
+          case 4: // QUERY
+            return QUERY;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    private static final int __VERSION_ISSET_ID = 0;
+    private static final int __PARTITION_ISSET_ID = 1;
+    private BitSet __isset_bit_vector = new BitSet(2);
+
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.TABLESPACE, new org.apache.thrift.meta_data.FieldMetaData("tablespace", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      tmpMap.put(_Fields.VERSION, new org.apache.thrift.meta_data.FieldMetaData("version", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
+      tmpMap.put(_Fields.PARTITION, new org.apache.thrift.meta_data.FieldMetaData("partition", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
+      tmpMap.put(_Fields.QUERY, new org.apache.thrift.meta_data.FieldMetaData("query", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(sqlQueryBinary_args.class, metaDataMap);
+    }
+
+    public sqlQueryBinary_args() {
+    }
+
+    public sqlQueryBinary_args(
+      String tablespace,
+      long version,
+      int partition,
+      String query)
+    {
+      this();
+      this.tablespace = tablespace;
+      this.version = version;
+      setVersionIsSet(true);
+      this.partition = partition;
+      setPartitionIsSet(true);
+      this.query = query;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public sqlQueryBinary_args(sqlQueryBinary_args other) {
+      __isset_bit_vector.clear();
+      __isset_bit_vector.or(other.__isset_bit_vector);
+      if (other.isSetTablespace()) {
+        this.tablespace = other.tablespace;
+      }
+      this.version = other.version;
+      this.partition = other.partition;
+      if (other.isSetQuery()) {
+        this.query = other.query;
+      }
+    }
+
+    public sqlQueryBinary_args deepCopy() {
+      return new sqlQueryBinary_args(this);
+    }
+
+    @Override
+    public void clear() {
+      this.tablespace = null;
+      setVersionIsSet(false);
+      this.version = 0;
+      setPartitionIsSet(false);
+      this.partition = 0;
+      this.query = null;
+    }
+
+    public String getTablespace() {
+      return this.tablespace;
+    }
+
+    public sqlQueryBinary_args setTablespace(String tablespace) {
+      this.tablespace = tablespace;
+      return this;
+    }
+
+    public void unsetTablespace() {
+      this.tablespace = null;
+    }
+
+    /** Returns true if field tablespace is set (has been assigned a value) and false otherwise */
+    public boolean isSetTablespace() {
+      return this.tablespace != null;
+    }
+
+    public void setTablespaceIsSet(boolean value) {
+      if (!value) {
+        this.tablespace = null;
+      }
+    }
+
+    public long getVersion() {
+      return this.version;
+    }
+
+    public sqlQueryBinary_args setVersion(long version) {
+      this.version = version;
+      setVersionIsSet(true);
+      return this;
+    }
+
+    public void unsetVersion() {
+      __isset_bit_vector.clear(__VERSION_ISSET_ID);
+    }
+
+    /** Returns true if field version is set (has been assigned a value) and false otherwise */
+    public boolean isSetVersion() {
+      return __isset_bit_vector.get(__VERSION_ISSET_ID);
+    }
+
+    public void setVersionIsSet(boolean value) {
+      __isset_bit_vector.set(__VERSION_ISSET_ID, value);
+    }
+
+    public int getPartition() {
+      return this.partition;
+    }
+
+    public sqlQueryBinary_args setPartition(int partition) {
+      this.partition = partition;
+      setPartitionIsSet(true);
+      return this;
+    }
+
+    public void unsetPartition() {
+      __isset_bit_vector.clear(__PARTITION_ISSET_ID);
+    }
+
+    /** Returns true if field partition is set (has been assigned a value) and false otherwise */
+    public boolean isSetPartition() {
+      return __isset_bit_vector.get(__PARTITION_ISSET_ID);
+    }
+
+    public void setPartitionIsSet(boolean value) {
+      __isset_bit_vector.set(__PARTITION_ISSET_ID, value);
+    }
+
+    public String getQuery() {
+      return this.query;
+    }
+
+    public sqlQueryBinary_args setQuery(String query) {
+      this.query = query;
+      return this;
+    }
+
+    public void unsetQuery() {
+      this.query = null;
+    }
+
+    /** Returns true if field query is set (has been assigned a value) and false otherwise */
+    public boolean isSetQuery() {
+      return this.query != null;
+    }
+
+    public void setQueryIsSet(boolean value) {
+      if (!value) {
+        this.query = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case TABLESPACE:
+        if (value == null) {
+          unsetTablespace();
+        } else {
+          setTablespace((String)value);
+        }
+        break;
+
+      case VERSION:
+        if (value == null) {
+          unsetVersion();
+        } else {
+          setVersion((Long)value);
+        }
+        break;
+
+      case PARTITION:
+        if (value == null) {
+          unsetPartition();
+        } else {
+          setPartition((Integer)value);
+        }
+        break;
+
+      case QUERY:
+        if (value == null) {
+          unsetQuery();
+        } else {
+          setQuery((String)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case TABLESPACE:
+        return getTablespace();
+
+      case VERSION:
+        return Long.valueOf(getVersion());
+
+      case PARTITION:
+        return Integer.valueOf(getPartition());
+
+      case QUERY:
+        return getQuery();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case TABLESPACE:
+        return isSetTablespace();
+      case VERSION:
+        return isSetVersion();
+      case PARTITION:
+        return isSetPartition();
+      case QUERY:
+        return isSetQuery();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof sqlQueryBinary_args)
+        return this.equals((sqlQueryBinary_args)that);
+      return false;
+    }
+
+    public boolean equals(sqlQueryBinary_args that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_tablespace = true && this.isSetTablespace();
+      boolean that_present_tablespace = true && that.isSetTablespace();
+      if (this_present_tablespace || that_present_tablespace) {
+        if (!(this_present_tablespace && that_present_tablespace))
+          return false;
+        if (!this.tablespace.equals(that.tablespace))
+          return false;
+      }
+
+      boolean this_present_version = true;
+      boolean that_present_version = true;
+      if (this_present_version || that_present_version) {
+        if (!(this_present_version && that_present_version))
+          return false;
+        if (this.version != that.version)
+          return false;
+      }
+
+      boolean this_present_partition = true;
+      boolean that_present_partition = true;
+      if (this_present_partition || that_present_partition) {
+        if (!(this_present_partition && that_present_partition))
+          return false;
+        if (this.partition != that.partition)
+          return false;
+      }
+
+      boolean this_present_query = true && this.isSetQuery();
+      boolean that_present_query = true && that.isSetQuery();
+      if (this_present_query || that_present_query) {
+        if (!(this_present_query && that_present_query))
+          return false;
+        if (!this.query.equals(that.query))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(sqlQueryBinary_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      sqlQueryBinary_args typedOther = (sqlQueryBinary_args)other;
+
+      lastComparison = Boolean.valueOf(isSetTablespace()).compareTo(typedOther.isSetTablespace());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetTablespace()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.tablespace, typedOther.tablespace);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetVersion()).compareTo(typedOther.isSetVersion());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetVersion()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.version, typedOther.version);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetPartition()).compareTo(typedOther.isSetPartition());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetPartition()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.partition, typedOther.partition);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetQuery()).compareTo(typedOther.isSetQuery());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetQuery()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.query, typedOther.query);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          case 1: // TABLESPACE
+            if (field.type == org.apache.thrift.protocol.TType.STRING) {
+              this.tablespace = iprot.readString();
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 2: // VERSION
+            if (field.type == org.apache.thrift.protocol.TType.I64) {
+              this.version = iprot.readI64();
+              setVersionIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 3: // PARTITION
+            if (field.type == org.apache.thrift.protocol.TType.I32) {
+              this.partition = iprot.readI32();
+              setPartitionIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 4: // QUERY
+            if (field.type == org.apache.thrift.protocol.TType.STRING) {
+              this.query = iprot.readString();
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      validate();
+
+      oprot.writeStructBegin(STRUCT_DESC);
+      if (this.tablespace != null) {
+        oprot.writeFieldBegin(TABLESPACE_FIELD_DESC);
+        oprot.writeString(this.tablespace);
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldBegin(VERSION_FIELD_DESC);
+      oprot.writeI64(this.version);
+      oprot.writeFieldEnd();
+      oprot.writeFieldBegin(PARTITION_FIELD_DESC);
+      oprot.writeI32(this.partition);
+      oprot.writeFieldEnd();
+      if (this.query != null) {
+        oprot.writeFieldBegin(QUERY_FIELD_DESC);
+        oprot.writeString(this.query);
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("sqlQueryBinary_args(");
+      boolean first = true;
+
+      sb.append("tablespace:");
+      if (this.tablespace == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.tablespace);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("version:");
+      sb.append(this.version);
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("partition:");
+      sb.append(this.partition);
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("query:");
+      if (this.query == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.query);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        // it doesn't seem like you should have to do this, but java serialization is wacky, and doesn't call the default constructor.
+        __isset_bit_vector = new BitSet(1);
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
+  public static class sqlQueryBinary_result implements org.apache.thrift.TBase<sqlQueryBinary_result, sqlQueryBinary_result._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("sqlQueryBinary_result");
+
+    private static final org.apache.thrift.protocol.TField SUCCESS_FIELD_DESC = new org.apache.thrift.protocol.TField("success", org.apache.thrift.protocol.TType.STRUCT, (short)0);
+    private static final org.apache.thrift.protocol.TField EXCEP_FIELD_DESC = new org.apache.thrift.protocol.TField("excep", org.apache.thrift.protocol.TType.STRUCT, (short)1);
+
+    public QueryResult success; // required
+    public DNodeException excep; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SUCCESS((short)0, "success"),
+      EXCEP((short)1, "excep");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 0: // SUCCESS
+            return SUCCESS;
+          case 1: // EXCEP
+            return EXCEP;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SUCCESS, new org.apache.thrift.meta_data.FieldMetaData("success", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, QueryResult.class)));
+      tmpMap.put(_Fields.EXCEP, new org.apache.thrift.meta_data.FieldMetaData("excep", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRUCT)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(sqlQueryBinary_result.class, metaDataMap);
+    }
+
+    public sqlQueryBinary_result() {
+    }
+
+    public sqlQueryBinary_result(
+      QueryResult success,
+      DNodeException excep)
+    {
+      this();
+      this.success = success;
+      this.excep = excep;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public sqlQueryBinary_result(sqlQueryBinary_result other) {
+      if (other.isSetSuccess()) {
+        this.success = new QueryResult(other.success);
+      }
+      if (other.isSetExcep()) {
+        this.excep = new DNodeException(other.excep);
+      }
+    }
+
+    public sqlQueryBinary_result deepCopy() {
+      return new sqlQueryBinary_result(this);
+    }
+
+    @Override
+    public void clear() {
+      this.success = null;
+      this.excep = null;
+    }
+
+    public QueryResult getSuccess() {
+      return this.success;
+    }
+
+    public sqlQueryBinary_result setSuccess(QueryResult success) {
+      this.success = success;
+      return this;
+    }
+
+    public void unsetSuccess() {
+      this.success = null;
+    }
+
+    /** Returns true if field success is set (has been assigned a value) and false otherwise */
+    public boolean isSetSuccess() {
+      return this.success != null;
+    }
+
+    public void setSuccessIsSet(boolean value) {
+      if (!value) {
+        this.success = null;
+      }
+    }
+
+    public DNodeException getExcep() {
+      return this.excep;
+    }
+
+    public sqlQueryBinary_result setExcep(DNodeException excep) {
+      this.excep = excep;
+      return this;
+    }
+
+    public void unsetExcep() {
+      this.excep = null;
+    }
+
+    /** Returns true if field excep is set (has been assigned a value) and false otherwise */
+    public boolean isSetExcep() {
+      return this.excep != null;
+    }
+
+    public void setExcepIsSet(boolean value) {
+      if (!value) {
+        this.excep = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SUCCESS:
+        if (value == null) {
+          unsetSuccess();
+        } else {
+          setSuccess((QueryResult)value);
+        }
+        break;
+
+      case EXCEP:
+        if (value == null) {
+          unsetExcep();
+        } else {
+          setExcep((DNodeException)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SUCCESS:
+        return getSuccess();
+
+      case EXCEP:
+        return getExcep();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SUCCESS:
+        return isSetSuccess();
+      case EXCEP:
+        return isSetExcep();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof sqlQueryBinary_result)
+        return this.equals((sqlQueryBinary_result)that);
+      return false;
+    }
+
+    public boolean equals(sqlQueryBinary_result that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_success = true && this.isSetSuccess();
+      boolean that_present_success = true && that.isSetSuccess();
+      if (this_present_success || that_present_success) {
+        if (!(this_present_success && that_present_success))
+          return false;
+        if (!this.success.equals(that.success))
+          return false;
+      }
+
+      boolean this_present_excep = true && this.isSetExcep();
+      boolean that_present_excep = true && that.isSetExcep();
+      if (this_present_excep || that_present_excep) {
+        if (!(this_present_excep && that_present_excep))
+          return false;
+        if (!this.excep.equals(that.excep))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(sqlQueryBinary_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      sqlQueryBinary_result typedOther = (sqlQueryBinary_result)other;
+
+      lastComparison = Boolean.valueOf(isSetSuccess()).compareTo(typedOther.isSetSuccess());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSuccess()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.success, typedOther.success);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetExcep()).compareTo(typedOther.isSetExcep());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetExcep()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.excep, typedOther.excep);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          case 0: // SUCCESS
+            if (field.type == org.apache.thrift.protocol.TType.STRUCT) {
+              this.success = new QueryResult();
+              this.success.read(iprot);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 1: // EXCEP
+            if (field.type == org.apache.thrift.protocol.TType.STRUCT) {
+              this.excep = new DNodeException();
+              this.excep.read(iprot);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      oprot.writeStructBegin(STRUCT_DESC);
+
+      if (this.isSetSuccess()) {
+        oprot.writeFieldBegin(SUCCESS_FIELD_DESC);
+        this.success.write(oprot);
+        oprot.writeFieldEnd();
+      } else if (this.isSetExcep()) {
+        oprot.writeFieldBegin(EXCEP_FIELD_DESC);
+        this.excep.write(oprot);
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("sqlQueryBinary_result(");
+      boolean first = true;
+
+      sb.append("success:");
+      if (this.success == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.success);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("excep:");
+      if (this.excep == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.excep);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
+  public static class sqlQueryWithParams_args implements org.apache.thrift.TBase<sqlQueryWithParams_args, sqlQueryWithParams_args._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("sqlQueryWithParams_args");
+
+    private static final org.apache.thrift.protocol.TField TABLESPACE_FIELD_DESC = new org.apache.thrift.protocol.TField("tablespace", org.apache.thrift.protocol.TType.STRING, (short)1);
+    private static final org.apache.thrift.protocol.TField VERSION_FIELD_DESC = new org.apache.thrift.protocol.TField("version", org.apache.thrift.protocol.TType.I64, (short)2);
+    private static final org.apache.thrift.protocol.TField PARTITION_FIELD_DESC = new org.apache.thrift.protocol.TField("partition", org.apache.thrift.protocol.TType.I32, (short)3);
+    private static final org.apache.thrift.protocol.TField QUERY_FIELD_DESC = new org.apache.thrift.protocol.TField("query", org.apache.thrift.protocol.TType.STRING, (short)4);
+    private static final org.apache.thrift.protocol.TField PARAMS_FIELD_DESC = new org.apache.thrift.protocol.TField("params", org.apache.thrift.protocol.TType.LIST, (short)5);
+
+    public String tablespace; // required
+    public long version; // required
+    public int partition; // required
+    public String query; // required
+    public List<QueryParam> params; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      TABLESPACE((short)1, "tablespace"),
+      VERSION((short)2, "version"),
+      PARTITION((short)3, "partition"),
+      QUERY((short)4, "query"),
+      PARAMS((short)5, "params");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 1: // TABLESPACE
+            return TABLESPACE;
+          case 2: // VERSION
+            return VERSION;
+          case 3: // PARTITION
+            return PARTITION;
+          case 4: // QUERY
+            return QUERY;
+          case 5: // PARAMS
+            return PARAMS;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    private static final int __VERSION_ISSET_ID = 0;
+    private static final int __PARTITION_ISSET_ID = 1;
+    private BitSet __isset_bit_vector = new BitSet(2);
+
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.TABLESPACE, new org.apache.thrift.meta_data.FieldMetaData("tablespace", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      tmpMap.put(_Fields.VERSION, new org.apache.thrift.meta_data.FieldMetaData("version", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
+      tmpMap.put(_Fields.PARTITION, new org.apache.thrift.meta_data.FieldMetaData("partition", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
+      tmpMap.put(_Fields.QUERY, new org.apache.thrift.meta_data.FieldMetaData("query", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      tmpMap.put(_Fields.PARAMS, new org.apache.thrift.meta_data.FieldMetaData("params", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+              new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, QueryParam.class))));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(sqlQueryWithParams_args.class, metaDataMap);
+    }
+
+    public sqlQueryWithParams_args() {
+    }
+
+    public sqlQueryWithParams_args(
+      String tablespace,
+      long version,
+      int partition,
+      String query,
+      List<QueryParam> params)
+    {
+      this();
+      this.tablespace = tablespace;
+      this.version = version;
+      setVersionIsSet(true);
+      this.partition = partition;
+      setPartitionIsSet(true);
+      this.query = query;
+      this.params = params;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public sqlQueryWithParams_args(sqlQueryWithParams_args other) {
+      __isset_bit_vector.clear();
+      __isset_bit_vector.or(other.__isset_bit_vector);
+      if (other.isSetTablespace()) {
+        this.tablespace = other.tablespace;
+      }
+      this.version = other.version;
+      this.partition = other.partition;
+      if (other.isSetQuery()) {
+        this.query = other.query;
+      }
+      if (other.isSetParams()) {
+        List<QueryParam> __this__params = new ArrayList<QueryParam>();
+        for (QueryParam other_element : other.params) {
+          __this__params.add(new QueryParam(other_element));
+        }
+        this.params = __this__params;
+      }
+    }
+
+    public sqlQueryWithParams_args deepCopy() {
+      return new sqlQueryWithParams_args(this);
+    }
+
+    @Override
+    public void clear() {
+      this.tablespace = null;
+      setVersionIsSet(false);
+      this.version = 0;
+      setPartitionIsSet(false);
+      this.partition = 0;
+      this.query = null;
+      this.params = null;
+    }
+
+    public String getTablespace() {
+      return this.tablespace;
+    }
+
+    public sqlQueryWithParams_args setTablespace(String tablespace) {
+      this.tablespace = tablespace;
+      return this;
+    }
+
+    public void unsetTablespace() {
+      this.tablespace = null;
+    }
+
+    /** Returns true if field tablespace is set (has been assigned a value) and false otherwise */
+    public boolean isSetTablespace() {
+      return this.tablespace != null;
+    }
+
+    public void setTablespaceIsSet(boolean value) {
+      if (!value) {
+        this.tablespace = null;
+      }
+    }
+
+    public long getVersion() {
+      return this.version;
+    }
+
+    public sqlQueryWithParams_args setVersion(long version) {
+      this.version = version;
+      setVersionIsSet(true);
+      return this;
+    }
+
+    public void unsetVersion() {
+      __isset_bit_vector.clear(__VERSION_ISSET_ID);
+    }
+
+    /** Returns true if field version is set (has been assigned a value) and false otherwise */
+    public boolean isSetVersion() {
+      return __isset_bit_vector.get(__VERSION_ISSET_ID);
+    }
+
+    public void setVersionIsSet(boolean value) {
+      __isset_bit_vector.set(__VERSION_ISSET_ID, value);
+    }
+
+    public int getPartition() {
+      return this.partition;
+    }
+
+    public sqlQueryWithParams_args setPartition(int partition) {
+      this.partition = partition;
+      setPartitionIsSet(true);
+      return this;
+    }
+
+    public void unsetPartition() {
+      __isset_bit_vector.clear(__PARTITION_ISSET_ID);
+    }
+
+    /** Returns true if field partition is set (has been assigned a value) and false otherwise */
+    public boolean isSetPartition() {
+      return __isset_bit_vector.get(__PARTITION_ISSET_ID);
+    }
+
+    public void setPartitionIsSet(boolean value) {
+      __isset_bit_vector.set(__PARTITION_ISSET_ID, value);
+    }
+
+    public String getQuery() {
+      return this.query;
+    }
+
+    public sqlQueryWithParams_args setQuery(String query) {
+      this.query = query;
+      return this;
+    }
+
+    public void unsetQuery() {
+      this.query = null;
+    }
+
+    /** Returns true if field query is set (has been assigned a value) and false otherwise */
+    public boolean isSetQuery() {
+      return this.query != null;
+    }
+
+    public void setQueryIsSet(boolean value) {
+      if (!value) {
+        this.query = null;
+      }
+    }
+
+    public int getParamsSize() {
+      return (this.params == null) ? 0 : this.params.size();
+    }
+
+    public java.util.Iterator<QueryParam> getParamsIterator() {
+      return (this.params == null) ? null : this.params.iterator();
+    }
+
+    public void addToParams(QueryParam elem) {
+      if (this.params == null) {
+        this.params = new ArrayList<QueryParam>();
+      }
+      this.params.add(elem);
+    }
+
+    public List<QueryParam> getParams() {
+      return this.params;
+    }
+
+    public sqlQueryWithParams_args setParams(List<QueryParam> params) {
+      this.params = params;
+      return this;
+    }
+
+    public void unsetParams() {
+      this.params = null;
+    }
+
+    /** Returns true if field params is set (has been assigned a value) and false otherwise */
+    public boolean isSetParams() {
+      return this.params != null;
+    }
+
+    public void setParamsIsSet(boolean value) {
+      if (!value) {
+        this.params = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case TABLESPACE:
+        if (value == null) {
+          unsetTablespace();
+        } else {
+          setTablespace((String)value);
+        }
+        break;
+
+      case VERSION:
+        if (value == null) {
+          unsetVersion();
+        } else {
+          setVersion((Long)value);
+        }
+        break;
+
+      case PARTITION:
+        if (value == null) {
+          unsetPartition();
+        } else {
+          setPartition((Integer)value);
+        }
+        break;
+
+      case QUERY:
+        if (value == null) {
+          unsetQuery();
+        } else {
+          setQuery((String)value);
+        }
+        break;
+
+      case PARAMS:
+        if (value == null) {
+          unsetParams();
+        } else {
+          setParams((List<QueryParam>)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case TABLESPACE:
+        return getTablespace();
+
+      case VERSION:
+        return Long.valueOf(getVersion());
+
+      case PARTITION:
+        return Integer.valueOf(getPartition());
+
+      case QUERY:
+        return getQuery();
+
+      case PARAMS:
+        return getParams();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case TABLESPACE:
+        return isSetTablespace();
+      case VERSION:
+        return isSetVersion();
+      case PARTITION:
+        return isSetPartition();
+      case QUERY:
+        return isSetQuery();
+      case PARAMS:
+        return isSetParams();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof sqlQueryWithParams_args)
+        return this.equals((sqlQueryWithParams_args)that);
+      return false;
+    }
+
+    public boolean equals(sqlQueryWithParams_args that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_tablespace = true && this.isSetTablespace();
+      boolean that_present_tablespace = true && that.isSetTablespace();
+      if (this_present_tablespace || that_present_tablespace) {
+        if (!(this_present_tablespace && that_present_tablespace))
+          return false;
+        if (!this.tablespace.equals(that.tablespace))
+          return false;
+      }
+
+      boolean this_present_version = true;
+      boolean that_present_version = true;
+      if (this_present_version || that_present_version) {
+        if (!(this_present_version && that_present_version))
+          return false;
+        if (this.version != that.version)
+          return false;
+      }
+
+      boolean this_present_partition = true;
+      boolean that_present_partition = true;
+      if (this_present_partition || that_present_partition) {
+        if (!(this_present_partition && that_present_partition))
+          return false;
+        if (this.partition != that.partition)
+          return false;
+      }
+
+      boolean this_present_query = true && this.isSetQuery();
+      boolean that_present_query = true && that.isSetQuery();
+      if (this_present_query || that_present_query) {
+        if (!(this_present_query && that_present_query))
+          return false;
+        if (!this.query.equals(that.query))
+          return false;
+      }
+
+      boolean this_present_params = true && this.isSetParams();
+      boolean that_present_params = true && that.isSetParams();
+      if (this_present_params || that_present_params) {
+        if (!(this_present_params && that_present_params))
+          return false;
+        if (!this.params.equals(that.params))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(sqlQueryWithParams_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      sqlQueryWithParams_args typedOther = (sqlQueryWithParams_args)other;
+
+      lastComparison = Boolean.valueOf(isSetTablespace()).compareTo(typedOther.isSetTablespace());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetTablespace()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.tablespace, typedOther.tablespace);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetVersion()).compareTo(typedOther.isSetVersion());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetVersion()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.version, typedOther.version);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetPartition()).compareTo(typedOther.isSetPartition());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetPartition()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.partition, typedOther.partition);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetQuery()).compareTo(typedOther.isSetQuery());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetQuery()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.query, typedOther.query);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetParams()).compareTo(typedOther.isSetParams());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetParams()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.params, typedOther.params);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          case 1: // TABLESPACE
+            if (field.type == org.apache.thrift.protocol.TType.STRING) {
+              this.tablespace = iprot.readString();
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 2: // VERSION
+            if (field.type == org.apache.thrift.protocol.TType.I64) {
+              this.version = iprot.readI64();
+              setVersionIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 3: // PARTITION
+            if (field.type == org.apache.thrift.protocol.TType.I32) {
+              this.partition = iprot.readI32();
+              setPartitionIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 4: // QUERY
+            if (field.type == org.apache.thrift.protocol.TType.STRING) {
+              this.query = iprot.readString();
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 5: // PARAMS
+            if (field.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list24 = iprot.readListBegin();
+                this.params = new ArrayList<QueryParam>(_list24.size);
+                for (int _i25 = 0; _i25 < _list24.size; ++_i25)
+                {
+                  QueryParam _elem26; // required
+                  _elem26 = new QueryParam();
+                  _elem26.read(iprot);
+                  this.params.add(_elem26);
+                }
+                iprot.readListEnd();
+              }
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      validate();
+
+      oprot.writeStructBegin(STRUCT_DESC);
+      if (this.tablespace != null) {
+        oprot.writeFieldBegin(TABLESPACE_FIELD_DESC);
+        oprot.writeString(this.tablespace);
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldBegin(VERSION_FIELD_DESC);
+      oprot.writeI64(this.version);
+      oprot.writeFieldEnd();
+      oprot.writeFieldBegin(PARTITION_FIELD_DESC);
+      oprot.writeI32(this.partition);
+      oprot.writeFieldEnd();
+      if (this.query != null) {
+        oprot.writeFieldBegin(QUERY_FIELD_DESC);
+        oprot.writeString(this.query);
+        oprot.writeFieldEnd();
+      }
+      if (this.params != null) {
+        oprot.writeFieldBegin(PARAMS_FIELD_DESC);
+        {
+          oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, this.params.size()));
+          for (QueryParam _iter27 : this.params)
+          {
+            _iter27.write(oprot);
+          }
+          oprot.writeListEnd();
+        }
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("sqlQueryWithParams_args(");
+      boolean first = true;
+
+      sb.append("tablespace:");
+      if (this.tablespace == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.tablespace);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("version:");
+      sb.append(this.version);
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("partition:");
+      sb.append(this.partition);
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("query:");
+      if (this.query == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.query);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("params:");
+      if (this.params == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.params);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        // it doesn't seem like you should have to do this, but java serialization is wacky, and doesn't call the default constructor.
+        __isset_bit_vector = new BitSet(1);
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
+  public static class sqlQueryWithParams_result implements org.apache.thrift.TBase<sqlQueryWithParams_result, sqlQueryWithParams_result._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("sqlQueryWithParams_result");
+
+    private static final org.apache.thrift.protocol.TField SUCCESS_FIELD_DESC = new org.apache.thrift.protocol.TField("success", org.apache.thrift.protocol.TType.STRUCT, (short)0);
+    private static final org.apache.thrift.protocol.TField EXCEP_FIELD_DESC = new org.apache.thrift.protocol.TField("excep", org.apache.thrift.protocol.TType.STRUCT, (short)1);
+
+    public QueryResult success; // required
+    public DNodeException excep; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SUCCESS((short)0, "success"),
+      EXCEP((short)1, "excep");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 0: // SUCCESS
+            return SUCCESS;
+          case 1: // EXCEP
+            return EXCEP;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SUCCESS, new org.apache.thrift.meta_data.FieldMetaData("success", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, QueryResult.class)));
+      tmpMap.put(_Fields.EXCEP, new org.apache.thrift.meta_data.FieldMetaData("excep", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRUCT)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(sqlQueryWithParams_result.class, metaDataMap);
+    }
+
+    public sqlQueryWithParams_result() {
+    }
+
+    public sqlQueryWithParams_result(
+      QueryResult success,
+      DNodeException excep)
+    {
+      this();
+      this.success = success;
+      this.excep = excep;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public sqlQueryWithParams_result(sqlQueryWithParams_result other) {
+      if (other.isSetSuccess()) {
+        this.success = new QueryResult(other.success);
+      }
+      if (other.isSetExcep()) {
+        this.excep = new DNodeException(other.excep);
+      }
+    }
+
+    public sqlQueryWithParams_result deepCopy() {
+      return new sqlQueryWithParams_result(this);
+    }
+
+    @Override
+    public void clear() {
+      this.success = null;
+      this.excep = null;
+    }
+
+    public QueryResult getSuccess() {
+      return this.success;
+    }
+
+    public sqlQueryWithParams_result setSuccess(QueryResult success) {
+      this.success = success;
+      return this;
+    }
+
+    public void unsetSuccess() {
+      this.success = null;
+    }
+
+    /** Returns true if field success is set (has been assigned a value) and false otherwise */
+    public boolean isSetSuccess() {
+      return this.success != null;
+    }
+
+    public void setSuccessIsSet(boolean value) {
+      if (!value) {
+        this.success = null;
+      }
+    }
+
+    public DNodeException getExcep() {
+      return this.excep;
+    }
+
+    public sqlQueryWithParams_result setExcep(DNodeException excep) {
+      this.excep = excep;
+      return this;
+    }
+
+    public void unsetExcep() {
+      this.excep = null;
+    }
+
+    /** Returns true if field excep is set (has been assigned a value) and false otherwise */
+    public boolean isSetExcep() {
+      return this.excep != null;
+    }
+
+    public void setExcepIsSet(boolean value) {
+      if (!value) {
+        this.excep = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SUCCESS:
+        if (value == null) {
+          unsetSuccess();
+        } else {
+          setSuccess((QueryResult)value);
+        }
+        break;
+
+      case EXCEP:
+        if (value == null) {
+          unsetExcep();
+        } else {
+          setExcep((DNodeException)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SUCCESS:
+        return getSuccess();
+
+      case EXCEP:
+        return getExcep();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SUCCESS:
+        return isSetSuccess();
+      case EXCEP:
+        return isSetExcep();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof sqlQueryWithParams_result)
+        return this.equals((sqlQueryWithParams_result)that);
+      return false;
+    }
+
+    public boolean equals(sqlQueryWithParams_result that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_success = true && this.isSetSuccess();
+      boolean that_present_success = true && that.isSetSuccess();
+      if (this_present_success || that_present_success) {
+        if (!(this_present_success && that_present_success))
+          return false;
+        if (!this.success.equals(that.success))
+          return false;
+      }
+
+      boolean this_present_excep = true && this.isSetExcep();
+      boolean that_present_excep = true && that.isSetExcep();
+      if (this_present_excep || that_present_excep) {
+        if (!(this_present_excep && that_present_excep))
+          return false;
+        if (!this.excep.equals(that.excep))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(sqlQueryWithParams_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      sqlQueryWithParams_result typedOther = (sqlQueryWithParams_result)other;
+
+      lastComparison = Boolean.valueOf(isSetSuccess()).compareTo(typedOther.isSetSuccess());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSuccess()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.success, typedOther.success);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetExcep()).compareTo(typedOther.isSetExcep());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetExcep()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.excep, typedOther.excep);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          case 0: // SUCCESS
+            if (field.type == org.apache.thrift.protocol.TType.STRUCT) {
+              this.success = new QueryResult();
+              this.success.read(iprot);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 1: // EXCEP
+            if (field.type == org.apache.thrift.protocol.TType.STRUCT) {
+              this.excep = new DNodeException();
+              this.excep.read(iprot);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      oprot.writeStructBegin(STRUCT_DESC);
+
+      if (this.isSetSuccess()) {
+        oprot.writeFieldBegin(SUCCESS_FIELD_DESC);
+        this.success.write(oprot);
+        oprot.writeFieldEnd();
+      } else if (this.isSetExcep()) {
+        oprot.writeFieldBegin(EXCEP_FIELD_DESC);
+        this.excep.write(oprot);
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("sqlQueryWithParams_result(");
+      boolean first = true;
+
+      sb.append("success:");
+      if (this.success == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.success);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("excep:");
+      if (this.excep == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.excep);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
+  public static class sqlQueryMulti_args implements org.apache.thrift.TBase<sqlQueryMulti_args, sqlQueryMulti_args._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("sqlQueryMulti_args");
+
+    private static final org.apache.thrift.protocol.TField TABLESPACE_FIELD_DESC = new org.apache.thrift.protocol.TField("tablespace", org.apache.thrift.protocol.TType.STRING, (short)1);
+    private static final org.apache.thrift.protocol.TField VERSION_FIELD_DESC = new org.apache.thrift.protocol.TField("version", org.apache.thrift.protocol.TType.I64, (short)2);
+    private static final org.apache.thrift.protocol.TField PARTITIONS_FIELD_DESC = new org.apache.thrift.protocol.TField("partitions", org.apache.thrift.protocol.TType.LIST, (short)3);
+    private static final org.apache.thrift.protocol.TField QUERY_FIELD_DESC = new org.apache.thrift.protocol.TField("query", org.apache.thrift.protocol.TType.STRING, (short)4);
+    private static final org.apache.thrift.protocol.TField PARAMS_FIELD_DESC = new org.apache.thrift.protocol.TField("params", org.apache.thrift.protocol.TType.LIST, (short)5);
+
+    public String tablespace; // required
+    public long version; // required
+    public List<Integer> partitions; // required
+    public String query; // required
+    public List<QueryParam> params; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      TABLESPACE((short)1, "tablespace"),
+      VERSION((short)2, "version"),
+      PARTITIONS((short)3, "partitions"),
+      QUERY((short)4, "query"),
+      PARAMS((short)5, "params");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 1: // TABLESPACE
+            return TABLESPACE;
+          case 2: // VERSION
+            return VERSION;
+          case 3: // PARTITIONS
+            return PARTITIONS;
+          case 4: // QUERY
+            return QUERY;
+          case 5: // PARAMS
+            return PARAMS;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    private static final int __VERSION_ISSET_ID = 0;
+    private BitSet __isset_bit_vector = new BitSet(1);
+
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.TABLESPACE, new org.apache.thrift.meta_data.FieldMetaData("tablespace", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      tmpMap.put(_Fields.VERSION, new org.apache.thrift.meta_data.FieldMetaData("version", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
+      tmpMap.put(_Fields.PARTITIONS, new org.apache.thrift.meta_data.FieldMetaData("partitions", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+              new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32))));
+      tmpMap.put(_Fields.QUERY, new org.apache.thrift.meta_data.FieldMetaData("query", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+      tmpMap.put(_Fields.PARAMS, new org.apache.thrift.meta_data.FieldMetaData("params", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+              new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, QueryParam.class))));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(sqlQueryMulti_args.class, metaDataMap);
+    }
+
+    public sqlQueryMulti_args() {
+    }
+
+    public sqlQueryMulti_args(
+      String tablespace,
+      long version,
+      List<Integer> partitions,
+      String query,
+      List<QueryParam> params)
+    {
+      this();
+      this.tablespace = tablespace;
+      this.version = version;
+      setVersionIsSet(true);
+      this.partitions = partitions;
+      this.query = query;
+      this.params = params;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public sqlQueryMulti_args(sqlQueryMulti_args other) {
+      __isset_bit_vector.clear();
+      __isset_bit_vector.or(other.__isset_bit_vector);
+      if (other.isSetTablespace()) {
+        this.tablespace = other.tablespace;
+      }
+      this.version = other.version;
+      if (other.isSetPartitions()) {
+        List<Integer> __this__partitions = new ArrayList<Integer>();
+        for (Integer other_element : other.partitions) {
+          __this__partitions.add(other_element);
+        }
+        this.partitions = __this__partitions;
+      }
+      if (other.isSetQuery()) {
+        this.query = other.query;
+      }
+      if (other.isSetParams()) {
+        List<QueryParam> __this__params = new ArrayList<QueryParam>();
+        for (QueryParam other_element : other.params) {
+          __this__params.add(new QueryParam(other_element));
+        }
+        this.params = __this__params;
+      }
+    }
+
+    public sqlQueryMulti_args deepCopy() {
+      return new sqlQueryMulti_args(this);
+    }
+
+    @Override
+    public void clear() {
+      this.tablespace = null;
+      setVersionIsSet(false);
+      this.version = 0;
+      this.partitions = null;
+      this.query = null;
+      this.params = null;
+    }
+
+    public String getTablespace() {
+      return this.tablespace;
+    }
+
+    public sqlQueryMulti_args setTablespace(String tablespace) {
+      this.tablespace = tablespace;
+      return this;
+    }
+
+    public void unsetTablespace() {
+      this.tablespace = null;
+    }
+
+    /** Returns true if field tablespace is set (has been assigned a value) and false otherwise */
+    public boolean isSetTablespace() {
+      return this.tablespace != null;
+    }
+
+    public void setTablespaceIsSet(boolean value) {
+      if (!value) {
+        this.tablespace = null;
+      }
+    }
+
+    public long getVersion() {
+      return this.version;
+    }
+
+    public sqlQueryMulti_args setVersion(long version) {
+      this.version = version;
+      setVersionIsSet(true);
+      return this;
+    }
+
+    public void unsetVersion() {
+      __isset_bit_vector.clear(__VERSION_ISSET_ID);
+    }
+
+    /** Returns true if field version is set (has been assigned a value) and false otherwise */
+    public boolean isSetVersion() {
+      return __isset_bit_vector.get(__VERSION_ISSET_ID);
+    }
+
+    public void setVersionIsSet(boolean value) {
+      __isset_bit_vector.set(__VERSION_ISSET_ID, value);
+    }
+
+    public int getPartitionsSize() {
+      return (this.partitions == null) ? 0 : this.partitions.size();
+    }
+
+    public java.util.Iterator<Integer> getPartitionsIterator() {
+      return (this.partitions == null) ? null : this.partitions.iterator();
+    }
+
+    public void addToPartitions(int elem) {
+      if (this.partitions == null) {
+        this.partitions = new ArrayList<Integer>();
+      }
+      this.partitions.add(elem);
+    }
+
+    public List<Integer> getPartitions() {
+      return this.partitions;
+    }
+
+    public sqlQueryMulti_args setPartitions(List<Integer> partitions) {
+      this.partitions = partitions;
+      return this;
+    }
+
+    public void unsetPartitions() {
+      this.partitions = null;
+    }
+
+    /** Returns true if field partitions is set (has been assigned a value) and false otherwise */
+    public boolean isSetPartitions() {
+      return this.partitions != null;
+    }
+
+    public void setPartitionsIsSet(boolean value) {
+      if (!value) {
+        this.partitions = null;
+      }
+    }
+
+    public String getQuery() {
+      return this.query;
+    }
+
+    public sqlQueryMulti_args setQuery(String query) {
+      this.query = query;
+      return this;
+    }
+
+    public void unsetQuery() {
+      this.query = null;
+    }
+
+    /** Returns true if field query is set (has been assigned a value) and false otherwise */
+    public boolean isSetQuery() {
+      return this.query != null;
+    }
+
+    public void setQueryIsSet(boolean value) {
+      if (!value) {
+        this.query = null;
+      }
+    }
+
+    public int getParamsSize() {
+      return (this.params == null) ? 0 : this.params.size();
+    }
+
+    public java.util.Iterator<QueryParam> getParamsIterator() {
+      return (this.params == null) ? null : this.params.iterator();
+    }
+
+    public void addToParams(QueryParam elem) {
+      if (this.params == null) {
+        this.params = new ArrayList<QueryParam>();
+      }
+      this.params.add(elem);
+    }
+
+    public List<QueryParam> getParams() {
+      return this.params;
+    }
+
+    public sqlQueryMulti_args setParams(List<QueryParam> params) {
+      this.params = params;
+      return this;
+    }
+
+    public void unsetParams() {
+      this.params = null;
+    }
+
+    /** Returns true if field params is set (has been assigned a value) and false otherwise */
+    public boolean isSetParams() {
+      return this.params != null;
+    }
+
+    public void setParamsIsSet(boolean value) {
+      if (!value) {
+        this.params = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case TABLESPACE:
+        if (value == null) {
+          unsetTablespace();
+        } else {
+          setTablespace((String)value);
+        }
+        break;
+
+      case VERSION:
+        if (value == null) {
+          unsetVersion();
+        } else {
+          setVersion((Long)value);
+        }
+        break;
+
+      case PARTITIONS:
+        if (value == null) {
+          unsetPartitions();
+        } else {
+          setPartitions((List<Integer>)value);
+        }
+        break;
+
+      case QUERY:
+        if (value == null) {
+          unsetQuery();
+        } else {
+          setQuery((String)value);
+        }
+        break;
+
+      case PARAMS:
+        if (value == null) {
+          unsetParams();
+        } else {
+          setParams((List<QueryParam>)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case TABLESPACE:
+        return getTablespace();
+
+      case VERSION:
+        return Long.valueOf(getVersion());
+
+      case PARTITIONS:
+        return getPartitions();
+
+      case QUERY:
+        return getQuery();
+
+      case PARAMS:
+        return getParams();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case TABLESPACE:
+        return isSetTablespace();
+      case VERSION:
+        return isSetVersion();
+      case PARTITIONS:
+        return isSetPartitions();
+      case QUERY:
+        return isSetQuery();
+      case PARAMS:
+        return isSetParams();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof sqlQueryMulti_args)
+        return this.equals((sqlQueryMulti_args)that);
+      return false;
+    }
+
+    public boolean equals(sqlQueryMulti_args that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_tablespace = true && this.isSetTablespace();
+      boolean that_present_tablespace = true && that.isSetTablespace();
+      if (this_present_tablespace || that_present_tablespace) {
+        if (!(this_present_tablespace && that_present_tablespace))
+          return false;
+        if (!this.tablespace.equals(that.tablespace))
+          return false;
+      }
+
+      boolean this_present_version = true;
+      boolean that_present_version = true;
+      if (this_present_version || that_present_version) {
+        if (!(this_present_version && that_present_version))
+          return false;
+        if (this.version != that.version)
+          return false;
+      }
+
+      boolean this_present_partitions = true && this.isSetPartitions();
+      boolean that_present_partitions = true && that.isSetPartitions();
+      if (this_present_partitions || that_present_partitions) {
+        if (!(this_present_partitions && that_present_partitions))
+          return false;
+        if (!this.partitions.equals(that.partitions))
+          return false;
+      }
+
+      boolean this_present_query = true && this.isSetQuery();
+      boolean that_present_query = true && that.isSetQuery();
+      if (this_present_query || that_present_query) {
+        if (!(this_present_query && that_present_query))
+          return false;
+        if (!this.query.equals(that.query))
+          return false;
+      }
+
+      boolean this_present_params = true && this.isSetParams();
+      boolean that_present_params = true && that.isSetParams();
+      if (this_present_params || that_present_params) {
+        if (!(this_present_params && that_present_params))
+          return false;
+        if (!this.params.equals(that.params))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(sqlQueryMulti_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      sqlQueryMulti_args typedOther = (sqlQueryMulti_args)other;
+
+      lastComparison = Boolean.valueOf(isSetTablespace()).compareTo(typedOther.isSetTablespace());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetTablespace()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.tablespace, typedOther.tablespace);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetVersion()).compareTo(typedOther.isSetVersion());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetVersion()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.version, typedOther.version);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetPartitions()).compareTo(typedOther.isSetPartitions());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetPartitions()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.partitions, typedOther.partitions);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetQuery()).compareTo(typedOther.isSetQuery());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetQuery()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.query, typedOther.query);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetParams()).compareTo(typedOther.isSetParams());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetParams()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.params, typedOther.params);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          case 1: // TABLESPACE
+            if (field.type == org.apache.thrift.protocol.TType.STRING) {
+              this.tablespace = iprot.readString();
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 2: // VERSION
+            if (field.type == org.apache.thrift.protocol.TType.I64) {
+              this.version = iprot.readI64();
+              setVersionIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 3: // PARTITIONS
+            if (field.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list28 = iprot.readListBegin();
+                this.partitions = new ArrayList<Integer>(_list28.size);
+                for (int _i29 = 0; _i29 < _list28.size; ++_i29)
+                {
+                  int _elem30; // required
+                  _elem30 = iprot.readI32();
+                  this.partitions.add(_elem30);
+                }
+                iprot.readListEnd();
+              }
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 4: // QUERY
+            if (field.type == org.apache.thrift.protocol.TType.STRING) {
+              this.query = iprot.readString();
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 5: // PARAMS
+            if (field.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list31 = iprot.readListBegin();
+                this.params = new ArrayList<QueryParam>(_list31.size);
+                for (int _i32 = 0; _i32 < _list31.size; ++_i32)
+                {
+                  QueryParam _elem33; // required
+                  _elem33 = new QueryParam();
+                  _elem33.read(iprot);
+                  this.params.add(_elem33);
+                }
+                iprot.readListEnd();
+              }
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      validate();
+
+      oprot.writeStructBegin(STRUCT_DESC);
+      if (this.tablespace != null) {
+        oprot.writeFieldBegin(TABLESPACE_FIELD_DESC);
+        oprot.writeString(this.tablespace);
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldBegin(VERSION_FIELD_DESC);
+      oprot.writeI64(this.version);
+      oprot.writeFieldEnd();
+      if (this.partitions != null) {
+        oprot.writeFieldBegin(PARTITIONS_FIELD_DESC);
+        {
+          oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.I32, this.partitions.size()));
+          for (int _iter34 : this.partitions)
+          {
+            oprot.writeI32(_iter34);
+          }
+          oprot.writeListEnd();
+        }
+        oprot.writeFieldEnd();
+      }
+      if (this.query != null) {
+        oprot.writeFieldBegin(QUERY_FIELD_DESC);
+        oprot.writeString(this.query);
+        oprot.writeFieldEnd();
+      }
+      if (this.params != null) {
+        oprot.writeFieldBegin(PARAMS_FIELD_DESC);
+        {
+          oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, this.params.size()));
+          for (QueryParam _iter35 : this.params)
+          {
+            _iter35.write(oprot);
+          }
+          oprot.writeListEnd();
+        }
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("sqlQueryMulti_args(");
+      boolean first = true;
+
+      sb.append("tablespace:");
+      if (this.tablespace == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.tablespace);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("version:");
+      sb.append(this.version);
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("partitions:");
+      if (this.partitions == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.partitions);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("query:");
+      if (this.query == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.query);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("params:");
+      if (this.params == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.params);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        // it doesn't seem like you should have to do this, but java serialization is wacky, and doesn't call the default constructor.
+        __isset_bit_vector = new BitSet(1);
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
+  public static class sqlQueryMulti_result implements org.apache.thrift.TBase<sqlQueryMulti_result, sqlQueryMulti_result._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("sqlQueryMulti_result");
+
+    private static final org.apache.thrift.protocol.TField SUCCESS_FIELD_DESC = new org.apache.thrift.protocol.TField("success", org.apache.thrift.protocol.TType.LIST, (short)0);
+    private static final org.apache.thrift.protocol.TField EXCEP_FIELD_DESC = new org.apache.thrift.protocol.TField("excep", org.apache.thrift.protocol.TType.STRUCT, (short)1);
+
+    public List<PartitionQueryResult> success; // required
+    public DNodeException excep; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SUCCESS((short)0, "success"),
+      EXCEP((short)1, "excep");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 0: // SUCCESS
+            return SUCCESS;
+          case 1: // EXCEP
+            return EXCEP;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SUCCESS, new org.apache.thrift.meta_data.FieldMetaData("success", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+              new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, PartitionQueryResult.class))));
+      tmpMap.put(_Fields.EXCEP, new org.apache.thrift.meta_data.FieldMetaData("excep", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRUCT)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(sqlQueryMulti_result.class, metaDataMap);
+    }
+
+    public sqlQueryMulti_result() {
+    }
+
+    public sqlQueryMulti_result(
+      List<PartitionQueryResult> success,
+      DNodeException excep)
+    {
+      this();
+      this.success = success;
+      this.excep = excep;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public sqlQueryMulti_result(sqlQueryMulti_result other) {
+      if (other.isSetSuccess()) {
+        List<PartitionQueryResult> __this__success = new ArrayList<PartitionQueryResult>();
+        for (PartitionQueryResult other_element : other.success) {
+          __this__success.add(new PartitionQueryResult(other_element));
+        }
+        this.success = __this__success;
+      }
+      if (other.isSetExcep()) {
+        this.excep = new DNodeException(other.excep);
+      }
+    }
+
+    public sqlQueryMulti_result deepCopy() {
+      return new sqlQueryMulti_result(this);
+    }
+
+    @Override
+    public void clear() {
+      this.success = null;
+      this.excep = null;
+    }
+
+    public int getSuccessSize() {
+      return (this.success == null) ? 0 : this.success.size();
+    }
+
+    public java.util.Iterator<PartitionQueryResult> getSuccessIterator() {
+      return (this.success == null) ? null : this.success.iterator();
+    }
+
+    public void addToSuccess(PartitionQueryResult elem) {
+      if (this.success == null) {
+        this.success = new ArrayList<PartitionQueryResult>();
+      }
+      this.success.add(elem);
+    }
+
+    public List<PartitionQueryResult> getSuccess() {
+      return this.success;
+    }
+
+    public sqlQueryMulti_result setSuccess(List<PartitionQueryResult> success) {
+      this.success = success;
+      return this;
+    }
+
+    public void unsetSuccess() {
+      this.success = null;
+    }
+
+    /** Returns true if field success is set (has been assigned a value) and false otherwise */
+    public boolean isSetSuccess() {
+      return this.success != null;
+    }
+
+    public void setSuccessIsSet(boolean value) {
+      if (!value) {
+        this.success = null;
+      }
+    }
+
+    public DNodeException getExcep() {
+      return this.excep;
+    }
+
+    public sqlQueryMulti_result setExcep(DNodeException excep) {
+      this.excep = excep;
+      return this;
+    }
+
+    public void unsetExcep() {
+      this.excep = null;
+    }
+
+    /** Returns true if field excep is set (has been assigned a value) and false otherwise */
+    public boolean isSetExcep() {
+      return this.excep != null;
+    }
+
+    public void setExcepIsSet(boolean value) {
+      if (!value) {
+        this.excep = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SUCCESS:
+        if (value == null) {
+          unsetSuccess();
+        } else {
+          setSuccess((List<PartitionQueryResult>)value);
+        }
+        break;
+
+      case EXCEP:
+        if (value == null) {
+          unsetExcep();
+        } else {
+          setExcep((DNodeException)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SUCCESS:
+        return getSuccess();
+
+      case EXCEP:
+        return getExcep();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SUCCESS:
+        return isSetSuccess();
+      case EXCEP:
+        return isSetExcep();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof sqlQueryMulti_result)
+        return this.equals((sqlQueryMulti_result)that);
+      return false;
+    }
+
+    public boolean equals(sqlQueryMulti_result that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_success = true && this.isSetSuccess();
+      boolean that_present_success = true && that.isSetSuccess();
+      if (this_present_success || that_present_success) {
+        if (!(this_present_success && that_present_success))
+          return false;
+        if (!this.success.equals(that.success))
+          return false;
+      }
+
+      boolean this_present_excep = true && this.isSetExcep();
+      boolean that_present_excep = true && that.isSetExcep();
+      if (this_present_excep || that_present_excep) {
+        if (!(this_present_excep && that_present_excep))
+          return false;
+        if (!this.excep.equals(that.excep))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    public int compareTo(sqlQueryMulti_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      sqlQueryMulti_result typedOther = (sqlQueryMulti_result)other;
+
+      lastComparison = Boolean.valueOf(isSetSuccess()).compareTo(typedOther.isSetSuccess());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSuccess()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.success, typedOther.success);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(isSetExcep()).compareTo(typedOther.isSetExcep());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetExcep()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.excep, typedOther.excep);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      org.apache.thrift.protocol.TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == org.apache.thrift.protocol.TType.STOP) { 
+          break;
+        }
+        switch (field.id) {
+          case 0: // SUCCESS
+            if (field.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list36 = iprot.readListBegin();
+                this.success = new ArrayList<PartitionQueryResult>(_list36.size);
+                for (int _i37 = 0; _i37 < _list36.size; ++_i37)
+                {
+                  PartitionQueryResult _elem38; // required
+                  _elem38 = new PartitionQueryResult();
+                  _elem38.read(iprot);
+                  this.success.add(_elem38);
+                }
+                iprot.readListEnd();
+              }
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 1: // EXCEP
+            if (field.type == org.apache.thrift.protocol.TType.STRUCT) {
+              this.excep = new DNodeException();
+              this.excep.read(iprot);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, field.type);
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+
+      // check for required fields of primitive type, which can't be checked in the validate method
+      validate();
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      oprot.writeStructBegin(STRUCT_DESC);
+
+      if (this.isSetSuccess()) {
+        oprot.writeFieldBegin(SUCCESS_FIELD_DESC);
+        {
+          oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, this.success.size()));
+          for (PartitionQueryResult _iter39 : this.success)
+          {
+            _iter39.write(oprot);
+          }
+          oprot.writeListEnd();
+        }
+        oprot.writeFieldEnd();
+      } else if (this.isSetExcep()) {
+        oprot.writeFieldBegin(EXCEP_FIELD_DESC);
+        this.excep.write(oprot);
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("sqlQueryMulti_result(");
+      boolean first = true;
+
+      sb.append("success:");
+      if (this.success == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.success);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("excep:");
+      if (this.excep == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.excep);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+  }
+
   public static class deleteOldVersions_args implements org.apache.thrift.TBase<deleteOldVersions_args, deleteOldVersions_args._Fields>, java.io.Serializable, Cloneable   {
     private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("deleteOldVersions_args");
 
@@ -1878,14 +5339,14 @@ public class DNodeService {
           case 1: // VERSIONS
             if (field.type == org.apache.thrift.protocol.TType.LIST) {
               {
-                org.apache.thrift.protocol.TList _list4 = iprot.readListBegin();
-                this.versions = new ArrayList<TablespaceVersion>(_list4.size);
-                for (int _i5 = 0; _i5 < _list4.size; ++_i5)
+                org.apache.thrift.protocol.TList _list40 = iprot.readListBegin();
+                this.versions = new ArrayList<TablespaceVersion>(_list40.size);
+                for (int _i41 = 0; _i41 < _list40.size; ++_i41)
                 {
-                  TablespaceVersion _elem6; // required
-                  _elem6 = new TablespaceVersion();
-                  _elem6.read(iprot);
-                  this.versions.add(_elem6);
+                  TablespaceVersion _elem42; // required
+                  _elem42 = new TablespaceVersion();
+                  _elem42.read(iprot);
+                  this.versions.add(_elem42);
                 }
                 iprot.readListEnd();
               }
@@ -1912,9 +5373,9 @@ public class DNodeService {
         oprot.writeFieldBegin(VERSIONS_FIELD_DESC);
         {
           oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, this.versions.size()));
-          for (TablespaceVersion _iter7 : this.versions)
+          for (TablespaceVersion _iter43 : this.versions)
           {
-            _iter7.write(oprot);
+            _iter43.write(oprot);
           }
           oprot.writeListEnd();
         }
@@ -2670,14 +6131,14 @@ public class DNodeService {
           case 1: // DEPLOY_ACTIONS
             if (field.type == org.apache.thrift.protocol.TType.LIST) {
               {
-                org.apache.thrift.protocol.TList _list8 = iprot.readListBegin();
-                this.deployActions = new ArrayList<DeployAction>(_list8.size);
-                for (int _i9 = 0; _i9 < _list8.size; ++_i9)
+                org.apache.thrift.protocol.TList _list44 = iprot.readListBegin();
+                this.deployActions = new ArrayList<DeployAction>(_list44.size);
+                for (int _i45 = 0; _i45 < _list44.size; ++_i45)
                 {
-                  DeployAction _elem10; // required
-                  _elem10 = new DeployAction();
-                  _elem10.read(iprot);
-                  this.deployActions.add(_elem10);
+                  DeployAction _elem46; // required
+                  _elem46 = new DeployAction();
+                  _elem46.read(iprot);
+                  this.deployActions.add(_elem46);
                 }
                 iprot.readListEnd();
               }
@@ -2712,9 +6173,9 @@ public class DNodeService {
         oprot.writeFieldBegin(DEPLOY_ACTIONS_FIELD_DESC);
         {
           oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, this.deployActions.size()));
-          for (DeployAction _iter11 : this.deployActions)
+          for (DeployAction _iter47 : this.deployActions)
           {
-            _iter11.write(oprot);
+            _iter47.write(oprot);
           }
           oprot.writeListEnd();
         }
@@ -3476,14 +6937,14 @@ public class DNodeService {
           case 1: // ROLLBACK_ACTIONS
             if (field.type == org.apache.thrift.protocol.TType.LIST) {
               {
-                org.apache.thrift.protocol.TList _list12 = iprot.readListBegin();
-                this.rollbackActions = new ArrayList<RollbackAction>(_list12.size);
-                for (int _i13 = 0; _i13 < _list12.size; ++_i13)
+                org.apache.thrift.protocol.TList _list48 = iprot.readListBegin();
+                this.rollbackActions = new ArrayList<RollbackAction>(_list48.size);
+                for (int _i49 = 0; _i49 < _list48.size; ++_i49)
                 {
-                  RollbackAction _elem14; // required
-                  _elem14 = new RollbackAction();
-                  _elem14.read(iprot);
-                  this.rollbackActions.add(_elem14);
+                  RollbackAction _elem50; // required
+                  _elem50 = new RollbackAction();
+                  _elem50.read(iprot);
+                  this.rollbackActions.add(_elem50);
                 }
                 iprot.readListEnd();
               }
@@ -3517,9 +6978,9 @@ public class DNodeService {
         oprot.writeFieldBegin(ROLLBACK_ACTIONS_FIELD_DESC);
         {
           oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, this.rollbackActions.size()));
-          for (RollbackAction _iter15 : this.rollbackActions)
+          for (RollbackAction _iter51 : this.rollbackActions)
           {
-            _iter15.write(oprot);
+            _iter51.write(oprot);
           }
           oprot.writeListEnd();
         }
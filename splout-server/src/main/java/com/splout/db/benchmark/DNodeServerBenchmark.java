@@ -0,0 +1,274 @@
+package com.splout.db.benchmark;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.splout.db.common.SploutConfiguration;
+import com.splout.db.dnode.DNode;
+import com.splout.db.dnode.DNodeProperties;
+import com.splout.db.dnode.IDNodeHandler;
+import com.splout.db.thrift.DNodeException;
+import com.splout.db.thrift.DNodeService;
+import com.splout.db.thrift.DeployAction;
+import com.splout.db.thrift.PartitionQueryResult;
+import com.splout.db.thrift.QueryParam;
+import com.splout.db.thrift.QueryResult;
+import com.splout.db.thrift.RollbackAction;
+import com.splout.db.thrift.TablespaceVersion;
+
+/**
+ * This tool compares the Thrift server modes of the DNode (see {@link DNodeProperties#SERVER_MODE}) under many
+ * concurrent QNodes. Each simulated QNode keeps some idle connections open, as QNodes do with the DNodes they are not
+ * querying at the moment, and performs queries through another one. The DNode doesn't query SQLite: its queries just
+ * take a fixed amount of time so that only the server mode makes a difference.
+ */
+public class DNodeServerBenchmark {
+
+	@Parameter(names = { "-q", "--qnodes" }, description = "The number of concurrent QNodes.")
+	private Integer nQNodes = 64;
+
+	@Parameter(names = { "-ic", "--idleconnections" }, description = "The number of idle connections each QNode keeps open.")
+	private Integer nIdleConnections = 4;
+
+	@Parameter(names = { "-nq", "--nqueries" }, description = "The number of queries each QNode performs.")
+	private Integer nQueries = 200;
+
+	@Parameter(names = { "-qm", "--querymillis" }, description = "The time each query takes in the DNode, in milliseconds.")
+	private Integer queryMillis = 1;
+
+	@Parameter(names = { "-t", "--threads" }, description = "The number of serving threads of the DNode.")
+	private Integer servingThreads = 32;
+
+	@Parameter(names = { "-to", "--timeout" }, description = "The socket timeout of the QNodes, in milliseconds. Queries that time out are counted as errors.")
+	private Integer timeout = 5000;
+
+	@Parameter(names = { "-m", "--modes" }, description = "The server modes to compare, comma-separated.")
+	private String modes = DNode.SERVER_MODE_THREAD_POOL + "," + DNode.SERVER_MODE_HSHA;
+
+	public void start() throws Exception {
+		for(String mode : modes.split(",")) {
+			benchmark(mode.trim());
+		}
+	}
+
+	private void benchmark(String mode) throws Exception {
+		SploutConfiguration config = SploutConfiguration.getTestConfig();
+		config.setProperty(DNodeProperties.SERVER_MODE, mode);
+		config.setProperty(DNodeProperties.SERVING_THREADS, servingThreads);
+		DNode dnode = new DNode(config, new SleepingHandler(queryMillis));
+		dnode.init();
+		final String host = config.getString(DNodeProperties.HOST);
+		final int port = config.getInt(DNodeProperties.PORT);
+		final boolean framed = DNode.SERVER_MODE_HSHA.equals(mode);
+
+		final long[] latencies = new long[nQNodes * nQueries];
+		final AtomicLong errors = new AtomicLong(0);
+		final List<TTransport> idleConnections = new ArrayList<TTransport>();
+		List<Thread> qnodes = new ArrayList<Thread>();
+		try {
+			for(int i = 0; i < nQNodes * nIdleConnections; i++) {
+				try {
+					idleConnections.add(open(host, port, framed));
+				} catch(Exception e) {
+					errors.incrementAndGet();
+				}
+			}
+			long start = System.nanoTime();
+			for(int i = 0; i < nQNodes; i++) {
+				final int qnode = i;
+				Thread thread = new Thread("QNode " + i) {
+					@Override
+					public void run() {
+						TTransport transport = null;
+						try {
+							transport = open(host, port, framed);
+							DNodeService.Client client = new DNodeService.Client(new TBinaryProtocol(transport));
+							for(int j = 0; j < nQueries; j++) {
+								long queryStart = System.nanoTime();
+								client.sqlQuery("benchmark", 0, 0, "SELECT 1;");
+								latencies[qnode * nQueries + j] = System.nanoTime() - queryStart;
+							}
+						} catch(Exception e) {
+							// Pending queries of this QNode are lost
+							errors.incrementAndGet();
+						} finally {
+							if(transport != null) {
+								transport.close();
+							}
+						}
+					}
+				};
+				thread.start();
+				qnodes.add(thread);
+			}
+			for(Thread thread : qnodes) {
+				thread.join();
+			}
+			long nanos = System.nanoTime() - start;
+			printStats(mode, nanos, latencies, errors.get());
+		} finally {
+			for(TTransport transport : idleConnections) {
+				transport.close();
+			}
+			dnode.stop();
+		}
+	}
+
+	private TTransport open(String host, int port, boolean framed) throws Exception {
+		TTransport transport = new TSocket(host, port, timeout);
+		if(framed) {
+			transport = new TFramedTransport(transport);
+		}
+		transport.open();
+		return transport;
+	}
+
+	private void printStats(String mode, long nanos, long[] latencies, long errors) {
+		long[] served = new long[latencies.length];
+		int nServed = 0;
+		for(long latency : latencies) {
+			if(latency > 0) {
+				served[nServed++] = latency;
+			}
+		}
+		Arrays.sort(served, 0, nServed);
+		System.out.println(mode + " served queries\t" + nServed + " / " + latencies.length);
+		System.out.println(mode + " failed QNodes or connections\t" + errors);
+		System.out.println(mode + " throughput (queries/s)\t" + (nServed / (nanos / 1000000000d)));
+		if(nServed > 0) {
+			System.out.println(mode + " median latency (ms)\t" + (served[nServed / 2] / 1000000d));
+			System.out.println(mode + " 99th percentile latency (ms)\t" + (served[(int) (nServed * 0.99)] / 1000000d));
+		}
+	}
+
+	/*
+	 * A DNode handler whose queries take a fixed time.
+	 */
+	private static class SleepingHandler implements IDNodeHandler {
+
+		private final long queryMillis;
+
+		SleepingHandler(long queryMillis) {
+			this.queryMillis = queryMillis;
+		}
+
+		@Override
+		public void init(SploutConfiguration config) throws Exception {
+		}
+
+		@Override
+		public void giveGreenLigth() {
+		}
+
+		@Override
+		public String sqlQuery(String tablespace, long version, int partition, String query) throws DNodeException {
+			try {
+				Thread.sleep(queryMillis);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "[{\"1\":1}]";
+		}
+
+		@Override
+		public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query)
+		    throws DNodeException {
+			return null;
+		}
+
+		@Override
+		public QueryResult sqlQueryWithParams(String tablespace, long version, int partition, String query,
+		    List<QueryParam> params) throws DNodeException {
+			return null;
+		}
+
+		@Override
+		public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions,
+		    String query, List<QueryParam> params) throws DNodeException {
+			return null;
+		}
+
+		@Override
+		public String deploy(List<DeployAction> deployActions, long version) throws DNodeException {
+			return null;
+		}
+
+		@Override
+		public String rollback(List<RollbackAction> rollbackActions, String ignoreMe) throws DNodeException {
+			return null;
+		}
+
+		@Override
+		public String status() throws DNodeException {
+			return null;
+		}
+
+		@Override
+		public String abortDeploy(long version) throws DNodeException {
+			return null;
+		}
+
+		@Override
+		public String deleteOldVersions(List<TablespaceVersion> versions) throws DNodeException {
+			return null;
+		}
+
+		@Override
+		public String testCommand(String command) throws DNodeException {
+			return null;
+		}
+
+		@Override
+		public void stop() throws Exception {
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		DNodeServerBenchmark benchmark = new DNodeServerBenchmark();
+
+		JCommander jComm = new JCommander(benchmark);
+		jComm.setProgramName("DNode Server Benchmark");
+		try {
+			jComm.parse(args);
+		} catch(ParameterException e) {
+			System.out.println(e.getMessage());
+			System.out.println();
+			jComm.usage();
+			System.exit(-1);
+		}
+
+		benchmark.start();
+		System.exit(0);
+	}
+}
@@ -21,41 +21,201 @@ package com.splout.db.benchmark;
  * #L%
  */
 
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.splout.db.dnode.beans.LatencyStats;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
+
 /**
- * A simple tool that can measure the performance of queries using {@link HistogramWithStats}.
+ * A simple tool that can measure the performance of queries using lock-free {@link LatencyHistogram}s with nanosecond
+ * resolution: one for all the queries and, if they are given, one per tablespace and one per partition. Optionally,
+ * the percentiles of each tablespace are published as gauges in the Metrics registry. The statistics of a tablespace are
+ * kept until it is removed with {@link #removeTablespace(String)}.
  */
 public class PerformanceTool {
 
-	private HistogramWithStats histogram;
-	private ThreadLocal<Long> startTime = new ThreadLocal<Long>() {
-		protected Long initialValue() {
-			return System.currentTimeMillis();
+	// Serving threads rarely share a stripe of the global and per-tablespace histograms
+	private final static int STRIPES = Math.min(64,
+	    Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+	// Partitions get less traffic each and there may be many of them
+	private final static int PARTITION_STRIPES = 2;
+
+	private final static double NANOS_PER_MILLI = 1000000d;
+	private final static double[] PERCENTILES = { 0.5, 0.95, 0.99, 0.999 };
+	private final static String[] PERCENTILE_NAMES = { "p50", "p95", "p99", "p999" };
+
+	private final LatencyHistogram histogram = new LatencyHistogram(STRIPES);
+	private final ConcurrentMap<String, LatencyHistogram> tablespaces = new ConcurrentHashMap<String, LatencyHistogram>();
+	private final ConcurrentMap<String, LatencyHistogram> partitions = new ConcurrentHashMap<String, LatencyHistogram>();
+	// The class under which tablespace gauges are registered in the Metrics registry, null if they are not
+	private Class<?> metricsOwner;
+
+	private ThreadLocal<long[]> startTime = new ThreadLocal<long[]>() {
+		protected long[] initialValue() {
+			return new long[] { System.nanoTime() };
 		};
 	};
-	
-	public PerformanceTool() {
-		histogram = new HistogramWithStats();
+
+	/**
+	 * Publishes the percentiles of each tablespace in the Metrics registry under the given class, with the tablespace as
+	 * scope.
+	 */
+	public void registerMetrics(Class<?> owner) {
+		this.metricsOwner = owner;
 	}
-	
+
 	public void startQuery() {
-		startTime.set(System.currentTimeMillis());
+		startTime.get()[0] = System.nanoTime();
 	}
-	
+
+	/**
+	 * Records the time of the query started by this thread, returning it in milliseconds.
+	 */
 	public long endQuery() {
-		long time = System.currentTimeMillis() - startTime.get();
-		histogram.add(time);
-		return time;
+		long nanos = System.nanoTime() - startTime.get()[0];
+		histogram.record(nanos);
+		return nanos / 1000000;
+	}
+
+	/**
+	 * Like {@link #endQuery()} but also recording the time for the tablespace and partition of the query.
+	 */
+	public long endQuery(String tablespace, int partition) {
+		long nanos = System.nanoTime() - startTime.get()[0];
+		histogram.record(nanos);
+		getOrCreate(tablespaces, tablespace, STRIPES).record(nanos);
+		getOrCreate(partitions, tablespace + "/" + partition, PARTITION_STRIPES).record(nanos);
+		return nanos / 1000000;
+	}
+
+	private LatencyHistogram getOrCreate(ConcurrentMap<String, LatencyHistogram> histograms, String key, int stripes) {
+		LatencyHistogram keyHistogram = histograms.get(key);
+		if(keyHistogram == null) {
+			LatencyHistogram newHistogram = new LatencyHistogram(stripes);
+			keyHistogram = histograms.putIfAbsent(key, newHistogram);
+			if(keyHistogram == null) {
+				keyHistogram = newHistogram;
+				if(histograms == tablespaces && metricsOwner != null) {
+					registerGauges(key, newHistogram);
+				}
+			}
+		}
+		return keyHistogram;
+	}
+
+	/**
+	 * Forgets the statistics of a tablespace and its partitions, unregistering its gauges if they were published.
+	 */
+	public void removeTablespace(String tablespace) {
+		if(tablespaces.remove(tablespace) != null && metricsOwner != null) {
+			for(String percentileName : PERCENTILE_NAMES) {
+				Metrics.defaultRegistry().removeMetric(metricsOwner, "latency-" + percentileName + "-ms", tablespace);
+			}
+		}
+		String prefix = tablespace + "/";
+		Iterator<String> it = partitions.keySet().iterator();
+		while(it.hasNext()) {
+			if(it.next().startsWith(prefix)) {
+				it.remove();
+			}
+		}
 	}
-	
+
+	private void registerGauges(String tablespace, final LatencyHistogram tablespaceHistogram) {
+		for(int i = 0; i < PERCENTILES.length; i++) {
+			final double percentile = PERCENTILES[i];
+			Metrics.newGauge(metricsOwner, "latency-" + PERCENTILE_NAMES[i] + "-ms", tablespace, new Gauge<Double>() {
+				@Override
+				public Double value() {
+					return tablespaceHistogram.snapshot().getPercentile(percentile) / NANOS_PER_MILLI;
+				}
+			});
+		}
+	}
+
 	public int getNQueries() {
-		return (int) histogram.getCount();
+		return (int) histogram.snapshot().getCount();
 	}
-	
+
+	/**
+	 * Average time of the queries in milliseconds.
+	 */
 	public double getAverage() {
-		return histogram.getAverage();
+		return histogram.snapshot().getMean() / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * Percentiles of all the queries.
+	 */
+	public LatencyStats getLatency() {
+		return toStats(histogram.snapshot());
+	}
+
+	/**
+	 * Percentiles of the queries of each tablespace.
+	 */
+	public Map<String, LatencyStats> getTablespaceLatencies() {
+		return toStats(tablespaces);
+	}
+
+	/**
+	 * Percentiles of the queries of the partitions with most queries, by "tablespace/partition". Only their histograms
+	 * are merged, so that the cost doesn't grow much with the number of partitions.
+	 */
+	public Map<String, LatencyStats> getPartitionLatencies(int maxPartitions) {
+		Map<String, LatencyStats> stats = new HashMap<String, LatencyStats>();
+		if(maxPartitions <= 0) {
+			return stats;
+		}
+		// A min-heap of the busiest partitions seen so far: {count, entry}
+		PriorityQueue<Object[]> busiest = new PriorityQueue<Object[]>(maxPartitions, new Comparator<Object[]>() {
+
+			@Override
+			public int compare(Object[] a, Object[] b) {
+				return ((Long) a[0]).compareTo((Long) b[0]);
+			}
+		});
+		for(Map.Entry<String, LatencyHistogram> entry : partitions.entrySet()) {
+			long count = entry.getValue().getCount();
+			if(busiest.size() < maxPartitions) {
+				busiest.add(new Object[] { count, entry });
+			} else if(count > (Long) busiest.peek()[0]) {
+				busiest.poll();
+				busiest.add(new Object[] { count, entry });
+			}
+		}
+		for(Object[] partition : busiest) {
+			@SuppressWarnings("unchecked")
+			Map.Entry<String, LatencyHistogram> entry = (Map.Entry<String, LatencyHistogram>) partition[1];
+			stats.put(entry.getKey(), toStats(entry.getValue().snapshot()));
+		}
+		return stats;
 	}
-	
-	public HistogramWithStats getHistogram() {
-		return histogram;
+
+	private static Map<String, LatencyStats> toStats(Map<String, LatencyHistogram> histograms) {
+		Map<String, LatencyStats> stats = new HashMap<String, LatencyStats>();
+		for(Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+			stats.put(entry.getKey(), toStats(entry.getValue().snapshot()));
+		}
+		return stats;
+	}
+
+	public static LatencyStats toStats(LatencyHistogram.Snapshot snapshot) {
+		LatencyStats stats = new LatencyStats();
+		stats.setCount(snapshot.getCount());
+		stats.setMean(snapshot.getMean() / NANOS_PER_MILLI);
+		stats.setP50(snapshot.getPercentile(0.5) / NANOS_PER_MILLI);
+		stats.setP95(snapshot.getPercentile(0.95) / NANOS_PER_MILLI);
+		stats.setP99(snapshot.getPercentile(0.99) / NANOS_PER_MILLI);
+		stats.setP999(snapshot.getPercentile(0.999) / NANOS_PER_MILLI);
+		stats.setMax(snapshot.getMax() / NANOS_PER_MILLI);
+		return stats;
 	}
 }
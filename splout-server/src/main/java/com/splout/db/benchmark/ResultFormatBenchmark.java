@@ -0,0 +1,150 @@
+package com.splout.db.benchmark;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TSerializer;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.splout.db.common.JSONSerDe;
+import com.splout.db.common.QueryResultSerDe;
+import com.splout.db.common.SQLite4JavaManager;
+import com.splout.db.thrift.QueryResult;
+
+/**
+ * This tool compares the cost of the two result formats that a DNode can serve: JSON (sqlQuery) and the columnar
+ * {@link QueryResult} (sqlQueryBinary). For each format it measures the whole path a result goes through between the
+ * SQLite statement and the QNode: serializing it in the DNode, the bytes that travel over the wire and deserializing it
+ * in the QNode. Queries are run against a local SQLite file so that network doesn't add noise to the comparison.
+ */
+public class ResultFormatBenchmark {
+
+	@Parameter(names = { "-r", "--rows" }, description = "The number of rows each query returns.")
+	private Integer nRows = 1000;
+
+	@Parameter(names = { "-nq", "--nqueries" }, description = "The number of queries to perform for each format.")
+	private Integer nQueries = 1000;
+
+	@Parameter(names = { "-w", "--warmup" }, description = "The number of queries to perform for each format before measuring, for letting the JIT warm up.")
+	private Integer nWarmupQueries = 200;
+
+	@Parameter(names = { "-db", "--dbfile" }, description = "The SQLite file that will be created for the benchmark.")
+	private String dbFile = "result-format-benchmark.db";
+
+	public void start() throws Exception {
+		File file = new File(dbFile);
+		if(file.exists()) {
+			file.delete();
+		}
+		SQLite4JavaManager manager = new SQLite4JavaManager(dbFile, null);
+		try {
+			manager.exec("CREATE TABLE benchmark (id INTEGER, name TEXT, price REAL, quantity INTEGER, notes TEXT);");
+			manager.exec("BEGIN");
+			for(int i = 0; i < nRows; i++) {
+				manager.exec("INSERT INTO benchmark VALUES (" + i + ", 'name_" + i + "', " + (i * 1.5) + ", " + (i % 100)
+				    + ", " + (i % 3 == 0 ? "NULL" : "'some notes about " + i + "'") + ");");
+			}
+			manager.exec("COMMIT");
+			String query = "SELECT * FROM benchmark;";
+
+			for(int i = 0; i < nWarmupQueries; i++) {
+				jsonQuery(manager, query);
+				binaryQuery(manager, query);
+			}
+			long bytes = 0;
+			long start = System.nanoTime();
+			for(int i = 0; i < nQueries; i++) {
+				bytes += jsonQuery(manager, query);
+			}
+			long jsonNanos = System.nanoTime() - start;
+			printStats("JSON", jsonNanos, bytes);
+
+			bytes = 0;
+			start = System.nanoTime();
+			for(int i = 0; i < nQueries; i++) {
+				bytes += binaryQuery(manager, query);
+			}
+			long binaryNanos = System.nanoTime() - start;
+			printStats("Binary", binaryNanos, bytes);
+			System.out.println("Speedup\t" + ((double) jsonNanos / binaryNanos));
+		} finally {
+			manager.close();
+			file.delete();
+		}
+	}
+
+	/*
+	 * What sqlQuery() does in the DNode plus what the Querier does with its result. Returns the bytes sent.
+	 */
+	@SuppressWarnings("rawtypes")
+	private int jsonQuery(SQLite4JavaManager manager, String query) throws Exception {
+		byte[] bytes = manager.query(query, nRows + 1).getBytes("UTF-8");
+		ArrayList result = JSONSerDe.deSer(new String(bytes, "UTF-8"), ArrayList.class);
+		if(result.size() != nRows) {
+			throw new IllegalStateException("Unexpected number of rows: " + result.size());
+		}
+		return bytes.length;
+	}
+
+	/*
+	 * What sqlQueryBinary() does in the DNode plus what the Querier does with its result. Returns the bytes sent.
+	 */
+	private int binaryQuery(SQLite4JavaManager manager, String query) throws Exception {
+		QueryResult queryResult = manager.query(query, nRows + 1, new QueryResultSerDe.Builder());
+		byte[] bytes = new TSerializer().serialize(queryResult);
+		QueryResult deSerQueryResult = new QueryResult();
+		new TDeserializer().deserialize(deSerQueryResult, bytes);
+		int size = QueryResultSerDe.deSer(deSerQueryResult).size();
+		if(size != nRows) {
+			throw new IllegalStateException("Unexpected number of rows: " + size);
+		}
+		return bytes.length;
+	}
+
+	private void printStats(String format, long nanos, long bytes) {
+		System.out.println(format + " average query time (ms)\t" + (nanos / 1000000d / nQueries));
+		System.out.println(format + " average result size (bytes)\t" + (bytes / nQueries));
+	}
+
+	public static void main(String[] args) throws Exception {
+		ResultFormatBenchmark benchmark = new ResultFormatBenchmark();
+
+		JCommander jComm = new JCommander(benchmark);
+		jComm.setProgramName("Result Format Benchmark");
+		try {
+			jComm.parse(args);
+		} catch(ParameterException e) {
+			System.out.println(e.getMessage());
+			System.out.println();
+			jComm.usage();
+			System.exit(-1);
+		}
+
+		benchmark.start();
+		System.exit(0);
+	}
+}
@@ -0,0 +1,435 @@
+package com.splout.db.common;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.thrift.TBaseHelper;
+
+import com.almworks.sqlite4java.SQLiteConstants;
+import com.almworks.sqlite4java.SQLiteException;
+import com.almworks.sqlite4java.SQLiteStatement;
+import com.splout.db.common.SQLite4JavaManager.ResultHandler;
+import com.splout.db.thrift.QueryParam;
+import com.splout.db.thrift.QueryResult;
+import com.splout.db.thrift.ResultColumn;
+
+/**
+ * Serialization and deserialization of query results in the columnar {@link QueryResult} Thrift format returned by
+ * the DNode's sqlQueryBinary() method. It is the binary counterpart of {@link JSONSerDe}: results are built straight
+ * from the SQLite statement by {@link Builder} and turned back into a list of rows (column name -> value) by
+ * {@link #deSer(QueryResult)} without any JSON parsing. It also converts the values bound to parameterized queries to
+ * and from their {@link QueryParam} representation.
+ */
+public class QueryResultSerDe {
+
+	public final static String TYPE_INTEGER = "INTEGER";
+	public final static String TYPE_REAL = "REAL";
+	public final static String TYPE_TEXT = "TEXT";
+	public final static String TYPE_BLOB = "BLOB";
+	public final static String TYPE_NULL = "NULL";
+	public final static String TYPE_MIXED = "MIXED";
+
+	/**
+	 * {@link ResultHandler} that builds a {@link QueryResult} while the statement is being stepped, appending each value
+	 * to the typed vector of its column.
+	 */
+	public static class Builder implements ResultHandler<QueryResult> {
+
+		private String[] columnNames;
+		private ColumnBuilder[] columns;
+		private int nRows = 0;
+
+		@Override
+		public void startResult(String[] columnNames) {
+			this.columnNames = columnNames;
+			columns = new ColumnBuilder[columnNames.length];
+			for(int i = 0; i < columns.length; i++) {
+				columns[i] = new ColumnBuilder();
+			}
+		}
+
+		@Override
+		public void addRow(SQLiteStatement st, int columnCount) throws SQLiteException {
+			for(int i = 0; i < columnCount; i++) {
+				ColumnBuilder column = columns[i];
+				switch(st.columnType(i)) {
+				case SQLiteConstants.SQLITE_NULL:
+					column.addNull();
+					break;
+				case SQLiteConstants.SQLITE_INTEGER:
+					column.addLong(st.columnLong(i));
+					break;
+				case SQLiteConstants.SQLITE_FLOAT:
+					column.addDouble(st.columnDouble(i));
+					break;
+				case SQLiteConstants.SQLITE_BLOB:
+					column.addBlob(st.columnBlob(i));
+					break;
+				default:
+					column.addString(st.columnString(i));
+				}
+			}
+			nRows++;
+		}
+
+		@Override
+		public QueryResult endResult() {
+			return build(columnNames, columns, nRows);
+		}
+	}
+
+	private static QueryResult build(String[] columnNames, ColumnBuilder[] columns, int nRows) {
+		QueryResult result = new QueryResult();
+		result.setColumnNames(Arrays.asList(columnNames));
+		result.setNRows(nRows);
+		List<String> columnTypes = new ArrayList<String>(columns.length);
+		List<ResultColumn> resultColumns = new ArrayList<ResultColumn>(columns.length);
+		for(ColumnBuilder column : columns) {
+			columnTypes.add(column.getType());
+			resultColumns.add(column.build());
+		}
+		result.setColumnTypes(columnTypes);
+		result.setColumns(resultColumns);
+		return result;
+	}
+
+	/**
+	 * Builds a {@link QueryResult} from a list of rows (column name -> value), the inverse of {@link #deSer(QueryResult)}.
+	 * The columns are the ones of the first row. Values are stored like {@link #serParams(List)} does.
+	 */
+	public static QueryResult ser(List<? extends Map<String, ?>> rows) {
+		String[] columnNames = rows.isEmpty() ? new String[0] : rows.get(0).keySet().toArray(new String[0]);
+		ColumnBuilder[] columns = new ColumnBuilder[columnNames.length];
+		for(int i = 0; i < columns.length; i++) {
+			columns[i] = new ColumnBuilder();
+		}
+		for(Map<String, ?> row : rows) {
+			for(int i = 0; i < columns.length; i++) {
+				Object value = row.get(columnNames[i]);
+				if(value == null) {
+					columns[i].addNull();
+				} else if(value instanceof Integer || value instanceof Long || value instanceof Short
+				    || value instanceof Byte) {
+					columns[i].addLong(((Number) value).longValue());
+				} else if(value instanceof Number) {
+					columns[i].addDouble(((Number) value).doubleValue());
+				} else if(value instanceof Boolean) {
+					columns[i].addLong(((Boolean) value) ? 1 : 0);
+				} else if(value instanceof byte[]) {
+					columns[i].addBlob((byte[]) value);
+				} else {
+					columns[i].addString(value.toString());
+				}
+			}
+		}
+		return build(columnNames, columns, rows.size());
+	}
+
+	/*
+	 * Accumulates the values of one column in primitive arrays, keeping the storage class of each row.
+	 */
+	static class ColumnBuilder {
+
+		private byte[] rowTypes = new byte[16];
+		private int nRows = 0;
+		// storage class shared by all non-null rows, -1 if there are none yet
+		private int type = -1;
+		private boolean mixed = false;
+
+		private long[] longs;
+		private int nLongs = 0;
+		private double[] doubles;
+		private int nDoubles = 0;
+		private List<String> strings;
+		private List<ByteBuffer> blobs;
+
+		void addNull() {
+			addRowType(SQLiteConstants.SQLITE_NULL);
+		}
+
+		void addLong(long value) {
+			addRowType(SQLiteConstants.SQLITE_INTEGER);
+			if(longs == null) {
+				longs = new long[16];
+			} else if(nLongs == longs.length) {
+				longs = Arrays.copyOf(longs, nLongs * 2);
+			}
+			longs[nLongs++] = value;
+		}
+
+		void addDouble(double value) {
+			addRowType(SQLiteConstants.SQLITE_FLOAT);
+			if(doubles == null) {
+				doubles = new double[16];
+			} else if(nDoubles == doubles.length) {
+				doubles = Arrays.copyOf(doubles, nDoubles * 2);
+			}
+			doubles[nDoubles++] = value;
+		}
+
+		void addString(String value) {
+			addRowType(SQLiteConstants.SQLITE_TEXT);
+			if(strings == null) {
+				strings = new ArrayList<String>();
+			}
+			strings.add(value);
+		}
+
+		void addBlob(byte[] value) {
+			addRowType(SQLiteConstants.SQLITE_BLOB);
+			if(blobs == null) {
+				blobs = new ArrayList<ByteBuffer>();
+			}
+			blobs.add(ByteBuffer.wrap(value));
+		}
+
+		private void addRowType(int rowType) {
+			if(nRows == rowTypes.length) {
+				rowTypes = Arrays.copyOf(rowTypes, nRows * 2);
+			}
+			rowTypes[nRows++] = (byte) rowType;
+			if(rowType != SQLiteConstants.SQLITE_NULL) {
+				if(type == -1) {
+					type = rowType;
+				} else if(type != rowType) {
+					mixed = true;
+				}
+			}
+		}
+
+		String getType() {
+			if(mixed) {
+				return TYPE_MIXED;
+			}
+			switch(type) {
+			case SQLiteConstants.SQLITE_INTEGER:
+				return TYPE_INTEGER;
+			case SQLiteConstants.SQLITE_FLOAT:
+				return TYPE_REAL;
+			case SQLiteConstants.SQLITE_TEXT:
+				return TYPE_TEXT;
+			case SQLiteConstants.SQLITE_BLOB:
+				return TYPE_BLOB;
+			default:
+				return TYPE_NULL;
+			}
+		}
+
+		ResultColumn build() {
+			ResultColumn column = new ResultColumn();
+			byte[] nulls = new byte[(nRows + 7) / 8];
+			for(int i = 0; i < nRows; i++) {
+				if(rowTypes[i] == SQLiteConstants.SQLITE_NULL) {
+					nulls[i >> 3] |= 1 << (i & 7);
+				}
+			}
+			column.setNulls(nulls);
+			if(longs != null) {
+				ByteBuffer buffer = ByteBuffer.allocate(nLongs * 8);
+				buffer.asLongBuffer().put(longs, 0, nLongs);
+				column.setLongs(buffer);
+			}
+			if(doubles != null) {
+				ByteBuffer buffer = ByteBuffer.allocate(nDoubles * 8);
+				buffer.asDoubleBuffer().put(doubles, 0, nDoubles);
+				column.setDoubles(buffer);
+			}
+			column.setStrings(strings);
+			column.setBlobs(blobs);
+			if(mixed) {
+				column.setRowTypes(Arrays.copyOf(rowTypes, nRows));
+			}
+			return column;
+		}
+	}
+
+	/**
+	 * Approximate size in bytes of the values of a {@link QueryResult}, as sent over the wire: column buffers, blobs and
+	 * strings (counting one byte per char).
+	 */
+	public static long sizeOf(QueryResult result) {
+		long size = 0;
+		if(result.getColumns() == null) {
+			return size;
+		}
+		for(ResultColumn column : result.getColumns()) {
+			size += remaining(column.bufferForNulls()) + remaining(column.bufferForLongs())
+			    + remaining(column.bufferForDoubles()) + remaining(column.bufferForRowTypes());
+			if(column.getStrings() != null) {
+				for(String string : column.getStrings()) {
+					size += string.length();
+				}
+			}
+			if(column.getBlobs() != null) {
+				for(ByteBuffer blob : column.getBlobs()) {
+					size += blob.remaining();
+				}
+			}
+		}
+		return size;
+	}
+
+	private static int remaining(ByteBuffer buffer) {
+		return buffer == null ? 0 : buffer.remaining();
+	}
+
+	/**
+	 * Turns a {@link QueryResult} into a list of rows (column name -> value), the same shape that results have when they
+	 * are deserialized from JSON. Integers that fit in an int are returned as Integer, like Jackson does.
+	 */
+	public static ArrayList<Map<String, Object>> deSer(QueryResult result) {
+		int nRows = result.getNRows();
+		int nColumns = result.getColumnNamesSize();
+		String[] columnNames = result.getColumnNames().toArray(new String[nColumns]);
+		ColumnReader[] readers = new ColumnReader[nColumns];
+		for(int i = 0; i < nColumns; i++) {
+			readers[i] = new ColumnReader(result.getColumns().get(i), result.getColumnTypes().get(i));
+		}
+		ArrayList<Map<String, Object>> rows = new ArrayList<Map<String, Object>>(nRows);
+		for(int row = 0; row < nRows; row++) {
+			Map<String, Object> values = new LinkedHashMap<String, Object>(nColumns * 2);
+			for(int i = 0; i < nColumns; i++) {
+				values.put(columnNames[i], readers[i].next(row));
+			}
+			rows.add(values);
+		}
+		return rows;
+	}
+
+	/*
+	 * Iterates over the values of a {@link ResultColumn} in row order.
+	 */
+	static class ColumnReader {
+
+		private final ResultColumn column;
+		private final int type;
+		private final ByteBuffer nulls;
+		private final ByteBuffer rowTypes;
+		private final LongBuffer longs;
+		private final DoubleBuffer doubles;
+		private int nextString = 0;
+		private int nextBlob = 0;
+
+		ColumnReader(ResultColumn column, String type) {
+			this.column = column;
+			this.nulls = column.bufferForNulls();
+			this.rowTypes = column.bufferForRowTypes();
+			this.longs = column.isSetLongs() ? column.bufferForLongs().asLongBuffer() : null;
+			this.doubles = column.isSetDoubles() ? column.bufferForDoubles().asDoubleBuffer() : null;
+			if(TYPE_INTEGER.equals(type)) {
+				this.type = SQLiteConstants.SQLITE_INTEGER;
+			} else if(TYPE_REAL.equals(type)) {
+				this.type = SQLiteConstants.SQLITE_FLOAT;
+			} else if(TYPE_TEXT.equals(type)) {
+				this.type = SQLiteConstants.SQLITE_TEXT;
+			} else if(TYPE_BLOB.equals(type)) {
+				this.type = SQLiteConstants.SQLITE_BLOB;
+			} else {
+				this.type = SQLiteConstants.SQLITE_NULL;
+			}
+		}
+
+		Object next(int row) {
+			int rowType;
+			if(rowTypes != null) {
+				rowType = rowTypes.get(rowTypes.position() + row);
+			} else if((nulls.get(nulls.position() + (row >> 3)) & (1 << (row & 7))) != 0) {
+				rowType = SQLiteConstants.SQLITE_NULL;
+			} else {
+				rowType = type;
+			}
+			switch(rowType) {
+			case SQLiteConstants.SQLITE_INTEGER:
+				long value = longs.get();
+				if(value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+					return (int) value;
+				}
+				return value;
+			case SQLiteConstants.SQLITE_FLOAT:
+				return doubles.get();
+			case SQLiteConstants.SQLITE_TEXT:
+				return column.getStrings().get(nextString++);
+			case SQLiteConstants.SQLITE_BLOB:
+				return TBaseHelper.byteBufferToByteArray(column.getBlobs().get(nextBlob++));
+			default:
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Converts the values of a parameterized query to their Thrift representation. Integral numbers are sent as longs,
+	 * other numbers as doubles, Booleans as 1 / 0, byte arrays as blobs and anything else as its String value.
+	 */
+	public static List<QueryParam> serParams(List<?> params) {
+		List<QueryParam> queryParams = new ArrayList<QueryParam>(params.size());
+		for(Object param : params) {
+			QueryParam queryParam = new QueryParam();
+			if(param == null) {
+				// NULL: no field set
+			} else if(param instanceof Integer || param instanceof Long || param instanceof Short
+			    || param instanceof Byte) {
+				queryParam.setLongValue(((Number) param).longValue());
+			} else if(param instanceof Number) {
+				queryParam.setDoubleValue(((Number) param).doubleValue());
+			} else if(param instanceof Boolean) {
+				queryParam.setLongValue(((Boolean) param) ? 1 : 0);
+			} else if(param instanceof byte[]) {
+				queryParam.setBlobValue((byte[]) param);
+			} else {
+				queryParam.setStringValue(param.toString());
+			}
+			queryParams.add(queryParam);
+		}
+		return queryParams;
+	}
+
+	/**
+	 * Turns the Thrift representation of the values of a parameterized query back into Java values (null, Long, Double,
+	 * String or byte[]) ready to be bound by {@link SQLite4JavaManager}.
+	 */
+	public static List<Object> deSerParams(List<QueryParam> queryParams) {
+		List<Object> params = new ArrayList<Object>(queryParams.size());
+		for(QueryParam queryParam : queryParams) {
+			if(queryParam.isSetLongValue()) {
+				params.add(queryParam.getLongValue());
+			} else if(queryParam.isSetDoubleValue()) {
+				params.add(queryParam.getDoubleValue());
+			} else if(queryParam.isSetStringValue()) {
+				params.add(queryParam.getStringValue());
+			} else if(queryParam.isSetBlobValue()) {
+				params.add(queryParam.getBlobValue());
+			} else {
+				params.add(null);
+			}
+		}
+		return params;
+	}
+}
@@ -23,6 +23,9 @@ package com.splout.db.common;
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.io.FileUtils;
@@ -41,6 +44,7 @@ import com.splout.db.hazelcast.HazelcastConfigBuilder.HazelcastConfigBuilderExce
 import com.splout.db.qnode.IQNodeHandler;
 import com.splout.db.qnode.QNode;
 import com.splout.db.qnode.QNodeProperties;
+import com.splout.db.thrift.QueryResult;
 
 /**
  * Things that are used extensively in unit / integration tests.
@@ -192,6 +196,15 @@ public class TestUtils {
 		return reference.get();
 	}
 
+	/**
+	 * A result with one row and one column, as returned by sqlQueryBinary(), for mock DNode handlers.
+	 */
+	public static QueryResult getTestResult(String column, Object value) {
+		Map<String, Object> row = new LinkedHashMap<String, Object>();
+		row.put(column, value);
+		return QueryResultSerDe.ser(Collections.singletonList(row));
+	}
+
 	/**
 	 * Delete folders that *might* have been created by DNodes & ZooKeepers from a certain test class.
 	 * The number of instances is the number of different methods (and therefore unique namespaces) in the test class.
@@ -0,0 +1,271 @@
+package com.splout.db.dnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.splout.db.thrift.DNodeException;
+
+/**
+ * Admission control for the queries served by the {@link DNode}. A query needs a slot to run: there is a maximum of
+ * concurrent queries for the whole DNode and for each tablespace. Queries that don't get one wait in a bounded queue of
+ * their tablespace, and freed slots are handed to the waiting queries using weighted fair queueing among
+ * tablespaces, so that a tablespace with heavy queries can't starve the others. Queries that can't be queued, or that
+ * waited too long, are rejected with a {@link DNodeException} whose code is {@link DNodeHandler#EXCEPTION_OVERLOADED}
+ * so that the QNode can try another replica.
+ */
+public class AdmissionController {
+
+	/*
+	 * A query waiting for a slot.
+	 */
+	private static class Waiter {
+
+		final Condition admittedCondition;
+		final double tag;
+		boolean admitted = false;
+
+		Waiter(Condition admittedCondition, double tag) {
+			this.admittedCondition = admittedCondition;
+			this.tag = tag;
+		}
+	}
+
+	/*
+	 * The state of a tablespace. Its queries are tagged with increasing virtual finish times, increasing slower for
+	 * heavier weights, and the query with the lowest tag among all tablespaces is admitted first.
+	 */
+	private static class TablespaceQueue {
+
+		final double weight;
+		final LinkedList<Waiter> waiting = new LinkedList<Waiter>();
+		int running = 0;
+		double lastTag = 0;
+
+		TablespaceQueue(double weight) {
+			this.weight = weight;
+		}
+	}
+
+	private final int maxConcurrentQueries;
+	private final int maxConcurrentPerTablespace;
+	private final int maxQueuedPerTablespace;
+	private final long maxWaitMillis;
+	private final Map<String, Double> weights;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	// The following are guarded by the lock
+	private final Map<String, TablespaceQueue> queues = new HashMap<String, TablespaceQueue>();
+	private int running = 0;
+	private int queued = 0;
+	private double virtualTime = 0;
+
+	private final AtomicLong rejectedQueries = new AtomicLong(0);
+
+	/**
+	 * @param maxConcurrentQueries
+	 *          Maximum number of queries running at the same time in the DNode.
+	 * @param maxConcurrentPerTablespace
+	 *          Maximum number of queries of the same tablespace running at the same time.
+	 * @param maxQueuedPerTablespace
+	 *          Maximum number of queries of the same tablespace waiting for a slot. Further queries are rejected.
+	 * @param maxWaitMillis
+	 *          Queries that wait longer than this for a slot are rejected.
+	 * @param weights
+	 *          Share of the slots that each tablespace gets when there is contention, relative to the other ones.
+	 *          Tablespaces not present here have weight 1.
+	 */
+	public AdmissionController(int maxConcurrentQueries, int maxConcurrentPerTablespace, int maxQueuedPerTablespace,
+	    long maxWaitMillis, Map<String, Double> weights) {
+		this.maxConcurrentQueries = maxConcurrentQueries;
+		this.maxConcurrentPerTablespace = maxConcurrentPerTablespace;
+		this.maxQueuedPerTablespace = maxQueuedPerTablespace;
+		this.maxWaitMillis = maxWaitMillis;
+		this.weights = weights;
+	}
+
+	/**
+	 * Parses tablespace weights in the form "tablespace1:weight1,tablespace2:weight2". Accepts the weights already split
+	 * in many strings, as returned by the configuration for comma-separated values.
+	 */
+	public static Map<String, Double> parseWeights(String... weightLists) {
+		Map<String, Double> result = new HashMap<String, Double>();
+		for(String weights : weightLists) {
+			parseWeights(weights, result);
+		}
+		return result;
+	}
+
+	private static void parseWeights(String weights, Map<String, Double> result) {
+		for(String weight : weights.split(",")) {
+			weight = weight.trim();
+			if(weight.isEmpty()) {
+				continue;
+			}
+			int separator = weight.lastIndexOf(':');
+			if(separator <= 0) {
+				throw new IllegalArgumentException("Invalid tablespace weight [" + weight
+				    + "], should be tablespace:weight");
+			}
+			double value = Double.parseDouble(weight.substring(separator + 1).trim());
+			if(value <= 0) {
+				throw new IllegalArgumentException("Invalid tablespace weight [" + weight + "], should be positive");
+			}
+			result.put(weight.substring(0, separator).trim(), value);
+		}
+	}
+
+	/**
+	 * Waits for a slot to run a query of the tablespace, which must be given back with {@link #release(String)}.
+	 * 
+	 * @throws DNodeException
+	 *           with code {@link DNodeHandler#EXCEPTION_OVERLOADED} if the query is rejected.
+	 */
+	public void acquire(String tablespace) throws DNodeException {
+		lock.lock();
+		try {
+			TablespaceQueue queue = getQueue(tablespace);
+			// Queued queries of the tablespace go first. The tag is only committed once the query is admitted, so that
+			// rejected queries don't push back the next ones of their tablespace.
+			double previousTag = queue.waiting.isEmpty() ? queue.lastTag : Math.max(queue.lastTag,
+			    queue.waiting.getLast().tag);
+			double tag = Math.max(virtualTime, previousTag) + 1d / queue.weight;
+			// Freed slots are handed to waiting queries right away, so if there is one available and no query of this
+			// tablespace is waiting, there is no one else to be fair to
+			if(running < maxConcurrentQueries && queue.running < maxConcurrentPerTablespace && queue.waiting.isEmpty()) {
+				admit(queue, tag);
+				return;
+			}
+			if(queue.waiting.size() >= maxQueuedPerTablespace) {
+				throw overloaded(tablespace, "too many queued queries (" + queue.waiting.size() + ")");
+			}
+			Waiter waiter = new Waiter(lock.newCondition(), tag);
+			queue.waiting.add(waiter);
+			queued++;
+			long remaining = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+			try {
+				while(!waiter.admitted && remaining > 0) {
+					remaining = waiter.admittedCondition.awaitNanos(remaining);
+				}
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if(!waiter.admitted) {
+				queue.waiting.remove(waiter);
+				queued--;
+				throw overloaded(tablespace, "waited for more than " + maxWaitMillis + " ms");
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gives back the slot of a query of the tablespace, handing it to the next query to be admitted.
+	 */
+	public void release(String tablespace) {
+		lock.lock();
+		try {
+			running--;
+			getQueue(tablespace).running--;
+			while(running < maxConcurrentQueries) {
+				TablespaceQueue next = null;
+				for(TablespaceQueue queue : queues.values()) {
+					if(!queue.waiting.isEmpty() && queue.running < maxConcurrentPerTablespace
+					    && (next == null || queue.waiting.getFirst().tag < next.waiting.getFirst().tag)) {
+						next = queue;
+					}
+				}
+				if(next == null) {
+					break;
+				}
+				Waiter waiter = next.waiting.removeFirst();
+				queued--;
+				waiter.admitted = true;
+				admit(next, waiter.tag);
+				waiter.admittedCondition.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void admit(TablespaceQueue queue, double tag) {
+		running++;
+		queue.running++;
+		queue.lastTag = Math.max(queue.lastTag, tag);
+		virtualTime = Math.max(virtualTime, tag - 1d / queue.weight);
+	}
+
+	private TablespaceQueue getQueue(String tablespace) {
+		TablespaceQueue queue = queues.get(tablespace);
+		if(queue == null) {
+			Double weight = weights.get(tablespace);
+			queue = new TablespaceQueue(weight == null ? 1d : weight);
+			queues.put(tablespace, queue);
+		}
+		return queue;
+	}
+
+	private DNodeException overloaded(String tablespace, String reason) {
+		rejectedQueries.incrementAndGet();
+		return new DNodeException(DNodeHandler.EXCEPTION_OVERLOADED, "DNode overloaded, query to tablespace ["
+		    + tablespace + "] rejected: " + reason);
+	}
+
+	/**
+	 * Number of queries that were rejected because of overload.
+	 */
+	public long getRejectedQueries() {
+		return rejectedQueries.get();
+	}
+
+	/**
+	 * Number of queries currently running.
+	 */
+	public int getRunningQueries() {
+		lock.lock();
+		try {
+			return running;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Number of queries currently waiting for a slot.
+	 */
+	public int getQueuedQueries() {
+		lock.lock();
+		try {
+			return queued;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
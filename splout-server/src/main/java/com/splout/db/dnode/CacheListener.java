@@ -42,7 +42,7 @@ public class CacheListener implements CacheEventListener, Cloneable {
 	private final static Log log = LogFactory.getLog(CacheListener.class);
 
 	/*
-	 * Here is where we close the connection pool
+	 * Here is where we close the connection pool, together with the prepared statements cached by its connections
 	 */
 	protected void closeManager(Element paramElement) {
 		log.info("Close manager: " + paramElement);
@@ -26,7 +26,9 @@ import java.util.List;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.thrift.TException;
+import org.apache.thrift.server.THsHaServer;
 import org.apache.thrift.server.TServer;
+import org.apache.thrift.transport.TNonblockingServerSocket;
 import org.apache.thrift.transport.TServerSocket;
 import org.apache.thrift.transport.TServerTransport;
 
@@ -34,6 +36,9 @@ import com.splout.db.common.SploutConfiguration;
 import com.splout.db.thrift.DNodeException;
 import com.splout.db.thrift.DNodeService;
 import com.splout.db.thrift.DeployAction;
+import com.splout.db.thrift.PartitionQueryResult;
+import com.splout.db.thrift.QueryParam;
+import com.splout.db.thrift.QueryResult;
 import com.splout.db.thrift.RollbackAction;
 import com.splout.db.thrift.TablespaceVersion;
 
@@ -65,6 +70,16 @@ public class DNode implements DNodeService.Iface {
 		return config.getString(DNodeProperties.HOST) + ":" + config.getInt(DNodeProperties.PORT);
 	}
 
+	/**
+	 * Server mode where each client connection is served by its own thread, see {@link CustomTThreadPoolServer}.
+	 */
+	public final static String SERVER_MODE_THREAD_POOL = "threadpool";
+	/**
+	 * Server mode where a selector thread multiplexes all the client connections and hands complete requests to a pool of
+	 * threads, see {@link THsHaServer}. Clients must use framed transport.
+	 */
+	public final static String SERVER_MODE_HSHA = "hsha";
+
 	/**
 	 * Initialize the DNode service - the important thing here is to instantiate a multi-threaded Thrift server.
 	 * Everything is based on the given {@link SploutConfiguration} by constructor.
@@ -73,6 +88,12 @@ public class DNode implements DNodeService.Iface {
 	public void init() throws Exception {
 		DNodeService.Processor processor = new DNodeService.Processor(this);
 		TServerTransport serverTransport = null;
+		String serverMode = config.getString(DNodeProperties.SERVER_MODE, SERVER_MODE_THREAD_POOL);
+		boolean nonBlocking = SERVER_MODE_HSHA.equals(serverMode);
+		if(!nonBlocking && !SERVER_MODE_THREAD_POOL.equals(serverMode)) {
+			throw new IllegalArgumentException("Unknown " + DNodeProperties.SERVER_MODE + " [" + serverMode
+			    + "], should be " + SERVER_MODE_THREAD_POOL + " or " + SERVER_MODE_HSHA);
+		}
 
 		boolean init = false;
 		int retries = 0;
@@ -81,7 +102,7 @@ public class DNode implements DNodeService.Iface {
 		do {
 			thriftPort = config.getInt(DNodeProperties.PORT);
 			try {
-				serverTransport = new TServerSocket(thriftPort);
+				serverTransport = nonBlocking ? new TNonblockingServerSocket(thriftPort) : new TServerSocket(thriftPort);
 				init = true;
 			} catch(org.apache.thrift.transport.TTransportException e) {
 				if(!config.getBoolean(DNodeProperties.PORT_AUTOINCREMENT)) {
@@ -93,14 +114,23 @@ public class DNode implements DNodeService.Iface {
 		} while(!init && retries < 100);
 		
 		handler.init(config);
-		// Use this for a multi-threaded Thrift server
-		CustomTThreadPoolServer.Args args = new CustomTThreadPoolServer.Args(serverTransport);
-		args.processor(processor);
-		
-		args.maxWorkerThreads(config.getInt(DNodeProperties.SERVING_THREADS));
-		args.minWorkerThreads(config.getInt(DNodeProperties.SERVING_THREADS));
-		
-		server = new CustomTThreadPoolServer(args);
+		if(nonBlocking) {
+			// Few threads multiplex all the connections, requests are executed by a separate pool
+			THsHaServer.Args args = new THsHaServer.Args((TNonblockingServerSocket) serverTransport);
+			args.processor(processor);
+			args.workerThreads(config.getInt(DNodeProperties.SERVING_THREADS));
+			args.maxReadBufferBytes = config.getLong(DNodeProperties.SERVER_MAX_READ_BUFFER_BYTES, Long.MAX_VALUE);
+			server = new THsHaServer(args);
+		} else {
+			// Use this for a multi-threaded Thrift server
+			CustomTThreadPoolServer.Args args = new CustomTThreadPoolServer.Args(serverTransport);
+			args.processor(processor);
+
+			args.maxWorkerThreads(config.getInt(DNodeProperties.SERVING_THREADS));
+			args.minWorkerThreads(config.getInt(DNodeProperties.SERVING_THREADS));
+
+			server = new CustomTThreadPoolServer(args);
+		}
 		// We instantiate a long-living serving thread that will use the Thrift server.
 		servingThread = new Thread("Serving Thread") {
 			public void run() {
@@ -113,7 +143,7 @@ public class DNode implements DNodeService.Iface {
 		};
 		servingThread.start();
 		handler.giveGreenLigth();
-		log.info("Thrift server started on port: " + thriftPort);
+		log.info("Thrift server (" + serverMode + ") started on port: " + thriftPort);
 	}
 
 	// ---- The following methods are a facade for {@link IDNodeHandler} ---- //
@@ -124,6 +154,24 @@ public class DNode implements DNodeService.Iface {
 		return handler.sqlQuery(tablespace, version, partition, query);
 	}
 
+	@Override
+	public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query)
+	    throws DNodeException, TException {
+		return handler.sqlQueryBinary(tablespace, version, partition, query);
+	}
+
+	@Override
+	public QueryResult sqlQueryWithParams(String tablespace, long version, int partition, String query,
+	    List<QueryParam> params) throws DNodeException, TException {
+		return handler.sqlQueryWithParams(tablespace, version, partition, query, params);
+	}
+
+	@Override
+	public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions,
+	    String query, List<QueryParam> params) throws DNodeException, TException {
+		return handler.sqlQueryMulti(tablespace, version, partitions, query, params);
+	}
+
 	@Override
 	public String deploy(List<DeployAction> deployActions, long version) throws DNodeException, TException {
 		return handler.deploy(deployActions, version);
@@ -23,6 +23,7 @@ package com.splout.db.dnode;
 
 import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TFramedTransport;
 import org.apache.thrift.transport.TSocket;
 import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
@@ -38,17 +39,35 @@ public class DNodeClient {
 	 * Get a Thrift client given an address (host:port) 
 	 */
 	public static DNodeService.Client get(String hostPort) throws TTransportException {
+		return get(hostPort, false);
+	}
+
+	/**
+	 * Get a Thrift client given an address (host:port), using framed transport if needed, which is the case of DNodes
+	 * using the {@link DNode#SERVER_MODE_HSHA} server mode.
+	 */
+	public static DNodeService.Client get(String hostPort, boolean framed) throws TTransportException {
 		int separator = hostPort.lastIndexOf(":");
 		String host = hostPort.substring(0, separator);
 		int port = Integer.parseInt(hostPort.substring(separator + 1, hostPort.length()));
-		return get(host, port);
+		return get(host, port, framed);
 	}
 
 	/**
 	 * Get a Thrift client given a host and a port
 	 */
 	public static DNodeService.Client get(String host, int port) throws TTransportException {
+		return get(host, port, false);
+	}
+
+	/**
+	 * Get a Thrift client given a host and a port, using framed transport if needed.
+	 */
+	public static DNodeService.Client get(String host, int port, boolean framed) throws TTransportException {
 		TTransport transport = new TSocket(host, port);
+		if(framed) {
+			transport = new TFramedTransport(transport);
+		}
 		TProtocol protocol = new TBinaryProtocol(transport);
 		DNodeService.Client client = new DNodeService.Client(protocol);
 		transport.open();
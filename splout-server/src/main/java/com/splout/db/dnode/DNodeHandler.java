@@ -24,44 +24,51 @@ package com.splout.db.dnode;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.Element;
 
-import org.apache.commons.io.FileSystemUtils;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Lists;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.ICountDownLatch;
 import com.splout.db.benchmark.PerformanceTool;
+import com.splout.db.benchmark.QueryFingerprintStats;
 import com.splout.db.common.JSONSerDe;
 import com.splout.db.common.JSONSerDe.JSONSerDeException;
+import com.splout.db.common.QueryResultSerDe;
 import com.splout.db.common.SQLite4JavaManager;
+import com.splout.db.common.SQLiteConnectionPool;
+import com.splout.db.common.SQLiteConnectionSettings;
 import com.splout.db.common.SploutConfiguration;
 import com.splout.db.common.ThriftReader;
 import com.splout.db.common.ThriftWriter;
 import com.splout.db.common.TimeoutThread;
 import com.splout.db.dnode.beans.DNodeStatusResponse;
 import com.splout.db.dnode.beans.DNodeSystemStatus;
+import com.splout.db.dnode.beans.SlowQuery;
 import com.splout.db.hazelcast.CoordinationStructures;
 import com.splout.db.hazelcast.DNodeInfo;
 import com.splout.db.hazelcast.DistributedRegistry;
@@ -71,6 +78,9 @@ import com.splout.db.hazelcast.HazelcastProperties;
 import com.splout.db.thrift.DNodeException;
 import com.splout.db.thrift.DeployAction;
 import com.splout.db.thrift.PartitionMetadata;
+import com.splout.db.thrift.PartitionQueryResult;
+import com.splout.db.thrift.QueryParam;
+import com.splout.db.thrift.QueryResult;
 import com.splout.db.thrift.RollbackAction;
 
 /**
@@ -88,8 +98,28 @@ public class DNodeHandler implements IDNodeHandler {
 
 	// The {@link Fetcher} is the responsible for downloading new deployment data.
 	Cache dbCache;
+	// Loaders of the {@link SQLite4JavaManager}s that are being created, so that only one is created per key
+	private ConcurrentHashMap<String, FutureTask<SQLite4JavaManager>> managerLoaders = new ConcurrentHashMap<String, FutureTask<SQLite4JavaManager>>();
+	// The .db file and metadata of each tablespace, version and partition that has been queried
+	private ConcurrentHashMap<String, PartitionFiles> partitionFilesCache = new ConcurrentHashMap<String, PartitionFiles>();
+
+	/*
+	 * The local files of a partition needed for creating its {@link SQLite4JavaManager}.
+	 */
+	static class PartitionFiles {
+
+		final String dbFile;
+		final PartitionMetadata metadata;
+
+		PartitionFiles(String dbFile, PartitionMetadata metadata) {
+			this.dbFile = dbFile;
+			this.metadata = metadata;
+		}
+	}
 
 	protected ExecutorService deployThread;
+	// The threads that run the partitions of multi-partition queries in parallel
+	private ExecutorService multiQueryExecutor;
 	protected Object deployLock = new Object();
 
 	// This flag is needed for unit testing.
@@ -100,12 +130,21 @@ public class DNodeHandler implements IDNodeHandler {
 	// Thrift exception code used in DNodeException
 	public final static int EXCEPTION_ORDINARY = 0;
 	public final static int EXCEPTION_UNEXPECTED = 1;
+	// The DNode is overloaded and rejected the query, which can be retried in another replica
+	public final static int EXCEPTION_OVERLOADED = 2;
+	// The query exceeded its budget of CPU time, and would also exceed it in any other replica
+	public final static int EXCEPTION_OVER_BUDGET = 3;
 
 	// A hard limit on the number of results that this DNode can return per SQL query
 	private int maxResultsPerQuery;
+	// Budgets of CPU time per query in milliseconds, globally and per tablespace (0 for no limit)
+	private long maxCpuMillisPerQuery;
+	private Map<String, Long> maxCpuMillisPerTablespace;
 
 	// The following variables are used for monitoring and providing statistics:
 	private PerformanceTool performanceTool = new PerformanceTool();
+	// The most frequent query shapes per tablespace
+	private QueryFingerprintStats fingerprintStats;
 	private String lastException = null;
 	private long lastExceptionTime;
 	private AtomicInteger failedQueries = new AtomicInteger(0);
@@ -116,10 +155,29 @@ public class DNodeHandler implements IDNodeHandler {
 	
 	// Above this query time the query will be logged as slow query
 	private long absoluteSlowQueryLimit;
-	private long slowQueries = 0;
+	private AtomicLong slowQueries = new AtomicLong(0);
+	// The last slow queries together with their query plans
+	private SlowQueryLog slowQueryLog;
 	
 	// This thread will interrupt long-running queries
 	private TimeoutThread timeoutThread;
+
+	// Prepared statements kept by each SQL connection and the statistics of their caches
+	private int statementCacheSize;
+	private SQLite4JavaManager.StatementCacheStats statementCacheStats = new SQLite4JavaManager.StatementCacheStats();
+	// Limits shared by the SQL connection pools of all the partitions
+	private SQLiteConnectionPool.Limits poolLimits;
+	// How SQL connections are opened and tuned
+	private SQLiteConnectionSettings connectionSettings;
+	// Results of queries to immutable tablespace versions, null if disabled
+	private ResultCache resultCache;
+	// Slots for running queries, null if admission control is disabled
+	private AdmissionController admission;
+	// Warms up newly deployed partitions before the deploy finishes
+	private boolean warmupOpenPartitions;
+	private PartitionWarmer warmer;
+	// Files of the data folder and free space of its disk, so that status() doesn't touch the disk
+	private DiskInventory diskInventory;
 	
 	public DNodeHandler(Fetcher fetcher) {
 		this.fetcher = fetcher;
@@ -146,8 +204,55 @@ public class DNodeHandler implements IDNodeHandler {
 		maxResultsPerQuery = config.getInt(DNodeProperties.MAX_RESULTS_PER_QUERY);
 		int maxCachePools = config.getInt(DNodeProperties.EH_CACHE_N_ELEMENTS);
 		absoluteSlowQueryLimit = config.getLong(DNodeProperties.SLOW_QUERY_ABSOLUTE_LIMIT);
+		fingerprintStats = new QueryFingerprintStats(config.getInt(DNodeProperties.TOP_QUERIES_SIZE, 50));
+		slowQueryLog = new SlowQueryLog(config.getInt(DNodeProperties.SLOW_QUERY_LOG_SIZE, 100), config.getInt(
+		    DNodeProperties.SLOW_QUERY_LOG_MAX_PENDING_PLANS, 16));
+		statementCacheSize = config.getInt(DNodeProperties.STATEMENT_CACHE_SIZE,
+		    SQLite4JavaManager.DEFAULT_STATEMENT_CACHE_SIZE);
+		poolLimits = new SQLiteConnectionPool.Limits(config.getInt(DNodeProperties.POOL_MIN_CONNECTIONS),
+		    config.getInt(DNodeProperties.POOL_MAX_CONNECTIONS), config.getInt(DNodeProperties.POOL_MAX_TOTAL_CONNECTIONS),
+		    config.getLong(DNodeProperties.POOL_IDLE_SECONDS) * 1000, config.getLong(DNodeProperties.MAX_QUERY_TIME));
+		if(config.getInt(DNodeProperties.POOL_MAX_CONNECTIONS) < config.getInt(DNodeProperties.SERVING_THREADS)) {
+			log.warn("Fewer SQL connections per pool (" + DNodeProperties.POOL_MAX_CONNECTIONS + ") than serving threads ("
+			    + DNodeProperties.SERVING_THREADS + "): connections are confined to the thread that opens them, so threads "
+			    + "querying the same partition concurrently will close and reopen each other's connections.");
+		}
+		connectionSettings = new SQLiteConnectionSettings()
+		    .setReadOnly(config.getBoolean(DNodeProperties.SQLITE_READ_ONLY, true))
+		    .setImmutable(config.getBoolean(DNodeProperties.SQLITE_IMMUTABLE, true))
+		    .setMmapSize(config.getLong(DNodeProperties.SQLITE_MMAP_SIZE, SQLiteConnectionSettings.AUTO))
+		    .setCacheSizeKb(config.getLong(DNodeProperties.SQLITE_CACHE_SIZE_KB, SQLiteConnectionSettings.AUTO))
+		    .setTempStore(config.getString(DNodeProperties.SQLITE_TEMP_STORE, null))
+		    .setStepsPerCallback(config.getInt(DNodeProperties.SQLITE_STEPS_PER_CALLBACK, 0));
+		maxCpuMillisPerQuery = config.getLong(DNodeProperties.QUERY_MAX_CPU_MILLIS, 0);
+		maxCpuMillisPerTablespace = parseCpuBudgets(config
+		    .getStringArray(DNodeProperties.QUERY_MAX_CPU_MILLIS_PER_TABLESPACE));
+		if((maxCpuMillisPerQuery > 0 || !maxCpuMillisPerTablespace.isEmpty())
+		    && !SQLite4JavaManager.isCpuTimeSupported()) {
+			throw new IllegalStateException("CPU budgets are configured (" + DNodeProperties.QUERY_MAX_CPU_MILLIS + ", "
+			    + DNodeProperties.QUERY_MAX_CPU_MILLIS_PER_TABLESPACE + ") but they can't be enforced: "
+			    + SQLite4JavaManager.getCpuTimeUnsupportedReason());
+		}
+		int maxConcurrentQueries = config.getInt(DNodeProperties.ADMISSION_MAX_CONCURRENT_QUERIES, 0);
+		if(maxConcurrentQueries > 0) {
+			admission = new AdmissionController(maxConcurrentQueries, config.getInt(
+			    DNodeProperties.ADMISSION_MAX_CONCURRENT_PER_TABLESPACE, maxConcurrentQueries), config.getInt(
+			    DNodeProperties.ADMISSION_MAX_QUEUED_PER_TABLESPACE, Integer.MAX_VALUE), config.getLong(
+			    DNodeProperties.ADMISSION_MAX_WAIT_MILLIS, config.getLong(DNodeProperties.MAX_QUERY_TIME)),
+			    AdmissionController.parseWeights(config.getStringArray(DNodeProperties.ADMISSION_TABLESPACE_WEIGHTS)));
+		}
+		warmupOpenPartitions = config.getBoolean(DNodeProperties.WARMUP_OPEN_PARTITIONS, true);
+		warmer = new PartitionWarmer(config.getLong(DNodeProperties.WARMUP_READ_BYTES, 0));
+		long resultCacheBytes = config.getLong(DNodeProperties.RESULT_CACHE_BYTES, 0);
+		if(resultCacheBytes > 0) {
+			resultCache = new ResultCache(resultCacheBytes, config.getInt(DNodeProperties.RESULT_CACHE_MAX_RESULT_BYTES,
+			    65536), config.getBoolean(DNodeProperties.RESULT_CACHE_ADMIT_ON_SECOND_HIT, false));
+		}
+		performanceTool.registerMetrics(DNodeHandler.class);
 		timeoutThread = new TimeoutThread(config.getLong(DNodeProperties.MAX_QUERY_TIME));
 		timeoutThread.start();
+		diskInventory = new DiskInventory(new File(config.getString(DNodeProperties.DATA_FOLDER)),
+		    config.getLong(DNodeProperties.FREE_SPACE_REFRESH_SECONDS, 5) * 1000);
 		// We create a Cache for holding SQL connection pools to different tablespace versions
 		// http://stackoverflow.com/questions/2583429/how-to-differentiate-between-time-to-live-and-time-to-idle-in-ehcache
 		dbCache = new Cache("dbCache", maxCachePools, false, false, Integer.MAX_VALUE, evictionSeconds);
@@ -160,6 +265,16 @@ public class DNodeHandler implements IDNodeHandler {
 		dbCache.getCacheEventNotificationService().registerListener(new CacheListener());
 		// The thread that will execute deployments asynchronously
 		deployThread = Executors.newFixedThreadPool(1);
+		multiQueryExecutor = Executors.newFixedThreadPool(config.getInt(DNodeProperties.MULTIQUERY_THREADS, 16),
+		    new ThreadFactory() {
+
+			    @Override
+			    public Thread newThread(Runnable r) {
+				    Thread thread = new Thread(r, "DNode multi-query");
+				    thread.setDaemon(true);
+				    return thread;
+			    }
+		    });
 		// Connect with the cluster.
 		hz = Hazelcast.newHazelcastInstance(HazelcastConfigBuilder.build(config));
 		coord = new CoordinationStructures(hz);
@@ -198,12 +313,18 @@ public class DNodeHandler implements IDNodeHandler {
 		File dataFolder = new File(config.getString(DNodeProperties.DATA_FOLDER));
 		File tablespaceFolder = new File(dataFolder, version.getTablespace());
 		File versionFolder = new File(tablespaceFolder, version.getVersion() + "");
+		invalidatePartitionFiles(version.getTablespace(), version.getVersion());
 		if(versionFolder.exists()) {
 			FileUtils.deleteDirectory(versionFolder);
 			log.info("-- Successfully removed " + versionFolder);
 		} else {
 			// Could happen, nothing to worry
 		}
+		diskInventory.removeVersion(version.getTablespace(), version.getVersion());
+		String[] versionsLeft = tablespaceFolder.list();
+		if(versionsLeft == null || versionsLeft.length == 0) {
+			performanceTool.removeTablespace(version.getTablespace());
+		}
 	}
 
 	/**
@@ -212,64 +333,155 @@ public class DNodeHandler implements IDNodeHandler {
 	@Override
 	public String sqlQuery(String tablespace, long version, int partition, String query)
 	    throws DNodeException {
-		
+		return sqlQuery(tablespace, version, partition, query, null, new SQLite4JavaManager.JSONResultHandler(),
+		    ResultCache.JSON);
+	}
+
+	/**
+	 * Thrift RPC method -> Given a tablespace and a version, execute the SQL query and return its result in the
+	 * columnar {@link QueryResult} format.
+	 */
+	@Override
+	public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query)
+	    throws DNodeException {
+		return sqlQuery(tablespace, version, partition, query, null, new QueryResultSerDe.Builder(),
+		    ResultCache.QUERY_RESULT);
+	}
+
+	/**
+	 * Thrift RPC method -> Given a tablespace and a version, execute the parameterized SQL query binding the given values
+	 * to its "?" parameters and return its result in the columnar {@link QueryResult} format.
+	 */
+	@Override
+	public QueryResult sqlQueryWithParams(String tablespace, long version, int partition, String query,
+	    List<QueryParam> params) throws DNodeException {
+		return sqlQuery(tablespace, version, partition, query,
+		    params == null ? null : QueryResultSerDe.deSerParams(params), new QueryResultSerDe.Builder(),
+		    ResultCache.QUERY_RESULT);
+	}
+
+	/**
+	 * Thrift RPC method -> Given a tablespace and a version, execute the (optionally parameterized) SQL query in several
+	 * partitions in parallel and return their results in the columnar {@link QueryResult} format. A partition that fails
+	 * doesn't fail the others: its {@link PartitionQueryResult} carries the error instead.
+	 */
+	@Override
+	public List<PartitionQueryResult> sqlQueryMulti(final String tablespace, final long version,
+	    List<Integer> partitions, final String query, List<QueryParam> params) throws DNodeException {
+		final List<Object> values = params == null ? null : QueryResultSerDe.deSerParams(params);
+		List<Future<QueryResult>> futures = new ArrayList<Future<QueryResult>>(partitions.size());
+		// All partitions but the last one go to the executor, the last one is run by this thread
+		for(int i = 0; i < partitions.size() - 1; i++) {
+			final int partition = partitions.get(i);
+			try {
+				futures.add(multiQueryExecutor.submit(new Callable<QueryResult>() {
+
+					@Override
+					public QueryResult call() throws Exception {
+						return sqlQuery(tablespace, version, partition, query, values, new QueryResultSerDe.Builder(),
+						    ResultCache.QUERY_RESULT);
+					}
+				}));
+			} catch(RejectedExecutionException e) {
+				throw new DNodeException(EXCEPTION_UNEXPECTED, "DNode is shutting down");
+			}
+		}
+		List<PartitionQueryResult> results = new ArrayList<PartitionQueryResult>(partitions.size());
+		for(int i = 0; i < partitions.size(); i++) {
+			PartitionQueryResult result = new PartitionQueryResult();
+			result.setPartition(partitions.get(i));
+			try {
+				if(i < futures.size()) {
+					result.setResult(futures.get(i).get());
+				} else {
+					result.setResult(sqlQuery(tablespace, version, partitions.get(i), query, values,
+					    new QueryResultSerDe.Builder(), ResultCache.QUERY_RESULT));
+				}
+			} catch(DNodeException e) {
+				result.setErrorCode(e.getCode());
+				result.setErrorMessage(e.getMsg());
+			} catch(ExecutionException e) {
+				if(e.getCause() instanceof DNodeException) {
+					result.setErrorCode(((DNodeException) e.getCause()).getCode());
+					result.setErrorMessage(((DNodeException) e.getCause()).getMsg());
+				} else {
+					result.setErrorCode(EXCEPTION_UNEXPECTED);
+					result.setErrorMessage(e.getCause() + "");
+				}
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DNodeException(EXCEPTION_UNEXPECTED, "Interrupted");
+			}
+			results.add(result);
+		}
+		return results;
+	}
+
+	/*
+	 * Executes the query against the appropriated {@link SQLite4JavaManager}, streaming its result to the given handler.
+	 * If the result cache is enabled, the result is looked up there first and offered to it afterwards, serialized with the
+	 * given codec.
+	 */
+	private <T> T sqlQuery(String tablespace, long version, int partition, String query, List<Object> params,
+	    SQLite4JavaManager.ResultHandler<T> resultHandler, ResultCache.Codec<T> codec) throws DNodeException {
+
+		// The query must finish within the maximum query time, including the time it waits for a slot
+		long deadline = System.currentTimeMillis() + timeoutThread.getTimeout();
 		try {
 			try {
 				performanceTool.startQuery();
-				// Look for the EHCache database pool cache
-				String dbKey = tablespace + "_" + version + "_" + partition;
-				Element dbPoolInCache = null;
-				synchronized(dbCache) {
-					dbPoolInCache = dbCache.get(dbKey);
-					if(dbPoolInCache == null) {
-						File dbFolder = getLocalStorageFolder(tablespace, partition, version);
-						if(!dbFolder.exists()) {
-							log.warn("Asked for " + dbFolder + " but it doesn't exist!");
-							throw new DNodeException(EXCEPTION_ORDINARY, "Requested tablespace (" + tablespace
-							    + ") + version (" + version + ") is not available.");
-						}
-						// Currently using first ".db" file but in the future there might be some convention
-						for(String file : dbFolder.list()) {
-							if(file.endsWith(".db")) {
-								// Create new EHCache item value with a {@link SQLite4JavaManager}
-								File metadata = getLocalMetadataFile(tablespace, partition, version);
-								ThriftReader reader = new ThriftReader(metadata);
-								PartitionMetadata partitionMetadata = (PartitionMetadata) reader
-								    .read(new PartitionMetadata());
-								reader.close();
-								SQLite4JavaManager manager = new SQLite4JavaManager(dbFolder + "/" + file,
-								    partitionMetadata.getInitStatements());
-								manager.setTimeoutThread(timeoutThread);
-								dbPoolInCache = new Element(dbKey, manager);
-								dbCache.put(dbPoolInCache);
-								break;
-							}
-						}
+				ResultCache.Key cacheKey = null;
+				long cacheGeneration = 0;
+				if(resultCache != null) {
+					cacheKey = new ResultCache.Key(tablespace, version, partition, query, params, codec);
+					byte[] cached = resultCache.get(cacheKey);
+					if(cached != null) {
+						// Cached results are returned as they were serialized, without CPU time as no query ran
+						T result = codec.fromBytes(cached);
+						long time = performanceTool.endQuery(tablespace, partition);
+						fingerprintStats.record(tablespace, query, time, cached.length);
+						log.info("serving query [" + tablespace + "]"  + " [" + version + "] [" + partition + "] [" + query + "] time [" + time + "] OK (cached).");
+						return result;
 					}
+					cacheGeneration = resultCache.getGeneration(tablespace, version);
 				}
-				if(dbPoolInCache != null) {
+				T result;
+				SQLite4JavaManager.QueryBudget budget = new SQLite4JavaManager.QueryBudget(deadline, getMaxCpuMillis(tablespace));
+				if(admission != null) {
+					admission.acquire(tablespace);
+				}
+				try {
+					SQLite4JavaManager manager = getManager(tablespace, version, partition);
 					// Query the {@link SQLite4JavaManager} and return
-					String result = ((SQLite4JavaManager) dbPoolInCache.getObjectValue()).query(query,
-					    maxResultsPerQuery);
-					long time = performanceTool.endQuery();
-					log.info("serving query [" + tablespace + "]"  + " [" + version + "] [" + partition + "] [" + query + "] time [" + time + "] OK.");
-//					double prob = performanceTool.getHistogram().getLeftAccumulatedProbability(time);
-//					if(prob > 0.95) {
-//						// slow query!
-//						log.warn("[SLOW QUERY] Query time over 95 percentil: [" + query + "] time [" + time + "]");
-//						slowQueries++;
-//					}
-					if(time > absoluteSlowQueryLimit) {
-						// slow query!
-						log.warn("[SLOW QUERY] Query time over absolute slow query time (" + absoluteSlowQueryLimit + ") : [" + query + "] time [" + time + "]");						
-						slowQueries++;
+					result = manager.query(query, params, maxResultsPerQuery, resultHandler, budget);
+				} finally {
+					if(admission != null) {
+						admission.release(tablespace);
 					}
-					return result;
-				} else {
-					throw new DNodeException(
-					    EXCEPTION_ORDINARY,
-					    "Deployed folder doesn't contain a .db file - This shouldn't happen. This means there is a bug or inconsistency in the deploy process.");
 				}
+				if(cacheKey != null) {
+					resultCache.put(cacheKey, codec.toBytes(result), cacheGeneration);
+				}
+				setCpuMicros(result, budget.getCpuMicros());
+				long time = performanceTool.endQuery(tablespace, partition);
+				fingerprintStats.record(tablespace, query, time, resultBytes(result));
+				log.info("serving query [" + tablespace + "]"  + " [" + version + "] [" + partition + "] [" + query + "] time [" + time + "] cpu [" + budget.getCpuMicros() + "] OK.");
+				if(time > absoluteSlowQueryLimit) {
+					// slow query!
+					log.warn("[SLOW QUERY] Query time over absolute slow query time (" + absoluteSlowQueryLimit + ") : [" + query + "] time [" + time + "]");						
+					slowQueries.incrementAndGet();
+					logSlowQuery(tablespace, version, partition, query, params, time, budget);
+				}
+				return result;
+			} catch(DNodeException e) {
+				if(e.getCode() == EXCEPTION_OVERLOADED) {
+					// Expected under load, the QNode will try another replica
+					throw e;
+				}
+				unexpectedException(e);
+				throw new DNodeException(EXCEPTION_UNEXPECTED, e.getMessage());
+			} catch(SQLite4JavaManager.BudgetExceededException e) {
+				throw new DNodeException(EXCEPTION_OVER_BUDGET, e.getMessage());
 			} catch(Throwable e) {
 				unexpectedException(e);
 				throw new DNodeException(EXCEPTION_UNEXPECTED, e.getMessage());
@@ -281,6 +493,209 @@ public class DNodeHandler implements IDNodeHandler {
 		}
 	}
 
+	/*
+	 * Adds a slow query to the {@link SlowQueryLog}, which captures its plan in the background.
+	 */
+	private void logSlowQuery(final String tablespace, final long version, final int partition, final String query,
+	    final List<Object> params, long time, SQLite4JavaManager.QueryBudget budget) {
+		SlowQuery slowQuery = new SlowQuery();
+		slowQuery.setTablespace(tablespace);
+		slowQuery.setVersion(version);
+		slowQuery.setPartition(partition);
+		slowQuery.setQuery(query);
+		slowQuery.setTime(time);
+		slowQuery.setRows(budget.getRows());
+		slowQuery.setCpuMicros(budget.getCpuMicros());
+		slowQuery.setTimestamp(System.currentTimeMillis());
+		slowQueryLog.add(slowQuery, new Callable<List<String>>() {
+
+			@Override
+			public List<String> call() throws Exception {
+				return getManager(tablespace, version, partition).query("EXPLAIN QUERY PLAN " + query, params,
+				    maxResultsPerQuery, new SlowQueryLog.QueryPlanHandler());
+			}
+		});
+	}
+
+	/*
+	 * Budget of CPU time in milliseconds of the queries of a tablespace.
+	 */
+	private long getMaxCpuMillis(String tablespace) {
+		Long maxCpuMillis = maxCpuMillisPerTablespace.get(tablespace);
+		return maxCpuMillis != null ? maxCpuMillis : maxCpuMillisPerQuery;
+	}
+
+	/*
+	 * Binary results report the CPU time that the query consumed.
+	 */
+	private static void setCpuMicros(Object result, long cpuMicros) {
+		if(result instanceof QueryResult) {
+			((QueryResult) result).setCpuMicros(cpuMicros);
+		}
+	}
+
+	/*
+	 * Approximate size in bytes of a result, for the query fingerprint statistics.
+	 */
+	private static long resultBytes(Object result) {
+		if(result instanceof QueryResult) {
+			return QueryResultSerDe.sizeOf((QueryResult) result);
+		} else if(result instanceof String) {
+			return ((String) result).length();
+		}
+		return 0;
+	}
+
+	/**
+	 * Parses lists of "tablespace1:millis1,tablespace2:millis2" into a map.
+	 */
+	static Map<String, Long> parseCpuBudgets(String... budgetLists) {
+		Map<String, Long> result = new HashMap<String, Long>();
+		for(String budgets : budgetLists) {
+			for(String budget : budgets.split(",")) {
+				budget = budget.trim();
+				if(budget.isEmpty()) {
+					continue;
+				}
+				int separator = budget.lastIndexOf(':');
+				if(separator <= 0) {
+					throw new IllegalArgumentException("Invalid CPU budget [" + budget + "], should be tablespace:millis");
+				}
+				result.put(budget.substring(0, separator).trim(), Long.parseLong(budget.substring(separator + 1).trim()));
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Returns the {@link SQLite4JavaManager} of a tablespace, version and partition from the EHCache, creating it if needed.
+	 * Lookups don't share any lock and only one thread creates the manager of each key while the others wait for it.
+	 */
+	private SQLite4JavaManager getManager(final String tablespace, final long version, final int partition)
+	    throws Exception {
+		final String dbKey = tablespace + "_" + version + "_" + partition;
+		Element dbPoolInCache = dbCache.get(dbKey);
+		if(dbPoolInCache != null) {
+			return (SQLite4JavaManager) dbPoolInCache.getObjectValue();
+		}
+		FutureTask<SQLite4JavaManager> loader = new FutureTask<SQLite4JavaManager>(new Callable<SQLite4JavaManager>() {
+
+			@Override
+			public SQLite4JavaManager call() throws Exception {
+				// Someone may have loaded it between our lookup and our loader being published
+				Element dbPoolInCache = dbCache.get(dbKey);
+				if(dbPoolInCache != null) {
+					return (SQLite4JavaManager) dbPoolInCache.getObjectValue();
+				}
+				PartitionFiles partitionFiles = getPartitionFiles(dbKey, tablespace, version, partition);
+				// Create new EHCache item value with a {@link SQLite4JavaManager}
+				SQLite4JavaManager manager = new SQLite4JavaManager(partitionFiles.dbFile, partitionFiles.metadata
+				    .getInitStatements());
+				manager.setTimeoutThread(timeoutThread);
+				manager.setStatementCache(statementCacheSize, statementCacheStats);
+				manager.setConnectionPoolLimits(poolLimits);
+				manager.setConnectionSettings(connectionSettings);
+				dbCache.put(new Element(dbKey, manager));
+				return manager;
+			}
+		});
+		FutureTask<SQLite4JavaManager> currentLoader = managerLoaders.putIfAbsent(dbKey, loader);
+		if(currentLoader == null) {
+			currentLoader = loader;
+			try {
+				loader.run();
+			} finally {
+				managerLoaders.remove(dbKey, loader);
+			}
+		}
+		try {
+			return currentLoader.get();
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/*
+	 * Returns the .db file and the metadata of a tablespace, version and partition, looking for them in the local storage
+	 * only the first time.
+	 */
+	private PartitionFiles getPartitionFiles(String dbKey, String tablespace, long version, int partition)
+	    throws DNodeException, IOException {
+		PartitionFiles partitionFiles = partitionFilesCache.get(dbKey);
+		if(partitionFiles != null) {
+			return partitionFiles;
+		}
+		File dbFolder = getLocalStorageFolder(tablespace, partition, version);
+		if(!dbFolder.exists()) {
+			log.warn("Asked for " + dbFolder + " but it doesn't exist!");
+			throw new DNodeException(EXCEPTION_ORDINARY, "Requested tablespace (" + tablespace + ") + version ("
+			    + version + ") is not available.");
+		}
+		// Currently using first ".db" file but in the future there might be some convention
+		for(String file : dbFolder.list()) {
+			if(file.endsWith(".db")) {
+				File metadata = getLocalMetadataFile(tablespace, partition, version);
+				ThriftReader reader = new ThriftReader(metadata);
+				PartitionMetadata partitionMetadata = (PartitionMetadata) reader.read(new PartitionMetadata());
+				reader.close();
+				partitionFiles = new PartitionFiles(dbFolder + "/" + file, partitionMetadata);
+				partitionFilesCache.put(dbKey, partitionFiles);
+				return partitionFiles;
+			}
+		}
+		throw new DNodeException(
+		    EXCEPTION_ORDINARY,
+		    "Deployed folder doesn't contain a .db file - This shouldn't happen. This means there is a bug or inconsistency in the deploy process.");
+	}
+
+	/*
+	 * Forgets the files of a tablespace and version that were resolved for serving queries, and the results of queries
+	 * to them, as they have changed.
+	 */
+	private void invalidatePartitionFiles(String tablespace, long version) {
+		if(resultCache != null) {
+			resultCache.invalidate(tablespace, version);
+		}
+		String keyPrefix = tablespace + "_" + version + "_";
+		for(String dbKey : partitionFilesCache.keySet()) {
+			if(dbKey.startsWith(keyPrefix)) {
+				partitionFilesCache.remove(dbKey);
+			}
+		}
+	}
+
+	/*
+	 * Creates the managers of the deployed partitions and reads their files into the OS page cache within the configured
+	 * budget. No connections are opened: they are confined to the thread that opens them, so only the serving threads
+	 * can open connections that queries will use. Failures are logged but never fail the deploy, as they would show up
+	 * again when serving queries.
+	 */
+	private void warmup(List<DeployAction> deployActions, long version) {
+		long start = System.currentTimeMillis();
+		long budget = warmer.getReadBudget();
+		for(DeployAction action : deployActions) {
+			String tablespace = action.getTablespace();
+			int partition = action.getPartition();
+			try {
+				if(warmupOpenPartitions) {
+					getManager(tablespace, version, partition);
+				}
+				if(budget > 0) {
+					String dbKey = tablespace + "_" + version + "_" + partition;
+					File dbFile = new File(getPartitionFiles(dbKey, tablespace, version, partition).dbFile);
+					budget -= PartitionWarmer.readIntoPageCache(dbFile, budget);
+				}
+			} catch(Throwable t) {
+				log.warn("Error warming up [" + tablespace + "] [" + version + "] [" + partition + "]", t);
+			}
+		}
+		log.info("Warmed up [" + deployActions.size() + "] partitions of version [" + version + "] reading ["
+		    + (warmer.getReadBudget() - budget) + "] bytes in [" + (System.currentTimeMillis() - start) + "] ms.");
+	}
+
 	private void abortDeploy(long version, String errorMessage) {
 		ConcurrentMap<String, String> panel = coord.getDeployErrorPanel(version);
 		panel.put(whoAmI(), errorMessage);
@@ -332,8 +747,13 @@ public class DNodeHandler implements IDNodeHandler {
 										}
 										// 4- Perform a "mv" for finally making the data available
 										FileUtils.moveDirectory(fetchedContent, dbFolder);
+										diskInventory.addPartition(action.getTablespace(), version, action.getPartition());
+										invalidatePartitionFiles(action.getTablespace(), version);
 									}
 
+									// Warm up the new partitions before telling anyone that they are ready
+									warmup(deployActions, version);
+
 									// Publish new DNodeInfo in distributed registry.
 									// This makes QNodes notice that a new version is available...
 									// PartitionMap and ReplicationMap will be built incrementally as DNodes finish.
@@ -431,26 +851,33 @@ public class DNodeHandler implements IDNodeHandler {
 			status.setFailedQueries(failedQueries.get());
 			status.setnQueries(performanceTool.getNQueries());
 			status.setAverage(performanceTool.getAverage());
-			status.setSlowQueries(slowQueries);
-			status.setDeployInProgress(deployInProgress.get() > 0);
-			File folder = new File(config.getString(DNodeProperties.DATA_FOLDER));
-			status.setFreeSpaceInDisk(FileSystemUtils.freeSpaceKb());
-			if(folder.exists()) {
-				status.setOccupiedSpaceInDisk(FileUtils.sizeOfDirectory(folder));
-				Collection<File> files = FileUtils.listFilesAndDirs(folder, TrueFileFilter.INSTANCE,
-				    TrueFileFilter.INSTANCE);
-				status.setFiles(new ArrayList<String>(Lists.transform(Lists.newArrayList(files),
-				    new Function<File, String>() {
-					    @Override
-					    public String apply(File file) {
-						    return file.getAbsolutePath() + " (" + FileUtils.sizeOf(file) + " bytes)";
-					    }
-				    })));
-				Collections.sort(status.getFiles());
-			} else {
-				status.setOccupiedSpaceInDisk(0);
-				status.setFiles(new ArrayList<String>());
+			status.setLatency(performanceTool.getLatency());
+			status.setTablespaceLatencies(performanceTool.getTablespaceLatencies());
+			status.setPartitionLatencies(performanceTool.getPartitionLatencies(config.getInt(
+			    DNodeProperties.STATUS_TOP_PARTITIONS, 20)));
+			status.setSlowQueries(slowQueries.get());
+			status.setSlowQueryLog(slowQueryLog.getSlowQueries());
+			status.setTopQueries(fingerprintStats.getTop());
+			status.setStatementCacheHits(statementCacheStats.getHits());
+			status.setStatementCacheMisses(statementCacheStats.getMisses());
+			status.setOpenConnections(poolLimits.getTotalConnections());
+			if(admission != null) {
+				status.setRunningQueries(admission.getRunningQueries());
+				status.setQueuedQueries(admission.getQueuedQueries());
+				status.setRejectedQueries(admission.getRejectedQueries());
 			}
+			if(resultCache != null) {
+				status.setResultCacheHits(resultCache.getHits());
+				status.setResultCacheMisses(resultCache.getMisses());
+				status.setResultCacheHitRatio(resultCache.getHitRatio());
+				status.setResultCacheBytes(resultCache.getBytes());
+				status.setResultCacheEntries(resultCache.getEntries());
+			}
+			status.setDeployInProgress(deployInProgress.get() > 0);
+			// From memory, status() is called often and the data folder may have thousands of files
+			status.setFreeSpaceInDisk(diskInventory.getFreeSpaceKb());
+			status.setOccupiedSpaceInDisk(diskInventory.getOccupiedBytes());
+			status.setFiles(diskInventory.getFiles());
 			return JSONSerDe.ser(status);
 		} catch(Throwable t) {
 			unexpectedException(t);
@@ -495,8 +922,13 @@ public class DNodeHandler implements IDNodeHandler {
 	 */
 	public void stop() throws Exception {
 		dbCache.dispose();
+		poolLimits.close();
 		deployThread.shutdownNow();
+		multiQueryExecutor.shutdownNow();
 		timeoutThread.interrupt();
+		diskInventory.close();
+		slowQueryLog.close();
+		fingerprintStats.close();
 		hz.getLifecycleService().shutdown();
 	}
 
@@ -30,6 +30,10 @@ public class DNodeProperties {
 	 * The data folder that will be used for storing deployed SQL data stores.
 	 */
 	public final static String DATA_FOLDER = "dnode.data.folder";
+	/**
+	 * How often, in seconds, the free space of the disk of the data folder is read for the status of the DNode.
+	 */
+	public final static String FREE_SPACE_REFRESH_SECONDS = "dnode.free.space.refresh.seconds";
 	/**
 	 * This DNode's host name
 	 */
@@ -42,6 +46,16 @@ public class DNodeProperties {
 	 * How many threads will be allocated for serving requests in Thrift's ThreadPoolServer
 	 */
 	public final static String SERVING_THREADS = "dnode.serving.threads";
+	/**
+	 * The Thrift server used by the DNode: "threadpool", where each client connection has its own serving thread, or
+	 * "hsha", where a selector thread multiplexes all the connections and hands requests to the serving threads. QNodes
+	 * use framed transport when it is "hsha", so all the nodes of a cluster must agree on it.
+	 */
+	public final static String SERVER_MODE = "dnode.server.mode";
+	/**
+	 * In "hsha" server mode, the maximum amount of memory in bytes for buffering incoming requests.
+	 */
+	public final static String SERVER_MAX_READ_BUFFER_BYTES = "dnode.server.max.read.buffer.bytes";
 	/**
 	 * Whether this DNode should find the next available port in case "dnode.port" is busy or fail otherwise.
 	 */
@@ -56,6 +70,15 @@ public class DNodeProperties {
 	 * The amount of seconds that the DNode will wait before canceling a too-long deployment.
 	 */
 	public final static String DEPLOY_TIMEOUT_SECONDS = "dnode.deploy.timeout.seconds";
+	/**
+	 * Whether deploys load the metadata of the new partitions and create their SQL connection pools before finishing.
+	 */
+	public final static String WARMUP_OPEN_PARTITIONS = "dnode.warmup.open.partitions";
+	/**
+	 * Maximum number of bytes of the new partition files that each deploy reads into the OS page cache before finishing.
+	 * 0 disables it.
+	 */
+	public final static String WARMUP_READ_BYTES = "dnode.warmup.read.bytes";
 	/**
 	 * A hard limit on the number of results per each SQL query that this DNode may send back to QNodes.
 	 */
@@ -75,8 +98,125 @@ public class DNodeProperties {
 	 * In milliseconds, queries that are slower will be logged with a WARNING. 
 	 */
 	public final static String SLOW_QUERY_ABSOLUTE_LIMIT = "dnode.slow.query.abs.limit";
+	/**
+	 * Number of slow queries that the DNode keeps in memory, together with their query plans, for its status.
+	 */
+	public final static String SLOW_QUERY_LOG_SIZE = "dnode.slow.query.log.size";
+	/**
+	 * Maximum number of slow queries waiting for their query plan to be captured. Further slow queries are logged without
+	 * plan.
+	 */
+	public final static String SLOW_QUERY_LOG_MAX_PENDING_PLANS = "dnode.slow.query.log.max.pending.plans";
+	/**
+	 * The number of query fingerprints (queries without their literal values) whose statistics are kept per tablespace.
+	 */
+	public final static String TOP_QUERIES_SIZE = "dnode.top.queries.size";
+	/**
+	 * The number of partitions, those with most queries, whose latencies are reported by the status of the DNode.
+	 */
+	public final static String STATUS_TOP_PARTITIONS = "dnode.status.top.partitions";
 	/**
 	 * Queries that run for more than this time will be interrupted.
 	 */
 	public final static String MAX_QUERY_TIME = "dnode.max.query.time";
-}
\ No newline at end of file
+	/**
+	 * Maximum CPU time in milliseconds that a query can consume before being interrupted, regardless of how long it
+	 * takes. 0 for no limit.
+	 */
+	public final static String QUERY_MAX_CPU_MILLIS = "dnode.query.max.cpu.millis";
+	/**
+	 * Budgets of CPU time of the queries of specific tablespaces, as "tablespace1:millis1,tablespace2:millis2".
+	 * Tablespaces not listed use {@link #QUERY_MAX_CPU_MILLIS}.
+	 */
+	public final static String QUERY_MAX_CPU_MILLIS_PER_TABLESPACE = "dnode.query.max.cpu.millis.per.tablespace";
+	/**
+	 * Number of SQLite VM steps between two calls of the progress handler of sqlite4java, which checks whether the
+	 * statement has been cancelled.
+	 */
+	public final static String SQLITE_STEPS_PER_CALLBACK = "dnode.sqlite.steps.per.callback";
+	/**
+	 * Number of threads that run the partitions of multi-partition queries (sqlQueryMulti) in parallel. Their queries
+	 * still go through admission control.
+	 */
+	public final static String MULTIQUERY_THREADS = "dnode.multiquery.threads";
+	/**
+	 * Maximum number of queries that the DNode runs at the same time, the rest wait for a slot. 0 disables admission
+	 * control.
+	 */
+	public final static String ADMISSION_MAX_CONCURRENT_QUERIES = "dnode.admission.max.concurrent.queries";
+	/**
+	 * Maximum number of queries of the same tablespace that the DNode runs at the same time.
+	 */
+	public final static String ADMISSION_MAX_CONCURRENT_PER_TABLESPACE = "dnode.admission.max.concurrent.per.tablespace";
+	/**
+	 * Maximum number of queries of the same tablespace waiting for a slot. Further queries are rejected.
+	 */
+	public final static String ADMISSION_MAX_QUEUED_PER_TABLESPACE = "dnode.admission.max.queued.per.tablespace";
+	/**
+	 * Queries that wait longer than this amount of milliseconds for a slot are rejected.
+	 */
+	public final static String ADMISSION_MAX_WAIT_MILLIS = "dnode.admission.max.wait.millis";
+	/**
+	 * Share of the query slots that each tablespace gets when there is contention, as "tablespace1:weight1,tablespace2:weight2".
+	 * Tablespaces not listed have weight 1.
+	 */
+	public final static String ADMISSION_TABLESPACE_WEIGHTS = "dnode.admission.tablespace.weights";
+	/**
+	 * Maximum number of prepared statements that each SQL connection will keep for reusing them across queries with the
+	 * same SQL text. 0 disables statement caching.
+	 */
+	public final static String STATEMENT_CACHE_SIZE = "dnode.statement.cache.size";
+	/**
+	 * Minimum number of SQL connections per tablespace, version and partition that are kept open even if they are idle.
+	 */
+	public final static String POOL_MIN_CONNECTIONS = "dnode.pool.min.connections";
+	/**
+	 * Maximum number of SQL connections per tablespace, version and partition, which is also the maximum number of
+	 * concurrent queries for each of them.
+	 */
+	public final static String POOL_MAX_CONNECTIONS = "dnode.pool.max.connections";
+	/**
+	 * Maximum number of SQL connections among all the connection pools of this DNode. When it is reached, idle connections
+	 * of other pools are closed to make room for new ones.
+	 */
+	public final static String POOL_MAX_TOTAL_CONNECTIONS = "dnode.pool.max.total.connections";
+	/**
+	 * SQL connections that are idle for more than this amount of seconds are closed. 0 disables it.
+	 */
+	public final static String POOL_IDLE_SECONDS = "dnode.pool.idle.seconds";
+	/**
+	 * Open SQL connections in read-only mode. Deployed partitions are never written by the DNode.
+	 */
+	public final static String SQLITE_READ_ONLY = "dnode.sqlite.read.only";
+	/**
+	 * Treat partition files as immutable: read-only connections keep their lock and their page cache across queries.
+	 */
+	public final static String SQLITE_IMMUTABLE = "dnode.sqlite.immutable";
+	/**
+	 * Bytes of each partition file that SQLite reads through memory-mapped I/O. -1 maps the whole file, 0 disables it.
+	 */
+	public final static String SQLITE_MMAP_SIZE = "dnode.sqlite.mmap.size";
+	/**
+	 * Page cache of each SQL connection in KB. -1 derives it from the partition file size and the physical memory, 0
+	 * leaves the SQLite default.
+	 */
+	public final static String SQLITE_CACHE_SIZE_KB = "dnode.sqlite.cache.size.kb";
+	/**
+	 * Where SQLite stores temporary tables and indices used by sorts and groupings: DEFAULT, FILE or MEMORY.
+	 */
+	public final static String SQLITE_TEMP_STORE = "dnode.sqlite.temp.store";
+	/**
+	 * Size in bytes of the cache of query results. Each tablespace version is immutable so results can be served again
+	 * without querying SQLite until the version is removed. 0 disables the result cache.
+	 */
+	public final static String RESULT_CACHE_BYTES = "dnode.result.cache.bytes";
+	/**
+	 * Results bigger than this amount of bytes are not kept in the result cache.
+	 */
+	public final static String RESULT_CACHE_MAX_RESULT_BYTES = "dnode.result.cache.max.result.bytes";
+	/**
+	 * If true, a result is only kept in the result cache the second time its query is seen, so that queries that are
+	 * issued once don't evict the popular ones.
+	 */
+	public final static String RESULT_CACHE_ADMIT_ON_SECOND_HIT = "dnode.result.cache.admit.on.second.hit";
+}
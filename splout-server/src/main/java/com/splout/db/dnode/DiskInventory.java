@@ -0,0 +1,181 @@
+package com.splout.db.dnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory inventory of the files that a DNode keeps in its data folder (tablespace / version / partition), so that
+ * {@link DNodeHandler#status()} doesn't need to walk the folder. The folder is scanned once when the inventory is
+ * created and then the deploy and delete paths tell the inventory which partitions they add and which versions they
+ * remove.
+ * <p>
+ * The free space of the disk is read by a daemon thread every few seconds, so reading it is also free. Changes are
+ * synchronized, while sizes can be read at any time without locking.
+ */
+public class DiskInventory {
+
+	private final File dataFolder;
+	// Absolute path -> size in bytes of each file, sorted so that the files of a folder are contiguous
+	private final TreeMap<String, Long> files = new TreeMap<String, Long>();
+	private final AtomicLong occupiedBytes = new AtomicLong(0);
+	// The list of files as reported by the status, rebuilt only when the inventory changes
+	private List<String> fileList = null;
+
+	private volatile long freeSpaceKb;
+	private Timer freeSpaceReader;
+
+	/**
+	 * @param freeSpaceRefreshMillis
+	 *          How often the free space of the disk is read. Non-positive values read it only once.
+	 */
+	public DiskInventory(File dataFolder, long freeSpaceRefreshMillis) {
+		this.dataFolder = dataFolder;
+		synchronized(this) {
+			addFolder(dataFolder);
+		}
+		readFreeSpace();
+		if(freeSpaceRefreshMillis > 0) {
+			freeSpaceReader = new Timer("DiskInventory free space reader", true);
+			freeSpaceReader.schedule(new TimerTask() {
+
+				@Override
+				public void run() {
+					readFreeSpace();
+				}
+			}, freeSpaceRefreshMillis, freeSpaceRefreshMillis);
+		}
+	}
+
+	private void readFreeSpace() {
+		// File.getUsableSpace() is a statfs() call, unlike FileSystemUtils.freeSpaceKb() that forks a "df"
+		File folder = dataFolder;
+		while(folder != null && !folder.exists()) {
+			folder = folder.getAbsoluteFile().getParentFile();
+		}
+		freeSpaceKb = folder != null ? folder.getUsableSpace() / 1024 : 0;
+	}
+
+	/**
+	 * Records the files of a partition that has just been moved into the data folder, together with its metadata file.
+	 * Any previous files of the partition are forgotten.
+	 */
+	public synchronized void addPartition(String tablespace, long version, int partition) {
+		File versionFolder = new File(new File(dataFolder, tablespace), version + "");
+		File partitionFolder = new File(versionFolder, partition + "");
+		removeFolder(partitionFolder);
+		addFolder(partitionFolder);
+		addFile(new File(versionFolder, partition + ".meta"));
+	}
+
+	/**
+	 * Forgets the files of a tablespace version that has been deleted.
+	 */
+	public synchronized void removeVersion(String tablespace, long version) {
+		removeFolder(new File(new File(dataFolder, tablespace), version + ""));
+	}
+
+	private void addFolder(File folder) {
+		File[] children = folder.listFiles();
+		if(children == null) {
+			return;
+		}
+		for(File child : children) {
+			if(child.isDirectory()) {
+				addFolder(child);
+			} else {
+				addFile(child);
+			}
+		}
+	}
+
+	private void addFile(File file) {
+		if(!file.isFile()) {
+			return;
+		}
+		long size = file.length();
+		Long previous = files.put(file.getAbsolutePath(), size);
+		occupiedBytes.addAndGet(size - (previous != null ? previous : 0));
+		fileList = null;
+	}
+
+	private void removeFolder(File folder) {
+		String prefix = folder.getAbsolutePath() + File.separator;
+		// All the paths that start with the prefix, as the separator is followed by any char greater than it
+		NavigableMap<String, Long> contents = files.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+		long removedBytes = 0;
+		for(long size : contents.values()) {
+			removedBytes += size;
+		}
+		contents.clear();
+		occupiedBytes.addAndGet(-removedBytes);
+		fileList = null;
+	}
+
+	/**
+	 * Bytes taken by the files of the data folder.
+	 */
+	public long getOccupiedBytes() {
+		return occupiedBytes.get();
+	}
+
+	/**
+	 * Free space of the disk of the data folder in KB, as of the last reading.
+	 */
+	public long getFreeSpaceKb() {
+		return freeSpaceKb;
+	}
+
+	/**
+	 * The files of the data folder as "path (size bytes)", sorted by path. The list is shared and can't be modified.
+	 */
+	public synchronized List<String> getFiles() {
+		List<String> list = fileList;
+		if(list == null) {
+			list = new ArrayList<String>(files.size());
+			for(Map.Entry<String, Long> entry : files.entrySet()) {
+				list.add(entry.getKey() + " (" + entry.getValue() + " bytes)");
+			}
+			list = Collections.unmodifiableList(list);
+			fileList = list;
+		}
+		return list;
+	}
+
+	/**
+	 * Stops reading the free space of the disk.
+	 */
+	public void close() {
+		if(freeSpaceReader != null) {
+			freeSpaceReader.cancel();
+		}
+	}
+}
@@ -26,6 +26,9 @@ import java.util.List;
 import com.splout.db.common.SploutConfiguration;
 import com.splout.db.thrift.DNodeException;
 import com.splout.db.thrift.DeployAction;
+import com.splout.db.thrift.PartitionQueryResult;
+import com.splout.db.thrift.QueryParam;
+import com.splout.db.thrift.QueryResult;
 import com.splout.db.thrift.RollbackAction;
 import com.splout.db.thrift.TablespaceVersion;
 
@@ -46,6 +49,15 @@ public interface IDNodeHandler {
 	public String sqlQuery(String tablespace, long version, int partition, String query)
 	    throws DNodeException;
 
+	public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query)
+	    throws DNodeException;
+
+	public QueryResult sqlQueryWithParams(String tablespace, long version, int partition, String query,
+	    List<QueryParam> params) throws DNodeException;
+
+	public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions,
+	    String query, List<QueryParam> params) throws DNodeException;
+
 	public String deploy(final List<DeployAction> deployActions, final long version) throws DNodeException;
 
 	public String rollback(List<RollbackAction> rollbackActions, String ignoreMe) throws DNodeException;
@@ -0,0 +1,73 @@
+package com.splout.db.dnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Helps the {@link DNode} warm up the partitions of a new version before it becomes visible, so that the first queries
+ * after a version switch don't pay for cold disk reads. It reads partition files sequentially into the OS page cache
+ * within a budget of bytes.
+ */
+public class PartitionWarmer {
+
+	// Size of the buffer used to read files sequentially
+	final static int READ_BUFFER_SIZE = 1024 * 1024;
+
+	private final long readBudget;
+
+	/**
+	 * @param readBudget
+	 *          Maximum number of bytes read into the page cache per deploy.
+	 */
+	public PartitionWarmer(long readBudget) {
+		this.readBudget = readBudget;
+	}
+
+	public long getReadBudget() {
+		return readBudget;
+	}
+
+	/**
+	 * Reads the file sequentially so that its pages end up in the OS page cache, up to the given number of bytes.
+	 * Returns the number of bytes read.
+	 */
+	public static long readIntoPageCache(File file, long maxBytes) throws IOException {
+		byte[] buffer = new byte[(int) Math.min(READ_BUFFER_SIZE, Math.max(maxBytes, 1))];
+		long read = 0;
+		FileInputStream in = new FileInputStream(file);
+		try {
+			while(read < maxBytes) {
+				int n = in.read(buffer, 0, (int) Math.min(buffer.length, maxBytes - read));
+				if(n < 0) {
+					break;
+				}
+				read += n;
+			}
+		} finally {
+			in.close();
+		}
+		return read;
+	}
+}
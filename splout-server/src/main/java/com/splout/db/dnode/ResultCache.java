@@ -0,0 +1,379 @@
+package com.splout.db.dnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocol;
+
+import com.splout.db.thrift.QueryResult;
+
+/**
+ * A cache of query results for the {@link DNode}. Deployed partitions are immutable, so the result of a query for a
+ * tablespace, version and partition never changes and can be served again without executing it. Results are kept
+ * serialized, the cache is bounded by a budget in bytes and entries are evicted in approximate LRU order (CLOCK: a hit
+ * only flags the entry, so lookups never lock). Results that are too big are never admitted and, optionally, a result is
+ * only admitted the second time its query is seen, so that one-off queries don't evict popular ones. Entries of a
+ * tablespace version are invalidated when the version is removed.
+ */
+public class ResultCache {
+
+	/**
+	 * Turns results of some type into bytes and back.
+	 */
+	public static interface Codec<T> {
+
+		public byte[] toBytes(T result) throws Exception;
+
+		public T fromBytes(byte[] bytes) throws Exception;
+	}
+
+	/**
+	 * Results of sqlQuery(): JSON strings.
+	 */
+	public final static Codec<String> JSON = new Codec<String>() {
+
+		@Override
+		public byte[] toBytes(String result) throws UnsupportedEncodingException {
+			return result.getBytes("UTF-8");
+		}
+
+		@Override
+		public String fromBytes(byte[] bytes) throws UnsupportedEncodingException {
+			return new String(bytes, "UTF-8");
+		}
+	};
+
+	/**
+	 * Results of sqlQueryBinary(): {@link QueryResult}s in Thrift's binary protocol. Cached results are not decoded, see
+	 * {@link SerializedQueryResult}.
+	 */
+	public final static Codec<QueryResult> QUERY_RESULT = new Codec<QueryResult>() {
+
+		@Override
+		public byte[] toBytes(QueryResult result) throws TException {
+			return new TSerializer().serialize(result);
+		}
+
+		@Override
+		public QueryResult fromBytes(byte[] bytes) {
+			return new SerializedQueryResult(bytes);
+		}
+	};
+
+	/**
+	 * A {@link QueryResult} kept in the form it is sent to the QNode, so that a cached result is written to the
+	 * connection as is instead of being decoded and serialized again. Its fields are not set: it is only meant to be
+	 * returned by the DNode, use {@link #decode()} to read it.
+	 */
+	@SuppressWarnings("serial")
+	public static class SerializedQueryResult extends QueryResult {
+
+		private final byte[] bytes;
+
+		public SerializedQueryResult(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		public QueryResult decode() throws TException {
+			QueryResult result = new QueryResult();
+			new TDeserializer().deserialize(result, bytes);
+			return result;
+		}
+
+		@Override
+		public void write(TProtocol oprot) throws TException {
+			if(oprot.getClass() == TBinaryProtocol.class) {
+				// A struct is encoded the same way whether it is nested or not
+				oprot.getTransport().write(bytes);
+			} else {
+				decode().write(oprot);
+			}
+		}
+	}
+
+	/**
+	 * Identifies a result: the tablespace, version and partition it comes from, the query and the values bound to its
+	 * parameters (if any) and the format the result is serialized in.
+	 */
+	public static class Key {
+
+		final String tablespace;
+		final long version;
+		final int partition;
+		final String query;
+		final List<Object> params;
+		final Codec<?> codec;
+		final int hashCode;
+
+		public Key(String tablespace, long version, int partition, String query, List<Object> params, Codec<?> codec) {
+			this.tablespace = tablespace;
+			this.version = version;
+			this.partition = partition;
+			this.query = query;
+			this.codec = codec;
+			if(params == null) {
+				this.params = null;
+			} else {
+				// byte arrays don't implement equals() by content
+				this.params = new ArrayList<Object>(params.size());
+				for(Object param : params) {
+					this.params.add(param instanceof byte[] ? ByteBuffer.wrap((byte[]) param) : param);
+				}
+			}
+			int hash = tablespace.hashCode();
+			hash = 31 * hash + (int) (version ^ (version >>> 32));
+			hash = 31 * hash + partition;
+			hash = 31 * hash + query.hashCode();
+			hash = 31 * hash + (this.params == null ? 0 : this.params.hashCode());
+			hash = 31 * hash + codec.hashCode();
+			this.hashCode = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hashCode == other.hashCode && version == other.version && partition == other.partition
+			    && codec == other.codec && tablespace.equals(other.tablespace) && query.equals(other.query)
+			    && (params == null ? other.params == null : params.equals(other.params));
+		}
+
+		/*
+		 * Approximate memory footprint of the key, accounted in the budget together with the result.
+		 */
+		int size() {
+			return 64 + 2 * (tablespace.length() + query.length()) + (params == null ? 0 : 16 * params.size());
+		}
+	}
+
+	/*
+	 * A cached result, flagged when it is hit so that the eviction gives it a second chance.
+	 */
+	private static class Entry {
+
+		final Key key;
+		final byte[] result;
+		final int size;
+		volatile boolean referenced = false;
+
+		Entry(Key key, byte[] result) {
+			this.key = key;
+			this.result = result;
+			this.size = key.size() + result.length;
+		}
+	}
+
+	private final long maxBytes;
+	private final int maxResultBytes;
+	// If not null, a query needs to be seen twice (its hash found here) for its result to be admitted
+	private final int[] doorkeeper;
+
+	private final ConcurrentMap<Key, Entry> results = new ConcurrentHashMap<Key, Entry>(1024);
+	// The clock hand sweeps entries in insertion order, hit entries are moved to the back
+	private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<Entry>();
+	private final ReentrantLock evictionLock = new ReentrantLock();
+	private final AtomicLong bytes = new AtomicLong(0);
+	// Incremented for a tablespace version each time it is invalidated, see put()
+	private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<String, AtomicLong>();
+
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+
+	/**
+	 * @param maxBytes
+	 *          Budget of the cache, in bytes.
+	 * @param maxResultBytes
+	 *          Results bigger than this are not cached.
+	 * @param admitOnSecondHit
+	 *          If true, results are only cached the second time their query is seen.
+	 */
+	public ResultCache(long maxBytes, int maxResultBytes, boolean admitOnSecondHit) {
+		this.maxBytes = maxBytes;
+		this.maxResultBytes = maxResultBytes;
+		this.doorkeeper = admitOnSecondHit ? new int[1 << 16] : null;
+	}
+
+	/**
+	 * Returns the serialized result for the key, or null if it is not cached.
+	 */
+	public byte[] get(Key key) {
+		Entry entry = results.get(key);
+		if(entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		if(!entry.referenced) {
+			entry.referenced = true;
+		}
+		return entry.result;
+	}
+
+	/**
+	 * Returns the current generation of a tablespace version. It must be read before executing a query whose result is
+	 * going to be offered to the cache, see {@link #put(Key, byte[], long)}.
+	 */
+	public long getGeneration(String tablespace, long version) {
+		AtomicLong generation = generations.get(tablespace + "_" + version);
+		return generation == null ? 0 : generation.get();
+	}
+
+	/**
+	 * Offers a serialized result to the cache, which keeps it if it passes the admission rules, evicting the least
+	 * recently used results if needed. The result is discarded if its tablespace version has been invalidated since the
+	 * given generation was read, as it may come from files that have been removed.
+	 */
+	public void put(Key key, byte[] result, long generation) {
+		if(result.length > maxResultBytes || key.size() + result.length > maxBytes) {
+			return;
+		}
+		if(doorkeeper != null) {
+			int slot = key.hashCode & (doorkeeper.length - 1);
+			// Not perfect as hashes may collide, but cheap and bounded
+			if(doorkeeper[slot] != key.hashCode) {
+				doorkeeper[slot] = key.hashCode;
+				return;
+			}
+		}
+		Entry entry = new Entry(key, result);
+		Entry previous = results.put(key, entry);
+		if(previous != null) {
+			bytes.addAndGet(-previous.size);
+		}
+		bytes.addAndGet(entry.size);
+		clock.add(entry);
+		// invalidate() bumps the generation before removing the entries, so either it sees this entry or we see the bump
+		if(getGeneration(key.tablespace, key.version) != generation) {
+			remove(entry);
+		}
+		if(bytes.get() > maxBytes) {
+			evict();
+		}
+	}
+
+	/*
+	 * Sweeps the clock until the cache is within budget: entries that were hit since the last sweep are spared once.
+	 * Only one thread sweeps at a time, others skip it as the sweeping one will make room for them too.
+	 */
+	private void evict() {
+		if(!evictionLock.tryLock()) {
+			return;
+		}
+		try {
+			Entry entry;
+			while(bytes.get() > maxBytes && (entry = clock.poll()) != null) {
+				if(results.get(entry.key) != entry) {
+					// Already replaced or removed
+					continue;
+				}
+				if(entry.referenced) {
+					entry.referenced = false;
+					clock.add(entry);
+				} else {
+					remove(entry);
+				}
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private void remove(Entry entry) {
+		if(results.remove(entry.key, entry)) {
+			bytes.addAndGet(-entry.size);
+		}
+	}
+
+	/**
+	 * Removes all the results of a tablespace version.
+	 */
+	public void invalidate(String tablespace, long version) {
+		String versionKey = tablespace + "_" + version;
+		AtomicLong generation = generations.get(versionKey);
+		if(generation == null) {
+			generations.putIfAbsent(versionKey, new AtomicLong(0));
+			generation = generations.get(versionKey);
+		}
+		generation.incrementAndGet();
+		// Every entry is added to the clock before put() checks the generation. Entries that are not cached anymore are
+		// dropped from the clock on the way.
+		Iterator<Entry> it = clock.iterator();
+		while(it.hasNext()) {
+			Entry entry = it.next();
+			if(entry.key.version == version && entry.key.tablespace.equals(tablespace)) {
+				remove(entry);
+				it.remove();
+			} else if(results.get(entry.key) != entry) {
+				it.remove();
+			}
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Fraction of lookups that found their result in the cache.
+	 */
+	public double getHitRatio() {
+		long hits = getHits();
+		long lookups = hits + getMisses();
+		return lookups == 0 ? 0d : (double) hits / lookups;
+	}
+
+	/**
+	 * Memory used by the cache, in bytes. Approximate, as it includes an estimation of the size of the keys.
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	public int getEntries() {
+		return results.size();
+	}
+}
@@ -0,0 +1,156 @@
+package com.splout.db.dnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.almworks.sqlite4java.SQLiteException;
+import com.almworks.sqlite4java.SQLiteStatement;
+import com.splout.db.common.SQLite4JavaManager;
+import com.splout.db.dnode.beans.SlowQuery;
+
+/**
+ * A bounded log of the last slow queries of a DNode, kept in memory in a ring buffer so that they can be inspected
+ * through the status of the DNode instead of scraping logs.
+ * <p>
+ * The query plan of each slow query is captured by a background thread, off the serving path: a query only enters the
+ * log once its plan has been captured. If the thread falls behind, further queries enter the log without plan.
+ */
+public class SlowQueryLog {
+
+	private final static Log log = LogFactory.getLog(SlowQueryLog.class);
+
+	private final AtomicReferenceArray<SlowQuery> ring;
+	// Number of queries that entered the log, the next one goes to (next % size)
+	private final AtomicLong next = new AtomicLong(0);
+	private final ThreadPoolExecutor planCapturer;
+
+	/**
+	 * @param size
+	 *          Number of slow queries that are kept.
+	 * @param maxPendingPlans
+	 *          Number of slow queries that may wait for their plan to be captured.
+	 */
+	public SlowQueryLog(int size, int maxPendingPlans) {
+		this.ring = new AtomicReferenceArray<SlowQuery>(Math.max(1, size));
+		this.planCapturer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+		    Math.max(1, maxPendingPlans)), new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Slow query plan capturer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Adds a slow query to the log after capturing its plan in the background with the given callable.
+	 */
+	public void add(final SlowQuery slowQuery, final Callable<List<String>> planCapture) {
+		try {
+			planCapturer.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						slowQuery.setQueryPlan(planCapture.call());
+					} catch(Throwable t) {
+						log.warn("Couldn't capture the plan of slow query [" + slowQuery.getQuery() + "]", t);
+						slowQuery.setQueryPlan(Collections.singletonList("Couldn't capture the query plan: " + t.getMessage()));
+					}
+					add(slowQuery);
+				}
+			});
+		} catch(RejectedExecutionException e) {
+			add(slowQuery);
+		}
+	}
+
+	private void add(SlowQuery slowQuery) {
+		ring.set((int) (next.getAndIncrement() % ring.length()), slowQuery);
+	}
+
+	/**
+	 * The slow queries in the log, the most recent first.
+	 */
+	public List<SlowQuery> getSlowQueries() {
+		long last = next.get();
+		List<SlowQuery> slowQueries = new ArrayList<SlowQuery>(ring.length());
+		for(long i = last - 1; i >= 0 && i >= last - ring.length(); i--) {
+			SlowQuery slowQuery = ring.get((int) (i % ring.length()));
+			if(slowQuery != null) {
+				slowQueries.add(slowQuery);
+			}
+		}
+		return slowQueries;
+	}
+
+	public void close() {
+		planCapturer.shutdownNow();
+	}
+
+	/**
+	 * Collects the output of a "EXPLAIN QUERY PLAN" query, one line per step of the plan with the columns separated by
+	 * "|" (selectid|order|from|detail).
+	 */
+	public static class QueryPlanHandler implements SQLite4JavaManager.ResultHandler<List<String>> {
+
+		private final List<String> lines = new ArrayList<String>();
+
+		@Override
+		public void startResult(String[] columnNames) {
+		}
+
+		@Override
+		public void addRow(SQLiteStatement st, int columnCount) throws SQLiteException, IOException {
+			StringBuilder line = new StringBuilder();
+			for(int i = 0; i < columnCount; i++) {
+				if(i > 0) {
+					line.append('|');
+				}
+				line.append(st.columnString(i));
+			}
+			lines.add(line.toString());
+		}
+
+		@Override
+		public List<String> endResult() {
+			return lines;
+		}
+	}
+}
@@ -30,7 +30,10 @@ import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import com.splout.db.common.SploutClient;
+import com.splout.db.common.SploutConfiguration;
+import com.splout.db.dnode.DNode;
 import com.splout.db.dnode.DNodeClient;
+import com.splout.db.dnode.DNodeProperties;
 import com.splout.db.dnode.TestCommands;
 import com.splout.db.thrift.DNodeException;
 import com.splout.db.thrift.DNodeService;
@@ -69,6 +72,9 @@ public class DNodeKiller {
 		SploutClient client = new SploutClient(qnode);
 		List<String> dnodes = client.dNodeList();
 		final int nDNodes = dnodes.size();
+		// DNodes in non-blocking server mode need framed transport
+		final boolean framed = DNode.SERVER_MODE_HSHA.equals(SploutConfiguration.get().getString(
+		    DNodeProperties.SERVER_MODE, DNode.SERVER_MODE_THREAD_POOL));
 
 		// Kill DNodes every X seconds
 		try {
@@ -84,7 +90,7 @@ public class DNodeKiller {
 					}
 					try {
 						DNodeService.Client dNodeClient;
-						dNodeClient = DNodeClient.get(dnodes.get(dNodeIndex));
+						dNodeClient = DNodeClient.get(dnodes.get(dNodeIndex), framed);
 						System.out.println("Killing: " + dnodes.get(dNodeIndex));
 						dNodeClient.testCommand(TestCommands.SHUTDOWN.toString());
 						// We just try, if the DNode is still there we kill it. Otherwise we do nothing.
@@ -108,7 +114,7 @@ public class DNodeKiller {
 					}
 					try {
 						DNodeService.Client dNodeClient;
-						dNodeClient = DNodeClient.get(dnodes.get(dNodeIndex));
+						dNodeClient = DNodeClient.get(dnodes.get(dNodeIndex), framed);
 						System.out.println("Bringing back to life: " + dnodes.get(dNodeIndex));
 						dNodeClient.testCommand(TestCommands.RESTART.toString());
 					} catch(DNodeException e) {
@@ -0,0 +1,271 @@
+package com.splout.db.qnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+import com.splout.db.thrift.DNodeService;
+
+/**
+ * A pool of open Thrift clients per DNode, so that the QNode doesn't pay a TCP handshake (and an ephemeral port) per
+ * query. Borrowing and returning are lock-free: idle clients of each DNode wait in a {@link ConcurrentLinkedQueue} and
+ * a new connection is opened when there is none, so borrowing never blocks. At most "maxIdle" clients are kept per
+ * DNode, the rest are closed when returned.
+ * <p>
+ * Clients that have been idle for a while are health-checked when borrowed, so that connections closed by a DNode
+ * (for instance because it was restarted) are not handed out, and clients idle for longer than "idleTimeout" are closed
+ * by a background sweep. Clients whose call failed with anything other than a {@link com.splout.db.thrift.DNodeException}
+ * must be returned as broken: their connection may be in the middle of a message.
+ */
+public class DNodeClientPool {
+
+	private final static Log log = LogFactory.getLog(DNodeClientPool.class);
+
+	// Clients idle for longer than this are checked before being handed out
+	final static long VALIDATE_AFTER_IDLE_MILLIS = 1000;
+
+	private static class PooledClient {
+
+		final DNodeService.Client client;
+		final TSocket socket;
+		long lastUsed;
+		boolean timeoutSet;
+
+		PooledClient(DNodeService.Client client, TSocket socket) {
+			this.client = client;
+			this.socket = socket;
+		}
+	}
+
+	private static class Pool {
+
+		final ConcurrentLinkedQueue<PooledClient> idle = new ConcurrentLinkedQueue<PooledClient>();
+		final AtomicInteger idleCount = new AtomicInteger(0);
+	}
+
+	private final boolean framed;
+	private final int maxIdle;
+	private final long idleTimeout;
+	private final ConcurrentMap<String, Pool> pools = new ConcurrentHashMap<String, Pool>();
+	// The socket behind each client, as framed transports don't expose it
+	private final ConcurrentMap<DNodeService.Client, PooledClient> clients = new ConcurrentHashMap<DNodeService.Client, PooledClient>();
+	private final Timer sweeper;
+
+	/**
+	 * @param framed
+	 *          Whether to use framed transport, needed by DNodes in {@link com.splout.db.dnode.DNode#SERVER_MODE_HSHA}.
+	 * @param maxIdle
+	 *          Maximum number of idle clients kept per DNode. 0 disables pooling.
+	 * @param idleTimeout
+	 *          Milliseconds after which an idle client is closed.
+	 */
+	public DNodeClientPool(boolean framed, int maxIdle, long idleTimeout) {
+		this.framed = framed;
+		this.maxIdle = maxIdle;
+		this.idleTimeout = idleTimeout;
+		this.sweeper = new Timer("DNode client pool sweeper", true);
+		long period = Math.max(idleTimeout / 2, 100);
+		sweeper.schedule(new TimerTask() {
+
+			@Override
+			public void run() {
+				evictIdle();
+			}
+		}, period, period);
+	}
+
+	/**
+	 * Returns an open client for the given DNode (host:port), pooled if possible. It must be given back with
+	 * {@link #release(String, DNodeService.Client, boolean)}.
+	 */
+	public DNodeService.Client borrow(String dnode) throws TTransportException {
+		Pool pool = pools.get(dnode);
+		if(pool != null) {
+			PooledClient pooled;
+			while((pooled = pool.idle.poll()) != null) {
+				pool.idleCount.decrementAndGet();
+				if(isHealthy(pooled)) {
+					return pooled.client;
+				}
+				close(pooled);
+			}
+		}
+		return open(dnode);
+	}
+
+	/**
+	 * Gives back a client obtained from {@link #borrow(String)}. Broken clients, whose last call failed in the transport
+	 * or protocol, are closed.
+	 */
+	public void release(String dnode, DNodeService.Client client, boolean broken) {
+		PooledClient pooled = clients.get(client);
+		if(pooled == null) {
+			// Not ours
+			client.getOutputProtocol().getTransport().close();
+			return;
+		}
+		if(broken || maxIdle <= 0) {
+			close(pooled);
+			return;
+		}
+		if(pooled.timeoutSet) {
+			pooled.socket.setTimeout(0);
+			pooled.timeoutSet = false;
+		}
+		Pool pool = pools.get(dnode);
+		if(pool == null) {
+			pool = new Pool();
+			Pool existing = pools.putIfAbsent(dnode, pool);
+			if(existing != null) {
+				pool = existing;
+			}
+		}
+		if(pool.idleCount.incrementAndGet() > maxIdle) {
+			pool.idleCount.decrementAndGet();
+			close(pooled);
+			return;
+		}
+		pooled.lastUsed = System.currentTimeMillis();
+		pool.idle.offer(pooled);
+	}
+
+	/**
+	 * Sets the read timeout of a borrowed client, in milliseconds, until it is given back. Calls that time out fail
+	 * with a {@link TTransportException}, so the client must then be released as broken.
+	 */
+	public void setTimeout(DNodeService.Client client, int timeout) {
+		PooledClient pooled = clients.get(client);
+		if(pooled != null) {
+			pooled.socket.setTimeout(timeout);
+			pooled.timeoutSet = true;
+		}
+	}
+
+	/**
+	 * Closes the idle clients of a DNode, for instance because it left the cluster. Clients of the DNode that are
+	 * borrowed at the moment will be pooled again when released, and health-checked when borrowed.
+	 */
+	public void remove(String dnode) {
+		Pool pool = pools.remove(dnode);
+		if(pool != null) {
+			closeAll(pool);
+		}
+	}
+
+	/**
+	 * Number of idle clients of a DNode.
+	 */
+	public int getIdle(String dnode) {
+		Pool pool = pools.get(dnode);
+		return pool == null ? 0 : pool.idleCount.get();
+	}
+
+	public void close() {
+		sweeper.cancel();
+		for(String dnode : pools.keySet()) {
+			remove(dnode);
+		}
+	}
+
+	void evictIdle() {
+		long now = System.currentTimeMillis();
+		for(Map.Entry<String, Pool> entry : pools.entrySet()) {
+			Pool pool = entry.getValue();
+			for(PooledClient pooled : pool.idle) {
+				// Only the thread that removes it from the queue owns it
+				if(now - pooled.lastUsed > idleTimeout && pool.idle.remove(pooled)) {
+					pool.idleCount.decrementAndGet();
+					close(pooled);
+				}
+			}
+		}
+	}
+
+	private void closeAll(Pool pool) {
+		PooledClient pooled;
+		while((pooled = pool.idle.poll()) != null) {
+			pool.idleCount.decrementAndGet();
+			close(pooled);
+		}
+	}
+
+	private DNodeService.Client open(String dnode) throws TTransportException {
+		int separator = dnode.lastIndexOf(":");
+		TSocket socket = new TSocket(dnode.substring(0, separator), Integer.parseInt(dnode.substring(separator + 1)));
+		TTransport transport = framed ? new TFramedTransport(socket) : socket;
+		DNodeService.Client client = new DNodeService.Client(new TBinaryProtocol(transport));
+		transport.open();
+		clients.put(client, new PooledClient(client, socket));
+		return client;
+	}
+
+	private void close(PooledClient pooled) {
+		clients.remove(pooled.client);
+		pooled.client.getOutputProtocol().getTransport().close();
+	}
+
+	/*
+	 * A DNode only writes in response to a request, so an idle connection must have nothing to read: a read that times
+	 * out means the connection is alive, while an end of stream (or data) means it is not usable.
+	 */
+	private boolean isHealthy(PooledClient pooled) {
+		Socket socket = pooled.socket.getSocket();
+		if(socket == null || !socket.isConnected() || socket.isClosed() || socket.isInputShutdown()) {
+			return false;
+		}
+		if(System.currentTimeMillis() - pooled.lastUsed < VALIDATE_AFTER_IDLE_MILLIS) {
+			return true;
+		}
+		try {
+			int timeout = socket.getSoTimeout();
+			socket.setSoTimeout(1);
+			try {
+				socket.getInputStream().read();
+				return false;
+			} catch(SocketTimeoutException e) {
+				return true;
+			} finally {
+				socket.setSoTimeout(timeout);
+			}
+		} catch(IOException e) {
+			log.debug("Discarding pooled DNode client", e);
+			return false;
+		}
+	}
+}
@@ -49,6 +49,7 @@ import com.splout.db.qnode.beans.DeployInfo;
 import com.splout.db.qnode.beans.DeployRequest;
 import com.splout.db.qnode.beans.QueryStatus;
 import com.splout.db.qnode.beans.SwitchVersionRequest;
+import com.splout.db.thrift.DNodeException;
 import com.splout.db.thrift.DNodeService;
 import com.splout.db.thrift.DeployAction;
 import com.splout.db.thrift.PartitionMetadata;
@@ -219,17 +220,21 @@ public class Deployer extends QNodeHandlerModule {
 		// Sending deploy signals to each DNode
 		for(Map.Entry<String, List<DeployAction>> actionPerDNode : actionsPerDNode.entrySet()) {
 			DNodeService.Client client = null;
+			boolean broken = false;
 			try {
 				client = context.getDNodeClient(actionPerDNode.getKey(), false);
 				client.deploy(actionPerDNode.getValue(), version);
 			} catch(Exception e) {
+				broken = !(e instanceof DNodeException);
 				log.error("Error sending deploy actions to DNode [" + actionPerDNode.getKey() + "]", e);
 				abortDeploy(new ArrayList<String>(actionsPerDNode.keySet()), version);
 				DeployInfo errDeployInfo = new DeployInfo();
 				errDeployInfo.setError("Error connecting to DNode " + actionPerDNode.getKey());
 				return errDeployInfo;
 			} finally {
-				client.getOutputProtocol().getTransport().close();
+				if(client != null) {
+					context.returnDNodeClient(actionPerDNode.getKey(), client, broken);
+				}
 			}
 		}
 
@@ -249,14 +254,16 @@ public class Deployer extends QNodeHandlerModule {
 	public void abortDeploy(List<String> dnodes, long version) {
 		for(String dnode: dnodes) {
 			DNodeService.Client client = null;
+			boolean broken = false;
 			try {
 				client = context.getDNodeClient(dnode, false);
 				client.abortDeploy(version);
 			} catch(Exception e) {
+				broken = !(e instanceof DNodeException);
 				log.error("Error sending abort deploy flag to DNode [" + dnode + "]", e);
 			} finally {
 				if(client != null) {
-					client.getOutputProtocol().getTransport().close();
+					context.returnDNodeClient(dnode, client, broken);
 				}
 			}
 		}
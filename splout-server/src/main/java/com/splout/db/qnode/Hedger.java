@@ -0,0 +1,203 @@
+package com.splout.db.qnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.splout.db.benchmark.LatencyHistogram;
+import com.splout.db.common.SploutConfiguration;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Meter;
+
+/**
+ * Decides when the {@link Querier} sends a query to a second replica of a partition (a hedged request): when the first
+ * one hasn't answered after a percentile of the latencies of the tablespace ({@link QNodeProperties#HEDGE_PERCENTILE}
+ * ), and only while there is budget left. The budget is a token bucket that gains
+ * {@link QNodeProperties#HEDGE_BUDGET} tokens per query and loses one per hedged request, so that hedging never adds
+ * more than that fraction of extra load to the DNodes.
+ */
+public class Hedger {
+
+	// Percentiles are not trusted until a tablespace has this number of queries
+	final static int MIN_SAMPLES = 100;
+	// The delay of each tablespace is recomputed at most once per second
+	final static long DELAY_REFRESH_MILLIS = 1000;
+	// The budget is kept in millionths of a query, and can save up to this number of hedged requests for bursts
+	private final static long TOKEN = 1000000;
+	private final static long MAX_TOKENS = 10 * TOKEN;
+
+	private final double percentile;
+	private final long minDelay;
+	private final long tokensPerQuery;
+	private final AtomicLong tokens = new AtomicLong(0);
+	private final ConcurrentMap<String, TablespaceLatency> latencies = new ConcurrentHashMap<String, TablespaceLatency>();
+	private final ExecutorService executor;
+	private final ScheduledExecutorService timer;
+
+	private final Meter hedgedQueries = Metrics.newMeter(Querier.class, "hedged-queries", "hedged-queries",
+	    TimeUnit.SECONDS);
+	private final Counter hedgeWins = Metrics.newCounter(Querier.class, "hedge-wins");
+
+	private static class TablespaceLatency {
+
+		final LatencyHistogram histogram = new LatencyHistogram(16);
+		volatile long delay = -1;
+		volatile long computedAt = 0;
+	}
+
+	public Hedger(SploutConfiguration config) {
+		percentile = config.getDouble(QNodeProperties.HEDGE_PERCENTILE, 0.95);
+		minDelay = config.getLong(QNodeProperties.HEDGE_MIN_DELAY, 5);
+		tokensPerQuery = (long) (config.getDouble(QNodeProperties.HEDGE_BUDGET, 0.05) * TOKEN);
+		// The hedged requests are sent by these threads, while the first replica is queried by the caller
+		executor = new ThreadPoolExecutor(0, config.getInt(QNodeProperties.HEDGE_THREADS, 64), 60, TimeUnit.SECONDS,
+		    new SynchronousQueue<Runnable>(), new ThreadFactory() {
+
+			    @Override
+			    public Thread newThread(Runnable r) {
+				    Thread thread = new Thread(r, "QNode hedged query");
+				    thread.setDaemon(true);
+				    return thread;
+			    }
+		    });
+		timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "QNode hedge timer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public boolean isEnabled() {
+		return percentile > 0;
+	}
+
+	/**
+	 * Runs the hedged request in a hedging thread after the delay in milliseconds, unless the returned future is
+	 * cancelled before. The request is not sent if there are no hedging threads left by then.
+	 */
+	public ScheduledFuture<?> schedule(final Runnable hedge, long delay) {
+		return timer.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					executor.execute(hedge);
+				} catch(RejectedExecutionException e) {
+					// Too many hedged requests in flight
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Records the time in nanoseconds of a query to the tablespace.
+	 */
+	public void recordLatency(String tablespace, long nanos) {
+		getLatency(tablespace).histogram.record(nanos);
+	}
+
+	/**
+	 * The milliseconds to wait for a replica before hedging a query to the tablespace, or -1 if its queries are not
+	 * hedged. Also adds the query to the budget.
+	 */
+	public long getDelay(String tablespace) {
+		if(!isEnabled()) {
+			return -1;
+		}
+		long current = tokens.get();
+		while(current < MAX_TOKENS && !tokens.compareAndSet(current, Math.min(MAX_TOKENS, current + tokensPerQuery))) {
+			current = tokens.get();
+		}
+		TablespaceLatency latency = getLatency(tablespace);
+		long now = System.currentTimeMillis();
+		if(now - latency.computedAt > DELAY_REFRESH_MILLIS) {
+			latency.computedAt = now;
+			LatencyHistogram.Snapshot snapshot = latency.histogram.snapshot();
+			latency.delay = snapshot.getCount() < MIN_SAMPLES ? -1 : Math.max(minDelay,
+			    snapshot.getPercentile(percentile) / 1000000);
+		}
+		return latency.delay;
+	}
+
+	/**
+	 * Takes a hedged request from the budget, if there is one left.
+	 */
+	public boolean tryHedge() {
+		long current = tokens.get();
+		while(current >= TOKEN) {
+			if(tokens.compareAndSet(current, current - TOKEN)) {
+				hedgedQueries.mark();
+				return true;
+			}
+			current = tokens.get();
+		}
+		return false;
+	}
+
+	/**
+	 * Called when the hedged request answered before the original one.
+	 */
+	public void hedgeWon() {
+		hedgeWins.inc();
+	}
+
+	public Meter getHedgedQueries() {
+		return hedgedQueries;
+	}
+
+	public Counter getHedgeWins() {
+		return hedgeWins;
+	}
+
+	private TablespaceLatency getLatency(String tablespace) {
+		TablespaceLatency latency = latencies.get(tablespace);
+		if(latency == null) {
+			TablespaceLatency newLatency = new TablespaceLatency();
+			latency = latencies.putIfAbsent(tablespace, newLatency);
+			if(latency == null) {
+				latency = newLatency;
+			}
+		}
+		return latency;
+	}
+
+	public void close() {
+		timer.shutdownNow();
+		executor.shutdownNow();
+	}
+}
@@ -29,8 +29,11 @@ import java.util.Set;
 import com.splout.db.common.SploutConfiguration;
 import com.splout.db.common.Tablespace;
 import com.splout.db.dnode.beans.DNodeSystemStatus;
+import com.splout.db.dnode.beans.FingerprintStats;
+import com.splout.db.dnode.beans.SlowQuery;
 import com.splout.db.qnode.beans.DeployInfo;
 import com.splout.db.qnode.beans.DeployRequest;
+import com.splout.db.qnode.beans.MergeSpec;
 import com.splout.db.qnode.beans.QNodeStatus;
 import com.splout.db.qnode.beans.QueryStatus;
 import com.splout.db.qnode.beans.StatusMessage;
@@ -44,8 +47,8 @@ public interface IQNodeHandler {
 	public void init(SploutConfiguration config) throws Exception;
 	public void close() throws Exception;
 	
-	public QueryStatus query(String tablespace, String key, String sql) throws Exception;
-	public ArrayList<QueryStatus> multiQuery(String tablespace, List<String> keyMins, List<String> keyMaxs, String sql) throws Exception;
+	public QueryStatus query(String tablespace, String key, String sql, List<Object> params) throws Exception;
+	public ArrayList<QueryStatus> multiQuery(String tablespace, List<String> keyMins, List<String> keyMaxs, String sql, List<Object> params, MergeSpec merge) throws Exception;
 	public DeployInfo deploy(List<DeployRequest> deployReq) throws Exception;
 	public StatusMessage rollback(List<SwitchVersionRequest> rollbackRequest) throws Exception;
 	public QNodeStatus overview() throws Exception;
@@ -53,5 +56,8 @@ public interface IQNodeHandler {
 	public Set<String> tablespaces() throws Exception;
 	public Map<Long, Tablespace> allTablespaceVersions(String tablespace) throws Exception;
 	public DNodeSystemStatus dnodeStatus(String dNode) throws Exception;
+	public List<SlowQuery> dnodeSlowQueries(String dNode) throws Exception;
+	public Map<String, List<FingerprintStats>> queryStats() throws Exception;
+	public Map<String, List<FingerprintStats>> dnodeQueryStats(String dNode) throws Exception;
 	public Tablespace tablespace(String tablespace) throws Exception;
 }
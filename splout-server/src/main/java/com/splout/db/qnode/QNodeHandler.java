@@ -48,6 +48,8 @@ import com.splout.db.common.JSONSerDe.JSONSerDeException;
 import com.splout.db.common.SploutConfiguration;
 import com.splout.db.common.Tablespace;
 import com.splout.db.dnode.beans.DNodeSystemStatus;
+import com.splout.db.dnode.beans.FingerprintStats;
+import com.splout.db.dnode.beans.SlowQuery;
 import com.splout.db.hazelcast.CoordinationStructures;
 import com.splout.db.hazelcast.DNodeInfo;
 import com.splout.db.hazelcast.HazelcastConfigBuilder;
@@ -59,6 +61,7 @@ import com.splout.db.qnode.QNodeHandlerContext.DNodeEvent;
 import com.splout.db.qnode.QNodeHandlerContext.TablespaceVersionInfoException;
 import com.splout.db.qnode.beans.DeployInfo;
 import com.splout.db.qnode.beans.DeployRequest;
+import com.splout.db.qnode.beans.MergeSpec;
 import com.splout.db.qnode.beans.ErrorQueryStatus;
 import com.splout.db.qnode.beans.QNodeStatus;
 import com.splout.db.qnode.beans.QueryStatus;
@@ -132,6 +135,7 @@ public class QNodeHandler implements IQNodeHandler {
 		@Override
 		public void entryRemoved(EntryEvent<String, DNodeInfo> event) {
 			log.info("DNode [" + event.getValue() + "] left.");
+			context.discardDNodeClients(event.getValue().getAddress());
 			// Update TablespaceVersions
 			try {
 				context.updateTablespaceVersions(event.getValue(), QNodeHandlerContext.DNodeEvent.LEAVE);
@@ -196,7 +200,7 @@ public class QNodeHandler implements IQNodeHandler {
 			check(event);
 			// TODO: make this operation atomical. ConcurrentHashMap.clear() is not.
 			log.info("Versions table removed!. Clearing up all tablespace versions.");
-			context.getCurrentVersionsMap().clear();
+			context.clearCurrentVersions();
 			return;
 		}
 
@@ -279,7 +283,7 @@ public class QNodeHandler implements IQNodeHandler {
 		}
 		// CAREFUL TODO: That is not atomic. Something should
 		// be done to make that update atomic.
-		context.getCurrentVersionsMap().putAll(tablespacesAndVersions);
+		context.setCurrentVersions(tablespacesAndVersions);
 		String persistenceFolder = config.getString(HazelcastProperties.HZ_PERSISTENCE_FOLDER);
 		if(persistenceFolder != null && !persistenceFolder.equals("")) {
 			TablespaceVersionStore vStore = new TablespaceVersionStore(persistenceFolder);
@@ -293,6 +297,18 @@ public class QNodeHandler implements IQNodeHandler {
 	 * Returns a {@link QueryStatus}.
 	 */
 	public QueryStatus query(String tablespace, String key, String sql) throws JSONSerDeException {
+		return query(tablespace, key, sql, null);
+	}
+
+	/**
+	 * Given a key, a tablespace, a SQL with "?" parameters and their values, query it to the appropriated DNode and
+	 * return the result. Values are bound by the DNode so queries that only differ in them share the same prepared
+	 * statement.
+	 * <p>
+	 * Returns a {@link QueryStatus}.
+	 */
+	public QueryStatus query(String tablespace, String key, String sql, List<Object> params)
+	    throws JSONSerDeException {
 		if(sql == null) {
 			return new ErrorQueryStatus("Null sql provided, can't query.");
 		}
@@ -307,7 +323,7 @@ public class QNodeHandler implements IQNodeHandler {
 		/*
 		 * The queries are handled by the specialized module {@link Querier}
 		 */
-		return querier.query(tablespace, key, sql);
+		return querier.query(tablespace, key, sql, params);
 	}
 
 	/**
@@ -317,6 +333,27 @@ public class QNodeHandler implements IQNodeHandler {
 	 */
 	public ArrayList<QueryStatus> multiQuery(String tablespaceName, List<String> keyMins,
 	    List<String> keyMaxs, String sql) throws JSONSerDeException {
+		return multiQuery(tablespaceName, keyMins, keyMaxs, sql, null);
+	}
+
+	/**
+	 * Multi-query with the values of the "?" parameters of the SQL, which are bound by each DNode.
+	 * <p>
+	 * Returns a list of {@link QueryStatus}.
+	 */
+	public ArrayList<QueryStatus> multiQuery(String tablespaceName, List<String> keyMins,
+	    List<String> keyMaxs, String sql, List<Object> params) throws JSONSerDeException {
+		return multiQuery(tablespaceName, keyMins, keyMaxs, sql, params, null);
+	}
+
+	/**
+	 * Multi-query whose results are merged by the QNode as described by the {@link MergeSpec}, if not null: see
+	 * {@link QueryMerger}.
+	 * <p>
+	 * Returns a list of {@link QueryStatus}: the merged one followed by the ones of the partitions that failed.
+	 */
+	public ArrayList<QueryStatus> multiQuery(String tablespaceName, List<String> keyMins,
+	    List<String> keyMaxs, String sql, List<Object> params, MergeSpec merge) throws JSONSerDeException {
 
 		if(sql == null) {
 			return new ArrayList<QueryStatus>(Arrays.asList(new QueryStatus[] { new ErrorQueryStatus(
@@ -327,6 +364,17 @@ public class QNodeHandler implements IQNodeHandler {
 			    "Empty sql provided, can't query.") }));
 		}
 
+		QueryMerger merger = null;
+		if(merge != null) {
+			try {
+				merger = new QueryMerger(merge);
+			} catch(IllegalArgumentException e) {
+				return new ArrayList<QueryStatus>(Arrays.asList(new QueryStatus[] { new ErrorQueryStatus(
+				    "Invalid merge: " + e.getMessage()) }));
+			}
+			sql = merger.pushDown(sql);
+		}
+
 		if(keyMins.size() != keyMaxs.size()) {
 			// This has to be handled before! We are not going to be polite here
 			throw new RuntimeException(
@@ -335,27 +383,33 @@ public class QNodeHandler implements IQNodeHandler {
 			        + keyMaxs + ", " + sql);
 		}
 		Set<Integer> impactedKeys = new HashSet<Integer>();
-		Long version = context.getCurrentVersionsMap().get(tablespaceName);
-		if(version == null) {
-			return new ArrayList<QueryStatus>(Arrays.asList(new QueryStatus[] { new ErrorQueryStatus(
-			    "No available version for tablespace " + tablespaceName) }));
-		}
-		// TODO Object creation (new TablespaceVersion), not very efficient for performance
-		Tablespace tablespace = context.getTablespaceVersionsMap().get(
-		    new TablespaceVersion(tablespaceName, version));
-		if(tablespace == null) { // This can happen if, at startup, we only received the version and not the DNodeInfo
+		RoutingTable routingTable = context.getRoutingTable(tablespaceName);
+		if(routingTable == null) {
+			Long version = context.getCurrentVersionsMap().get(tablespaceName);
+			if(version == null) {
+				return new ArrayList<QueryStatus>(Arrays.asList(new QueryStatus[] { new ErrorQueryStatus(
+				    "No available version for tablespace " + tablespaceName) }));
+			}
+			// This can happen if, at startup, we only received the version and not the DNodeInfo
 			return new ArrayList<QueryStatus>(Arrays.asList(new QueryStatus[] { new ErrorQueryStatus(
 			    "No available information for tablespace version " + tablespaceName + "," + version) }));
 		}
 		if(keyMins.size() == 0) {
-			impactedKeys.addAll(tablespace.getPartitionMap().findPartitions(null, null)); // all partitions are hit
+			impactedKeys.addAll(routingTable.findPartitions(null, null)); // all partitions are hit
 		}
 		for(int i = 0; i < keyMins.size(); i++) {
-			impactedKeys.addAll(tablespace.getPartitionMap().findPartitions(keyMins.get(i), keyMaxs.get(i)));
+			impactedKeys.addAll(routingTable.findPartitions(keyMins.get(i), keyMaxs.get(i)));
 		}
-		ArrayList<QueryStatus> toReturn = new ArrayList<QueryStatus>();
-		for(Integer shardKey : impactedKeys) {
-			toReturn.add(querier.query(tablespaceName, sql, shardKey));
+		// Partitions served by the same DNode are queried with a single call
+		ArrayList<QueryStatus> toReturn = querier.multiQuery(tablespaceName, new ArrayList<Integer>(impactedKeys), sql,
+		    params);
+		if(merger != null) {
+			try {
+				toReturn = merger.merge(toReturn);
+			} catch(IllegalArgumentException e) {
+				toReturn = new ArrayList<QueryStatus>(Arrays.asList(new QueryStatus[] { new ErrorQueryStatus(
+				    "Can't merge results: " + e.getMessage()) }));
+			}
 		}
 		queriesServed.inc();
 		requestsPerSecond.mark();
@@ -402,15 +456,17 @@ public class QNodeHandler implements IQNodeHandler {
 		Map<String, DNodeSystemStatus> aliveDNodes = new HashMap<String, DNodeSystemStatus>();
 		for(DNodeInfo dnode : context.getCoordinationStructures().getDNodes().values()) {
 			DNodeService.Client client = null;
+			boolean broken = false;
 			try {
 				client = getContext().getDNodeClient(dnode.getAddress(), false); 
 				aliveDNodes.put(dnode.getAddress(), JSONSerDe.deSer(client
 				    .status(), DNodeSystemStatus.class));
 			} catch(TTransportException e) {
+				broken = true;
 				throw e;
 			} finally {
 				if(client != null) {
-					client.getOutputProtocol().getTransport().close();
+					getContext().returnDNodeClient(dnode.getAddress(), client, broken);
 				}
 			}
 		}
@@ -455,19 +511,46 @@ public class QNodeHandler implements IQNodeHandler {
 	@Override
 	public DNodeSystemStatus dnodeStatus(String dnode) throws Exception {
 		DNodeService.Client client = null;
+		boolean broken = false;
 		try {
 			client = getContext().getDNodeClient(dnode, false);
 			return JSONSerDe
 			    .deSer(client.status(), DNodeSystemStatus.class);
 		} catch(TTransportException e) {
+			broken = true;
 			throw e;
 		} finally {
 			if(client != null) {
-				client.getOutputProtocol().getTransport().close();
+				getContext().returnDNodeClient(dnode, client, broken);
 			}
 		}
 	}
 
+	/**
+	 * Return the last slow queries of a DNode, newest first, with their query plans when they could be captured.
+	 */
+	@Override
+	public List<SlowQuery> dnodeSlowQueries(String dnode) throws Exception {
+		return dnodeStatus(dnode).getSlowQueryLog();
+	}
+
+	/**
+	 * Return the statistics of the most frequent query fingerprints (queries without their literal values) sent by this
+	 * QNode to the DNodes, per tablespace.
+	 */
+	@Override
+	public Map<String, List<FingerprintStats>> queryStats() throws Exception {
+		return querier.getFingerprintStats().getTop();
+	}
+
+	/**
+	 * Return the statistics of the most frequent query fingerprints served by a DNode, per tablespace.
+	 */
+	@Override
+	public Map<String, List<FingerprintStats>> dnodeQueryStats(String dnode) throws Exception {
+		return dnodeStatus(dnode).getTopQueries();
+	}
+
 	@Override
 	public Tablespace tablespace(String tablespace) throws Exception {
 		Long version = context.getCurrentVersionsMap().get(tablespace);
@@ -495,6 +578,12 @@ public class QNodeHandler implements IQNodeHandler {
 	 */
 	@Override
 	public void close() throws Exception {
+		if(querier != null) {
+			querier.close();
+		}
+		if(context != null) {
+			context.close();
+		}
 	}
 
 	/**
@@ -22,15 +22,22 @@ package com.splout.db.qnode;
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.thrift.TException;
 import org.apache.thrift.transport.TTransportException;
@@ -45,7 +52,8 @@ import com.splout.db.common.ReplicationEntry;
 import com.splout.db.common.ReplicationMap;
 import com.splout.db.common.SploutConfiguration;
 import com.splout.db.common.Tablespace;
-import com.splout.db.dnode.DNodeClient;
+import com.splout.db.dnode.DNode;
+import com.splout.db.dnode.DNodeProperties;
 import com.splout.db.hazelcast.CoordinationStructures;
 import com.splout.db.hazelcast.DNodeInfo;
 import com.splout.db.hazelcast.TablespaceVersion;
@@ -71,10 +79,86 @@ public class QNodeHandlerContext {
 	private CoordinationStructures coordinationStructures;
 	// Local map with all versions for a tablespace with the PartitionMap, ReplicationMap for each of them
 	private final Map<TablespaceVersion, Tablespace> tablespaceVersionsMap = new ConcurrentHashMap<TablespaceVersion, Tablespace>();
+	private final Map<String, Long> currentVersionsView = Collections.unmodifiableMap(currentVersionsMap);
+	private final Map<TablespaceVersion, Tablespace> tablespaceVersionsView = Collections
+	    .unmodifiableMap(tablespaceVersionsMap);
+	// The routing tables of the current versions, replaced by the writers of the maps above. Queries only read it.
+	private volatile Map<String, RoutingTable> routingTables = Collections.emptyMap();
+	private final Object routingLock = new Object();
+	// Open Thrift clients to the DNodes
+	private final DNodeClientPool clientPool;
+	// Requests in flight and latencies of each DNode, used for electing replicas
+	private final ReplicaStats replicaStats = new ReplicaStats();
+	// The RPCs that each DNode answered as unknown, because it runs an older version
+	private final ConcurrentMap<String, Set<String>> unsupportedMethods = new ConcurrentHashMap<String, Set<String>>();
 
 	public QNodeHandlerContext(SploutConfiguration config, CoordinationStructures coordinationStructures) {
 		this.config = config;
 		this.coordinationStructures = coordinationStructures;
+		this.clientPool = new DNodeClientPool(DNode.SERVER_MODE_HSHA.equals(config.getString(
+		    DNodeProperties.SERVER_MODE, DNode.SERVER_MODE_THREAD_POOL)), config.getInt(
+		    QNodeProperties.DNODE_POOL_SIZE, 32), config.getLong(QNodeProperties.DNODE_POOL_IDLE_SECONDS, 60) * 1000);
+	}
+
+	/**
+	 * The {@link RoutingTable} of the version of the tablespace being served, or null if there is none.
+	 */
+	public RoutingTable getRoutingTable(String tablespace) {
+		return routingTables.get(tablespace);
+	}
+
+	/*
+	 * Publishes the routing tables of the current versions of the tablespaces, after they or their versions changed.
+	 * Each writer calls it after its own change, so the last one to take the lock sees all of them.
+	 */
+	private void updateRouting(Collection<String> tablespaces) {
+		if(tablespaces.isEmpty()) {
+			return;
+		}
+		synchronized(routingLock) {
+			Map<String, RoutingTable> tables = new HashMap<String, RoutingTable>(routingTables);
+			for(String tablespace : tablespaces) {
+				Long version = currentVersionsMap.get(tablespace);
+				Tablespace tablespaceInfo = version == null ? null : tablespaceVersionsMap.get(new TablespaceVersion(
+				    tablespace, version));
+				if(tablespaceInfo == null) {
+					tables.remove(tablespace);
+				} else {
+					tables.put(tablespace, new RoutingTable(tablespace, version, tablespaceInfo));
+				}
+			}
+			routingTables = Collections.unmodifiableMap(tables);
+		}
+	}
+
+	/**
+	 * Changes the versions being served of the given tablespaces.
+	 */
+	public void setCurrentVersions(Map<String, Long> tablespacesAndVersions) {
+		currentVersionsMap.putAll(tablespacesAndVersions);
+		updateRouting(tablespacesAndVersions.keySet());
+	}
+
+	public void setCurrentVersion(String tablespace, long version) {
+		setCurrentVersions(Collections.singletonMap(tablespace, version));
+	}
+
+	/**
+	 * Stops serving all the tablespaces.
+	 */
+	public void clearCurrentVersions() {
+		List<String> tablespaces = new ArrayList<String>(currentVersionsMap.keySet());
+		currentVersionsMap.clear();
+		updateRouting(tablespaces);
+	}
+
+	/**
+	 * Publishes a tablespace version as if the DNodes had reported it, see
+	 * {@link #updateTablespaceVersions(DNodeInfo, DNodeEvent)}.
+	 */
+	public void putTablespaceVersion(TablespaceVersion tablespaceVersion, Tablespace tablespace) {
+		tablespaceVersionsMap.put(tablespaceVersion, tablespace);
+		updateRouting(Collections.singleton(tablespaceVersion.getTablespace()));
 	}
 
 	public static enum DNodeEvent {
@@ -91,198 +175,207 @@ public class QNodeHandlerContext {
 
 	public Object tVLock = new Object();
 
+	// What each DNode serves, as of the last DNodeInfo received from it. Guarded by tVLock.
+	private final Map<String, Map<TablespaceVersion, Map<Integer, PartitionMetadata>>> dnodeServingInfo = new HashMap<String, Map<TablespaceVersion, Map<Integer, PartitionMetadata>>>();
+	// The partitions of each tablespace version and the DNodes that serve them. Guarded by tVLock.
+	private final Map<TablespaceVersion, VersionReplicas> versionReplicas = new HashMap<TablespaceVersion, VersionReplicas>();
+
+	/*
+	 * The mutable state of a tablespace version, from which the Tablespace published in the tablespaceVersionsMap is
+	 * copied.
+	 */
+	private static class VersionReplicas {
+
+		final long deployDate;
+		final SortedMap<Integer, PartitionEntry> partitions = new TreeMap<Integer, PartitionEntry>();
+		// In the order the DNodes started serving each partition
+		final SortedMap<Integer, List<String>> replicas = new TreeMap<Integer, List<String>>();
+
+		VersionReplicas(long deployDate) {
+			this.deployDate = deployDate;
+		}
+
+		void add(int shard, PartitionMetadata metadata, String dnode) {
+			List<String> nodes = replicas.get(shard);
+			if(nodes == null) {
+				PartitionEntry entry = new PartitionEntry();
+				entry.setMin(metadata.getMinKey());
+				entry.setMax(metadata.getMaxKey());
+				entry.setShard(shard);
+				partitions.put(shard, entry);
+				nodes = new ArrayList<String>();
+				replicas.put(shard, nodes);
+			}
+			if(!nodes.contains(dnode)) {
+				nodes.add(dnode);
+			}
+		}
+
+		void remove(int shard, String dnode) {
+			List<String> nodes = replicas.get(shard);
+			if(nodes != null && nodes.remove(dnode) && nodes.isEmpty()) {
+				replicas.remove(shard);
+				partitions.remove(shard);
+			}
+		}
+
+		Tablespace toTablespace(long version) {
+			List<ReplicationEntry> replicationEntries = new ArrayList<ReplicationEntry>(replicas.size());
+			for(Map.Entry<Integer, List<String>> entry : replicas.entrySet()) {
+				ReplicationEntry replicationEntry = new ReplicationEntry();
+				replicationEntry.setShard(entry.getKey());
+				replicationEntry.setNodes(new ArrayList<String>(entry.getValue()));
+				replicationEntries.add(replicationEntry);
+			}
+			return new Tablespace(new PartitionMap(new ArrayList<PartitionEntry>(partitions.values())),
+			    new ReplicationMap(replicationEntries), version, deployDate);
+		}
+	}
+
 	/**
 	 * Update the in-memory <TablespaceVersion, Tablespace> map when a DNode joins, leaves or updates its DNodeINfo.
+	 * <p>
+	 * Only the tablespace versions whose partitions changed for this DNode since its last DNodeInfo are updated. They are
+	 * published as new {@link Tablespace} instances, never modified afterwards, so that queries can read them without
+	 * locking, together with the new {@link RoutingTable} if the version is being served.
 	 */
 	public void updateTablespaceVersions(DNodeInfo dNodeInfo, DNodeEvent event)
 	    throws TablespaceVersionInfoException {
 		synchronized(tVLock) {
-			Map<TablespaceVersion, Tablespace> tablespaceVersionMap = getTablespaceVersionsMap();
-
-			// First check if this DNode is not anymore serving a version that it used to serve (IMPLICIT leaving).
-			// This can happen for instance if a DNode removes an old version.
-			// In this case the version will eventually become empty here.
-			Iterator<Map.Entry<TablespaceVersion, Tablespace>> iterator = tablespaceVersionMap.entrySet()
-			    .iterator();
-
-			while(iterator.hasNext()) {
-				Map.Entry<TablespaceVersion, Tablespace> tablespaceVersion = iterator.next();
-				String tablespaceName = tablespaceVersion.getKey().getTablespace();
-				Long version = tablespaceVersion.getKey().getVersion();
-				// Is this DNode present in this version?
-				Tablespace tablespace = tablespaceVersion.getValue();
-				// We will rebuild the replication map to check if it became empty after the checkings or not
-				int nonEmptyReplicas = 0;
-
-				Iterator<ReplicationEntry> repIter = tablespace.getReplicationMap().getReplicationEntries()
-				    .iterator();
-				while(repIter.hasNext()) {
-					ReplicationEntry entry = repIter.next();
-					int partition = entry.getShard();
-					if(entry.getNodes().contains(dNodeInfo.getAddress())) {
-						// Yes!
-						// So we have to check if this DNode is still serving this version/partition or not
-						if((dNodeInfo.getServingInfo().get(tablespaceName) == null)
-						    || (dNodeInfo.getServingInfo().get(tablespaceName).get(version) == null)
-						    || (dNodeInfo.getServingInfo().get(tablespaceName).get(version).get(partition) == null)) {
-							// NO! So we have to remove the DNode
-							entry.getNodes().remove(dNodeInfo.getAddress());
-							if(entry.getNodes().isEmpty()) {
-								repIter.remove();
-								// Remove also from PartitionMap
-								PartitionEntry pEntry = new PartitionEntry();
-								pEntry.setShard(entry.getShard());
-								tablespace.getPartitionMap().getPartitionEntries().remove(pEntry);
-							}
+			String dnode = dNodeInfo.getAddress();
+			Map<TablespaceVersion, Map<Integer, PartitionMetadata>> oldServingInfo = dnodeServingInfo.get(dnode);
+			if(oldServingInfo == null) {
+				oldServingInfo = Collections.emptyMap();
+			}
+			// A DNode that leaves stops serving everything
+			Map<TablespaceVersion, Map<Integer, PartitionMetadata>> newServingInfo = new HashMap<TablespaceVersion, Map<Integer, PartitionMetadata>>();
+			if(!event.equals(DNodeEvent.LEAVE)) {
+				for(Map.Entry<String, Map<Long, Map<Integer, PartitionMetadata>>> tablespaceEntry : dNodeInfo
+				    .getServingInfo().entrySet()) {
+					for(Map.Entry<Long, Map<Integer, PartitionMetadata>> versionEntry : tablespaceEntry.getValue()
+					    .entrySet()) {
+						if(!versionEntry.getValue().isEmpty()) {
+							newServingInfo.put(new TablespaceVersion(tablespaceEntry.getKey(), versionEntry.getKey()),
+							    new HashMap<Integer, PartitionMetadata>(versionEntry.getValue()));
 						}
 					}
-					if(!entry.getNodes().isEmpty()) {
-						nonEmptyReplicas++;
-					}
 				}
-				if(nonEmptyReplicas == 0) {
-					// Delete TablespaceVersion
-					log.info("Removing empty tablespace version (implicit leaving from " + dNodeInfo.getAddress()
-					    + "): " + tablespaceName + ", " + version);
-					iterator.remove();
+			}
+
+			// The tablespace versions that changed for this DNode
+			List<TablespaceVersion> changed = new ArrayList<TablespaceVersion>();
+			for(Map.Entry<TablespaceVersion, Map<Integer, PartitionMetadata>> entry : newServingInfo.entrySet()) {
+				if(!entry.getValue().equals(oldServingInfo.get(entry.getKey()))) {
+					changed.add(entry.getKey());
+					// Check before changing anything, so that an inconsistent DNodeInfo is not applied partially
+					checkConsistency(entry.getValue(), versionReplicas.get(entry.getKey()));
+				}
+			}
+			for(TablespaceVersion tablespaceVersion : oldServingInfo.keySet()) {
+				if(!newServingInfo.containsKey(tablespaceVersion)) {
+					changed.add(tablespaceVersion);
 				}
 			}
 
-			// Now iterate over all the tablespaces of this DNode to see new additions or EXPLICIT leavings
-			for(Map.Entry<String, Map<Long, Map<Integer, PartitionMetadata>>> tablespaceEntry : dNodeInfo
-			    .getServingInfo().entrySet()) {
-				String tablespaceName = tablespaceEntry.getKey();
-				// Iterate over all versions of this tablespace
-				for(Map.Entry<Long, Map<Integer, PartitionMetadata>> versionEntry : tablespaceEntry.getValue()
-				    .entrySet()) {
-					Long versionName = versionEntry.getKey();
-					TablespaceVersion tablespaceVersion = new TablespaceVersion(tablespaceName, versionName);
-					Tablespace currentTablespace = tablespaceVersionMap.get(tablespaceVersion);
-					List<PartitionEntry> partitionMap = new ArrayList<PartitionEntry>();
-					List<ReplicationEntry> replicationMap = new ArrayList<ReplicationEntry>();
-					long deployDate = -1;
-					if(currentTablespace != null) {
-						// Not first time we see this tablespace. We do a copy of the partition map to be able to modify it without
-						// contention.
-						partitionMap.addAll(currentTablespace.getPartitionMap().getPartitionEntries());
-						replicationMap.addAll(currentTablespace.getReplicationMap().getReplicationEntries());
-						deployDate = currentTablespace.getCreationDate();
-					}
-					// Iterate over all partitions of this tablespace
-					for(Map.Entry<Integer, PartitionMetadata> partition : versionEntry.getValue().entrySet()) {
-						deployDate = deployDate == -1 ? partition.getValue().getDeploymentDate() : deployDate;
-						if(deployDate != -1 && (deployDate != partition.getValue().getDeploymentDate())) {
-							throw new TablespaceVersionInfoException(
-							    "Inconsistent partition metadata within same node, deploy date was " + deployDate
-							        + " versus " + partition.getValue().getDeploymentDate());
-						}
-						PartitionMetadata metadata = partition.getValue();
-						Integer shard = partition.getKey();
-						// Create a PartitionEntry according to this PartitionMetadata
-						PartitionEntry myEntry = new PartitionEntry();
-						myEntry.setMax(metadata.getMaxKey());
-						myEntry.setMin(metadata.getMinKey());
-						myEntry.setShard(shard);
-						PartitionEntry existingPartitionEntry = null;
-						// Look for an existing PartitionEntry for the same shard in the PartitionMap
-						if(!partitionMap.contains(myEntry)) {
-							if(!event.equals(DNodeEvent.LEAVE)) {
-								// In this case all conditions are met for adding a new entry to the PartitionMap
-								partitionMap.add(myEntry);
-								// Note that now the PartitionMap is not necessarily sorted! let's sort it now
-								Collections.sort(partitionMap);
-							}
-						} else {
-							// Check consistency of this Partition Metadata
-							existingPartitionEntry = partitionMap.get(partitionMap.indexOf(myEntry));
-							if(existingPartitionEntry.getMax() == null || myEntry.getMax() == null) {
-								if(!(existingPartitionEntry.getMax() == null && myEntry.getMax() == null)) {
-									throw new TablespaceVersionInfoException(
-									    "Inconsistent partition metadata between nodes: " + existingPartitionEntry
-									        + " versus " + myEntry);
-								}
-							} else {
-								if(!existingPartitionEntry.getMax().equals(myEntry.getMax())) {
-									throw new TablespaceVersionInfoException(
-									    "Inconsistent partition metadata between nodes: " + existingPartitionEntry
-									        + " versus " + myEntry);
-								}
-							}
-							if(existingPartitionEntry.getMin() == null || myEntry.getMin() == null) {
-								if(!(existingPartitionEntry.getMin() == null && myEntry.getMin() == null)) {
-									throw new TablespaceVersionInfoException(
-									    "Inconsistent partition metadata between nodes: " + existingPartitionEntry
-									        + " versus " + myEntry);
-								}
-							} else {
-								if(!existingPartitionEntry.getMin().equals(myEntry.getMin())) {
-									throw new TablespaceVersionInfoException(
-									    "Inconsistent partition metadata between nodes: " + existingPartitionEntry
-									        + " versus " + myEntry);
-								}
-							}
-						}
-						// Create a ReplicationEntry according to this PartitionMetadata
-						// Will only contain this DNode as we don't know about the others yet
-						ReplicationEntry reEntry = new ReplicationEntry();
-						reEntry.setShard(shard);
-						reEntry.setNodes(new ArrayList<String>());
-						// Look for an existing ReplicationEntry for the same shard in the ReplicationMap
-						if(replicationMap.contains(reEntry)) {
-							ReplicationEntry existingEntry = replicationMap.get(replicationMap.indexOf(reEntry));
-							if(event.equals(DNodeEvent.LEAVE)) {
-								// Remove it from replication map and partition map
-								existingEntry.getNodes().remove(dNodeInfo.getAddress());
-								if(existingEntry.getNodes().isEmpty()) {
-									replicationMap.remove(existingEntry);
-									if(existingPartitionEntry != null) {
-										partitionMap.remove(existingPartitionEntry);
-									} else {
-										throw new RuntimeException(
-										    "ReplicationEntry for one shard with no associated PartitionEntry. This is very likely to be a software bug.");
-									}
-								}
-							} else {
-								if(!existingEntry.getNodes().contains(dNodeInfo.getAddress())) {
-									// Add it to replication map
-									existingEntry.getNodes().add(dNodeInfo.getAddress());
-								} else {
-									// We are adding / updating but the node already exists in the replication map. Check consistency here
-									// TODO We are not saving the expected replication factor anywhere currently
-								}
-							}
-						} else if(!event.equals(DNodeEvent.LEAVE)) { // Otherwise just add and sort
-							// We check the DNodeEvent but although would be very weird if this DNode leaves and its ReplicationEntry
-							// wasn't present
-							reEntry.getNodes().add(dNodeInfo.getAddress());
-							replicationMap.add(reEntry);
-							Collections.sort(replicationMap);
+			Set<String> routingChanged = new HashSet<String>();
+			for(TablespaceVersion tablespaceVersion : changed) {
+				Map<Integer, PartitionMetadata> oldPartitions = oldServingInfo.get(tablespaceVersion);
+				Map<Integer, PartitionMetadata> newPartitions = newServingInfo.get(tablespaceVersion);
+				VersionReplicas version = versionReplicas.get(tablespaceVersion);
+				if(oldPartitions != null && version != null) {
+					for(Integer shard : oldPartitions.keySet()) {
+						if(newPartitions == null || !newPartitions.containsKey(shard)) {
+							version.remove(shard, dnode);
 						}
 					}
-					// Delete tablespaceVersion if it is empty now
-					if(currentTablespace != null && replicationMap.size() == 0) {
-						log.info("Removing empty tablespaceVersion: " + tablespaceVersion
-						    + " due to explicit leaving from node " + dNodeInfo.getAddress());
-						tablespaceVersionMap.remove(tablespaceVersion);
-					} else {
-						// Update the info in memory
-						currentTablespace = new Tablespace(new PartitionMap(partitionMap), new ReplicationMap(
-						    replicationMap), versionName, deployDate);
-						tablespaceVersionMap.put(tablespaceVersion, currentTablespace);
+				}
+				if(newPartitions != null) {
+					for(Map.Entry<Integer, PartitionMetadata> partition : newPartitions.entrySet()) {
+						if(version == null) {
+							version = new VersionReplicas(partition.getValue().getDeploymentDate());
+							versionReplicas.put(tablespaceVersion, version);
+						}
+						version.add(partition.getKey(), partition.getValue(), dnode);
 					}
 				}
+				if(version == null || version.replicas.isEmpty()) {
+					log.info("Removing empty tablespace version " + tablespaceVersion + " after " + event + " from "
+					    + dnode);
+					versionReplicas.remove(tablespaceVersion);
+					tablespaceVersionsMap.remove(tablespaceVersion);
+				} else {
+					tablespaceVersionsMap.put(tablespaceVersion, version.toTablespace(tablespaceVersion.getVersion()));
+				}
+				// Versions that start being served later are routed by setCurrentVersions()
+				Long currentVersion = currentVersionsMap.get(tablespaceVersion.getTablespace());
+				if(currentVersion != null && currentVersion == tablespaceVersion.getVersion()) {
+					routingChanged.add(tablespaceVersion.getTablespace());
+				}
+			}
+			updateRouting(routingChanged);
+
+			if(newServingInfo.isEmpty()) {
+				dnodeServingInfo.remove(dnode);
+			} else {
+				dnodeServingInfo.put(dnode, newServingInfo);
 			}
 		}
 	}
 
+	/*
+	 * Checks the partitions that a DNode serves of a tablespace version against the ones already known.
+	 */
+	private static void checkConsistency(Map<Integer, PartitionMetadata> partitions, VersionReplicas version)
+	    throws TablespaceVersionInfoException {
+		long deployDate = version == null ? -1 : version.deployDate;
+		for(Map.Entry<Integer, PartitionMetadata> partition : partitions.entrySet()) {
+			PartitionMetadata metadata = partition.getValue();
+			deployDate = deployDate == -1 ? metadata.getDeploymentDate() : deployDate;
+			if(deployDate != -1 && (deployDate != metadata.getDeploymentDate())) {
+				throw new TablespaceVersionInfoException(
+				    "Inconsistent partition metadata within same node, deploy date was " + deployDate + " versus "
+				        + metadata.getDeploymentDate());
+			}
+			PartitionEntry existingPartitionEntry = version == null ? null : version.partitions.get(partition.getKey());
+			if(existingPartitionEntry != null
+			    && (!equals(existingPartitionEntry.getMin(), metadata.getMinKey()) || !equals(
+			        existingPartitionEntry.getMax(), metadata.getMaxKey()))) {
+				throw new TablespaceVersionInfoException("Inconsistent partition metadata between nodes: "
+				    + existingPartitionEntry + " versus " + metadata);
+			}
+		}
+	}
+
+	private static boolean equals(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
 	/**
-	 * Get the Thrift client for this DNode - it might be cached in (clientCache). Otherwise create a new Thrift client
-	 * and save it in the cache. This is a bit of a mess since Thrift clients are not thread safe and there must be one
-	 * cache per each Thread.
+	 * Get a Thrift client for this DNode from the {@link DNodeClientPool}, or a new one if there are no idle clients. If
+	 * "renew" is set the idle clients of the DNode are closed first. Thrift clients are not thread safe: the client
+	 * belongs to the caller until it is given back with {@link #returnDNodeClient(String, DNodeService.Client, boolean)}.
 	 */
 	public DNodeService.Client getDNodeClient(String dnode, boolean renew) throws TTransportException {
-		// We used to cache Thrift clients but we don't do it now so that's why this method is here
-		return DNodeClient.get(dnode);
+		if(renew) {
+			clientPool.remove(dnode);
+		}
+		return clientPool.borrow(dnode);
+	}
+
+	/**
+	 * Give back a client obtained with {@link #getDNodeClient(String, boolean)}. Clients whose last call failed with
+	 * anything but a {@link DNodeException} are "broken" and are closed instead of pooled.
+	 */
+	public void returnDNodeClient(String dnode, DNodeService.Client client, boolean broken) {
+		clientPool.release(dnode, client, broken);
+	}
+
+	/**
+	 * Sets the read timeout, in milliseconds, of a client obtained with {@link #getDNodeClient(String, boolean)} until it
+	 * is given back.
+	 */
+	public void setDNodeClientTimeout(DNodeService.Client client, int timeout) {
+		clientPool.setTimeout(client, timeout);
 	}
 
 	/**
@@ -365,21 +458,24 @@ public class QNodeHandlerContext {
 				log.info("Sending [" + tablespacesToRemove + "] to all alive DNodes.");
 				for(DNodeInfo dnode : coordinationStructures.getDNodes().values()) {
 					DNodeService.Client client = null;
+					boolean broken = false;
 					try {
 						client = getDNodeClient(dnode.getAddress(), false);
 						client.deleteOldVersions(tablespacesToRemove);
 					} catch(TTransportException e) {
+						broken = true;
 						log.warn("Failed sending delete TablespaceVersions order to (" + dnode
 						    + "). Not critical as they will be removed after other deployments.", e);
 					} catch(DNodeException e) {
 						log.warn("Failed sending delete TablespaceVersions order to (" + dnode
 						    + "). Not critical as they will be removed after other deployments.", e);
 					} catch(TException e) {
+						broken = true;
 						log.warn("Failed sending delete TablespaceVersions order to (" + dnode
 						    + "). Not critical as they will be removed after other deployments.", e);
 					} finally {
 						if(client != null) {
-							client.getOutputProtocol().getTransport().close();
+							returnDNodeClient(dnode.getAddress(), client, broken);
 						}
 					}
 				}
@@ -390,14 +486,63 @@ public class QNodeHandlerContext {
 		return tablespacesToRemove; // Return for unit test
 	}
 
+	/**
+	 * Closes the pooled clients of a DNode and forgets its statistics, to be called when it leaves the cluster.
+	 */
+	public void discardDNodeClients(String dnode) {
+		clientPool.remove(dnode);
+		replicaStats.remove(dnode);
+		unsupportedMethods.remove(dnode);
+	}
+
+	/**
+	 * Whether the DNode serves the RPC, as far as we know: false after {@link #setUnsupported(String, String)} until the
+	 * DNode leaves the cluster, e.g. to be upgraded.
+	 */
+	public boolean isSupported(String dnode, String method) {
+		Set<String> methods = unsupportedMethods.get(dnode);
+		return methods == null || !methods.contains(method);
+	}
+
+	/**
+	 * Remembers that the DNode answered the RPC with {@link org.apache.thrift.TApplicationException#UNKNOWN_METHOD}.
+	 */
+	public void setUnsupported(String dnode, String method) {
+		Set<String> methods = unsupportedMethods.get(dnode);
+		if(methods == null) {
+			Set<String> newMethods = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+			methods = unsupportedMethods.putIfAbsent(dnode, newMethods);
+			if(methods == null) {
+				methods = newMethods;
+			}
+		}
+		if(methods.add(method)) {
+			log.warn("DNode " + dnode + " doesn't serve " + method + "(), it will be queried the old way");
+		}
+	}
+
+	public ReplicaStats getReplicaStats() {
+		return replicaStats;
+	}
+
+	public void close() {
+		clientPool.close();
+	}
+
 	// ---- Getters ---- //
 
+	/**
+	 * Read-only: see {@link #setCurrentVersions(Map)}.
+	 */
 	public Map<String, Long> getCurrentVersionsMap() {
-		return currentVersionsMap;
+		return currentVersionsView;
 	}
 
+	/**
+	 * Read-only: see {@link #updateTablespaceVersions(DNodeInfo, DNodeEvent)}.
+	 */
 	public Map<TablespaceVersion, Tablespace> getTablespaceVersionsMap() {
-		return tablespaceVersionsMap;
+		return tablespaceVersionsView;
 	}
 
 	public CoordinationStructures getCoordinationStructures() {
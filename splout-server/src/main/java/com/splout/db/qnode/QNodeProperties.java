@@ -50,4 +50,57 @@ public class QNodeProperties {
 	 * The number of seconds to wait before checking each time if a DNode has failed or if timeout has ocurred in the middle of a deploy
 	 */
 	public final static String DEPLOY_SECONDS_TO_CHECK_ERROR = "qnode.deploy.seconds.to.check.error";
+	/**
+	 * The number of query fingerprints (queries without their literal values) whose statistics are kept per tablespace.
+	 */
+	public final static String TOP_QUERIES_SIZE = "qnode.top.queries.size";
+	/**
+	 * The maximum number of idle Thrift connections kept open to each DNode. 0 opens a new connection per request.
+	 */
+	public final static String DNODE_POOL_SIZE = "qnode.dnode.pool.size";
+	/**
+	 * The number of seconds after which an idle Thrift connection to a DNode is closed.
+	 */
+	public final static String DNODE_POOL_IDLE_SECONDS = "qnode.dnode.pool.idle.seconds";
+	/**
+	 * The number of milliseconds after which a query to a DNode that hasn't answered fails. Multi-queries use
+	 * {@link #MULTIQUERY_MAX_TIME} instead. 0 for no timeout.
+	 */
+	public final static String DNODE_CLIENT_TIMEOUT = "qnode.dnode.client.timeout";
+	/**
+	 * The number of threads that query the DNodes concurrently on behalf of multi-queries.
+	 */
+	public final static String MULTIQUERY_THREADS = "qnode.multiquery.threads";
+	/**
+	 * The maximum number of DNode queries of multi-queries waiting for a thread. The partitions of the DNode queries that
+	 * don't fit are returned as errors.
+	 */
+	public final static String MULTIQUERY_QUEUE_SIZE = "qnode.multiquery.queue.size";
+	/**
+	 * The maximum number of milliseconds a multi-query waits for its partitions. The partitions that haven't answered by
+	 * then are returned as errors.
+	 */
+	public final static String MULTIQUERY_MAX_TIME = "qnode.multiquery.max.time";
+	/**
+	 * The percentile of the latencies of a tablespace after which a query is also sent to another replica (hedged). 0
+	 * disables hedging.
+	 */
+	public final static String HEDGE_PERCENTILE = "qnode.hedge.percentile";
+	/**
+	 * The minimum number of milliseconds to wait for a replica before hedging a query.
+	 */
+	public final static String HEDGE_MIN_DELAY = "qnode.hedge.min.delay";
+	/**
+	 * The maximum fraction of queries that are hedged, e.g. 0.05 for 5% more queries to the DNodes at most.
+	 */
+	public final static String HEDGE_BUDGET = "qnode.hedge.budget";
+	/**
+	 * The maximum number of threads that send hedged requests. Queries whose hedge finds no thread left are not hedged.
+	 */
+	public final static String HEDGE_THREADS = "qnode.hedge.threads";
+	/**
+	 * How the replica of a partition that is queried is elected: "ewma", "leastoutstanding", "roundrobin" or the name of
+	 * a class implementing {@link ReplicaSelector}. See {@link ReplicaSelectors}.
+	 */
+	public final static String REPLICA_SELECTOR = "qnode.replica.selector";
 }
@@ -22,25 +22,45 @@ package com.splout.db.qnode;
  */
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.thrift.TApplicationException;
 import org.apache.thrift.TException;
-import org.apache.thrift.transport.TTransportException;
 
+import com.splout.db.benchmark.QueryFingerprintStats;
 import com.splout.db.common.JSONSerDe;
 import com.splout.db.common.JSONSerDe.JSONSerDeException;
 import com.splout.db.common.PartitionMap;
-import com.splout.db.common.ReplicationEntry;
-import com.splout.db.common.ReplicationMap;
-import com.splout.db.common.Tablespace;
-import com.splout.db.hazelcast.TablespaceVersion;
+import com.splout.db.common.QueryResultSerDe;
+import com.splout.db.dnode.DNodeHandler;
 import com.splout.db.qnode.beans.ErrorQueryStatus;
 import com.splout.db.qnode.beans.QueryStatus;
 import com.splout.db.thrift.DNodeException;
 import com.splout.db.thrift.DNodeService;
+import com.splout.db.thrift.PartitionQueryResult;
+import com.splout.db.thrift.QueryResult;
 
 /**
  * The Querier is a specialized module ({@link com.splout.db.qnode.QNodeHandlerModule}) of the
@@ -51,8 +71,60 @@ public class Querier extends QNodeHandlerModule {
 
 	private final static Log log = LogFactory.getLog(Querier.class);
 
+	// RPCs that older DNodes may not serve
+	private final static String SQL_QUERY_BINARY = "sqlQueryBinary";
+	private final static String SQL_QUERY_MULTI = "sqlQueryMulti";
+
+	// The most frequent query shapes sent to the DNodes, per tablespace
+	private final QueryFingerprintStats fingerprintStats;
+	// Queries the DNodes concurrently on behalf of multi-queries
+	private final ExecutorService multiQueryExecutor;
+	private final long multiQueryMaxTime;
+	private final int dnodeClientTimeout;
+	// Hedges queries to replicas that are slow to answer
+	private final Hedger hedger;
+	private final ReplicaStats replicaStats;
+	private final ReplicaSelector replicaSelector;
+
 	public Querier(QNodeHandlerContext context) {
 		super(context);
+		fingerprintStats = new QueryFingerprintStats(context.getConfig().getInt(QNodeProperties.TOP_QUERIES_SIZE, 50));
+		int multiQueryThreads = context.getConfig().getInt(QNodeProperties.MULTIQUERY_THREADS, 32);
+		// Bounded, so that DNode queries that would wait too long are rejected instead of piling up
+		multiQueryExecutor = new ThreadPoolExecutor(multiQueryThreads, multiQueryThreads, 0, TimeUnit.MILLISECONDS,
+		    new ArrayBlockingQueue<Runnable>(context.getConfig().getInt(QNodeProperties.MULTIQUERY_QUEUE_SIZE, 1024)),
+		    new ThreadFactory() {
+
+			    @Override
+			    public Thread newThread(Runnable r) {
+				    Thread thread = new Thread(r, "QNode multi-query");
+				    thread.setDaemon(true);
+				    return thread;
+			    }
+		    });
+		multiQueryMaxTime = context.getConfig().getLong(QNodeProperties.MULTIQUERY_MAX_TIME, 20000);
+		dnodeClientTimeout = context.getConfig().getInt(QNodeProperties.DNODE_CLIENT_TIMEOUT, 0);
+		hedger = new Hedger(context.getConfig());
+		replicaStats = context.getReplicaStats();
+		replicaSelector = ReplicaSelectors.create(context.getConfig().getString(QNodeProperties.REPLICA_SELECTOR,
+		    ReplicaSelectors.EWMA), replicaStats);
+	}
+
+	public Hedger getHedger() {
+		return hedger;
+	}
+
+	/**
+	 * Stops the threads used for multi-querying, hedging and recording query fingerprints.
+	 */
+	public void close() {
+		multiQueryExecutor.shutdownNow();
+		hedger.close();
+		fingerprintStats.close();
+	}
+
+	public QueryFingerprintStats getFingerprintStats() {
+		return fingerprintStats;
 	}
 
 	/**
@@ -61,36 +133,39 @@ public class Querier extends QNodeHandlerModule {
 	 * @throws JSONSerDeException
 	 */
 	public QueryStatus query(String tablespaceName, String key, String sql) throws JSONSerDeException {
-		// TODO This logic is repeated in Handler
-		Long version = context.getCurrentVersionsMap().get(tablespaceName);
-		if(version == null) {
-			return new ErrorQueryStatus("Unknown tablespace or not version ready to be served! (" + tablespaceName + ")");
-		}
-		// TODO Not very efficient object creation etc
-		Tablespace tablespace = context.getTablespaceVersionsMap().get(
-		    new TablespaceVersion(tablespaceName, version));
-		if(tablespace == null) {
+		return query(tablespaceName, key, sql, null);
+	}
+
+	/**
+	 * Like {@link #query(String, String, String)} for SQL with "?" parameters, whose values will be bound by the DNode.
+	 */
+	public QueryStatus query(String tablespaceName, String key, String sql, List<Object> params)
+	    throws JSONSerDeException {
+		RoutingTable routingTable = context.getRoutingTable(tablespaceName);
+		if(routingTable == null) {
+			Long version = context.getCurrentVersionsMap().get(tablespaceName);
+			if(version == null) {
+				return new ErrorQueryStatus("Unknown tablespace or not version ready to be served! (" + tablespaceName + ")");
+			}
 			return new ErrorQueryStatus("Unknown tablespace version:(" + version +") tablespace:(" + tablespaceName + ")");
 		}
-		PartitionMap partitionMap = tablespace.getPartitionMap();
 		// Find the partition
-		int partitionId = partitionMap.findPartition(key);
+		int partitionId = routingTable.findPartition(key);
 		if(partitionId == PartitionMap.NO_PARTITION) {
 			return new ErrorQueryStatus("Key out of partition ranges: " + key + " for tablespace "
 			    + tablespaceName);
 		}
-		return query(tablespaceName, sql, partitionId);
+		return query(tablespaceName, sql, partitionId, params);
 	}
 
-	private ThreadLocal<Map<Integer, Integer>> partitionRoundRobin = new ThreadLocal<Map<Integer, Integer>>() {
-
-		protected Map<Integer, Integer> initialValue() {
-			return new HashMap<Integer, Integer>();
-		};
-	};
-
+	/**
+	 * The last replica elected for each partition by this thread, if replicas are elected in round robin.
+	 */
 	public Map<Integer, Integer> getPartitionRoundRobin() {
-		return partitionRoundRobin.get();
+		if(!(replicaSelector instanceof ReplicaSelectors.RoundRobin)) {
+			return null;
+		}
+		return ((ReplicaSelectors.RoundRobin) replicaSelector).getPartitionRoundRobin();
 	}
 
 	/**
@@ -99,87 +174,573 @@ public class Querier extends QNodeHandlerModule {
 	 * @throws JSONSerDeException
 	 */
 	public QueryStatus query(String tablespaceName, String sql, int partitionId) throws JSONSerDeException {
-		// TODO This logic is repeated in Handler
-		Long version = context.getCurrentVersionsMap().get(tablespaceName);
-		if(version == null) {
-			return new ErrorQueryStatus("Unknown tablespace! (" + tablespaceName + ")");
-		}
-		// TODO Not very efficient object creation etc
-		Tablespace tablespace = context.getTablespaceVersionsMap().get(
-		    new TablespaceVersion(tablespaceName, version));
-		if(tablespace == null) {
+		return query(tablespaceName, sql, partitionId, null);
+	}
+
+	/**
+	 * Like {@link #query(String, String, int)} for SQL with "?" parameters, whose values will be bound by the DNode.
+	 */
+	public QueryStatus query(String tablespaceName, String sql, int partitionId, List<Object> params)
+	    throws JSONSerDeException {
+		return query(tablespaceName, sql, partitionId, params, Collections.<String> emptySet(), 0);
+	}
+
+	/*
+	 * Like {@link #query(String, String, int, List)}, avoiding the replicas that already failed the query, unless they
+	 * are all the replicas of the partition. If the deadline (in milliseconds since the epoch) is not 0 the DNodes are
+	 * not waited for after it.
+	 */
+	private QueryStatus query(String tablespaceName, String sql, int partitionId, List<Object> params,
+	    Set<String> alreadyTried, long deadline) throws JSONSerDeException {
+		RoutingTable routingTable = context.getRoutingTable(tablespaceName);
+		if(routingTable == null) {
 			return new ErrorQueryStatus("Unknown tablespace! (" + tablespaceName + ")");
 		}
-		ReplicationMap replicationMap = tablespace.getReplicationMap();
-		ReplicationEntry repEntry = null;
-		// TODO This is not the most efficient, it could be binary search at least
-		// Before it was O(1) because ReplicationMap.size should be equals to PartitionMap.size
-		// Now we don't know... Maybe yes, maybe not.
-		for(ReplicationEntry rEntry : replicationMap.getReplicationEntries()) {
-			if(rEntry.getShard() == partitionId) {
-				repEntry = rEntry;
-			}
-		}
-		if(repEntry == null) {
+		long version = routingTable.getVersion();
+		List<String> replicas = routingTable.getReplicas(partitionId);
+		if(replicas == null) {
 			return new ErrorQueryStatus("Incomplete Tablespace information for tablespace (" + tablespaceName
 			    + ") Maybe let the Splout warmup a little bit and try later?");
 		}
-		if(repEntry.getNodes().size() == 0) { // No one alive for serving the query!
-			return new ErrorQueryStatus("No alive DNodes for " + tablespace);
+		if(replicas.size() == 0) { // No one alive for serving the query!
+			return new ErrorQueryStatus("No alive DNodes for " + tablespaceName);
 		}
-		// This is not very efficient, but it is the only way of being able to remove() elements for fail-over
-		String electedNode;
 		int tried = 0;
+		Set<String> triedNodes = Collections.emptySet();
+		if(!alreadyTried.isEmpty()) {
+			for(String replica : replicas) {
+				if(alreadyTried.contains(replica)) {
+					tried++;
+				}
+			}
+			if(tried == replicas.size()) {
+				tried = 0; // Try them again
+			} else {
+				triedNodes = new HashSet<String>(alreadyTried);
+			}
+		}
+		// A replica that is slow to answer is hedged with another one
+		if(replicas.size() > 1 && tried == 0) {
+			long hedgeDelay = hedger.getDelay(tablespaceName);
+			if(hedgeDelay >= 0) {
+				Set<String> hedged = new HashSet<String>();
+				QueryStatus qStatus = hedgedQuery(replicas, tablespaceName, version, partitionId, sql, params, hedgeDelay,
+				    deadline, hedged);
+				if(qStatus != null) {
+					return qStatus;
+				}
+				// Fail over to the replicas that the hedged query didn't try
+				triedNodes = hedged;
+				for(String replica : replicas) {
+					if(hedged.contains(replica)) {
+						tried++;
+					}
+				}
+			}
+		}
+		String electedNode;
 		for(;;) { // Fail-over loop
-			electedNode = null;
-			Integer lastNode = partitionRoundRobin.get().get(partitionId);
-			if(lastNode == null) {
-				lastNode = -1;
+			if(deadline > 0 && System.currentTimeMillis() >= deadline) {
+				return new ErrorQueryStatus("Query timed out");
 			}
-			lastNode++;
 			tried++;
-			int index = lastNode % repEntry.getNodes().size();
-			electedNode = repEntry.getNodes().get(index);
-			partitionRoundRobin.get().put(partitionId, index);
-
-			// Perform query
-			QueryStatus qStatus = new QueryStatus();
-			long start = System.currentTimeMillis();
-
-			DNodeService.Client client = null;
+			electedNode = replicaSelector.select(partitionId, replicas, triedNodes);
+			if(triedNodes.isEmpty()) {
+				triedNodes = new HashSet<String>();
+			}
+			triedNodes.add(electedNode);
 			try {
-				client = context.getDNodeClient(electedNode, false);
-
-				String r;
-				try {
-					r = client.sqlQuery(tablespaceName, version, partitionId, sql);
-				} catch(TTransportException e) {
-					throw e;
-				}
-
-				qStatus.setResult(JSONSerDe.deSer(r, ArrayList.class));
-				long end = System.currentTimeMillis();
-				// Report the time of the query
-				qStatus.setMillis((end - start));
-				// ... and the shard hit.
-				qStatus.setShard(partitionId);
-				return qStatus;
+				return queryNode(electedNode, tablespaceName, version, partitionId, sql, params, deadline, null);
 			} catch(DNodeException e) {
-				log.error("Exception in Querier", e);
-				if(tried == repEntry.getNodes().size()) {
+				if(e.getCode() == DNodeHandler.EXCEPTION_OVERLOADED) {
+					// Not an error: the DNode sheds load so that we try another replica
+					log.warn("DNode " + electedNode + " overloaded: " + e.getMsg());
+				} else if(e.getCode() == DNodeHandler.EXCEPTION_OVER_BUDGET) {
+					// The query would exceed its budget in any other replica too
+					return new ErrorQueryStatus("DNode exception (" + e.getMsg() + ") from " + electedNode);
+				} else {
+					log.error("Exception in Querier", e);
+				}
+				if(tried == replicas.size()) {
 					return new ErrorQueryStatus("DNode exception (" + e.getMsg() + ") from " + electedNode);
 				}
 			} catch(TException e) {
 				log.error("Exception in Querier", e);
-				if(tried == repEntry.getNodes().size()) {
+				if(tried == replicas.size()) {
 					return new ErrorQueryStatus("Error connecting to client " + electedNode);
 				}
+			}
+		}
+	}
+
+	/*
+	 * Queries one replica of a partition, until the deadline if it is not 0. The attempt, if not null, is told the client
+	 * so that it can cancel the query, and returns null if it was cancelled before the query was sent.
+	 */
+	private QueryStatus queryNode(String electedNode, String tablespaceName, long version, int partitionId,
+	    String sql, List<Object> params, long deadline, HedgedAttempt attempt) throws DNodeException, TException,
+	    JSONSerDeException {
+		QueryStatus qStatus = new QueryStatus();
+		long start = System.currentTimeMillis();
+		long startNanos = System.nanoTime();
+
+		DNodeService.Client client = null;
+		boolean broken = false;
+		boolean failed = true;
+		replicaStats.start(electedNode);
+		try {
+			client = context.getDNodeClient(electedNode, false);
+			setTimeout(client, deadline);
+			if(attempt != null) {
+				attempt.client.set(client);
+				if(attempt.cancelled) { // Before sending the query
+					failed = false;
+					return null;
+				}
+			}
+
+			ArrayList r;
+			long bytes;
+			if(params != null && params.size() > 0) {
+				QueryResult result = client.sqlQueryWithParams(tablespaceName, version, partitionId, sql,
+				    QueryResultSerDe.serParams(params));
+				bytes = QueryResultSerDe.sizeOf(result);
+				r = QueryResultSerDe.deSer(result);
+				setCpuMicros(qStatus, result);
+			} else {
+				QueryResult result = null;
+				if(context.isSupported(electedNode, SQL_QUERY_BINARY)) {
+					try {
+						result = client.sqlQueryBinary(tablespaceName, version, partitionId, sql);
+					} catch(TApplicationException e) {
+						if(e.getType() != TApplicationException.UNKNOWN_METHOD) {
+							throw e;
+						}
+						context.setUnsupported(electedNode, SQL_QUERY_BINARY);
+					}
+				}
+				if(result != null) {
+					bytes = QueryResultSerDe.sizeOf(result);
+					r = QueryResultSerDe.deSer(result);
+					setCpuMicros(qStatus, result);
+				} else {
+					// DNodes that don't serve the binary result format: fall back to JSON
+					String json = client.sqlQuery(tablespaceName, version, partitionId, sql);
+					bytes = json.length();
+					r = JSONSerDe.deSer(json, ArrayList.class);
+				}
+			}
+
+			qStatus.setResult(r);
+			failed = false;
+			long end = System.currentTimeMillis();
+			fingerprintStats.record(tablespaceName, sql, end - start, bytes);
+			hedger.recordLatency(tablespaceName, System.nanoTime() - startNanos);
+			// Report the time of the query
+			qStatus.setMillis((end - start));
+			// ... and the shard hit.
+			qStatus.setShard(partitionId);
+			return qStatus;
+		} catch(DNodeException e) {
+			// Queries over budget are not the DNode's fault
+			failed = e.getCode() != DNodeHandler.EXCEPTION_OVER_BUDGET;
+			throw e;
+		} catch(TException e) {
+			broken = true;
+			// Cancelled queries are not the DNode's fault either
+			failed = attempt == null || !attempt.cancelled;
+			throw e;
+		} finally {
+			replicaStats.end(electedNode, System.nanoTime() - startNanos, failed);
+			if(client != null) {
+				if(attempt != null && !attempt.client.compareAndSet(client, null)) {
+					broken = true; // Closed by cancel()
+				}
+				context.returnDNodeClient(electedNode, client, broken);
+			}
+		}
+	}
+
+	/*
+	 * A call that is still waiting for the DNode at the deadline, if it is not 0, or else after the
+	 * {@link QNodeProperties#DNODE_CLIENT_TIMEOUT}, fails with a transport exception.
+	 */
+	private void setTimeout(DNodeService.Client client, long deadline) {
+		if(deadline > 0) {
+			context.setDNodeClientTimeout(client, (int) Math.max(deadline - System.currentTimeMillis(), 1));
+		} else if(dnodeClientTimeout > 0) {
+			context.setDNodeClientTimeout(client, dnodeClientTimeout);
+		}
+	}
+
+	/*
+	 * Reports the CPU time that the DNode took for the query, if it measured it.
+	 */
+	private static void setCpuMicros(QueryStatus qStatus, QueryResult result) {
+		if(result.isSetCpuMicros()) {
+			qStatus.setCpuMicros(result.getCpuMicros());
+		}
+	}
+
+	/*
+	 * A query to one replica that another thread can cancel. The client is taken with a CAS by whoever is done with it
+	 * first: the query, which gives it back, or cancel(), which closes it so that the query fails and then discards the
+	 * client as broken.
+	 */
+	private static class HedgedAttempt {
+
+		final AtomicReference<DNodeService.Client> client = new AtomicReference<DNodeService.Client>();
+		volatile boolean cancelled = false;
+
+		void cancel() {
+			cancelled = true;
+			DNodeService.Client inFlight = client.getAndSet(null);
+			if(inFlight != null) {
+				inFlight.getInputProtocol().getTransport().close();
+			}
+		}
+	}
+
+	/*
+	 * The query to the second replica of a hedged query, run by the {@link Hedger}. It cancels the first attempt when it
+	 * answers.
+	 */
+	private class Hedge implements Runnable {
+
+		final static int PENDING = 0, RUNNING = 1, CANCELLED = 2;
+
+		final String node;
+		final String tablespaceName;
+		final long version;
+		final int partitionId;
+		final String sql;
+		final List<Object> params;
+		final long deadline;
+		final HedgedAttempt first;
+		final HedgedAttempt attempt = new HedgedAttempt();
+		final AtomicInteger state = new AtomicInteger(PENDING);
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile boolean sent = false;
+		volatile QueryStatus result;
+		volatile Exception error;
+
+		Hedge(String node, String tablespaceName, long version, int partitionId, String sql, List<Object> params,
+		    long deadline, HedgedAttempt first) {
+			this.node = node;
+			this.tablespaceName = tablespaceName;
+			this.version = version;
+			this.partitionId = partitionId;
+			this.sql = sql;
+			this.params = params;
+			this.deadline = deadline;
+			this.first = first;
+		}
+
+		@Override
+		public void run() {
+			if(!state.compareAndSet(PENDING, RUNNING)) {
+				return;
+			}
+			try {
+				if(hedger.tryHedge()) {
+					sent = true;
+					result = queryNode(node, tablespaceName, version, partitionId, sql, params, deadline, attempt);
+					if(result != null) {
+						first.cancel();
+					}
+				}
+			} catch(Exception e) {
+				error = e;
 			} finally {
-				if(client != null) {
-					client.getOutputProtocol().getTransport().close();
+				done.countDown();
+			}
+		}
+
+		/*
+		 * Returns true if the hedge was never sent, so that there is nothing to wait for.
+		 */
+		boolean cancel() {
+			boolean neverSent = state.compareAndSet(PENDING, CANCELLED);
+			attempt.cancel();
+			return neverSent;
+		}
+	}
+
+	/*
+	 * Queries the elected replica in this thread and, if it doesn't answer within the delay and the budget allows it, the
+	 * cheapest other one in a hedging thread, returning the first answer. The replicas that were queried are added to
+	 * tried. If they failed it returns null so that the regular fail-over tries the others, or an error if there are no
+	 * others.
+	 */
+	private QueryStatus hedgedQuery(List<String> replicas, String tablespaceName, long version, int partitionId,
+	    String sql, List<Object> params, long delay, long deadline, Set<String> tried) throws JSONSerDeException {
+		String electedNode = replicaSelector.select(partitionId, replicas, Collections.<String> emptySet());
+		// The cheapest of the other replicas
+		String hedgeNode = null;
+		for(String node : replicas) {
+			if(!node.equals(electedNode)
+			    && (hedgeNode == null || replicaStats.getCost(node) < replicaStats.getCost(hedgeNode))) {
+				hedgeNode = node;
+			}
+		}
+		if(hedgeNode == null) { // The same DNode twice
+			hedgeNode = electedNode;
+		}
+
+		HedgedAttempt first = new HedgedAttempt();
+		Hedge hedge = new Hedge(hedgeNode, tablespaceName, version, partitionId, sql, params, deadline, first);
+		ScheduledFuture<?> timer;
+		try {
+			timer = hedger.schedule(hedge, delay);
+		} catch(RejectedExecutionException e) {
+			return null; // The QNode is shutting down
+		}
+		tried.add(electedNode);
+		QueryStatus qStatus = null;
+		String failure = null;
+		try {
+			qStatus = queryNode(electedNode, tablespaceName, version, partitionId, sql, params, deadline, first);
+		} catch(DNodeException e) {
+			if(e.getCode() == DNodeHandler.EXCEPTION_OVER_BUDGET) {
+				// The query would exceed its budget in any other replica too
+				timer.cancel(false);
+				hedge.cancel();
+				return new ErrorQueryStatus("DNode exception (" + e.getMsg() + ") from " + electedNode);
+			}
+			log.warn("Hedged query to " + electedNode + " failed: " + e.getMsg());
+			failure = "DNode exception (" + e.getMsg() + ") from " + electedNode;
+		} catch(TException e) {
+			if(!first.cancelled) {
+				log.warn("Hedged query to " + electedNode + " failed: " + e);
+			}
+			failure = "Error connecting to client " + electedNode;
+		}
+		timer.cancel(false);
+		if(qStatus != null) {
+			hedge.cancel();
+			return qStatus;
+		}
+		if(hedge.cancel()) { // Not hedged
+			return tried.containsAll(replicas) ? new ErrorQueryStatus(failure) : null;
+		}
+		try {
+			if(deadline > 0 || dnodeClientTimeout > 0) {
+				// Without a deadline the hedge fails after the DNode client timeout anyway
+				long wait = deadline > 0 ? Math.max(deadline - System.currentTimeMillis(), 0) : dnodeClientTimeout;
+				if(!hedge.done.await(wait, TimeUnit.MILLISECONDS)) {
+					failure = "Query timed out";
+				}
+			} else {
+				hedge.done.await();
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			hedge.cancel();
+			return new ErrorQueryStatus("Query interrupted");
+		}
+		if(hedge.result != null) {
+			hedger.hedgeWon();
+			return hedge.result;
+		}
+		if(hedge.sent) {
+			tried.add(hedgeNode);
+		}
+		if(hedge.error instanceof DNodeException) {
+			DNodeException e = (DNodeException) hedge.error;
+			if(e.getCode() == DNodeHandler.EXCEPTION_OVER_BUDGET) {
+				return new ErrorQueryStatus("DNode exception (" + e.getMsg() + ") from " + hedgeNode);
+			}
+			failure = "DNode exception (" + e.getMsg() + ") from " + hedgeNode;
+		} else if(hedge.error != null) {
+			failure = "Error connecting to client " + hedgeNode;
+		}
+		if(hedge.error != null) {
+			log.warn("Hedged query to " + hedgeNode + " failed: " + hedge.error);
+		}
+		hedge.cancel();
+		return tried.containsAll(replicas) ? new ErrorQueryStatus(failure) : null;
+	}
+
+	/**
+	 * Multi-query: queries several partitions of a tablespace, sending all the partitions whose elected replica is the
+	 * same DNode in a single sqlQueryMulti() call, so that a query over many partitions costs about one round trip per
+	 * DNode. Partitions that fail in their batch, or whose DNode doesn't serve sqlQueryMulti(), are queried one by one
+	 * with {@link #query(String, String, int, List)}, which fails over to the other replicas.
+	 * <p>
+	 * The DNodes are queried concurrently, so the multi-query takes about as long as the slowest DNode. The partitions
+	 * that haven't answered after {@link QNodeProperties#MULTIQUERY_MAX_TIME} are returned as errors.
+	 * <p>
+	 * Returns one {@link QueryStatus} per partition, in the same order.
+	 */
+	public ArrayList<QueryStatus> multiQuery(final String tablespaceName, List<Integer> partitions,
+	    final String sql, final List<Object> params) throws JSONSerDeException {
+		RoutingTable routingTable = context.getRoutingTable(tablespaceName);
+		final long version = routingTable == null ? -1 : routingTable.getVersion();
+		// Group the partitions by elected replica
+		Map<String, List<Integer>> partitionsPerNode = new LinkedHashMap<String, List<Integer>>();
+		if(routingTable != null) {
+			for(Integer partitionId : partitions) {
+				List<String> replicas = routingTable.getReplicas(partitionId);
+				if(replicas == null || replicas.size() == 0) {
+					continue; // query() will report the error
+				}
+				String electedNode = replicaSelector.select(partitionId, replicas, Collections.<String> emptySet());
+				List<Integer> nodePartitions = partitionsPerNode.get(electedNode);
+				if(nodePartitions == null) {
+					nodePartitions = new ArrayList<Integer>();
+					partitionsPerNode.put(electedNode, nodePartitions);
+				}
+				nodePartitions.add(partitionId);
+			}
+		}
+		// Scatter: one task per DNode
+		final long deadline = System.currentTimeMillis() + multiQueryMaxTime;
+		List<Future<Map<Integer, QueryStatus>>> futures = new ArrayList<Future<Map<Integer, QueryStatus>>>();
+		List<List<Integer>> futurePartitions = new ArrayList<List<Integer>>();
+		Map<Integer, QueryStatus> statuses = new HashMap<Integer, QueryStatus>();
+		for(Map.Entry<String, List<Integer>> entry : partitionsPerNode.entrySet()) {
+			final String dnode = entry.getKey();
+			final List<Integer> nodePartitions = entry.getValue();
+			try {
+				futures.add(multiQueryExecutor.submit(new Callable<Map<Integer, QueryStatus>>() {
+
+					@Override
+					public Map<Integer, QueryStatus> call() throws Exception {
+						return multiQuery(dnode, tablespaceName, version, nodePartitions, sql, params, deadline);
+					}
+				}));
+				futurePartitions.add(nodePartitions);
+			} catch(RejectedExecutionException e) {
+				// Too many multi-queries in progress, or the QNode is shutting down
+				putErrors(statuses, nodePartitions, "Multi-query rejected, the QNode is busy");
+			}
+		}
+		// Gather, as long as there is time left
+		for(int i = 0; i < futures.size(); i++) {
+			Future<Map<Integer, QueryStatus>> future = futures.get(i);
+			try {
+				statuses.putAll(future.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS));
+			} catch(TimeoutException e) {
+				// Stops the pending one-by-one queries of this DNode, if any
+				future.cancel(true);
+				putErrors(statuses, futurePartitions.get(i), "Multi-query timed out after " + multiQueryMaxTime + " ms");
+			} catch(ExecutionException e) {
+				log.error("Exception in Querier", e.getCause());
+				putErrors(statuses, futurePartitions.get(i), "Error in multi-query (" + e.getCause() + ")");
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				future.cancel(true);
+				putErrors(statuses, futurePartitions.get(i), "Multi-query interrupted");
+			}
+		}
+		ArrayList<QueryStatus> toReturn = new ArrayList<QueryStatus>(partitions.size());
+		for(Integer partitionId : partitions) {
+			QueryStatus qStatus = statuses.get(partitionId);
+			if(qStatus == null) {
+				qStatus = query(tablespaceName, sql, partitionId, params);
+			}
+			toReturn.add(qStatus);
+		}
+		return toReturn;
+	}
+
+	private static void putErrors(Map<Integer, QueryStatus> statuses, List<Integer> partitions, String error) {
+		for(Integer partitionId : partitions) {
+			ErrorQueryStatus qStatus = new ErrorQueryStatus(error);
+			qStatus.setShard(partitionId);
+			statuses.put(partitionId, qStatus);
+		}
+	}
+
+	/*
+	 * Queries the partitions that one DNode was elected for: in a single sqlQueryMulti() call if there are several of
+	 * them, then one by one the partitions that it didn't answer, in the other replicas if there are any.
+	 */
+	private Map<Integer, QueryStatus> multiQuery(String dnode, String tablespaceName, long version,
+	    List<Integer> partitions, String sql, List<Object> params, long deadline) throws JSONSerDeException {
+		Map<Integer, QueryStatus> statuses = partitions.size() > 1 ? multiQueryBatch(dnode, tablespaceName, version,
+		    partitions, sql, params, deadline) : null;
+		Set<String> tried = Collections.singleton(dnode);
+		if(statuses == null) { // The DNode wasn't queried yet
+			statuses = new HashMap<Integer, QueryStatus>();
+			tried = Collections.emptySet();
+		}
+		for(Integer partitionId : partitions) {
+			if(Thread.currentThread().isInterrupted()) {
+				break; // The multi-query timed out
+			}
+			if(!statuses.containsKey(partitionId)) {
+				statuses.put(partitionId, query(tablespaceName, sql, partitionId, params, tried, deadline));
+			}
+		}
+		return statuses;
+	}
+
+	/*
+	 * Queries several partitions in one DNode with a single sqlQueryMulti() call. Returns the statuses of the partitions
+	 * that succeeded, or failed in a way that no other replica would fix, or null if the DNode doesn't serve
+	 * sqlQueryMulti().
+	 */
+	private Map<Integer, QueryStatus> multiQueryBatch(String dnode, String tablespaceName, long version,
+	    List<Integer> partitions, String sql, List<Object> params, long deadline) {
+		if(!context.isSupported(dnode, SQL_QUERY_MULTI)) {
+			return null; // The partitions will be queried one by one
+		}
+		Map<Integer, QueryStatus> statuses = new HashMap<Integer, QueryStatus>();
+		long start = System.currentTimeMillis();
+		long startNanos = System.nanoTime();
+		DNodeService.Client client = null;
+		boolean broken = false;
+		boolean failed = true;
+		replicaStats.start(dnode);
+		try {
+			client = context.getDNodeClient(dnode, false);
+			setTimeout(client, deadline);
+			List<PartitionQueryResult> results = client.sqlQueryMulti(tablespaceName, version, partitions, sql,
+			    params != null && params.size() > 0 ? QueryResultSerDe.serParams(params) : null);
+			failed = false;
+			long end = System.currentTimeMillis();
+			long bytes = 0;
+			for(PartitionQueryResult result : results) {
+				if(result.isSetResult()) {
+					bytes += QueryResultSerDe.sizeOf(result.getResult());
+					QueryStatus qStatus = new QueryStatus();
+					qStatus.setResult(QueryResultSerDe.deSer(result.getResult()));
+					setCpuMicros(qStatus, result.getResult());
+					qStatus.setMillis(end - start);
+					qStatus.setShard(result.getPartition());
+					statuses.put(result.getPartition(), qStatus);
+				} else if(result.getErrorCode() == DNodeHandler.EXCEPTION_OVER_BUDGET) {
+					// The query would exceed its budget in any other replica too
+					statuses.put(result.getPartition(), new ErrorQueryStatus("DNode exception (" + result.getErrorMessage()
+					    + ") from " + dnode));
+				} else if(result.getErrorCode() != DNodeHandler.EXCEPTION_OVERLOADED) {
+					log.error("DNode " + dnode + " failed partition " + result.getPartition() + " of multi-query: "
+					    + result.getErrorMessage());
 				}
 			}
+			fingerprintStats.record(tablespaceName, sql, end - start, bytes);
+		} catch(TApplicationException e) {
+			// DNodes that don't serve multi-queries: the partitions will be queried one by one
+			if(e.getType() != TApplicationException.UNKNOWN_METHOD) {
+				log.error("Exception in Querier", e);
+			} else {
+				failed = false;
+				context.setUnsupported(dnode, SQL_QUERY_MULTI);
+				statuses = null;
+			}
+		} catch(DNodeException e) {
+			log.error("DNode " + dnode + " failed multi-query: " + e.getMsg());
+		} catch(TException e) {
+			broken = true;
+			log.error("Exception in Querier", e);
+		} finally {
+			replicaStats.end(dnode, System.nanoTime() - startNanos, failed);
+			if(client != null) {
+				context.returnDNodeClient(dnode, client, broken);
+			}
 		}
+		return statuses;
 	}
 
 	/**
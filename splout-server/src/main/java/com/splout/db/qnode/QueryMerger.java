@@ -0,0 +1,347 @@
+package com.splout.db.qnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.splout.db.qnode.beans.MergeSpec;
+import com.splout.db.qnode.beans.QueryStatus;
+
+/**
+ * Merges the results of the partitions of a multi-query into one, as described by a {@link MergeSpec}. When the rows
+ * are not aggregated, the ORDER BY and LIMIT are pushed down to each partition (see {@link #pushDown(String)}) so that
+ * each one returns at most "limit" rows, already sorted. Their results, which the QNode receives whole, are then
+ * combined with a k-way merge instead of being concatenated and sorted again. Otherwise the rows of all the partitions
+ * are combined by their group-by columns and then sorted and limited.
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class QueryMerger {
+
+	private final static Pattern AVG = Pattern.compile("AVG\\s*\\(\\s*(.+?)\\s*\\)", Pattern.CASE_INSENSITIVE);
+	private final static Pattern SORT = Pattern.compile("(.+?)(?:\\s+(ASC|DESC))?", Pattern.CASE_INSENSITIVE);
+
+	private final List<String> groupBy;
+	// Column -> SUM, COUNT, MIN or MAX
+	private final Map<String, String> aggregates = new LinkedHashMap<String, String>();
+	// Column -> the COUNT column that weights its average
+	private final Map<String, String> averages = new LinkedHashMap<String, String>();
+	private final List<String> sortColumns = new ArrayList<String>();
+	private final List<Boolean> descending = new ArrayList<Boolean>();
+	private final Integer limit;
+
+	/**
+	 * @throws IllegalArgumentException
+	 *           If the {@link MergeSpec} is not valid.
+	 */
+	public QueryMerger(MergeSpec spec) {
+		groupBy = spec.getGroupBy() == null ? new ArrayList<String>() : spec.getGroupBy();
+		if(spec.getAggregates() != null) {
+			for(Map.Entry<String, String> entry : spec.getAggregates().entrySet()) {
+				String function = entry.getValue() == null ? "" : entry.getValue().trim().toUpperCase();
+				Matcher avg = AVG.matcher(function);
+				if(function.equals("SUM") || function.equals("COUNT") || function.equals("MIN")
+				    || function.equals("MAX")) {
+					aggregates.put(entry.getKey(), function);
+				} else if(avg.matches()) {
+					// The original case of the column name
+					averages.put(entry.getKey(), entry.getValue().trim().substring(avg.start(1), avg.end(1)));
+				} else {
+					throw new IllegalArgumentException("Unknown aggregate for column " + entry.getKey() + ": "
+					    + entry.getValue() + " (use SUM, COUNT, MIN, MAX or AVG(countColumn))");
+				}
+			}
+		}
+		for(Map.Entry<String, String> entry : averages.entrySet()) {
+			if(!"COUNT".equals(aggregates.get(entry.getValue()))) {
+				throw new IllegalArgumentException("The average of column " + entry.getKey() + " is weighted by column "
+				    + entry.getValue() + ", which must be a COUNT aggregate");
+			}
+		}
+		if(spec.getOrderBy() != null) {
+			for(String sortColumn : spec.getOrderBy()) {
+				Matcher sort = SORT.matcher(sortColumn == null ? "" : sortColumn.trim());
+				if(!sort.matches()) {
+					throw new IllegalArgumentException("Invalid sort column: " + sortColumn);
+				}
+				sortColumns.add(sort.group(1));
+				descending.add("DESC".equalsIgnoreCase(sort.group(2)));
+			}
+		}
+		if(spec.getLimit() != null && spec.getLimit() < 0) {
+			throw new IllegalArgumentException("Invalid limit: " + spec.getLimit());
+		}
+		limit = spec.getLimit();
+	}
+
+	public boolean isAggregating() {
+		return !groupBy.isEmpty() || !aggregates.isEmpty() || !averages.isEmpty();
+	}
+
+	/**
+	 * The SQL that each partition runs. Unless the rows are aggregated, no partition needs to return more than its first
+	 * "limit" rows, sorted by the same columns as the merged result. Sort columns are quoted with backticks, which SQLite
+	 * never mistakes for string literals: a sort column that is not in the result makes the partitions fail instead of
+	 * being sorted by a constant.
+	 */
+	public String pushDown(String sql) {
+		if(isAggregating() || (sortColumns.isEmpty() && limit == null)) {
+			return sql;
+		}
+		String inner = sql.trim();
+		while(inner.endsWith(";")) {
+			inner = inner.substring(0, inner.length() - 1).trim();
+		}
+		// The line break protects from a trailing SQL comment
+		StringBuilder pushed = new StringBuilder("SELECT * FROM (").append(inner).append("\n)");
+		for(int i = 0; i < sortColumns.size(); i++) {
+			pushed.append(i == 0 ? " ORDER BY " : ", ");
+			pushed.append('`').append(sortColumns.get(i).replace("`", "``")).append('`');
+			if(descending.get(i)) {
+				pushed.append(" DESC");
+			}
+		}
+		if(limit != null) {
+			pushed.append(" LIMIT ").append(limit);
+		}
+		return pushed.toString();
+	}
+
+	/**
+	 * Merges the results of the partitions. Returns the merged {@link QueryStatus}, whose time is the one of the slowest
+	 * partition and whose CPU time is the sum of those of the partitions (if known), followed by the statuses of the
+	 * partitions that failed, if any.
+	 * 
+	 * @throws IllegalArgumentException
+	 *           If the rows don't have named columns, or don't have the sort columns.
+	 */
+	public ArrayList<QueryStatus> merge(List<QueryStatus> statuses) {
+		ArrayList<QueryStatus> toReturn = new ArrayList<QueryStatus>();
+		List<List<Map>> results = new ArrayList<List<Map>>();
+		long millis = 0;
+		Long cpuMicros = null;
+		boolean checkedColumns = false;
+		for(QueryStatus status : statuses) {
+			if(status.getError() != null) {
+				toReturn.add(status);
+				continue;
+			}
+			if(status.getResult() != null) {
+				for(Object row : status.getResult()) {
+					if(!(row instanceof Map)) {
+						throw new IllegalArgumentException("Can't merge rows without named columns: " + row);
+					}
+				}
+				if(!checkedColumns && !status.getResult().isEmpty()) {
+					// All the partitions run the same query, so the first row tells the columns of all of them
+					checkSortColumns((Map) status.getResult().get(0));
+					checkedColumns = true;
+				}
+				results.add(status.getResult());
+			}
+			if(status.getMillis() != null) {
+				millis = Math.max(millis, status.getMillis());
+			}
+			if(status.getCpuMicros() != null) {
+				cpuMicros = (cpuMicros == null ? 0 : cpuMicros) + status.getCpuMicros();
+			}
+		}
+		ArrayList<Map> rows;
+		if(isAggregating()) {
+			rows = aggregate(results);
+		} else if(!sortColumns.isEmpty()) {
+			rows = kWayMerge(results);
+		} else {
+			rows = new ArrayList<Map>();
+			for(List<Map> result : results) {
+				for(Map row : result) {
+					if(limit != null && rows.size() >= limit) {
+						break;
+					}
+					rows.add(row);
+				}
+			}
+		}
+		QueryStatus merged = new QueryStatus();
+		merged.setResult(rows);
+		merged.setMillis(millis);
+		merged.setCpuMicros(cpuMicros);
+		toReturn.add(0, merged);
+		return toReturn;
+	}
+
+	private void checkSortColumns(Map row) {
+		for(String sortColumn : sortColumns) {
+			if(!row.containsKey(sortColumn)) {
+				throw new IllegalArgumentException("Sort column " + sortColumn + " is not in the result, whose columns are "
+				    + row.keySet());
+			}
+		}
+	}
+
+	/*
+	 * Merges the results, each one already sorted, until the limit is reached.
+	 */
+	private ArrayList<Map> kWayMerge(final List<List<Map>> results) {
+		ArrayList<Map> rows = new ArrayList<Map>();
+		final Comparator<Map> rowComparator = rowComparator();
+		// Each element of the heap points to the next row of a result: {result, row}
+		PriorityQueue<int[]> heap = new PriorityQueue<int[]>(Math.max(results.size(), 1), new Comparator<int[]>() {
+
+			@Override
+			public int compare(int[] a, int[] b) {
+				int cmp = rowComparator.compare(results.get(a[0]).get(a[1]), results.get(b[0]).get(b[1]));
+				return cmp != 0 ? cmp : a[0] - b[0];
+			}
+		});
+		for(int i = 0; i < results.size(); i++) {
+			if(results.get(i).size() > 0) {
+				heap.add(new int[] { i, 0 });
+			}
+		}
+		while(!heap.isEmpty() && (limit == null || rows.size() < limit)) {
+			int[] next = heap.poll();
+			rows.add(results.get(next[0]).get(next[1]));
+			if(next[1] + 1 < results.get(next[0]).size()) {
+				heap.add(new int[] { next[0], next[1] + 1 });
+			}
+		}
+		return rows;
+	}
+
+	/*
+	 * Combines the rows with the same group-by values, then sorts and limits them.
+	 */
+	private ArrayList<Map> aggregate(List<List<Map>> results) {
+		Map<List<Object>, Map> groups = new LinkedHashMap<List<Object>, Map>();
+		for(List<Map> result : results) {
+			for(Map row : result) {
+				List<Object> key = new ArrayList<Object>(groupBy.size());
+				for(String column : groupBy) {
+					key.add(row.get(column));
+				}
+				Map group = groups.get(key);
+				if(group == null) {
+					groups.put(key, new LinkedHashMap(row));
+					continue;
+				}
+				// Averages first, as they are weighted with the counts before adding the ones of this row
+				for(Map.Entry<String, String> entry : averages.entrySet()) {
+					group.put(entry.getKey(), average(group.get(entry.getKey()), group.get(entry.getValue()),
+					    row.get(entry.getKey()), row.get(entry.getValue())));
+				}
+				for(Map.Entry<String, String> entry : aggregates.entrySet()) {
+					Object value = group.get(entry.getKey());
+					Object other = row.get(entry.getKey());
+					if(value == null || other == null) {
+						// Like in SQL, NULLs are ignored
+						group.put(entry.getKey(), value == null ? other : value);
+					} else if(entry.getValue().equals("MIN")) {
+						group.put(entry.getKey(), compareValues(value, other) <= 0 ? value : other);
+					} else if(entry.getValue().equals("MAX")) {
+						group.put(entry.getKey(), compareValues(value, other) >= 0 ? value : other);
+					} else { // SUM or COUNT
+						group.put(entry.getKey(), add(value, other));
+					}
+				}
+			}
+		}
+		ArrayList<Map> rows = new ArrayList<Map>(groups.values());
+		if(!sortColumns.isEmpty()) {
+			Collections.sort(rows, rowComparator());
+		}
+		if(limit != null && rows.size() > limit) {
+			rows = new ArrayList<Map>(rows.subList(0, limit));
+		}
+		return rows;
+	}
+
+	private Comparator<Map> rowComparator() {
+		return new Comparator<Map>() {
+
+			@Override
+			public int compare(Map a, Map b) {
+				for(int i = 0; i < sortColumns.size(); i++) {
+					int cmp = compareValues(a.get(sortColumns.get(i)), b.get(sortColumns.get(i)));
+					if(cmp != 0) {
+						return descending.get(i) ? -cmp : cmp;
+					}
+				}
+				return 0;
+			}
+		};
+	}
+
+	/**
+	 * Compares two values the way SQLite sorts them: NULL first, then numbers, then text.
+	 */
+	public static int compareValues(Object a, Object b) {
+		if(a == null || b == null) {
+			return a == null ? (b == null ? 0 : -1) : 1;
+		}
+		if(a instanceof Number && b instanceof Number) {
+			if(isIntegral(a) && isIntegral(b)) {
+				long la = ((Number) a).longValue();
+				long lb = ((Number) b).longValue();
+				return la < lb ? -1 : (la == lb ? 0 : 1);
+			}
+			return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+		}
+		if(a instanceof Number || b instanceof Number) {
+			return a instanceof Number ? -1 : 1;
+		}
+		return a.toString().compareTo(b.toString());
+	}
+
+	private static boolean isIntegral(Object value) {
+		return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+	}
+
+	private static double doubleValue(Object value) {
+		return value instanceof Number ? ((Number) value).doubleValue() : 0;
+	}
+
+	private static Object add(Object a, Object b) {
+		if(isIntegral(a) && isIntegral(b)) {
+			return ((Number) a).longValue() + ((Number) b).longValue();
+		}
+		return doubleValue(a) + doubleValue(b);
+	}
+
+	private static Object average(Object a, Object aCount, Object b, Object bCount) {
+		if(a == null || b == null) {
+			return a == null ? b : a;
+		}
+		double weight = doubleValue(aCount) + doubleValue(bCount);
+		if(weight == 0) {
+			return a;
+		}
+		return (doubleValue(a) * doubleValue(aCount) + doubleValue(b) * doubleValue(bCount)) / weight;
+	}
+}
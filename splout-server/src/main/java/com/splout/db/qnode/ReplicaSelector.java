@@ -0,0 +1,38 @@
+package com.splout.db.qnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Strategy used by the {@link Querier} for electing which replica of a partition is queried, see
+ * {@link ReplicaSelectors}.
+ */
+public interface ReplicaSelector {
+
+	/**
+	 * Elects one of the replicas of a partition. The replicas that already failed for the current query should be
+	 * avoided, unless all of them are in that set.
+	 */
+	public String select(int partitionId, List<String> replicas, Set<String> tried);
+}
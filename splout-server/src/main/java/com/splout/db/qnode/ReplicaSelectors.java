@@ -0,0 +1,207 @@
+package com.splout.db.qnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The {@link ReplicaSelector}s available through {@link QNodeProperties#REPLICA_SELECTOR}.
+ */
+public class ReplicaSelectors {
+
+	/**
+	 * Picks two random replicas and elects the one with the lowest cost ({@link ReplicaStats#getCost(String)}), so that
+	 * traffic drains away from slow, overloaded or failing DNodes while still spreading the load. Replicas whose costs
+	 * are almost the same are elected at random.
+	 */
+	public final static String EWMA = "ewma";
+	/**
+	 * Elects the replica with the fewest requests in flight from this QNode.
+	 */
+	public final static String LEAST_OUTSTANDING = "leastoutstanding";
+	/**
+	 * Elects each replica in turn, per partition and per serving thread.
+	 */
+	public final static String ROUND_ROBIN = "roundrobin";
+
+	/**
+	 * Instantiates the selector with the given name, or the class with that name, which must implement
+	 * {@link ReplicaSelector} and have a public constructor that receives the {@link ReplicaStats}.
+	 */
+	public static ReplicaSelector create(String name, ReplicaStats stats) {
+		if(EWMA.equals(name)) {
+			return new EwmaPowerOfTwo(stats);
+		} else if(LEAST_OUTSTANDING.equals(name)) {
+			return new LeastOutstanding(stats);
+		} else if(ROUND_ROBIN.equals(name)) {
+			return new RoundRobin();
+		}
+		try {
+			return (ReplicaSelector) Class.forName(name).getConstructor(ReplicaStats.class).newInstance(stats);
+		} catch(Exception e) {
+			throw new IllegalArgumentException("Unknown " + QNodeProperties.REPLICA_SELECTOR + " [" + name
+			    + "], should be " + EWMA + ", " + LEAST_OUTSTANDING + ", " + ROUND_ROBIN
+			    + " or the name of a class implementing " + ReplicaSelector.class.getName(), e);
+		}
+	}
+
+	// Random per thread, to avoid contention
+	private final static ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+
+		protected Random initialValue() {
+			return new Random();
+		};
+	};
+
+	/*
+	 * Number of replicas that haven't been tried.
+	 */
+	private static int candidates(List<String> replicas, Set<String> tried) {
+		if(tried.isEmpty()) {
+			return replicas.size();
+		}
+		int candidates = 0;
+		for(String replica : replicas) {
+			if(!tried.contains(replica)) {
+				candidates++;
+			}
+		}
+		return candidates;
+	}
+
+	/*
+	 * The n-th replica that hasn't been tried.
+	 */
+	private static String candidate(List<String> replicas, Set<String> tried, int n) {
+		if(tried.isEmpty()) {
+			return replicas.get(n);
+		}
+		int i = 0;
+		for(String replica : replicas) {
+			if(!tried.contains(replica) && i++ == n) {
+				return replica;
+			}
+		}
+		throw new IndexOutOfBoundsException("No candidate replica " + n + " in " + replicas + " minus " + tried);
+	}
+
+	public static class EwmaPowerOfTwo implements ReplicaSelector {
+
+		// Costs that differ by less than this fraction are a tie
+		final static double TIE = 0.1;
+
+		private final ReplicaStats stats;
+
+		public EwmaPowerOfTwo(ReplicaStats stats) {
+			this.stats = stats;
+		}
+
+		@Override
+		public String select(int partitionId, List<String> replicas, Set<String> tried) {
+			int candidates = candidates(replicas, tried);
+			if(candidates == 0) {
+				tried = Collections.emptySet();
+				candidates = replicas.size();
+			}
+			if(candidates == 1) {
+				return candidate(replicas, tried, 0);
+			}
+			Random random = RANDOM.get();
+			int first = random.nextInt(candidates);
+			// A different one
+			int second = (first + 1 + random.nextInt(candidates - 1)) % candidates;
+			String a = candidate(replicas, tried, first);
+			String b = candidate(replicas, tried, second);
+			double costA = stats.getCost(a);
+			double costB = stats.getCost(b);
+			if(Math.abs(costA - costB) <= TIE * Math.max(costA, costB)) {
+				return random.nextBoolean() ? a : b;
+			}
+			return costA < costB ? a : b;
+		}
+	}
+
+	public static class LeastOutstanding implements ReplicaSelector {
+
+		private final ReplicaStats stats;
+
+		public LeastOutstanding(ReplicaStats stats) {
+			this.stats = stats;
+		}
+
+		@Override
+		public String select(int partitionId, List<String> replicas, Set<String> tried) {
+			int candidates = candidates(replicas, tried);
+			if(candidates == 0) {
+				tried = Collections.emptySet();
+				candidates = replicas.size();
+			}
+			// Start at a random replica so that ties are spread
+			int offset = RANDOM.get().nextInt(candidates);
+			String elected = null;
+			int leastOutstanding = Integer.MAX_VALUE;
+			for(int i = 0; i < candidates; i++) {
+				String replica = candidate(replicas, tried, (offset + i) % candidates);
+				int outstanding = stats.getOutstanding(replica);
+				if(outstanding < leastOutstanding) {
+					elected = replica;
+					leastOutstanding = outstanding;
+				}
+			}
+			return elected;
+		}
+	}
+
+	public static class RoundRobin implements ReplicaSelector {
+
+		private ThreadLocal<Map<Integer, Integer>> partitionRoundRobin = new ThreadLocal<Map<Integer, Integer>>() {
+
+			protected Map<Integer, Integer> initialValue() {
+				return new HashMap<Integer, Integer>();
+			};
+		};
+
+		public Map<Integer, Integer> getPartitionRoundRobin() {
+			return partitionRoundRobin.get();
+		}
+
+		/*
+		 * Replicas that failed are not skipped: they are left behind as the turn moves on.
+		 */
+		@Override
+		public String select(int partitionId, List<String> replicas, Set<String> tried) {
+			Integer lastNode = partitionRoundRobin.get().get(partitionId);
+			if(lastNode == null) {
+				lastNode = -1;
+			}
+			lastNode++;
+			int index = lastNode % replicas.size();
+			partitionRoundRobin.get().put(partitionId, index);
+			return replicas.get(index);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.splout.db.qnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load statistics of each DNode as seen by this QNode, shared by all its threads: the requests in flight and an
+ * exponentially weighted moving average (EWMA) of the latencies, where failures count as a high latency. The average
+ * decays towards 0 while a DNode gets no requests, so that a DNode that was avoided because it was slow is eventually
+ * tried again. DNodes without any latency yet are assumed to be as fast as the average of the others, so that a DNode
+ * that joins doesn't get all the requests at once.
+ */
+public class ReplicaStats {
+
+	// Weight of each new latency in the moving average
+	final static double ALPHA = 0.3;
+	// Time constant of the decay of the moving average of idle DNodes
+	final static double DECAY_NANOS = 10 * 1000000000d;
+	// The latency that a failed request counts as, at least
+	final static long FAILURE_PENALTY_NANOS = 1000000000l;
+
+	private final ConcurrentMap<String, Node> nodes = new ConcurrentHashMap<String, Node>();
+
+	private static class Node {
+
+		final AtomicInteger outstanding = new AtomicInteger(0);
+		// Guarded by this
+		boolean sampled = false;
+		double ewma = 0;
+		long updatedAt = System.nanoTime();
+	}
+
+	/**
+	 * Called before sending a request to the DNode.
+	 */
+	public void start(String dnode) {
+		getNode(dnode).outstanding.incrementAndGet();
+	}
+
+	/**
+	 * Called when a request to the DNode finished, successfully or not, after the given nanoseconds.
+	 */
+	public void end(String dnode, long nanos, boolean failed) {
+		Node node = getNode(dnode);
+		node.outstanding.decrementAndGet();
+		double sample = failed ? Math.max(nanos, FAILURE_PENALTY_NANOS) : nanos;
+		long now = System.nanoTime();
+		synchronized(node) {
+			double ewma = decayed(node, now);
+			node.ewma = !node.sampled ? sample : ewma + ALPHA * (sample - ewma);
+			node.sampled = true;
+			node.updatedAt = now;
+		}
+	}
+
+	public int getOutstanding(String dnode) {
+		Node node = nodes.get(dnode);
+		return node == null ? 0 : node.outstanding.get();
+	}
+
+	/**
+	 * The moving average of the latencies of the DNode in nanoseconds, 0 if unknown.
+	 */
+	public double getLatency(String dnode) {
+		Node node = nodes.get(dnode);
+		if(node == null) {
+			return 0;
+		}
+		synchronized(node) {
+			return decayed(node, System.nanoTime());
+		}
+	}
+
+	/**
+	 * The expected cost of sending one more request to the DNode: its latency, or the average one if it has none yet,
+	 * times the requests it would have in flight.
+	 */
+	public double getCost(String dnode) {
+		Node node = nodes.get(dnode);
+		long now = System.nanoTime();
+		double latency = node == null ? -1 : sampledLatency(node, now);
+		if(latency < 0) {
+			latency = meanLatency(now);
+		}
+		return latency * (getOutstanding(dnode) + 1);
+	}
+
+	/**
+	 * Forgets a DNode that left the cluster.
+	 */
+	public void remove(String dnode) {
+		nodes.remove(dnode);
+	}
+
+	private static double decayed(Node node, long now) {
+		return node.ewma * Math.exp(-(now - node.updatedAt) / DECAY_NANOS);
+	}
+
+	/*
+	 * The latency of the DNode, or -1 if it has none yet.
+	 */
+	private static double sampledLatency(Node node, long now) {
+		synchronized(node) {
+			return node.sampled ? decayed(node, now) : -1;
+		}
+	}
+
+	/*
+	 * The average latency of the DNodes that have one, 0 if none has.
+	 */
+	private double meanLatency(long now) {
+		double sum = 0;
+		int sampled = 0;
+		for(Node node : nodes.values()) {
+			double latency = sampledLatency(node, now);
+			if(latency >= 0) {
+				sum += latency;
+				sampled++;
+			}
+		}
+		return sampled == 0 ? 0 : sum / sampled;
+	}
+
+	private Node getNode(String dnode) {
+		Node node = nodes.get(dnode);
+		if(node == null) {
+			Node newNode = new Node();
+			node = nodes.putIfAbsent(dnode, newNode);
+			if(node == null) {
+				node = newNode;
+			}
+		}
+		return node;
+	}
+}
@@ -0,0 +1,178 @@
+package com.splout.db.qnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.splout.db.common.PartitionEntry;
+import com.splout.db.common.PartitionMap;
+import com.splout.db.common.ReplicationEntry;
+import com.splout.db.common.Tablespace;
+
+/**
+ * Immutable view of a {@link Tablespace} version, compiled for routing queries: the partition boundaries are searched
+ * with binary search and the replicas of each partition are indexed by partition id, so that routing a query takes
+ * O(log n) and allocates nothing. See {@link QNodeHandlerContext#getRoutingTable(String)}.
+ * <p>
+ * Binary search needs the partitions to be sorted and contiguous (each one starts where the previous one ends), as
+ * they are when deployed. Otherwise the partitions are scanned like {@link PartitionMap} does.
+ */
+public class RoutingTable {
+
+	private final String tablespace;
+	private final long version;
+	// Partition i is [mins[i], maxs[i]), a null min or max being an open end
+	private final String[] mins;
+	private final String[] maxs;
+	private final int[] shards;
+	private final boolean contiguous;
+	// Fallback for partition maps that are not contiguous
+	private final PartitionMap partitionMap;
+	// Indexed by partition id, null for unknown partitions
+	private final List<List<String>> replicas;
+
+	public RoutingTable(String tablespace, long version, Tablespace tablespaceInfo) {
+		this.tablespace = tablespace;
+		this.version = version;
+		List<PartitionEntry> entries = new ArrayList<PartitionEntry>(tablespaceInfo.getPartitionMap()
+		    .getPartitionEntries());
+		int n = entries.size();
+		mins = new String[n];
+		maxs = new String[n];
+		shards = new int[n];
+		boolean isContiguous = n > 0;
+		for(int i = 0; i < n; i++) {
+			PartitionEntry entry = entries.get(i);
+			mins[i] = entry.getMin();
+			maxs[i] = entry.getMax();
+			shards[i] = entry.getShard();
+			if((i > 0 && (mins[i] == null || maxs[i - 1] == null || !mins[i].equals(maxs[i - 1])))
+			    || (mins[i] != null && maxs[i] != null && mins[i].compareTo(maxs[i]) > 0)) {
+				isContiguous = false;
+			}
+		}
+		contiguous = isContiguous;
+		partitionMap = contiguous || n == 0 ? null : new PartitionMap(entries);
+
+		int maxShard = -1;
+		List<ReplicationEntry> repEntries = tablespaceInfo.getReplicationMap().getReplicationEntries();
+		for(ReplicationEntry entry : repEntries) {
+			maxShard = Math.max(maxShard, entry.getShard());
+		}
+		replicas = new ArrayList<List<String>>(Collections.<List<String>> nCopies(maxShard + 1, null));
+		// If the same partition appears twice, the last one wins
+		for(ReplicationEntry entry : repEntries) {
+			if(entry.getShard() >= 0) {
+				replicas.set(entry.getShard(), Collections.unmodifiableList(new ArrayList<String>(entry.getNodes())));
+			}
+		}
+	}
+
+	public String getTablespace() {
+		return tablespace;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * The replicas of a partition, or null if the partition is unknown.
+	 */
+	public List<String> getReplicas(int partitionId) {
+		if(partitionId < 0 || partitionId >= replicas.size()) {
+			return null;
+		}
+		return replicas.get(partitionId);
+	}
+
+	/**
+	 * Same as {@link PartitionMap#findPartition(String)}.
+	 */
+	public int findPartition(String key) {
+		if(key == null) {
+			throw new IllegalArgumentException("Key obj can't be null for findPartition()");
+		}
+		if(!contiguous) {
+			return partitionMap == null ? PartitionMap.NO_PARTITION : partitionMap.findPartition(key);
+		}
+		int last = shards.length - 1;
+		if((mins[0] != null && mins[0].compareTo(key) > 0) || (maxs[last] != null && maxs[last].compareTo(key) <= 0)) {
+			return PartitionMap.NO_PARTITION;
+		}
+		// The first partition whose max is greater than the key
+		int lo = 0;
+		int hi = last;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(key.compareTo(maxs[mid]) < 0) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		return shards[lo];
+	}
+
+	/**
+	 * Same as {@link PartitionMap#findPartitions(String, String)}.
+	 */
+	public List<Integer> findPartitions(String minKey, String maxKey) {
+		if(!contiguous) {
+			return partitionMap == null ? new ArrayList<Integer>() : partitionMap.findPartitions(minKey, maxKey);
+		}
+		int last = shards.length - 1;
+		// The first partition whose max is greater than minKey
+		int from = 0;
+		if(minKey != null) {
+			int hi = last + 1;
+			while(from < hi) {
+				int mid = (from + hi) >>> 1;
+				if(maxs[mid] == null || maxs[mid].compareTo(minKey) > 0) {
+					hi = mid;
+				} else {
+					from = mid + 1;
+				}
+			}
+		}
+		// The last partition whose min is lower or equal than maxKey
+		int to = last;
+		if(maxKey != null) {
+			int lo = -1;
+			while(lo < to) {
+				int mid = (lo + to + 1) >> 1;
+				if(mins[mid] == null || mins[mid].compareTo(maxKey) <= 0) {
+					lo = mid;
+				} else {
+					to = mid - 1;
+				}
+			}
+		}
+		List<Integer> partitions = new ArrayList<Integer>(Math.max(0, to - from + 1));
+		for(int i = from; i <= to; i++) {
+			partitions.add(shards[i]);
+		}
+		return partitions;
+	}
+}
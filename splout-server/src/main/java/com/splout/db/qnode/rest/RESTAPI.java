@@ -22,9 +22,11 @@ package com.splout.db.qnode.rest;
  */
 
 import com.splout.db.common.JSONSerDe;
+import com.splout.db.common.JSONSerDe.JSONSerDeException;
 import com.splout.db.qnode.IQNodeHandler;
 import com.splout.db.qnode.QNode;
 import com.splout.db.qnode.beans.DeployRequest;
+import com.splout.db.qnode.beans.MergeSpec;
 import com.splout.db.qnode.beans.QueryStatus;
 import com.splout.db.qnode.beans.SwitchVersionRequest;
 import org.apache.commons.logging.Log;
@@ -53,7 +55,8 @@ public class RESTAPI {
 	@Path("/query/{tablespace}")
 	@Produces({ "application/json;charset=UTF-8" })
 	public String query(@PathParam("tablespace") String tablespace, @QueryParam("key") List<String> keys,
-	    @QueryParam("sql") String sql, @QueryParam("callback") String callback) throws Exception {
+	    @QueryParam("sql") String sql, @QueryParam("params") String params,
+	    @QueryParam("callback") String callback) throws Exception {
 
 		// When receiving more than one key we just concatenate them in the same way partition by multiple fields is done
 		// Notice that order is important here and it shoulb de consistent with the "partition by" clause, otherwise
@@ -62,9 +65,10 @@ public class RESTAPI {
 		for(String strKey : keys) {
 			key += strKey;
 		}
-		QueryStatus st = ((IQNodeHandler) rc.getProperties().get("handler")).query(tablespace, key, sql);
+		QueryStatus st = ((IQNodeHandler) rc.getProperties().get("handler")).query(tablespace, key, sql,
+		    deSerParams(params));
 		log.info(Thread.currentThread().getName() + ": Query request received, tablespace[" + tablespace
-		    + "], key[" + key + "], sql[" + sql + "] time [" + st.getMillis() + "]");
+		    + "], key[" + key + "], sql[" + sql + "], params[" + params + "] time [" + st.getMillis() + "]");
 		String resp = JSONSerDe.ser(st);
 		// For supporting cross domain requests
 		if(callback != null) {
@@ -78,19 +82,36 @@ public class RESTAPI {
 	@Produces({ "application/json;charset=UTF-8" })
 	public String multiQuery(@QueryParam("keymins") List<String> keyMins,
 	    @QueryParam("keymaxs") List<String> keyMaxs, @PathParam("tablespace") String tablespace,
-	    @QueryParam("sql") String sql, @QueryParam("callback") String callback) throws Exception {
+	    @QueryParam("sql") String sql, @QueryParam("params") String params,
+	    @QueryParam("merge") String merge, @QueryParam("callback") String callback) throws Exception {
 
 		log.info(Thread.currentThread().getName() + ": MultiQuery request received, tablespace["
-		    + tablespace + "], keymins[" + keyMins + "], keymaxs[" + keyMaxs + "], sql[" + sql + "]");
-		// For supporting cross domain requests
+		    + tablespace + "], keymins[" + keyMins + "], keymaxs[" + keyMaxs + "], sql[" + sql + "], params["
+		    + params + "], merge[" + merge + "]");
+		// The merge spec comes as a JSON object, e.g. merge={"orderBy": ["n DESC"], "limit": 10}
 		String resp = JSONSerDe.ser(((IQNodeHandler) rc.getProperties().get("handler")).multiQuery(
-		    tablespace, keyMins, keyMaxs, sql));
+		    tablespace, keyMins, keyMaxs, sql, deSerParams(params),
+		    merge == null ? null : JSONSerDe.deSer(merge, MergeSpec.class)));
+		// For supporting cross domain requests
 		if(callback != null) {
 			resp = callback + "(" + resp + ")";
 		}
 		return resp;
 	}
 
+	public final static TypeReference<ArrayList<Object>> PARAMS_REF = new TypeReference<ArrayList<Object>>() {
+	};
+
+	/*
+	 * The values of the "?" parameters of a query come as a JSON array, e.g. params=["foo", 3, 1.5, null]
+	 */
+	private static List<Object> deSerParams(String params) throws JSONSerDeException {
+		if(params == null) {
+			return null;
+		}
+		return JSONSerDe.deSer(params, PARAMS_REF);
+	}
+
 	public final static TypeReference<ArrayList<DeployRequest>> DEPLOY_REQ_REF = new TypeReference<ArrayList<DeployRequest>>() {
 	};
 
@@ -180,4 +201,28 @@ public class RESTAPI {
 		return JSONSerDe.ser(((IQNodeHandler) rc.getProperties().get("handler")).dnodeStatus(dnode));
 	}
 
+	@GET
+	@Path("/dnode/{dnode}/slowqueries")
+	@Produces({ "application/json;charset=UTF-8" })
+	public String dnodeSlowQueries(@PathParam("dnode") String dnode) throws Exception {
+
+		return JSONSerDe.ser(((IQNodeHandler) rc.getProperties().get("handler")).dnodeSlowQueries(dnode));
+	}
+
+	@GET
+	@Path("/dnode/{dnode}/querystats")
+	@Produces({ "application/json;charset=UTF-8" })
+	public String dnodeQueryStats(@PathParam("dnode") String dnode) throws Exception {
+
+		return JSONSerDe.ser(((IQNodeHandler) rc.getProperties().get("handler")).dnodeQueryStats(dnode));
+	}
+
+	@GET
+	@Path("/querystats")
+	@Produces({ "application/json;charset=UTF-8" })
+	public String queryStats() throws Exception {
+
+		return JSONSerDe.ser(((IQNodeHandler) rc.getProperties().get("handler")).queryStats());
+	}
+
 }
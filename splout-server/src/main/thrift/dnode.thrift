@@ -31,9 +31,59 @@ struct TablespaceVersion {
   2: i64 version
 }
 
+/*
+ * Values of one column of a QueryResult. Values of non-null rows are appended, in row order, to the vector of their
+ * SQLite storage class: longs and doubles are packed as 8-byte big-endian values. Bit i of "nulls" is set if row i is
+ * NULL. "rowTypes" (one SQLite storage class byte per row) is only present for columns that mix storage classes.
+ */
+struct ResultColumn {
+  1: binary nulls,
+  2: optional binary longs,
+  3: optional binary doubles,
+  4: optional list<string> strings,
+  5: optional list<binary> blobs,
+  6: optional binary rowTypes
+}
+
+/*
+ * Columnar, typed result of a query. Column types are one of INTEGER, REAL, TEXT, BLOB, NULL or MIXED.
+ * "cpuMicros" is the CPU time in microseconds that the DNode spent producing the result.
+ */
+struct QueryResult {
+  1: list<string> columnNames,
+  2: list<string> columnTypes,
+  3: i32 nRows,
+  4: list<ResultColumn> columns,
+  5: optional i64 cpuMicros
+}
+
+/*
+ * Value bound to a "?" parameter of a query. Exactly one of the fields is set, except for NULL values which have none.
+ */
+struct QueryParam {
+  1: optional i64 longValue,
+  2: optional double doubleValue,
+  3: optional string stringValue,
+  4: optional binary blobValue
+}
+
+/*
+ * Result of one of the partitions of a sqlQueryMulti(). Either "result" is set or the query failed in this partition
+ * with the DNodeException code and message in "errorCode" and "errorMessage".
+ */
+struct PartitionQueryResult {
+  1: i32 partition,
+  2: optional QueryResult result,
+  3: optional i32 errorCode,
+  4: optional string errorMessage
+}
+
 service DNodeService {
 
 	string sqlQuery(1:string tablespace, 2:i64 version, 3:i32 partition, 4:string query) throws (1:DNodeException excep)
+	QueryResult sqlQueryBinary(1:string tablespace, 2:i64 version, 3:i32 partition, 4:string query) throws (1:DNodeException excep)
+	QueryResult sqlQueryWithParams(1:string tablespace, 2:i64 version, 3:i32 partition, 4:string query, 5:list<QueryParam> params) throws (1:DNodeException excep)
+	list<PartitionQueryResult> sqlQueryMulti(1:string tablespace, 2:i64 version, 3:list<i32> partitions, 4:string query, 5:list<QueryParam> params) throws (1:DNodeException excep)
 	string deleteOldVersions(1:list<TablespaceVersion> versions) throws (1:DNodeException excep)
 	string deploy(1:list<DeployAction> deployActions, 2:i64 version) throws (1:DNodeException excep)
 	string rollback(1:list<RollbackAction> rollbackActions, 2:string distributedBarrier) throws (1:DNodeException excep)
@@ -0,0 +1,75 @@
+package com.splout.db.benchmark;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.splout.db.dnode.beans.LatencyStats;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.MetricName;
+
+public class TestPerformanceTool {
+
+	@Test
+	public void testBusiestPartitions() {
+		PerformanceTool tool = new PerformanceTool();
+		for(int partition = 0; partition < 10; partition++) {
+			for(int i = 0; i <= partition; i++) {
+				tool.startQuery();
+				tool.endQuery("t1", partition);
+			}
+		}
+		Map<String, LatencyStats> latencies = tool.getPartitionLatencies(3);
+		assertEquals(3, latencies.size());
+		assertEquals(10, latencies.get("t1/9").getCount());
+		assertEquals(9, latencies.get("t1/8").getCount());
+		assertEquals(8, latencies.get("t1/7").getCount());
+		assertEquals(0, tool.getPartitionLatencies(0).size());
+		assertEquals(10, tool.getPartitionLatencies(100).size());
+	}
+
+	@Test
+	public void testRemoveTablespace() {
+		PerformanceTool tool = new PerformanceTool();
+		tool.registerMetrics(TestPerformanceTool.class);
+		tool.startQuery();
+		tool.endQuery("t1", 0);
+		tool.startQuery();
+		tool.endQuery("t2", 0);
+		MetricName gauge = new MetricName(TestPerformanceTool.class, "latency-p99-ms", "t1");
+		assertTrue(Metrics.defaultRegistry().allMetrics().containsKey(gauge));
+
+		tool.removeTablespace("t1");
+		assertTrue(!Metrics.defaultRegistry().allMetrics().containsKey(gauge));
+		assertTrue(Metrics.defaultRegistry().allMetrics().containsKey(
+		    new MetricName(TestPerformanceTool.class, "latency-p99-ms", "t2")));
+		assertEquals(1, tool.getTablespaceLatencies().size());
+		assertEquals(1, tool.getPartitionLatencies(10).size());
+		assertEquals(2, tool.getNQueries());
+		tool.removeTablespace("t2");
+	}
+}
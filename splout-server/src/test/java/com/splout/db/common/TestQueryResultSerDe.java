@@ -0,0 +1,168 @@
+package com.splout.db.common;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TSerializer;
+import org.junit.Test;
+
+import com.splout.db.thrift.QueryParam;
+import com.splout.db.thrift.QueryResult;
+
+public class TestQueryResultSerDe {
+
+	public static String TEST_DB = TestQueryResultSerDe.class.getName() + ".db";
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testRoundTrip() throws Exception {
+		File dbFile = new File(TEST_DB);
+		if(dbFile.exists()) {
+			dbFile.delete();
+		}
+		SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		try {
+			manager.exec("CREATE TABLE t (a INT, b TEXT, c REAL, d INT, e BLOB, f);");
+			manager.exec("INSERT INTO t VALUES (1, 'foo', 1.5, NULL, x'0102', 10)");
+			manager.exec("INSERT INTO t VALUES (2, NULL, 2.5, NULL, NULL, 'ten')");
+			manager.exec("INSERT INTO t VALUES (9000000000, 'bar', NULL, NULL, x'03', 10.5)");
+
+			QueryResult result = manager.query("SELECT * FROM t ORDER BY a;", 100, new QueryResultSerDe.Builder());
+			assertEquals(3, result.getNRows());
+			assertEquals(QueryResultSerDe.TYPE_INTEGER, result.getColumnTypes().get(0));
+			assertEquals(QueryResultSerDe.TYPE_TEXT, result.getColumnTypes().get(1));
+			assertEquals(QueryResultSerDe.TYPE_REAL, result.getColumnTypes().get(2));
+			assertEquals(QueryResultSerDe.TYPE_NULL, result.getColumnTypes().get(3));
+			assertEquals(QueryResultSerDe.TYPE_BLOB, result.getColumnTypes().get(4));
+			assertEquals(QueryResultSerDe.TYPE_MIXED, result.getColumnTypes().get(5));
+
+			// Go through the wire format, like the QNode does
+			byte[] bytes = new TSerializer().serialize(result);
+			QueryResult deSerResult = new QueryResult();
+			new TDeserializer().deserialize(deSerResult, bytes);
+
+			ArrayList<Map<String, Object>> rows = QueryResultSerDe.deSer(deSerResult);
+			ArrayList jsonRows = JSONSerDe.deSer(manager.query("SELECT a, b, c, d, f FROM t ORDER BY a;", 100),
+			    ArrayList.class);
+			assertEquals(3, rows.size());
+			for(int i = 0; i < rows.size(); i++) {
+				Map<String, Object> row = rows.get(i);
+				Map jsonRow = (Map) jsonRows.get(i);
+				// Same values and types than the JSON path, except for blobs
+				for(Object column : jsonRow.keySet()) {
+					assertEquals(jsonRow.get(column), row.get(column));
+				}
+			}
+			assertEquals(9000000000l, rows.get(2).get("a"));
+			assertNull(rows.get(1).get("b"));
+			assertEquals(true, rows.get(0).containsKey("d"));
+			assertArrayEquals(new byte[] { 1, 2 }, (byte[]) rows.get(0).get("e"));
+			assertNull(rows.get(1).get("e"));
+			assertArrayEquals(new byte[] { 3 }, (byte[]) rows.get(2).get("e"));
+
+			// The rows can be turned back into the same result
+			QueryResult serRows = QueryResultSerDe.ser(rows);
+			assertEquals(result.getColumnNames(), serRows.getColumnNames());
+			assertEquals(result.getColumnTypes(), serRows.getColumnTypes());
+			ArrayList<Map<String, Object>> reRows = QueryResultSerDe.deSer(serRows);
+			for(int i = 0; i < rows.size(); i++) {
+				for(String column : rows.get(i).keySet()) {
+					if(!column.equals("e")) {
+						assertEquals(rows.get(i).get(column), reRows.get(i).get(column));
+					}
+				}
+			}
+			assertArrayEquals(new byte[] { 1, 2 }, (byte[]) reRows.get(0).get("e"));
+
+			// Empty results keep their columns
+			result = manager.query("SELECT a, b FROM t WHERE a = 3;", 100, new QueryResultSerDe.Builder());
+			assertEquals(0, result.getNRows());
+			assertEquals(2, result.getColumnNamesSize());
+			assertEquals(0, QueryResultSerDe.deSer(result).size());
+		} finally {
+			manager.close();
+			dbFile.delete();
+		}
+	}
+
+	@Test
+	public void testParams() throws Exception {
+		File dbFile = new File(TEST_DB);
+		if(dbFile.exists()) {
+			dbFile.delete();
+		}
+		SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		try {
+			manager.exec("CREATE TABLE t (a INT, b TEXT, c REAL, e BLOB);");
+			manager.exec("INSERT INTO t VALUES (1, 'foo', 1.5, x'0102')");
+			manager.exec("INSERT INTO t VALUES (2, 'it''s', 2.5, NULL)");
+
+			List<QueryParam> queryParams = QueryResultSerDe.serParams(Arrays.asList(new Object[] { 2, "it's", 2.5,
+			    null, new byte[] { 1, 2 }, true }));
+			assertEquals(6, queryParams.size());
+			// Go through the wire format, like the DNode does
+			List<Object> params = new ArrayList<Object>();
+			for(QueryParam queryParam : queryParams) {
+				QueryParam deSerParam = new QueryParam();
+				new TDeserializer().deserialize(deSerParam, new TSerializer().serialize(queryParam));
+				params.add(deSerParam);
+			}
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			List<Object> values = QueryResultSerDe.deSerParams((List) params);
+			assertEquals(2l, values.get(0));
+			assertEquals("it's", values.get(1));
+			assertEquals(2.5, values.get(2));
+			assertNull(values.get(3));
+			assertArrayEquals(new byte[] { 1, 2 }, (byte[]) values.get(4));
+			assertEquals(1l, values.get(5));
+
+			QueryResult result = manager.query("SELECT a FROM t WHERE a = ? AND b = ? AND c = ?;",
+			    values.subList(0, 3), 100, new QueryResultSerDe.Builder());
+			assertEquals(1, result.getNRows());
+			assertEquals(2, QueryResultSerDe.deSer(result).get(0).get("a"));
+
+			result = manager.query("SELECT a FROM t WHERE e = ? OR e IS ?;",
+			    Arrays.asList(new Object[] { values.get(4), values.get(3) }), 100,
+			    new QueryResultSerDe.Builder());
+			assertEquals(2, result.getNRows());
+
+			// Same statement, other values
+			result = manager.query("SELECT a FROM t WHERE a = ? AND b = ? AND c = ?;",
+			    Arrays.asList(new Object[] { 1, "foo", 1.5 }), 100, new QueryResultSerDe.Builder());
+			assertEquals(1, QueryResultSerDe.deSer(result).get(0).get("a"));
+			assertEquals(1, manager.getStatementCacheStats().getHits());
+		} finally {
+			manager.close();
+			dbFile.delete();
+		}
+	}
+}
@@ -42,9 +42,9 @@ public class TestSploutClient {
 	public static IQNodeHandler QNODE_HANDLER = new QNodeMockHandler() {
 
 		@Override
-	  public QueryStatus query(String tablespace, String key, String sql) throws Exception {
+	  public QueryStatus query(String tablespace, String key, String sql, List<Object> params) throws Exception {
 		  QueryStatus queryStatus = new QueryStatus();
-		  queryStatus.setError(tablespace + " " + key + " " + sql);
+		  queryStatus.setError(tablespace + " " + key + " " + sql + (params == null ? "" : " " + params));
 		  return queryStatus;
 	  }
 		@Override
@@ -67,6 +67,10 @@ public class TestSploutClient {
 			
 			QueryStatus queryStatus = client.query("t1", "k1", "SELECT * FROM foo;");
 			assertEquals("t1 k1 SELECT * FROM foo;", queryStatus.getError());
+
+			queryStatus = client.query("t1", "k1", "SELECT * FROM foo WHERE a = ? AND b = ?;",
+			    Arrays.asList(new Object[] { "bar", 3 }));
+			assertEquals("t1 k1 SELECT * FROM foo WHERE a = ? AND b = ?; [bar, 3]", queryStatus.getError());
 			
 			List<String> dnodes = client.dNodeList();
 			assertEquals("ok", dnodes.get(0));
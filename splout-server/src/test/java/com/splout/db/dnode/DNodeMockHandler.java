@@ -21,11 +21,15 @@ package com.splout.db.dnode;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.splout.db.common.SploutConfiguration;
 import com.splout.db.thrift.DNodeException;
 import com.splout.db.thrift.DeployAction;
+import com.splout.db.thrift.PartitionQueryResult;
+import com.splout.db.thrift.QueryParam;
+import com.splout.db.thrift.QueryResult;
 import com.splout.db.thrift.RollbackAction;
 import com.splout.db.thrift.TablespaceVersion;
 
@@ -47,6 +51,34 @@ public class DNodeMockHandler implements IDNodeHandler {
 	  return null;
   }
 	@Override
+  public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query)
+      throws DNodeException {
+	  return null;
+  }
+	@Override
+  public QueryResult sqlQueryWithParams(String tablespace, long version, int partition, String query,
+      List<QueryParam> params) throws DNodeException {
+	  return null;
+  }
+	@Override
+  public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions,
+      String query, List<QueryParam> params) throws DNodeException {
+	  // Each partition as if it was queried with sqlQueryBinary()
+	  List<PartitionQueryResult> results = new ArrayList<PartitionQueryResult>();
+	  for(int partition : partitions) {
+	  	PartitionQueryResult result = new PartitionQueryResult();
+	  	result.setPartition(partition);
+	  	try {
+	  		result.setResult(sqlQueryBinary(tablespace, version, partition, query));
+	  	} catch(DNodeException e) {
+	  		result.setErrorCode(e.getCode());
+	  		result.setErrorMessage(e.getMsg());
+	  	}
+	  	results.add(result);
+	  }
+	  return results;
+  }
+	@Override
   public String deploy(List<DeployAction> deployActions, long version) throws DNodeException {
 	  return null;
   }
@@ -0,0 +1,167 @@
+package com.splout.db.dnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.splout.db.thrift.DNodeException;
+
+public class TestAdmissionController {
+
+	@Test
+	public void testParseWeights() {
+		Map<String, Double> weights = AdmissionController.parseWeights("t1:4, t2:0.5", "t3:2");
+		assertEquals(3, weights.size());
+		assertEquals(4d, weights.get("t1"), 0d);
+		assertEquals(0.5d, weights.get("t2"), 0d);
+		assertEquals(2d, weights.get("t3"), 0d);
+		assertEquals(0, AdmissionController.parseWeights("").size());
+		try {
+			AdmissionController.parseWeights("t1");
+			fail();
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testRejections() throws Exception {
+		AdmissionController admission = new AdmissionController(2, 1, 1, 50, Collections.<String, Double> emptyMap());
+		admission.acquire("t1");
+		admission.acquire("t2");
+		assertEquals(2, admission.getRunningQueries());
+		// Waits too long
+		try {
+			admission.acquire("t1");
+			fail();
+		} catch(DNodeException e) {
+			assertEquals(DNodeHandler.EXCEPTION_OVERLOADED, e.getCode());
+		}
+		assertEquals(0, admission.getQueuedQueries());
+		// Queue full
+		Thread waiting = acquireInBackground(admission, "t1", new ArrayList<String>(), false);
+		while(admission.getQueuedQueries() == 0) {
+			Thread.sleep(1);
+		}
+		try {
+			admission.acquire("t1");
+			fail();
+		} catch(DNodeException e) {
+			assertEquals(DNodeHandler.EXCEPTION_OVERLOADED, e.getCode());
+		}
+		assertEquals(2, admission.getRejectedQueries());
+		admission.release("t1");
+		waiting.join();
+		assertEquals(2, admission.getRunningQueries());
+		assertEquals(0, admission.getQueuedQueries());
+	}
+
+	@Test
+	public void testWeightedFairQueueing() throws Exception {
+		Map<String, Double> weights = AdmissionController.parseWeights("light:3");
+		AdmissionController admission = new AdmissionController(1, 1, 100, 10000, weights);
+		admission.acquire("heavy");
+		final List<String> admitted = Collections.synchronizedList(new ArrayList<String>());
+		List<Thread> threads = new ArrayList<Thread>();
+		// A burst of heavy queries arrives before the light ones
+		for(int i = 0; i < 8; i++) {
+			threads.add(acquireInBackground(admission, "heavy", admitted, true));
+			waitForQueued(admission, threads.size());
+		}
+		for(int i = 0; i < 3; i++) {
+			threads.add(acquireInBackground(admission, "light", admitted, true));
+			waitForQueued(admission, threads.size());
+		}
+		admission.release("heavy");
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(11, admitted.size());
+		// The light tablespace doesn't wait for the whole burst of the heavy one
+		assertEquals(3, Collections.frequency(admitted.subList(0, 5), "light"));
+	}
+
+	@Test
+	public void testRejectedQueriesDontDelayTheirTablespace() throws Exception {
+		AdmissionController admission = new AdmissionController(1, 1, 100, 200, Collections.<String, Double> emptyMap());
+		admission.acquire("t1");
+		// Wait too long
+		for(int i = 0; i < 2; i++) {
+			try {
+				admission.acquire("t2");
+				fail();
+			} catch(DNodeException e) {
+				assertEquals(DNodeHandler.EXCEPTION_OVERLOADED, e.getCode());
+			}
+		}
+		final List<String> admitted = Collections.synchronizedList(new ArrayList<String>());
+		List<Thread> threads = new ArrayList<Thread>();
+		threads.add(acquireInBackground(admission, "t1", admitted, true));
+		waitForQueued(admission, 1);
+		threads.add(acquireInBackground(admission, "t2", admitted, true));
+		waitForQueued(admission, 2);
+		admission.release("t1");
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		// t2 had no query admitted yet, so it goes before the second query of t1
+		assertEquals(Arrays.asList("t2", "t1"), admitted);
+	}
+
+	private static void waitForQueued(AdmissionController admission, int queued) throws InterruptedException {
+		while(admission.getQueuedQueries() < queued) {
+			Thread.sleep(1);
+		}
+	}
+
+	/*
+	 * Acquires a slot in another thread and, once acquired, records it and optionally releases it.
+	 */
+	private static Thread acquireInBackground(final AdmissionController admission, final String tablespace,
+	    final List<String> admitted, final boolean release) {
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					admission.acquire(tablespace);
+					admitted.add(tablespace);
+					if(release) {
+						admission.release(tablespace);
+					}
+				} catch(DNodeException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		thread.start();
+		return thread;
+	}
+}
@@ -26,7 +26,10 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.Assert;
 import junit.framework.AssertionFailedError;
@@ -38,12 +41,17 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import com.splout.db.common.JSONSerDe;
+import com.splout.db.common.QueryResultSerDe;
+import com.splout.db.common.SQLiteJDBCManager;
 import com.splout.db.common.SploutConfiguration;
 import com.splout.db.common.TestUtils;
 import com.splout.db.dnode.beans.DNodeSystemStatus;
+import com.splout.db.thrift.DNodeException;
 import com.splout.db.thrift.DNodeService;
 import com.splout.db.thrift.DeployAction;
+import com.splout.db.thrift.PartitionQueryResult;
 import com.splout.db.thrift.PartitionMetadata;
+import com.splout.db.thrift.QueryResult;
 
 /**
  * Basic DNode tests
@@ -58,7 +66,7 @@ public class TestDNode {
 		FileUtils.deleteDirectory(new File(DB_1 + ".1"));
 		FileUtils.deleteDirectory(new File(DB_2 + ".1"));
 		FileUtils.deleteDirectory(new File(FOO_DEPLOY_FOLDER));
-		TestUtils.cleanUpTmpFolders(this.getClass().getName(), 4);
+		TestUtils.cleanUpTmpFolders(this.getClass().getName(), 6);
 	}
 
 	public static String FOO_DEPLOY_FOLDER = TestDNode.class.getName() + "-foo-deploy";
@@ -155,6 +163,8 @@ public class TestDNode {
 			client.deploy(Arrays.asList(new DeployAction[] { deploy }), 2l);
 			waitForDeployToFinish(client);
 
+			Thread.sleep(200);
+
 			Assert.assertEquals(false, dHandler.lastDeployTimedout.get());
 			Assert.assertEquals(false, dHandler.deployInProgress.get() > 0);
 
@@ -257,4 +267,134 @@ public class TestDNode {
 			dnode.stop();
 		}
 	}
+
+	// concurrent first queries to a partition create only one manager and all of them succeed
+	@Test
+	public void testConcurrentFirstQueries() throws Throwable {
+		TestUtils.createFooDatabase(DB_1 + ".1", 1, "foo1");
+
+		SploutConfiguration testConfig = SploutConfiguration.getTestConfig();
+		final DNodeHandler dHandler = new DNodeHandler();
+		DNode dnode = TestUtils.getTestDNode(testConfig, dHandler, "dnode-" + this.getClass().getName() + "-5");
+		//
+		DNodeService.Client client = DNodeClient.get("localhost", testConfig.getInt(DNodeProperties.PORT));
+		try {
+			DeployAction deploy = new DeployAction();
+			deploy.setTablespace("tablespace1");
+			deploy.setDataURI(new File(DB_1 + ".1", "foo.db").toURI().toString());
+			deploy.setPartition(0);
+			deploy.setVersion(1l);
+			deploy.setMetadata(new PartitionMetadata());
+			client.deploy(Arrays.asList(new DeployAction[] { deploy }), 1l);
+			waitForDeployToFinish(client);
+
+			final CountDownLatch start = new CountDownLatch(1);
+			final AtomicInteger errors = new AtomicInteger(0);
+			Thread[] threads = new Thread[16];
+			for(int i = 0; i < threads.length; i++) {
+				threads[i] = new Thread() {
+					@SuppressWarnings("rawtypes")
+					public void run() {
+						try {
+							start.await();
+							ArrayList results = JSONSerDe.deSer(dHandler.sqlQuery("tablespace1", 1l, 0, "SELECT * FROM t;"),
+							    ArrayList.class);
+							if(!"foo1".equals(((Map) results.get(0)).get("b"))) {
+								errors.incrementAndGet();
+							}
+						} catch(Throwable t) {
+							t.printStackTrace();
+							errors.incrementAndGet();
+						}
+					}
+				};
+				threads[i].start();
+			}
+			start.countDown();
+			for(Thread thread : threads) {
+				thread.join();
+			}
+			Assert.assertEquals(0, errors.get());
+			Assert.assertEquals(1, dHandler.dbCache.getKeysWithExpiryCheck().size());
+			// Latencies are recorded per tablespace and partition
+			DNodeSystemStatus status = JSONSerDe.deSer(client.status(), DNodeSystemStatus.class);
+			Assert.assertEquals(16, status.getTablespaceLatencies().get("tablespace1").getCount());
+			Assert.assertEquals(16, status.getPartitionLatencies().get("tablespace1/0").getCount());
+			Assert.assertTrue(status.getLatency().getP99() >= status.getLatency().getP50());
+			// ... and so are query fingerprints
+			Assert.assertEquals("select * from t", status.getTopQueries().get("tablespace1").get(0).getFingerprint());
+			Assert.assertEquals(16, status.getTopQueries().get("tablespace1").get(0).getCount());
+			Assert.assertTrue(status.getTopQueries().get("tablespace1").get(0).getTotalBytes() > 0);
+
+			// Multi-partition queries: partitions fail independently
+			List<PartitionQueryResult> results = client.sqlQueryMulti("tablespace1", 1l, Arrays.asList(0, 1, 0),
+			    "SELECT * FROM t;", null);
+			Assert.assertEquals(3, results.size());
+			Assert.assertEquals(0, results.get(0).getPartition());
+			Assert.assertEquals("foo1", QueryResultSerDe.deSer(results.get(0).getResult()).get(0).get("b"));
+			Assert.assertEquals(1, results.get(1).getPartition());
+			Assert.assertFalse(results.get(1).isSetResult());
+			Assert.assertTrue(results.get(1).isSetErrorCode());
+			Assert.assertEquals("foo1", QueryResultSerDe.deSer(results.get(2).getResult()).get(0).get("b"));
+		} finally {
+			DNodeClient.close(client);
+			//
+			dnode.stop();
+		}
+	}
+
+	// queries over their budget of CPU time fail for good, the others report the CPU time they consumed
+	@Test
+	public void testCpuBudgets() throws Throwable {
+		TestUtils.createFooDatabase(DB_1 + ".1", 1, "foo1");
+		SQLiteJDBCManager jdbcManager = new SQLiteJDBCManager(DB_1 + ".1/foo.db", 10);
+		for(int i = 0; i < 11; i++) {
+			jdbcManager.query("INSERT INTO t SELECT * FROM t;", 100);
+		}
+		jdbcManager.close();
+
+		SploutConfiguration testConfig = SploutConfiguration.getTestConfig();
+		testConfig.setProperty(DNodeProperties.QUERY_MAX_CPU_MILLIS_PER_TABLESPACE, "tablespace1:1");
+		final DNodeHandler dHandler = new DNodeHandler();
+		DNode dnode = TestUtils.getTestDNode(testConfig, dHandler, "dnode-" + this.getClass().getName() + "-6");
+		//
+		DNodeService.Client client = DNodeClient.get("localhost", testConfig.getInt(DNodeProperties.PORT));
+		try {
+			List<DeployAction> deployActions = new ArrayList<DeployAction>();
+			for(String tablespace : new String[] { "tablespace1", "tablespace2" }) {
+				DeployAction deploy = new DeployAction();
+				deploy.setTablespace(tablespace);
+				deploy.setDataURI(new File(DB_1 + ".1", "foo.db").toURI().toString());
+				deploy.setPartition(0);
+				deploy.setVersion(1l);
+				deploy.setMetadata(new PartitionMetadata());
+				deployActions.add(deploy);
+			}
+			client.deploy(deployActions, 1l);
+			waitForDeployToFinish(client);
+
+			try {
+				client.sqlQueryBinary("tablespace1", 1l, 0, "SELECT count(*) FROM t a, t b;");
+				Assert.fail("The query should have exceeded its budget");
+			} catch(DNodeException e) {
+				Assert.assertEquals(DNodeHandler.EXCEPTION_OVER_BUDGET, e.getCode());
+			}
+			QueryResult result = client.sqlQueryBinary("tablespace2", 1l, 0, "SELECT count(*) FROM t a, t b;");
+			Assert.assertEquals(1, result.getNRows());
+			Assert.assertTrue(result.isSetCpuMicros());
+			Assert.assertTrue(result.getCpuMicros() > 1000);
+		} finally {
+			DNodeClient.close(client);
+			//
+			dnode.stop();
+		}
+	}
+
+	@Test
+	public void testParseCpuBudgets() {
+		Map<String, Long> budgets = DNodeHandler.parseCpuBudgets("ts1:1000", " ts2 : 20 ", "");
+		Assert.assertEquals(2, budgets.size());
+		Assert.assertEquals(1000l, (long) budgets.get("ts1"));
+		Assert.assertEquals(20l, (long) budgets.get("ts2"));
+	}
 }
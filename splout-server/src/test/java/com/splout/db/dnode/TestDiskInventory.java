@@ -0,0 +1,89 @@
+package com.splout.db.dnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDiskInventory {
+
+	public static String DATA_FOLDER = TestDiskInventory.class.getName() + "-data";
+
+	@Before
+	@After
+	public void cleanUp() throws Exception {
+		FileUtils.deleteDirectory(new File(DATA_FOLDER));
+	}
+
+	private static void writePartition(String tablespace, long version, int partition, int bytes) throws Exception {
+		File versionFolder = new File(new File(DATA_FOLDER, tablespace), version + "");
+		FileUtils.writeByteArrayToFile(new File(new File(versionFolder, partition + ""), "foo.db"), new byte[bytes]);
+		FileUtils.writeByteArrayToFile(new File(versionFolder, partition + ".meta"), new byte[10]);
+	}
+
+	@Test
+	public void test() throws Exception {
+		// Existing files are scanned when created
+		writePartition("t1", 1, 0, 1000);
+		DiskInventory inventory = new DiskInventory(new File(DATA_FOLDER), 0);
+		assertEquals(1010, inventory.getOccupiedBytes());
+		assertEquals(2, inventory.getFiles().size());
+		assertTrue(inventory.getFreeSpaceKb() > 0);
+
+		writePartition("t1", 2, 0, 2000);
+		writePartition("t1", 2, 1, 3000);
+		// Not known until it is added
+		assertEquals(1010, inventory.getOccupiedBytes());
+		inventory.addPartition("t1", 2, 0);
+		inventory.addPartition("t1", 2, 1);
+		assertEquals(6030, inventory.getOccupiedBytes());
+
+		// Re-deploying a partition replaces its files
+		FileUtils.deleteDirectory(new File(DATA_FOLDER + "/t1/2/1"));
+		writePartition("t1", 2, 1, 500);
+		inventory.addPartition("t1", 2, 1);
+		assertEquals(3530, inventory.getOccupiedBytes());
+
+		List<String> files = inventory.getFiles();
+		assertEquals(6, files.size());
+		assertTrue(files.get(0), files.get(0).endsWith("0.meta (10 bytes)"));
+		assertTrue(files.get(1), files.get(1).endsWith("foo.db (1000 bytes)"));
+		// The list is cached until the inventory changes
+		assertTrue(files == inventory.getFiles());
+
+		// A version that is a prefix of another one is removed alone
+		writePartition("t1", 22, 0, 100);
+		inventory.addPartition("t1", 22, 0);
+		inventory.removeVersion("t1", 2);
+		assertEquals(1120, inventory.getOccupiedBytes());
+		assertEquals(4, inventory.getFiles().size());
+		inventory.close();
+	}
+}
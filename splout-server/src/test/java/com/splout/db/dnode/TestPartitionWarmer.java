@@ -0,0 +1,47 @@
+package com.splout.db.dnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class TestPartitionWarmer {
+
+	@Test
+	public void testReadIntoPageCache() throws Exception {
+		File file = new File(TestPartitionWarmer.class.getName() + ".db");
+		FileUtils.writeByteArrayToFile(file, new byte[PartitionWarmer.READ_BUFFER_SIZE + 10]);
+		try {
+			assertEquals(PartitionWarmer.READ_BUFFER_SIZE + 10, PartitionWarmer.readIntoPageCache(file, Long.MAX_VALUE));
+			assertEquals(PartitionWarmer.READ_BUFFER_SIZE + 5, PartitionWarmer.readIntoPageCache(file,
+			    PartitionWarmer.READ_BUFFER_SIZE + 5));
+			assertEquals(5, PartitionWarmer.readIntoPageCache(file, 5));
+			assertEquals(0, PartitionWarmer.readIntoPageCache(file, 0));
+		} finally {
+			file.delete();
+		}
+	}
+}
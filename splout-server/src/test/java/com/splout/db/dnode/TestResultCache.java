@@ -0,0 +1,135 @@
+package com.splout.db.dnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.junit.Test;
+
+import com.splout.db.common.QueryResultSerDe;
+import com.splout.db.thrift.QueryResult;
+
+public class TestResultCache {
+
+	private static ResultCache.Key key(String tablespace, long version, String query) {
+		return new ResultCache.Key(tablespace, version, 0, query, null, ResultCache.JSON);
+	}
+
+	private static void put(ResultCache cache, ResultCache.Key key, byte[] result) {
+		cache.put(key, result, cache.getGeneration(key.tablespace, key.version));
+	}
+
+	@Test
+	public void testKeys() {
+		ResultCache cache = new ResultCache(1024 * 1024, 1024, false);
+		put(cache, key("t1", 1, "SELECT 1;"), new byte[] { 1 });
+		assertArrayEquals(new byte[] { 1 }, cache.get(key("t1", 1, "SELECT 1;")));
+		assertNull(cache.get(key("t1", 2, "SELECT 1;")));
+		assertNull(cache.get(key("t2", 1, "SELECT 1;")));
+		assertNull(cache.get(new ResultCache.Key("t1", 1, 0, "SELECT 1;", null, ResultCache.QUERY_RESULT)));
+		// Parameters are part of the key, blobs compared by content
+		put(cache, new ResultCache.Key("t1", 1, 0, "SELECT ?;", Arrays.<Object> asList(new byte[] { 7 }), ResultCache.JSON),
+		    new byte[] { 2 });
+		assertArrayEquals(new byte[] { 2 }, cache.get(new ResultCache.Key("t1", 1, 0, "SELECT ?;",
+		    Arrays.<Object> asList(new byte[] { 7 }), ResultCache.JSON)));
+		assertNull(cache.get(new ResultCache.Key("t1", 1, 0, "SELECT ?;", Arrays.<Object> asList(new byte[] { 8 }),
+		    ResultCache.JSON)));
+		assertEquals(2, cache.getHits());
+		assertEquals(4, cache.getMisses());
+		assertEquals(2, cache.getEntries());
+	}
+
+	@Test
+	public void testBudgetAndAdmission() {
+		ResultCache.Key k1 = key("t1", 1, "SELECT 1;");
+		int entrySize = k1.size() + 100;
+		ResultCache cache = new ResultCache(entrySize * 2, 150, false);
+		// Too big
+		put(cache, k1, new byte[200]);
+		assertEquals(0, cache.getEntries());
+		put(cache, k1, new byte[100]);
+		put(cache, key("t1", 1, "SELECT 2;"), new byte[100]);
+		assertEquals(entrySize * 2, cache.getBytes());
+		// Hit k1 so that the clock spares it and evicts the second one
+		cache.get(k1);
+		put(cache, key("t1", 1, "SELECT 3;"), new byte[100]);
+		assertEquals(2, cache.getEntries());
+		assertEquals(entrySize * 2, cache.getBytes());
+		assertNull(cache.get(key("t1", 1, "SELECT 2;")));
+		assertEquals(100, cache.get(k1).length);
+
+		// Only admitted the second time
+		cache = new ResultCache(1024 * 1024, 1024, true);
+		put(cache, k1, new byte[10]);
+		assertNull(cache.get(k1));
+		put(cache, k1, new byte[10]);
+		assertEquals(10, cache.get(k1).length);
+	}
+
+	@Test
+	public void testInvalidate() {
+		ResultCache cache = new ResultCache(1024 * 1024, 1024, false);
+		put(cache, key("t1", 1, "SELECT 1;"), new byte[10]);
+		put(cache, key("t1", 1, "SELECT 2;"), new byte[10]);
+		put(cache, key("t1", 2, "SELECT 1;"), new byte[10]);
+		put(cache, key("t2", 1, "SELECT 1;"), new byte[10]);
+		long bytes = cache.getBytes();
+		cache.invalidate("t1", 1);
+		assertEquals(2, cache.getEntries());
+		assertEquals(bytes / 2, cache.getBytes());
+		assertNull(cache.get(key("t1", 1, "SELECT 1;")));
+		assertEquals(10, cache.get(key("t1", 2, "SELECT 1;")).length);
+		assertEquals(10, cache.get(key("t2", 1, "SELECT 1;")).length);
+
+		// A result of a query that was running while its version was invalidated is not cached
+		long generation = cache.getGeneration("t2", 1);
+		cache.invalidate("t2", 1);
+		cache.put(key("t2", 1, "SELECT 1;"), new byte[10], generation);
+		assertNull(cache.get(key("t2", 1, "SELECT 1;")));
+		assertEquals(1, cache.getEntries());
+		assertEquals(bytes / 4, cache.getBytes());
+	}
+
+	@Test
+	public void testCodecs() throws Exception {
+		assertEquals("[{\"a\":\"ñ\"}]", ResultCache.JSON.fromBytes(ResultCache.JSON.toBytes("[{\"a\":\"ñ\"}]")));
+		QueryResultSerDe.Builder builder = new QueryResultSerDe.Builder();
+		builder.startResult(new String[] { "a" });
+		QueryResult result = builder.endResult();
+		// Cached results are written as they were serialized, and decoded for other protocols
+		QueryResult cached = ResultCache.QUERY_RESULT.fromBytes(ResultCache.QUERY_RESULT.toBytes(result));
+		QueryResult written = new QueryResult();
+		new TDeserializer().deserialize(written, new TSerializer().serialize(cached));
+		assertEquals(result, written);
+		written = new QueryResult();
+		new TDeserializer(new TCompactProtocol.Factory()).deserialize(written,
+		    new TSerializer(new TCompactProtocol.Factory()).serialize(cached));
+		assertEquals(result, written);
+	}
+}
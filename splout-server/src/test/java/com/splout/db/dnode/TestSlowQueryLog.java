@@ -0,0 +1,150 @@
+package com.splout.db.dnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.splout.db.common.SQLite4JavaManager;
+import com.splout.db.dnode.beans.SlowQuery;
+
+public class TestSlowQueryLog {
+
+	public static String TEST_DB = TestSlowQueryLog.class.getName() + ".db";
+
+	private static SlowQuery slowQuery(String query) {
+		SlowQuery slowQuery = new SlowQuery();
+		slowQuery.setQuery(query);
+		return slowQuery;
+	}
+
+	private static void waitFor(SlowQueryLog slowQueryLog, int size) throws InterruptedException {
+		long waitUntil = System.currentTimeMillis() + 5000;
+		while(slowQueryLog.getSlowQueries().size() < size && System.currentTimeMillis() < waitUntil) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	public void testRing() throws Exception {
+		SlowQueryLog slowQueryLog = new SlowQueryLog(3, 10);
+		try {
+			assertEquals(0, slowQueryLog.getSlowQueries().size());
+			for(int i = 0; i < 5; i++) {
+				final int query = i;
+				slowQueryLog.add(slowQuery("q" + i), new Callable<List<String>>() {
+
+					@Override
+					public List<String> call() throws Exception {
+						if(query == 3) {
+							throw new Exception("no plan");
+						}
+						return Arrays.asList("plan" + query);
+					}
+				});
+			}
+			waitFor(slowQueryLog, 3);
+			Thread.sleep(100);
+			// Only the last ones are kept, the newest first
+			List<SlowQuery> slowQueries = slowQueryLog.getSlowQueries();
+			assertEquals(3, slowQueries.size());
+			assertEquals("q4", slowQueries.get(0).getQuery());
+			assertEquals("q3", slowQueries.get(1).getQuery());
+			assertEquals("q2", slowQueries.get(2).getQuery());
+			assertEquals("plan4", slowQueries.get(0).getQueryPlan().get(0));
+			// A failed capture doesn't lose the query
+			assertTrue(slowQueries.get(1).getQueryPlan().get(0).contains("no plan"));
+		} finally {
+			slowQueryLog.close();
+		}
+	}
+
+	@Test
+	public void testPendingPlansOverflow() throws Exception {
+		SlowQueryLog slowQueryLog = new SlowQueryLog(10, 1);
+		final CountDownLatch release = new CountDownLatch(1);
+		Callable<List<String>> blockedCapture = new Callable<List<String>>() {
+
+			@Override
+			public List<String> call() throws Exception {
+				release.await();
+				return Arrays.asList("plan");
+			}
+		};
+		try {
+			// One capture running, one waiting, the third one goes in directly without plan
+			slowQueryLog.add(slowQuery("q0"), blockedCapture);
+			Thread.sleep(100);
+			slowQueryLog.add(slowQuery("q1"), blockedCapture);
+			slowQueryLog.add(slowQuery("q2"), blockedCapture);
+			List<SlowQuery> slowQueries = slowQueryLog.getSlowQueries();
+			assertEquals(1, slowQueries.size());
+			assertEquals("q2", slowQueries.get(0).getQuery());
+			assertNull(slowQueries.get(0).getQueryPlan());
+
+			release.countDown();
+			waitFor(slowQueryLog, 3);
+			assertEquals(3, slowQueryLog.getSlowQueries().size());
+		} finally {
+			slowQueryLog.close();
+		}
+	}
+
+	@Test
+	public void testQueryPlan() throws Exception {
+		File dbFile = new File(TEST_DB);
+		if(dbFile.exists()) {
+			dbFile.delete();
+		}
+		final SQLite4JavaManager manager = new SQLite4JavaManager(TEST_DB, null);
+		SlowQueryLog slowQueryLog = new SlowQueryLog(10, 10);
+		try {
+			manager.exec("CREATE TABLE t (a INT, b TEXT);");
+			manager.exec("CREATE INDEX idx_a ON t (a);");
+			slowQueryLog.add(slowQuery("SELECT * FROM t WHERE a = 1"), new Callable<List<String>>() {
+
+				@Override
+				public List<String> call() throws Exception {
+					return manager.query("EXPLAIN QUERY PLAN SELECT * FROM t WHERE a = 1", 100,
+					    new SlowQueryLog.QueryPlanHandler());
+				}
+			});
+			waitFor(slowQueryLog, 1);
+			List<String> plan = slowQueryLog.getSlowQueries().get(0).getQueryPlan();
+			assertEquals(1, plan.size());
+			assertTrue(plan.get(0), plan.get(0).contains("idx_a"));
+		} finally {
+			slowQueryLog.close();
+			manager.close();
+			dbFile.delete();
+		}
+	}
+}
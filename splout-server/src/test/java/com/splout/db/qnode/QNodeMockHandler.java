@@ -29,8 +29,11 @@ import java.util.Set;
 import com.splout.db.common.SploutConfiguration;
 import com.splout.db.common.Tablespace;
 import com.splout.db.dnode.beans.DNodeSystemStatus;
+import com.splout.db.dnode.beans.FingerprintStats;
+import com.splout.db.dnode.beans.SlowQuery;
 import com.splout.db.qnode.beans.DeployInfo;
 import com.splout.db.qnode.beans.DeployRequest;
+import com.splout.db.qnode.beans.MergeSpec;
 import com.splout.db.qnode.beans.QNodeStatus;
 import com.splout.db.qnode.beans.QueryStatus;
 import com.splout.db.qnode.beans.StatusMessage;
@@ -49,12 +52,12 @@ public class QNodeMockHandler implements IQNodeHandler {
   public void close() throws Exception {
   }
 	@Override
-  public QueryStatus query(String tablespace, String key, String sql) throws Exception {
+  public QueryStatus query(String tablespace, String key, String sql, List<Object> params) throws Exception {
 	  return null;
   }
 	@Override
   public ArrayList<QueryStatus> multiQuery(String tablespace, List<String> keyMins,
-      List<String> keyMaxs, String sql) throws Exception {
+      List<String> keyMaxs, String sql, List<Object> params, MergeSpec merge) throws Exception {
 	  return null;
   }
 	@Override
@@ -86,6 +89,18 @@ public class QNodeMockHandler implements IQNodeHandler {
 	  return null;
   }
 	@Override
+  public List<SlowQuery> dnodeSlowQueries(String dNode) throws Exception {
+	  return null;
+  }
+	@Override
+  public Map<String, List<FingerprintStats>> queryStats() throws Exception {
+	  return null;
+  }
+	@Override
+  public Map<String, List<FingerprintStats>> dnodeQueryStats(String dNode) throws Exception {
+	  return null;
+  }
+	@Override
   public Tablespace tablespace(String tablespace) throws Exception {
 	  return null;
   }
@@ -0,0 +1,190 @@
+package com.splout.db.qnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.thrift.transport.TTransportException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.splout.db.common.SploutConfiguration;
+import com.splout.db.common.TestUtils;
+import com.splout.db.dnode.DNode;
+import com.splout.db.dnode.DNodeMockHandler;
+import com.splout.db.thrift.DNodeException;
+import com.splout.db.thrift.DNodeService;
+
+public class TestDNodeClientPool {
+
+	@Before
+	@After
+	public void cleanUp() throws IOException {
+		TestUtils.cleanUpTmpFolders(this.getClass().getName(), 1);
+	}
+
+	@Test
+	public void testReuse() throws Throwable {
+		DNode dnode = TestUtils.getTestDNode(SploutConfiguration.getTestConfig(), new DNodeMockHandler() {
+
+			@Override
+			public String status() throws DNodeException {
+				return "OK";
+			}
+		}, "dnode-" + this.getClass().getName() + "-0");
+		DNodeClientPool pool = new DNodeClientPool(false, 2, 60000);
+		try {
+			String address = dnode.getAddress();
+			DNodeService.Client client = pool.borrow(address);
+			assertEquals("OK", client.status());
+			pool.release(address, client, false);
+			assertEquals(1, pool.getIdle(address));
+			// The same connection is used again
+			DNodeService.Client client2 = pool.borrow(address);
+			assertSame(client, client2);
+			assertEquals(0, pool.getIdle(address));
+			assertEquals("OK", client2.status());
+
+			// No more than 2 idle clients are kept
+			List<DNodeService.Client> clients = new ArrayList<DNodeService.Client>();
+			clients.add(client2);
+			for(int i = 0; i < 3; i++) {
+				clients.add(pool.borrow(address));
+			}
+			for(DNodeService.Client c : clients) {
+				pool.release(address, c, false);
+			}
+			assertEquals(2, pool.getIdle(address));
+
+			// Broken clients are not pooled
+			client = pool.borrow(address);
+			pool.release(address, client, true);
+			assertEquals(1, pool.getIdle(address));
+			assertNotSame(client, pool.borrow(address));
+
+			// Nor are clients of DNodes that left
+			pool.release(address, pool.borrow(address), false);
+			pool.remove(address);
+			assertEquals(0, pool.getIdle(address));
+		} finally {
+			pool.close();
+			dnode.stop();
+		}
+	}
+
+	@Test
+	public void testTimeout() throws Throwable {
+		DNode dnode = TestUtils.getTestDNode(SploutConfiguration.getTestConfig(), new DNodeMockHandler() {
+
+			@Override
+			public String status() throws DNodeException {
+				try {
+					Thread.sleep(2000);
+				} catch(InterruptedException e) {
+					throw new DNodeException(0, "Interrupted");
+				}
+				return "OK";
+			}
+		}, "dnode-" + this.getClass().getName() + "-0");
+		DNodeClientPool pool = new DNodeClientPool(false, 2, 60000);
+		try {
+			String address = dnode.getAddress();
+			DNodeService.Client client = pool.borrow(address);
+			pool.setTimeout(client, 200);
+			long start = System.currentTimeMillis();
+			try {
+				client.status();
+				fail("The call should have timed out");
+			} catch(TTransportException e) {
+				assertTrue(System.currentTimeMillis() - start < 1500);
+			}
+			pool.release(address, client, true);
+			assertEquals(0, pool.getIdle(address));
+		} finally {
+			pool.close();
+			dnode.stop();
+		}
+	}
+
+	@Test
+	public void testIdleEviction() throws Throwable {
+		DNode dnode = TestUtils.getTestDNode(SploutConfiguration.getTestConfig(), new DNodeMockHandler(), "dnode-"
+		    + this.getClass().getName() + "-0");
+		DNodeClientPool pool = new DNodeClientPool(false, 2, 200);
+		try {
+			String address = dnode.getAddress();
+			pool.release(address, pool.borrow(address), false);
+			assertEquals(1, pool.getIdle(address));
+			Thread.sleep(600);
+			assertEquals(0, pool.getIdle(address));
+		} finally {
+			pool.close();
+			dnode.stop();
+		}
+	}
+
+	@Test
+	public void testHealthCheck() throws Throwable {
+		// A server that closes connections as soon as they are accepted, like a restarted DNode would
+		final ServerSocket server = new ServerSocket(0);
+		Thread acceptor = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					for(;;) {
+						Socket socket = server.accept();
+						socket.close();
+					}
+				} catch(IOException e) {
+					// closed
+				}
+			}
+		};
+		acceptor.start();
+		DNodeClientPool pool = new DNodeClientPool(false, 2, 60000);
+		try {
+			String address = "localhost:" + server.getLocalPort();
+			DNodeService.Client client = pool.borrow(address);
+			pool.release(address, client, false);
+			Thread.sleep(DNodeClientPool.VALIDATE_AFTER_IDLE_MILLIS + 100);
+			// The dead connection is discarded
+			assertNotSame(client, pool.borrow(address));
+			assertEquals(0, pool.getIdle(address));
+		} finally {
+			pool.close();
+			server.close();
+			acceptor.join();
+		}
+	}
+}
@@ -44,6 +44,7 @@ import com.splout.db.hazelcast.TablespaceVersion;
 import com.splout.db.qnode.beans.QueryStatus;
 import com.splout.db.thrift.DNodeException;
 import com.splout.db.thrift.DeployAction;
+import com.splout.db.thrift.QueryResult;
 import com.splout.db.thrift.RollbackAction;
 
 public class TestFailOver {
@@ -59,7 +60,8 @@ public class TestFailOver {
 	IDNodeHandler failingDHandler = new DNodeMockHandler() {
 
 		@Override
-		public String sqlQuery(String tablespace, long version, int partition, String query) throws DNodeException {
+		public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query)
+		    throws DNodeException {
 			throw new DNodeException(0, "I always fail");
 		}
 		@Override
@@ -82,8 +84,9 @@ public class TestFailOver {
 	DNodeMockHandler dHandler = new DNodeMockHandler() {
 
 		@Override
-		public String sqlQuery(String tablespace, long version, int partition, String query) throws DNodeException {
-			return "[1]";
+		public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query)
+		    throws DNodeException {
+			return TestUtils.getTestResult("result", 1);
 		}
 		@Override
 		public String deploy(List<DeployAction> deployActions, long distributedBarrier) throws DNodeException {
@@ -114,12 +117,12 @@ public class TestFailOver {
 		try {
 			ReplicationEntry repEntry = new ReplicationEntry(0, dnode1.getAddress(), dnode2.getAddress());
 			Tablespace tablespace1 = new Tablespace(PartitionMap.oneShardOpenedMap(), new ReplicationMap(Arrays.asList(repEntry)), 1l, 0l);
-			handler.getContext().getTablespaceVersionsMap().put(new TablespaceVersion("tablespace1", 1l), tablespace1);
-			handler.getContext().getCurrentVersionsMap().put("tablespace1", 1l);
+			handler.getContext().putTablespaceVersion(new TablespaceVersion("tablespace1", 1l), tablespace1);
+			handler.getContext().setCurrentVersion("tablespace1", 1l);
 
 			QueryStatus qStatus = handler.query("tablespace1", "2", "SELECT 1;");
 			Assert.assertEquals(new Integer(0), qStatus.getShard());
-			Assert.assertEquals("[1]", qStatus.getResult().toString());
+			Assert.assertEquals("[{result=1}]", qStatus.getResult().toString());
 		} finally {
 			handler.close();
 			dnode1.stop();
@@ -22,38 +22,50 @@ package com.splout.db.qnode;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Test;
 
 import com.hazelcast.core.Hazelcast;
-import com.splout.db.common.JSONSerDe;
-import com.splout.db.common.JSONSerDe.JSONSerDeException;
 import com.splout.db.common.PartitionEntry;
 import com.splout.db.common.PartitionMap;
+import com.splout.db.common.QueryResultSerDe;
 import com.splout.db.common.ReplicationEntry;
 import com.splout.db.common.ReplicationMap;
 import com.splout.db.common.SploutConfiguration;
 import com.splout.db.common.Tablespace;
 import com.splout.db.common.TestUtils;
 import com.splout.db.dnode.DNode;
+import com.splout.db.dnode.DNodeHandler;
 import com.splout.db.dnode.DNodeMockHandler;
 import com.splout.db.dnode.DNodeProperties;
 import com.splout.db.hazelcast.TablespaceVersion;
+import com.splout.db.qnode.beans.ErrorQueryStatus;
+import com.splout.db.qnode.beans.MergeSpec;
 import com.splout.db.qnode.beans.QueryStatus;
 import com.splout.db.thrift.DNodeException;
+import com.splout.db.thrift.PartitionQueryResult;
+import com.splout.db.thrift.QueryParam;
+import com.splout.db.thrift.QueryResult;
+import com.splout.db.thrift.ResultColumn;
 
 public class TestMultiQuery {
 
 	@After
 	public void cleanUp() throws IOException {
-		TestUtils.cleanUpTmpFolders(this.getClass().getName(), 4);
+		TestUtils.cleanUpTmpFolders(this.getClass().getName(), 18);
 	}
 
 	static class TellIDHandler extends DNodeMockHandler {
@@ -68,16 +80,13 @@ public class TestMultiQuery {
 		 * This handler, when queried, returns its own ID
 		 */
 		@Override
-		public String sqlQuery(String tablespace, long version, int partition, String query) throws DNodeException {
-			try {
-				return JSONSerDe.ser(Arrays.asList(new String[] { id }));
-			} catch(JSONSerDeException e) {
-				e.printStackTrace();
-				throw new RuntimeException(e);
-			}
+		public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query)
+		    throws DNodeException {
+			return TestUtils.getTestResult("id", id);
 		}
 	};
 
+	@SuppressWarnings("rawtypes")
 	@Test
 	public void test() throws Throwable {
 		QNodeHandler handler = new QNodeHandler();
@@ -111,8 +120,8 @@ public class TestMultiQuery {
 
 			Tablespace tablespace1 = new Tablespace(new PartitionMap(partitions), new ReplicationMap(replicationEntries), 1l,
 			    0l);
-			handler.getContext().getTablespaceVersionsMap().put(new TablespaceVersion("tablespace1", 1l), tablespace1);
-			handler.getContext().getCurrentVersionsMap().put("tablespace1", 1l);
+			handler.getContext().putTablespaceVersion(new TablespaceVersion("tablespace1", 1l), tablespace1);
+			handler.getContext().setCurrentVersion("tablespace1", 1l);
 
 			// The following has to be read as: multi-query range [23-25)
 			// The impacted shard will be 1 [20-30)
@@ -123,7 +132,7 @@ public class TestMultiQuery {
 			assertEquals(1, resultObj.size());
 
 			assertTrue(1 == resultObj.get(0).getShard());
-			assertEquals("DNode1", resultObj.get(0).getResult().get(0));
+			assertEquals("DNode1", ((Map) resultObj.get(0).getResult().get(0)).get("id"));
 
 			// The following has to be read as: multi-query [13-25) Union [45-55).
 			// The impacted shards will be 0 [10-20), 1 [20, 30), 3 [40, 50), 5 [50, 60)
@@ -140,10 +149,10 @@ public class TestMultiQuery {
 			assertTrue(3 == resultObj.get(2).getShard());
 			assertTrue(4 == resultObj.get(3).getShard());
 
-			assertEquals("DNode0", resultObj.get(0).getResult().get(0));
-			assertEquals("DNode1", resultObj.get(1).getResult().get(0));
-			assertEquals("DNode3", resultObj.get(2).getResult().get(0));
-			assertEquals("DNode4", resultObj.get(3).getResult().get(0));
+			assertEquals("DNode0", ((Map) resultObj.get(0).getResult().get(0)).get("id"));
+			assertEquals("DNode1", ((Map) resultObj.get(1).getResult().get(0)).get("id"));
+			assertEquals("DNode3", ((Map) resultObj.get(2).getResult().get(0)).get("id"));
+			assertEquals("DNode4", ((Map) resultObj.get(3).getResult().get(0)).get("id"));
 
 			// The following has to be read as: multi-query the opened range (-Infinity, Infinity) regardless of the key type.
 			// The impacted shards will be all: 0, 1, 2, 3, 4
@@ -156,8 +165,384 @@ public class TestMultiQuery {
 
 			for(int i = 0; i < 5; i++) {
 				assertTrue(i == resultObj.get(i).getShard());
-				assertEquals("DNode" + i, resultObj.get(i).getResult().get(0));
+				assertEquals("DNode" + i, ((Map) resultObj.get(i).getResult().get(0)).get("id"));
+			}
+		} finally {
+			handler.close();
+			for(DNode dnode : dNodes) {
+				dnode.stop();
+			}
+			Hazelcast.shutdownAll();
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testBatching() throws Throwable {
+		QNodeHandler handler = new QNodeHandler();
+		handler.init(SploutConfiguration.getTestConfig());
+
+		final AtomicInteger multiQueries = new AtomicInteger(0);
+		SploutConfiguration dNodeConfig = SploutConfiguration.getTestConfig();
+		// A DNode that serves all partitions in batches, except partition 2 that is overloaded
+		DNode dnode = TestUtils.getTestDNode(dNodeConfig, new TellIDHandler("DNode") {
+
+			@Override
+			public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions,
+			    String query, List<QueryParam> params) throws DNodeException {
+				multiQueries.incrementAndGet();
+				List<PartitionQueryResult> results = new ArrayList<PartitionQueryResult>();
+				for(int partition : partitions) {
+					PartitionQueryResult result = new PartitionQueryResult();
+					result.setPartition(partition);
+					if(partition == 2) {
+						result.setErrorCode(DNodeHandler.EXCEPTION_OVERLOADED);
+						result.setErrorMessage("Overloaded");
+					} else {
+						ResultColumn column = new ResultColumn();
+						column.setNulls(new byte[1]);
+						column.setStrings(Arrays.asList(new String[] { "batch" + partition }));
+						result.setResult(new QueryResult(Arrays.asList(new String[] { "id" }), Arrays
+						    .asList(new String[] { QueryResultSerDe.TYPE_TEXT }), 1, Arrays.asList(new ResultColumn[] { column })));
+					}
+					results.add(result);
+				}
+				return results;
+			}
+		}, "dnode-" + this.getClass().getName() + "-5");
+
+		try {
+			List<PartitionEntry> partitions = new ArrayList<PartitionEntry>();
+			List<ReplicationEntry> replicationEntries = new ArrayList<ReplicationEntry>();
+			for(int i = 0; i < 4; i++) {
+				PartitionEntry partitionEntry = new PartitionEntry();
+				partitionEntry.setMin((i * 10 + 10) + "");
+				partitionEntry.setMax((i * 10 + 20) + "");
+				partitionEntry.setShard(i);
+				partitions.add(partitionEntry);
+				ReplicationEntry repEntry = new ReplicationEntry();
+				repEntry.setShard(i);
+				repEntry.setNodes(Arrays.asList(new String[] { dnode.getAddress() }));
+				replicationEntries.add(repEntry);
+			}
+			Tablespace tablespace1 = new Tablespace(new PartitionMap(partitions), new ReplicationMap(replicationEntries), 1l,
+			    0l);
+			handler.getContext().putTablespaceVersion(new TablespaceVersion("tablespace1", 1l), tablespace1);
+			handler.getContext().setCurrentVersion("tablespace1", 1l);
+
+			ArrayList<QueryStatus> resultObj = handler.multiQuery("tablespace1", new ArrayList<String>(),
+			    new ArrayList<String>(), "SELECT 1;");
+			// One call for all partitions
+			assertEquals(1, multiQueries.get());
+			assertEquals(4, resultObj.size());
+			for(int i = 0; i < 4; i++) {
+				assertTrue(i == resultObj.get(i).getShard());
+				if(i == 2) {
+					// Queried again on its own
+					assertEquals("DNode", ((Map) resultObj.get(i).getResult().get(0)).get("id"));
+				} else {
+					assertEquals("batch" + i, ((Map) resultObj.get(i).getResult().get(0)).get("id"));
+				}
+			}
+		} finally {
+			handler.close();
+			dnode.stop();
+			Hazelcast.shutdownAll();
+		}
+	}
+
+	/**
+	 * Elects the first replica that hasn't been tried.
+	 */
+	public static class FirstReplicaSelector implements ReplicaSelector {
+
+		public FirstReplicaSelector(ReplicaStats stats) {
+		}
+
+		@Override
+		public String select(int partitionId, List<String> replicas, Set<String> tried) {
+			for(String replica : replicas) {
+				if(!tried.contains(replica)) {
+					return replica;
+				}
+			}
+			return replicas.get(0);
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testBatchFailOver() throws Throwable {
+		SploutConfiguration config = SploutConfiguration.getTestConfig();
+		config.setProperty(QNodeProperties.REPLICA_SELECTOR, FirstReplicaSelector.class.getName());
+		QNodeHandler handler = new QNodeHandler();
+		handler.init(config);
+
+		// Two replicas of every partition that shed partition 2 in batches
+		List<DNode> dNodes = new ArrayList<DNode>();
+		for(int i = 0; i < 2; i++) {
+			dNodes.add(TestUtils.getTestDNode(SploutConfiguration.getTestConfig(), new TellIDHandler("DNode" + i) {
+
+				@Override
+				public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions,
+				    String query, List<QueryParam> params) throws DNodeException {
+					List<PartitionQueryResult> results = new ArrayList<PartitionQueryResult>();
+					for(int partition : partitions) {
+						PartitionQueryResult result = new PartitionQueryResult();
+						result.setPartition(partition);
+						if(partition == 2) {
+							result.setErrorCode(DNodeHandler.EXCEPTION_OVERLOADED);
+							result.setErrorMessage("Overloaded");
+						} else {
+							result.setResult(TestUtils.getTestResult("id", "batch" + partition));
+						}
+						results.add(result);
+					}
+					return results;
+				}
+			}, "dnode-" + this.getClass().getName() + "-" + (11 + i)));
+		}
+
+		try {
+			List<PartitionEntry> partitions = new ArrayList<PartitionEntry>();
+			List<ReplicationEntry> replicationEntries = new ArrayList<ReplicationEntry>();
+			for(int i = 0; i < 4; i++) {
+				PartitionEntry partitionEntry = new PartitionEntry();
+				partitionEntry.setMin((i * 10 + 10) + "");
+				partitionEntry.setMax((i * 10 + 20) + "");
+				partitionEntry.setShard(i);
+				partitions.add(partitionEntry);
+				replicationEntries.add(new ReplicationEntry(i, dNodes.get(0).getAddress(), dNodes.get(1).getAddress()));
+			}
+			Tablespace tablespace1 = new Tablespace(new PartitionMap(partitions), new ReplicationMap(replicationEntries), 1l,
+			    0l);
+			handler.getContext().putTablespaceVersion(new TablespaceVersion("tablespace1", 1l), tablespace1);
+			handler.getContext().setCurrentVersion("tablespace1", 1l);
+
+			ArrayList<QueryStatus> resultObj = handler.multiQuery("tablespace1", new ArrayList<String>(),
+			    new ArrayList<String>(), "SELECT 1;");
+			assertEquals(4, resultObj.size());
+			for(int i = 0; i < 4; i++) {
+				assertTrue(i == resultObj.get(i).getShard());
+				if(i == 2) {
+					// Queried again in the other replica, not in the DNode that shed it
+					assertEquals("DNode1", ((Map) resultObj.get(i).getResult().get(0)).get("id"));
+				} else {
+					assertEquals("batch" + i, ((Map) resultObj.get(i).getResult().get(0)).get("id"));
+				}
+			}
+		} finally {
+			handler.close();
+			for(DNode dnode : dNodes) {
+				dnode.stop();
+			}
+			Hazelcast.shutdownAll();
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testMerge() throws Throwable {
+		QNodeHandler handler = new QNodeHandler();
+		handler.init(SploutConfiguration.getTestConfig());
+
+		List<DNode> dNodes = new ArrayList<DNode>();
+
+		try {
+			// 2 DNodes with one partition each, with the count and the average per country of their partition
+			final long[][] counts = new long[][] { { 1, 3 }, { 3, 1 } };
+			final double[][] averages = new double[][] { { 2.0, 1.0 }, { 6.0, 1.0 } };
+			final String[][] countries = new String[][] { { "ES", "FR" }, { "ES", "IT" } };
+			List<PartitionEntry> partitions = new ArrayList<PartitionEntry>();
+			List<ReplicationEntry> replicationEntries = new ArrayList<ReplicationEntry>();
+			for(int i = 0; i < 2; i++) {
+				final int partition = i;
+				DNode dnode = TestUtils.getTestDNode(SploutConfiguration.getTestConfig(), new DNodeMockHandler() {
+
+					@Override
+					public QueryResult sqlQueryBinary(String tablespace, long version, int partitionId, String query)
+					    throws DNodeException {
+						List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+						for(int j = 0; j < 2; j++) {
+							Map<String, Object> row = new LinkedHashMap<String, Object>();
+							row.put("country", countries[partition][j]);
+							row.put("n", counts[partition][j]);
+							row.put("avg", averages[partition][j]);
+							rows.add(row);
+						}
+						return QueryResultSerDe.ser(rows);
+					}
+				}, "dnode-" + this.getClass().getName() + "-" + (16 + i));
+				dNodes.add(dnode);
+				PartitionEntry partitionEntry = new PartitionEntry();
+				partitionEntry.setMin((i * 10 + 10) + "");
+				partitionEntry.setMax((i * 10 + 20) + "");
+				partitionEntry.setShard(i);
+				partitions.add(partitionEntry);
+				replicationEntries.add(new ReplicationEntry(i, dnode.getAddress()));
+			}
+			Tablespace tablespace1 = new Tablespace(new PartitionMap(partitions), new ReplicationMap(replicationEntries), 1l,
+			    0l);
+			handler.getContext().putTablespaceVersion(new TablespaceVersion("tablespace1", 1l), tablespace1);
+			handler.getContext().setCurrentVersion("tablespace1", 1l);
+
+			Map<String, String> aggregates = new HashMap<String, String>();
+			aggregates.put("n", "COUNT");
+			aggregates.put("avg", "AVG(n)");
+			ArrayList<QueryStatus> resultObj = handler.multiQuery("tablespace1", new ArrayList<String>(),
+			    new ArrayList<String>(), "SELECT country, COUNT(*) AS n, AVG(x) AS avg FROM t GROUP BY country;", null,
+			    new MergeSpec(Arrays.asList("country"), aggregates, Arrays.asList("country"), null));
+			// One merged result
+			assertEquals(1, resultObj.size());
+			List result = resultObj.get(0).getResult();
+			assertEquals(3, result.size());
+			assertEquals("ES", ((Map) result.get(0)).get("country"));
+			assertEquals(4l, ((Number) ((Map) result.get(0)).get("n")).longValue());
+			// Weighted by the counts: (1 * 2.0 + 3 * 6.0) / 4
+			assertEquals(5.0, ((Number) ((Map) result.get(0)).get("avg")).doubleValue(), 0.0001);
+			assertEquals("FR", ((Map) result.get(1)).get("country"));
+			assertEquals(1.0, ((Number) ((Map) result.get(1)).get("avg")).doubleValue(), 0.0001);
+			assertEquals("IT", ((Map) result.get(2)).get("country"));
+
+			// The average must be weighted by a COUNT
+			aggregates.put("n", "SUM");
+			resultObj = handler.multiQuery("tablespace1", new ArrayList<String>(), new ArrayList<String>(),
+			    "SELECT 1;", null, new MergeSpec(Arrays.asList("country"), aggregates, null, null));
+			assertEquals(1, resultObj.size());
+			assertTrue(resultObj.get(0) instanceof ErrorQueryStatus);
+			assertTrue(resultObj.get(0).getError().startsWith("Invalid merge"));
+		} finally {
+			handler.close();
+			for(DNode dnode : dNodes) {
+				dnode.stop();
+			}
+			Hazelcast.shutdownAll();
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testBoundedQueue() throws Throwable {
+		SploutConfiguration config = SploutConfiguration.getTestConfig();
+		// One DNode query at a time, and one more waiting
+		config.setProperty(QNodeProperties.MULTIQUERY_THREADS, 1);
+		config.setProperty(QNodeProperties.MULTIQUERY_QUEUE_SIZE, 1);
+		QNodeHandler handler = new QNodeHandler();
+		handler.init(config);
+
+		List<DNode> dNodes = new ArrayList<DNode>();
+
+		try {
+			// 3 DNodes with one partition each that take half a second per query
+			List<PartitionEntry> partitions = new ArrayList<PartitionEntry>();
+			List<ReplicationEntry> replicationEntries = new ArrayList<ReplicationEntry>();
+			for(int i = 0; i < 3; i++) {
+				DNode dnode = TestUtils.getTestDNode(SploutConfiguration.getTestConfig(), new TellIDHandler("DNode" + i) {
+
+					@Override
+					public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query)
+					    throws DNodeException {
+						try {
+							Thread.sleep(500);
+						} catch(InterruptedException e) {
+							throw new DNodeException(0, "Interrupted");
+						}
+						return super.sqlQueryBinary(tablespace, version, partition, query);
+					}
+				}, "dnode-" + this.getClass().getName() + "-" + (13 + i));
+				dNodes.add(dnode);
+				PartitionEntry partitionEntry = new PartitionEntry();
+				partitionEntry.setMin((i * 10 + 10) + "");
+				partitionEntry.setMax((i * 10 + 20) + "");
+				partitionEntry.setShard(i);
+				partitions.add(partitionEntry);
+				replicationEntries.add(new ReplicationEntry(i, dnode.getAddress()));
+			}
+			Tablespace tablespace1 = new Tablespace(new PartitionMap(partitions), new ReplicationMap(replicationEntries), 1l,
+			    0l);
+			handler.getContext().putTablespaceVersion(new TablespaceVersion("tablespace1", 1l), tablespace1);
+			handler.getContext().setCurrentVersion("tablespace1", 1l);
+
+			ArrayList<QueryStatus> resultObj = handler.multiQuery("tablespace1", new ArrayList<String>(),
+			    new ArrayList<String>(), "SELECT 1;");
+			assertEquals(3, resultObj.size());
+			for(int i = 0; i < 2; i++) {
+				assertEquals("DNode" + i, ((Map) resultObj.get(i).getResult().get(0)).get("id"));
+			}
+			// The DNode query that didn't fit in the queue is an error
+			assertTrue(resultObj.get(2) instanceof ErrorQueryStatus);
+			assertTrue(2 == resultObj.get(2).getShard());
+			assertTrue(resultObj.get(2).getError().contains("rejected"));
+		} finally {
+			handler.close();
+			for(DNode dnode : dNodes) {
+				dnode.stop();
+			}
+			Hazelcast.shutdownAll();
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testScatterGather() throws Throwable {
+		SploutConfiguration config = SploutConfiguration.getTestConfig();
+		config.setProperty(QNodeProperties.MULTIQUERY_MAX_TIME, 2500);
+		QNodeHandler handler = new QNodeHandler();
+		handler.init(config);
+
+		List<DNode> dNodes = new ArrayList<DNode>();
+
+		try {
+			// 5 DNodes with one partition each: the first 4 take 1 second per query, the last one 5 seconds
+			List<PartitionEntry> partitions = new ArrayList<PartitionEntry>();
+			List<ReplicationEntry> replicationEntries = new ArrayList<ReplicationEntry>();
+			for(int i = 0; i < 5; i++) {
+				final long sleep = i < 4 ? 1000 : 5000;
+				DNode dnode = TestUtils.getTestDNode(SploutConfiguration.getTestConfig(), new TellIDHandler("DNode" + i) {
+
+					@Override
+					public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query)
+					    throws DNodeException {
+						try {
+							Thread.sleep(sleep);
+						} catch(InterruptedException e) {
+							throw new DNodeException(0, "Interrupted");
+						}
+						return super.sqlQueryBinary(tablespace, version, partition, query);
+					}
+				}, "dnode-" + this.getClass().getName() + "-" + (6 + i));
+				dNodes.add(dnode);
+				PartitionEntry partitionEntry = new PartitionEntry();
+				partitionEntry.setMin((i * 10 + 10) + "");
+				partitionEntry.setMax((i * 10 + 20) + "");
+				partitionEntry.setShard(i);
+				partitions.add(partitionEntry);
+				ReplicationEntry repEntry = new ReplicationEntry();
+				repEntry.setShard(i);
+				repEntry.setNodes(Arrays.asList(new String[] { dnode.getAddress() }));
+				replicationEntries.add(repEntry);
+			}
+			Tablespace tablespace1 = new Tablespace(new PartitionMap(partitions), new ReplicationMap(replicationEntries), 1l,
+			    0l);
+			handler.getContext().putTablespaceVersion(new TablespaceVersion("tablespace1", 1l), tablespace1);
+			handler.getContext().setCurrentVersion("tablespace1", 1l);
+
+			long start = System.currentTimeMillis();
+			ArrayList<QueryStatus> resultObj = handler.multiQuery("tablespace1", new ArrayList<String>(),
+			    new ArrayList<String>(), "SELECT 1;");
+			long elapsed = System.currentTimeMillis() - start;
+
+			// The DNodes are queried concurrently and the slow one is not waited for
+			assertTrue("Took " + elapsed + " ms", elapsed < 4000);
+			assertEquals(5, resultObj.size());
+			for(int i = 0; i < 4; i++) {
+				assertTrue(i == resultObj.get(i).getShard());
+				assertEquals("DNode" + i, ((Map) resultObj.get(i).getResult().get(0)).get("id"));
 			}
+			// Partial results: the slow partition is an error
+			assertTrue(resultObj.get(4) instanceof ErrorQueryStatus);
+			assertTrue(4 == resultObj.get(4).getShard());
+			assertFalse(resultObj.get(4).getError() == null);
 		} finally {
 			handler.close();
 			for(DNode dnode : dNodes) {
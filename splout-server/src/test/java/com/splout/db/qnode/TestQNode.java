@@ -31,6 +31,7 @@ import com.splout.db.common.SploutConfiguration;
 import com.splout.db.common.TestUtils;
 import com.splout.db.qnode.beans.DeployInfo;
 import com.splout.db.qnode.beans.DeployRequest;
+import com.splout.db.qnode.beans.MergeSpec;
 import com.splout.db.qnode.beans.QueryStatus;
 import com.splout.db.qnode.beans.StatusMessage;
 import com.splout.db.qnode.beans.SwitchVersionRequest;
@@ -42,11 +43,11 @@ public class TestQNode {
 		final SploutConfiguration config = SploutConfiguration.getTestConfig();
 		QNode qnode = TestUtils.getTestQNode(config, new QNodeMockHandler() {
 			@Override
-			public QueryStatus query(String tablespace, String key, String sql) throws Exception {
+			public QueryStatus query(String tablespace, String key, String sql, List<Object> params) throws Exception {
 				return new QueryStatus();
 			}
 			@Override
-			public ArrayList<QueryStatus> multiQuery(String tablespace, List<String> keyMins, List<String> keyMaxs, String sql)
+			public ArrayList<QueryStatus> multiQuery(String tablespace, List<String> keyMins, List<String> keyMaxs, String sql, List<Object> params, MergeSpec merge)
 			    throws Exception {
 				return new ArrayList<QueryStatus>();
 			}
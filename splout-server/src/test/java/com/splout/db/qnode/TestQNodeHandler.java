@@ -58,6 +58,9 @@ import com.splout.db.qnode.beans.DeployRequest;
 import com.splout.db.qnode.beans.QueryStatus;
 import com.splout.db.thrift.DNodeException;
 import com.splout.db.thrift.DeployAction;
+import com.splout.db.thrift.PartitionQueryResult;
+import com.splout.db.thrift.QueryParam;
+import com.splout.db.thrift.QueryResult;
 import com.splout.db.thrift.RollbackAction;
 
 public class TestQNodeHandler {
@@ -74,8 +77,9 @@ public class TestQNodeHandler {
 	DNodeMockHandler dHandler = new DNodeMockHandler() {
 		
 		@Override
-		public String sqlQuery(String tablespace, long version, int partition, String query) throws DNodeException {
-			return "[1]";
+		public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query)
+		    throws DNodeException {
+			return TestUtils.getTestResult("result", 1);
 		}
 		@Override
 		public String deploy(List<DeployAction> deployActions, long version) throws DNodeException {
@@ -191,13 +195,13 @@ public class TestQNodeHandler {
 		try {
 			ReplicationEntry repEntry = new ReplicationEntry(0, dnode.getAddress());
 			Tablespace tablespace1 = new Tablespace(PartitionMap.oneShardOpenedMap(), new ReplicationMap(Arrays.asList(repEntry)), 0l, 0l);
-			handler.getContext().getTablespaceVersionsMap().put(new TablespaceVersion("tablespace1", 0l), tablespace1);
-			handler.getContext().getCurrentVersionsMap().put("tablespace1", 0l);
+			handler.getContext().putTablespaceVersion(new TablespaceVersion("tablespace1", 0l), tablespace1);
+			handler.getContext().setCurrentVersion("tablespace1", 0l);
 
 			// Query key 2 (> 1 < 10)
 			QueryStatus qStatus = handler.query("tablespace1", "2", "SELECT 1;");
 			Assert.assertEquals(new Integer(0), qStatus.getShard());
-			Assert.assertEquals("[1]", qStatus.getResult().toString());
+			Assert.assertEquals("[{result=1}]", qStatus.getResult().toString());
 		} finally {
 			handler.close();
 			dnode.stop();
@@ -220,6 +224,19 @@ public class TestQNodeHandler {
 				return null;
 			}
 
+			@Override
+			public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException {
+				return null;
+			}
+			@Override
+			public QueryResult sqlQueryWithParams(String tablespace, long version, int partition, String query, List<QueryParam> params) throws DNodeException {
+				return null;
+			}
+			@Override
+			public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions, String query, List<QueryParam> params) throws DNodeException {
+				return null;
+			}
+
 			@Override
 			public String deploy(List<DeployAction> deployActions, long distributedBarrier) throws DNodeException {
 				/*
@@ -279,6 +296,19 @@ public class TestQNodeHandler {
 				return null;
 			}
 
+			@Override
+			public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException {
+				return null;
+			}
+			@Override
+			public QueryResult sqlQueryWithParams(String tablespace, long version, int partition, String query, List<QueryParam> params) throws DNodeException {
+				return null;
+			}
+			@Override
+			public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions, String query, List<QueryParam> params) throws DNodeException {
+				return null;
+			}
+
 			@Override
 			public String deploy(List<DeployAction> deployActions, long distributedBarrier) throws DNodeException {
 				/*
@@ -373,6 +403,19 @@ public class TestQNodeHandler {
 				return null;
 			}
 
+			@Override
+			public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException {
+				return null;
+			}
+			@Override
+			public QueryResult sqlQueryWithParams(String tablespace, long version, int partition, String query, List<QueryParam> params) throws DNodeException {
+				return null;
+			}
+			@Override
+			public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions, String query, List<QueryParam> params) throws DNodeException {
+				return null;
+			}
+
 			@Override
 			public String deploy(List<DeployAction> deployActions, long version) throws DNodeException {
 				Assert.assertEquals(1, deployActions.size());
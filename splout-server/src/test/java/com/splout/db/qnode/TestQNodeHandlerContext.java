@@ -23,6 +23,8 @@ package com.splout.db.qnode;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 import java.util.Arrays;
 import java.util.HashMap;
@@ -271,4 +273,94 @@ public class TestQNodeHandlerContext {
 		assertNull(tablespace1V1);
 		assertNull(tablespace1V2);
 	}
+
+	@Test
+	public void testUpdateTablespacesDelta() throws TablespaceVersionInfoException {
+		SploutConfiguration config = SploutConfiguration.getTestConfig();
+		QNodeHandlerContext ctx = new QNodeHandlerContext(config, null);
+
+		DNodeInfoFacade facade1 = new DNodeInfoFacade("dnode1");
+		facade1.addTablespaceVersionPartition("t1", 1l, 0);
+		facade1.addTablespaceVersionPartition("t1", 2l, 0);
+		DNodeInfoFacade facade2 = new DNodeInfoFacade("dnode2");
+		facade2.addTablespaceVersionPartition("t1", 1l, 1);
+
+		ctx.updateTablespaceVersions(facade1.getDNodeInfo(), DNodeEvent.ENTRY);
+		ctx.updateTablespaceVersions(facade2.getDNodeInfo(), DNodeEvent.ENTRY);
+
+		Tablespace tablespace1V1 = ctx.getTablespaceVersionsMap().get(new TablespaceVersion("t1", 1l));
+		Tablespace tablespace1V2 = ctx.getTablespaceVersionsMap().get(new TablespaceVersion("t1", 2l));
+		assertTablespace(tablespace1V1, new Integer[] { 0, 1 }, "dnode1", "dnode2");
+
+		// DNode1 gets a new version: the other versions are left as they were
+		facade1.addTablespaceVersionPartition("t1", 3l, 0);
+		ctx.updateTablespaceVersions(facade1.getDNodeInfo(), DNodeEvent.UPDATE);
+
+		assertSame(tablespace1V1, ctx.getTablespaceVersionsMap().get(new TablespaceVersion("t1", 1l)));
+		assertSame(tablespace1V2, ctx.getTablespaceVersionsMap().get(new TablespaceVersion("t1", 2l)));
+		assertTablespace(ctx.getTablespaceVersionsMap().get(new TablespaceVersion("t1", 3l)), new Integer[] { 0 },
+		    "dnode1");
+
+		// DNode2 leaves: the tablespace that was published before is not modified
+		ctx.updateTablespaceVersions(facade2.getDNodeInfo(), DNodeEvent.LEAVE);
+
+		assertTablespace(tablespace1V1, new Integer[] { 0, 1 }, "dnode1", "dnode2");
+		assertTablespace(ctx.getTablespaceVersionsMap().get(new TablespaceVersion("t1", 1l)), new Integer[] { 0 },
+		    "dnode1");
+
+		// A DNode with inconsistent partitions is rejected as a whole
+		PartitionMetadata otherRange = new PartitionMetadata();
+		otherRange.setMinKey("a");
+		DNodeInfoFacade facade3 = new DNodeInfoFacade("dnode3");
+		facade3.addTablespaceVersionPartition("t2", 1l, 0);
+		facade3.addTablespaceVersionPartition("t1", 1l, 0);
+		facade3.servingInfo.get("t1").get(1l).put(0, otherRange);
+		try {
+			ctx.updateTablespaceVersions(facade3.getDNodeInfo(), DNodeEvent.ENTRY);
+			fail();
+		} catch(TablespaceVersionInfoException e) {
+			// expected
+		}
+		assertNull(ctx.getTablespaceVersionsMap().get(new TablespaceVersion("t2", 1l)));
+		assertTablespace(ctx.getTablespaceVersionsMap().get(new TablespaceVersion("t1", 1l)), new Integer[] { 0 },
+		    "dnode1");
+	}
+
+	@Test
+	public void testRoutingTables() throws TablespaceVersionInfoException {
+		QNodeHandlerContext ctx = new QNodeHandlerContext(SploutConfiguration.getTestConfig(), null);
+
+		DNodeInfoFacade facade1 = new DNodeInfoFacade("dnode1");
+		facade1.addTablespaceVersionPartition("t1", 1l, 0);
+		ctx.updateTablespaceVersions(facade1.getDNodeInfo(), DNodeEvent.ENTRY);
+		// Not routed until the version is served
+		assertNull(ctx.getRoutingTable("t1"));
+
+		ctx.setCurrentVersion("t1", 1l);
+		RoutingTable routingTable = ctx.getRoutingTable("t1");
+		assertEquals(1l, routingTable.getVersion());
+		assertEquals(Arrays.asList("dnode1"), routingTable.getReplicas(0));
+		// Published once, not rebuilt by the queries
+		assertSame(routingTable, ctx.getRoutingTable("t1"));
+
+		// A new replica of the version being served is routed right away
+		DNodeInfoFacade facade2 = new DNodeInfoFacade("dnode2");
+		facade2.addTablespaceVersionPartition("t1", 1l, 0);
+		facade2.addTablespaceVersionPartition("t1", 2l, 0);
+		ctx.updateTablespaceVersions(facade2.getDNodeInfo(), DNodeEvent.ENTRY);
+		assertEquals(Arrays.asList("dnode1", "dnode2"), ctx.getRoutingTable("t1").getReplicas(0));
+		assertEquals(1l, ctx.getRoutingTable("t1").getVersion());
+
+		ctx.setCurrentVersion("t1", 2l);
+		assertEquals(2l, ctx.getRoutingTable("t1").getVersion());
+		assertEquals(Arrays.asList("dnode2"), ctx.getRoutingTable("t1").getReplicas(0));
+
+		// The version being served disappears with its last DNode
+		ctx.updateTablespaceVersions(facade2.getDNodeInfo(), DNodeEvent.LEAVE);
+		assertNull(ctx.getRoutingTable("t1"));
+
+		ctx.setCurrentVersion("t1", 1l);
+		ctx.clearCurrentVersions();
+		assertNull(ctx.getRoutingTable("t1"));
+	}
 }
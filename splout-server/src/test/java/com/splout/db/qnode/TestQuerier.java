@@ -27,6 +27,8 @@ import static org.junit.Assert.assertTrue;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -41,12 +43,17 @@ import com.splout.db.common.SploutConfiguration;
 import com.splout.db.common.Tablespace;
 import com.splout.db.common.TestUtils;
 import com.splout.db.dnode.DNode;
+import com.splout.db.dnode.DNodeMockHandler;
+import com.splout.db.dnode.DNodeProperties;
 import com.splout.db.dnode.IDNodeHandler;
 import com.splout.db.hazelcast.TablespaceVersion;
 import com.splout.db.qnode.beans.ErrorQueryStatus;
 import com.splout.db.qnode.beans.QueryStatus;
 import com.splout.db.thrift.DNodeException;
 import com.splout.db.thrift.DeployAction;
+import com.splout.db.thrift.PartitionQueryResult;
+import com.splout.db.thrift.QueryParam;
+import com.splout.db.thrift.QueryResult;
 import com.splout.db.thrift.RollbackAction;
 
 public class TestQuerier {
@@ -54,7 +61,7 @@ public class TestQuerier {
 	@AfterClass
 	@BeforeClass
 	public static void cleanUp() throws IOException {
-		TestUtils.cleanUpTmpFolders(TestQuerier.class.getName(), 2);
+		TestUtils.cleanUpTmpFolders(TestQuerier.class.getName(), 9);
 	}
 	
 	@Test
@@ -67,8 +74,8 @@ public class TestQuerier {
 		rEntries.add(new ReplicationEntry(0, "localhost:4444", "localhost:5555", "localhost:6666"));
 
 		Tablespace tablespace = new Tablespace(PartitionMap.oneShardOpenedMap(), new ReplicationMap(rEntries), 0, 0);
-		context.getTablespaceVersionsMap().put(new TablespaceVersion("t1", 0l), tablespace);
-		context.getCurrentVersionsMap().put("t1", 0l);
+		context.putTablespaceVersion(new TablespaceVersion("t1", 0l), tablespace);
+		context.setCurrentVersion("t1", 0l);
 
 		Querier querier = new Querier(context);
 		
@@ -82,6 +89,7 @@ public class TestQuerier {
 	@Test
 	public void testRoundRobin() throws Throwable {
 		SploutConfiguration testConfig = SploutConfiguration.getTestConfig();
+		testConfig.setProperty(QNodeProperties.REPLICA_SELECTOR, ReplicaSelectors.ROUND_ROBIN);
 		// A handler that returns OK to any query
 		IDNodeHandler okQueryHandler = new IDNodeHandler() {
 			@Override
@@ -95,6 +103,18 @@ public class TestQuerier {
 	      return "[{ \"msg\": \"OK\" }]";
       }
 			@Override
+      public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException {
+	      return TestUtils.getTestResult("msg", "OK");
+      }
+			@Override
+      public QueryResult sqlQueryWithParams(String tablespace, long version, int partition, String query, List<QueryParam> params) throws DNodeException {
+      	return null;
+      }
+			@Override
+      public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions, String query, List<QueryParam> params) throws DNodeException {
+      	return null;
+      }
+			@Override
       public String deploy(List<DeployAction> deployActions, long version) throws DNodeException {
 	      return null;
       }
@@ -132,8 +152,8 @@ public class TestQuerier {
 		QNodeHandlerContext context = new QNodeHandlerContext(testConfig, null);
 		
 		Tablespace tablespace = new Tablespace(PartitionMap.oneShardOpenedMap(), new ReplicationMap(rEntries), 0, 0);
-		context.getTablespaceVersionsMap().put(new TablespaceVersion("t1", 0l), tablespace);
-		context.getCurrentVersionsMap().put("t1", 0l);
+		context.putTablespaceVersion(new TablespaceVersion("t1", 0l), tablespace);
+		context.setCurrentVersion("t1", 0l);
 
 		Querier querier = new Querier(context);
 		
@@ -152,6 +172,7 @@ public class TestQuerier {
 	@Test
 	public void testRoundRobinWithSomeDeadNodes() throws Throwable {
 		SploutConfiguration testConfig = SploutConfiguration.getTestConfig();
+		testConfig.setProperty(QNodeProperties.REPLICA_SELECTOR, ReplicaSelectors.ROUND_ROBIN);
 		// A handler that returns OK to any query
 		IDNodeHandler okQueryHandler = new IDNodeHandler() {
 			@Override
@@ -165,6 +186,18 @@ public class TestQuerier {
 	      return "[{ \"msg\": \"OK\" }]";
       }
 			@Override
+      public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException {
+	      return TestUtils.getTestResult("msg", "OK");
+      }
+			@Override
+      public QueryResult sqlQueryWithParams(String tablespace, long version, int partition, String query, List<QueryParam> params) throws DNodeException {
+      	return null;
+      }
+			@Override
+      public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions, String query, List<QueryParam> params) throws DNodeException {
+      	return null;
+      }
+			@Override
       public String deploy(List<DeployAction> deployActions, long version) throws DNodeException {
 	      return null;
       }
@@ -202,8 +235,8 @@ public class TestQuerier {
 		QNodeHandlerContext context = new QNodeHandlerContext(testConfig, null);
 		
 		Tablespace tablespace = new Tablespace(PartitionMap.oneShardOpenedMap(), new ReplicationMap(rEntries), 0, 0);
-		context.getTablespaceVersionsMap().put(new TablespaceVersion("t1", 0l), tablespace);
-		context.getCurrentVersionsMap().put("t1", 0l);
+		context.putTablespaceVersion(new TablespaceVersion("t1", 0l), tablespace);
+		context.setCurrentVersion("t1", 0l);
 
 		Querier querier = new Querier(context);
 		
@@ -223,6 +256,7 @@ public class TestQuerier {
 	@Test
 	public void testRoundRobinWithSomeFailingNodes() throws Throwable {
 		SploutConfiguration testConfig = SploutConfiguration.getTestConfig();
+		testConfig.setProperty(QNodeProperties.REPLICA_SELECTOR, ReplicaSelectors.ROUND_ROBIN);
 		// A handler that returns OK to any query
 		IDNodeHandler okQueryHandler = new IDNodeHandler() {
 			@Override
@@ -236,6 +270,18 @@ public class TestQuerier {
 	      return "[{ \"msg\": \"OK\" }]";
       }
 			@Override
+      public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException {
+	      return TestUtils.getTestResult("msg", "OK");
+      }
+			@Override
+      public QueryResult sqlQueryWithParams(String tablespace, long version, int partition, String query, List<QueryParam> params) throws DNodeException {
+      	return null;
+      }
+			@Override
+      public List<PartitionQueryResult> sqlQueryMulti(String tablespace, long version, List<Integer> partitions, String query, List<QueryParam> params) throws DNodeException {
+      	return null;
+      }
+			@Override
       public String deploy(List<DeployAction> deployActions, long version) throws DNodeException {
 	      return null;
       }
@@ -273,8 +319,8 @@ public class TestQuerier {
 		QNodeHandlerContext context = new QNodeHandlerContext(testConfig, null);
 		
 		Tablespace tablespace = new Tablespace(PartitionMap.oneShardOpenedMap(), new ReplicationMap(rEntries), 0, 0);
-		context.getTablespaceVersionsMap().put(new TablespaceVersion("t1", 0l), tablespace);
-		context.getCurrentVersionsMap().put("t1", 0l);
+		context.putTablespaceVersion(new TablespaceVersion("t1", 0l), tablespace);
+		context.setCurrentVersion("t1", 0l);
 
 		Querier querier = new Querier(context);
 		
@@ -290,4 +336,205 @@ public class TestQuerier {
 			assertEquals(null, status.getError());
 		}
 	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	public void testNonBlockingServerMode() throws Throwable {
+		SploutConfiguration testConfig = SploutConfiguration.getTestConfig();
+		testConfig.setProperty(DNodeProperties.SERVER_MODE, DNode.SERVER_MODE_HSHA);
+		IDNodeHandler okQueryHandler = new DNodeMockHandler() {
+			@Override
+			public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException {
+				return TestUtils.getTestResult("msg", "OK").setCpuMicros(42);
+			}
+		};
+		DNode dnode = TestUtils.getTestDNode(testConfig, okQueryHandler, "dnode-" + this.getClass().getName() + "-hsha");
+		try {
+			List<ReplicationEntry> rEntries = new ArrayList<ReplicationEntry>();
+			rEntries.add(new ReplicationEntry(0, dnode.getAddress()));
+
+			// The QNode shares the configuration, so it uses framed transport
+			QNodeHandlerContext context = new QNodeHandlerContext(testConfig, null);
+			Tablespace tablespace = new Tablespace(PartitionMap.oneShardOpenedMap(), new ReplicationMap(rEntries), 0, 0);
+			context.putTablespaceVersion(new TablespaceVersion("t1", 0l), tablespace);
+			context.setCurrentVersion("t1", 0l);
+
+			Querier querier = new Querier(context);
+			for(int i = 0; i < 3; i++) {
+				QueryStatus status = querier.query("t1", "", 0);
+				assertEquals(null, status.getError());
+				assertEquals("OK", ((Map) status.getResult().get(0)).get("msg"));
+				// The CPU time that the DNode took is reported
+				assertEquals((Long) 42l, status.getCpuMicros());
+			}
+		} finally {
+			dnode.stop();
+		}
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	public void testHedging() throws Throwable {
+		SploutConfiguration testConfig = SploutConfiguration.getTestConfig();
+		testConfig.setProperty(QNodeProperties.REPLICA_SELECTOR, ReplicaSelectors.ROUND_ROBIN);
+		// A replica that stalls and one that answers right away, each one with its own configuration and port
+		DNode slowDNode = TestUtils.getTestDNode(SploutConfiguration.getTestConfig(), new DNodeMockHandler() {
+			@Override
+			public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException {
+				try {
+					Thread.sleep(5000);
+				} catch(InterruptedException e) {
+					throw new DNodeException(0, "Interrupted");
+				}
+				return TestUtils.getTestResult("msg", "SLOW");
+			}
+		}, "dnode-" + this.getClass().getName() + "-3");
+		DNode fastDNode = TestUtils.getTestDNode(SploutConfiguration.getTestConfig(), new DNodeMockHandler() {
+			@Override
+			public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException {
+				return TestUtils.getTestResult("msg", "FAST");
+			}
+		}, "dnode-" + this.getClass().getName() + "-4");
+		try {
+			List<ReplicationEntry> rEntries = new ArrayList<ReplicationEntry>();
+			rEntries.add(new ReplicationEntry(0, slowDNode.getAddress(), fastDNode.getAddress()));
+
+			QNodeHandlerContext context = new QNodeHandlerContext(testConfig, null);
+			Tablespace tablespace = new Tablespace(PartitionMap.oneShardOpenedMap(), new ReplicationMap(rEntries), 0, 0);
+			context.putTablespaceVersion(new TablespaceVersion("t1", 0l), tablespace);
+			context.setCurrentVersion("t1", 0l);
+
+			Querier querier = new Querier(context);
+			// Queries to the tablespace usually take 1 ms
+			for(int i = 0; i < Hedger.MIN_SAMPLES; i++) {
+				querier.getHedger().recordLatency("t1", 1000000);
+			}
+			// Some queries to earn budget
+			for(int i = 0; i < 20; i++) {
+				querier.getHedger().getDelay("t1");
+			}
+			long wins = querier.getHedger().getHedgeWins().count();
+
+			// The round robin elects the slow replica first, but the answer comes from the fast one
+			long start = System.currentTimeMillis();
+			QueryStatus status = querier.query("t1", "", 0);
+			assertTrue(System.currentTimeMillis() - start < 2500);
+			assertEquals(null, status.getError());
+			assertEquals("FAST", ((Map) status.getResult().get(0)).get("msg"));
+			assertEquals(wins + 1, querier.getHedger().getHedgeWins().count());
+			querier.close();
+			context.close();
+		} finally {
+			slowDNode.stop();
+			fastDNode.stop();
+		}
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	public void testHedgeLoses() throws Throwable {
+		SploutConfiguration testConfig = SploutConfiguration.getTestConfig();
+		testConfig.setProperty(QNodeProperties.REPLICA_SELECTOR, ReplicaSelectors.ROUND_ROBIN);
+		// A replica that answers after a while and one that stalls
+		DNode firstDNode = TestUtils.getTestDNode(SploutConfiguration.getTestConfig(), new DNodeMockHandler() {
+			@Override
+			public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException {
+				try {
+					Thread.sleep(300);
+				} catch(InterruptedException e) {
+					throw new DNodeException(0, "Interrupted");
+				}
+				return TestUtils.getTestResult("msg", "FIRST");
+			}
+		}, "dnode-" + this.getClass().getName() + "-5");
+		DNode slowDNode = TestUtils.getTestDNode(SploutConfiguration.getTestConfig(), new DNodeMockHandler() {
+			@Override
+			public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException {
+				try {
+					Thread.sleep(5000);
+				} catch(InterruptedException e) {
+					throw new DNodeException(0, "Interrupted");
+				}
+				return TestUtils.getTestResult("msg", "SLOW");
+			}
+		}, "dnode-" + this.getClass().getName() + "-6");
+		try {
+			List<ReplicationEntry> rEntries = new ArrayList<ReplicationEntry>();
+			rEntries.add(new ReplicationEntry(0, firstDNode.getAddress(), slowDNode.getAddress()));
+
+			QNodeHandlerContext context = new QNodeHandlerContext(testConfig, null);
+			Tablespace tablespace = new Tablespace(PartitionMap.oneShardOpenedMap(), new ReplicationMap(rEntries), 0, 0);
+			context.putTablespaceVersion(new TablespaceVersion("t1", 0l), tablespace);
+			context.setCurrentVersion("t1", 0l);
+
+			Querier querier = new Querier(context);
+			for(int i = 0; i < Hedger.MIN_SAMPLES; i++) {
+				querier.getHedger().recordLatency("t1", 1000000);
+			}
+			for(int i = 0; i < 20; i++) {
+				querier.getHedger().getDelay("t1");
+			}
+			long wins = querier.getHedger().getHedgeWins().count();
+
+			// The round robin elects the first replica, which answers while the hedge is still waiting
+			long start = System.currentTimeMillis();
+			QueryStatus status = querier.query("t1", "", 0);
+			assertTrue(System.currentTimeMillis() - start < 2500);
+			assertEquals(null, status.getError());
+			assertEquals("FIRST", ((Map) status.getResult().get(0)).get("msg"));
+			assertEquals(wins, querier.getHedger().getHedgeWins().count());
+			querier.close();
+			context.close();
+		} finally {
+			firstDNode.stop();
+			slowDNode.stop();
+		}
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	public void testHedgedReplicaNotRetried() throws Throwable {
+		SploutConfiguration testConfig = SploutConfiguration.getTestConfig();
+		testConfig.setProperty(QNodeProperties.REPLICA_SELECTOR, TestMultiQuery.FirstReplicaSelector.class.getName());
+		// The elected replica fails before the query is hedged
+		final AtomicInteger failingQueries = new AtomicInteger(0);
+		DNode failingDNode = TestUtils.getTestDNode(SploutConfiguration.getTestConfig(), new DNodeMockHandler() {
+			@Override
+			public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException {
+				failingQueries.incrementAndGet();
+				throw new DNodeException(0, "Failed");
+			}
+		}, "dnode-" + this.getClass().getName() + "-7");
+		DNode okDNode = TestUtils.getTestDNode(SploutConfiguration.getTestConfig(), new DNodeMockHandler() {
+			@Override
+			public QueryResult sqlQueryBinary(String tablespace, long version, int partition, String query) throws DNodeException {
+				return TestUtils.getTestResult("msg", "OK");
+			}
+		}, "dnode-" + this.getClass().getName() + "-8");
+		try {
+			List<ReplicationEntry> rEntries = new ArrayList<ReplicationEntry>();
+			rEntries.add(new ReplicationEntry(0, failingDNode.getAddress(), okDNode.getAddress()));
+
+			QNodeHandlerContext context = new QNodeHandlerContext(testConfig, null);
+			Tablespace tablespace = new Tablespace(PartitionMap.oneShardOpenedMap(), new ReplicationMap(rEntries), 0, 0);
+			context.putTablespaceVersion(new TablespaceVersion("t1", 0l), tablespace);
+			context.setCurrentVersion("t1", 0l);
+
+			Querier querier = new Querier(context);
+			for(int i = 0; i < Hedger.MIN_SAMPLES; i++) {
+				querier.getHedger().recordLatency("t1", 10000000000l);
+			}
+
+			// The fail-over goes straight to the other replica
+			QueryStatus status = querier.query("t1", "", 0);
+			assertEquals(null, status.getError());
+			assertEquals("OK", ((Map) status.getResult().get(0)).get("msg"));
+			assertEquals(1, failingQueries.get());
+			querier.close();
+			context.close();
+		} finally {
+			failingDNode.stop();
+			okDNode.stop();
+		}
+	}
 }
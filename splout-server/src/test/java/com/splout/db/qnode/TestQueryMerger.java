@@ -0,0 +1,140 @@
+package com.splout.db.qnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.splout.db.qnode.beans.ErrorQueryStatus;
+import com.splout.db.qnode.beans.MergeSpec;
+import com.splout.db.qnode.beans.QueryStatus;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestQueryMerger {
+
+	private static Map row(Object... keyValues) {
+		Map row = new LinkedHashMap();
+		for(int i = 0; i < keyValues.length; i += 2) {
+			row.put(keyValues[i], keyValues[i + 1]);
+		}
+		return row;
+	}
+
+	private static QueryStatus status(int shard, long millis, Map... rows) {
+		QueryStatus status = new QueryStatus();
+		status.setShard(shard);
+		status.setMillis(millis);
+		status.setResult(new ArrayList(Arrays.asList(rows)));
+		return status;
+	}
+
+	@Test
+	public void testPushDown() {
+		QueryMerger merger = new QueryMerger(new MergeSpec(null, null, Arrays.asList("n DESC", "name"), 10));
+		assertEquals("SELECT * FROM (SELECT name, n FROM t\n) ORDER BY `n` DESC, `name` LIMIT 10",
+		    merger.pushDown("SELECT name, n FROM t;"));
+		// Backticks in column names are escaped
+		merger = new QueryMerger(new MergeSpec(null, null, Arrays.asList("a`b DESC"), null));
+		assertEquals("SELECT * FROM (SELECT 1 AS \"a`b\"\n) ORDER BY `a``b` DESC", merger.pushDown("SELECT 1 AS \"a`b\""));
+
+		// Nothing to push down when aggregating
+		Map<String, String> aggregates = new HashMap<String, String>();
+		aggregates.put("n", "COUNT");
+		merger = new QueryMerger(new MergeSpec(Arrays.asList("name"), aggregates, Arrays.asList("n DESC"), 10));
+		assertEquals("SELECT name, COUNT(*) n FROM t GROUP BY name",
+		    merger.pushDown("SELECT name, COUNT(*) n FROM t GROUP BY name"));
+	}
+
+	@Test
+	public void testTopN() {
+		QueryMerger merger = new QueryMerger(new MergeSpec(null, null, Arrays.asList("n DESC"), 3));
+		ErrorQueryStatus error = new ErrorQueryStatus("Timeout");
+		error.setShard(2);
+		QueryStatus first = status(0, 10, row("id", "a", "n", 9l), row("id", "b", "n", 5l), row("id", "c", "n", 1l));
+		first.setCpuMicros(100l);
+		QueryStatus second = status(1, 30, row("id", "d", "n", 7l), row("id", "e", "n", 6l));
+		second.setCpuMicros(50l);
+		List<QueryStatus> merged = merger.merge(Arrays.asList(first, second, error));
+
+		assertEquals(2, merged.size());
+		assertEquals(30l, (long) merged.get(0).getMillis());
+		assertEquals(150l, (long) merged.get(0).getCpuMicros());
+		assertEquals(Arrays.asList(row("id", "a", "n", 9l), row("id", "d", "n", 7l), row("id", "e", "n", 6l)),
+		    merged.get(0).getResult());
+		// The failed partition is reported
+		assertTrue(merged.get(1) == error);
+	}
+
+	@Test
+	public void testAggregates() {
+		Map<String, String> aggregates = new HashMap<String, String>();
+		aggregates.put("n", "COUNT");
+		aggregates.put("total", "SUM");
+		aggregates.put("avg", "avg(n)");
+		aggregates.put("min", "MIN");
+		aggregates.put("max", "MAX");
+		QueryMerger merger = new QueryMerger(new MergeSpec(Arrays.asList("country"), aggregates,
+		    Arrays.asList("n DESC"), 2));
+		List<QueryStatus> merged = merger.merge(Arrays.asList(
+		    status(0, 1, row("country", "ES", "n", 1l, "total", 2.0, "avg", 2.0, "min", 2l, "max", 2l),
+		        row("country", "FR", "n", 3l, "total", 3.0, "avg", 1.0, "min", 1l, "max", 1l)),
+		    status(1, 1, row("country", "ES", "n", 3l, "total", 18.0, "avg", 6.0, "min", 4l, "max", 8l),
+		        row("country", "IT", "n", 1l, "total", 1.0, "avg", 1.0, "min", 1l, "max", 1l))));
+
+		assertEquals(1, merged.size());
+		List result = merged.get(0).getResult();
+		assertEquals(2, result.size());
+		assertEquals(row("country", "ES", "n", 4l, "total", 20.0, "avg", 5.0, "min", 2l, "max", 8l), result.get(0));
+		assertEquals(row("country", "FR", "n", 3l, "total", 3.0, "avg", 1.0, "min", 1l, "max", 1l), result.get(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingSortColumn() {
+		// The sort column is not in the result, so the partitions couldn't have sorted by it
+		QueryMerger merger = new QueryMerger(new MergeSpec(null, null, Arrays.asList("n DESC"), 3));
+		merger.merge(Arrays.asList(status(0, 1), status(1, 1, row("id", "a", "count", 9l))));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAverageNeedsCount() {
+		Map<String, String> aggregates = new HashMap<String, String>();
+		aggregates.put("avg", "AVG(n)");
+		new QueryMerger(new MergeSpec(null, aggregates, null, null));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAverageNotWeightedBySum() {
+		Map<String, String> aggregates = new HashMap<String, String>();
+		aggregates.put("total", "SUM");
+		aggregates.put("avg", "AVG(total)");
+		new QueryMerger(new MergeSpec(null, aggregates, null, null));
+	}
+}
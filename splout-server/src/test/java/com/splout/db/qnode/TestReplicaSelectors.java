@@ -0,0 +1,125 @@
+package com.splout.db.qnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestReplicaSelectors {
+
+	private final static List<String> REPLICAS = Arrays.asList("dnode0", "dnode1", "dnode2");
+
+	@Test
+	public void testEwmaDrainsSlowReplica() {
+		ReplicaStats stats = new ReplicaStats();
+		for(String replica : REPLICAS) {
+			stats.start(replica);
+			stats.end(replica, 1000000, false);
+		}
+		// dnode1 becomes slow, then fails
+		stats.start("dnode1");
+		stats.end("dnode1", 500000000, false);
+		stats.start("dnode1");
+		stats.end("dnode1", 1000, true);
+		assertTrue(stats.getLatency("dnode1") > 100 * stats.getLatency("dnode0"));
+
+		ReplicaSelector selector = ReplicaSelectors.create(ReplicaSelectors.EWMA, stats);
+		int[] hits = new int[REPLICAS.size()];
+		for(int i = 0; i < 3000; i++) {
+			hits[REPLICAS.indexOf(selector.select(0, REPLICAS, Collections.<String> emptySet()))]++;
+		}
+		// It only wins when compared with itself, which never happens. The other two tie and share the load.
+		assertEquals(0, hits[1]);
+		assertTrue("dnode0 got " + hits[0], hits[0] > 1200);
+		assertTrue("dnode2 got " + hits[2], hits[2] > 1200);
+	}
+
+	@Test
+	public void testEwmaUnknownReplica() {
+		ReplicaStats stats = new ReplicaStats();
+		stats.start("dnode0");
+		stats.end("dnode0", 1000000, false);
+		stats.start("dnode1");
+		stats.end("dnode1", 3000000, false);
+		// dnode2 has no latency yet: it is assumed to be average
+		assertEquals(2000000, stats.getCost("dnode2"), 1000);
+		stats.start("dnode2");
+		assertEquals(4000000, stats.getCost("dnode2"), 2000);
+		stats.end("dnode2", 1000000, false);
+
+		// Without samples at all, all of them cost the same
+		ReplicaStats empty = new ReplicaStats();
+		ReplicaSelector selector = ReplicaSelectors.create(ReplicaSelectors.EWMA, empty);
+		int[] hits = new int[REPLICAS.size()];
+		for(int i = 0; i < 3000; i++) {
+			hits[REPLICAS.indexOf(selector.select(0, REPLICAS, Collections.<String> emptySet()))]++;
+		}
+		for(int i = 0; i < REPLICAS.size(); i++) {
+			assertTrue("dnode" + i + " got " + hits[i], hits[i] > 800);
+		}
+	}
+
+	@Test
+	public void testLeastOutstanding() {
+		ReplicaStats stats = new ReplicaStats();
+		stats.start("dnode0");
+		stats.start("dnode0");
+		stats.start("dnode2");
+		ReplicaSelector selector = ReplicaSelectors.create(ReplicaSelectors.LEAST_OUTSTANDING, stats);
+		assertEquals("dnode1", selector.select(0, REPLICAS, Collections.<String> emptySet()));
+		// Unless it was already tried
+		assertEquals("dnode2", selector.select(0, REPLICAS, new HashSet<String>(Arrays.asList("dnode1"))));
+		stats.end("dnode0", 1000, false);
+		stats.end("dnode0", 1000, false);
+		assertEquals(0, stats.getOutstanding("dnode0"));
+	}
+
+	@Test
+	public void testTriedReplicas() {
+		ReplicaSelector selector = ReplicaSelectors.create(ReplicaSelectors.EWMA, new ReplicaStats());
+		for(int i = 0; i < 100; i++) {
+			assertEquals("dnode2", selector.select(0, REPLICAS, new HashSet<String>(Arrays.asList("dnode0", "dnode1"))));
+		}
+		// All of them tried: any one
+		assertTrue(REPLICAS.contains(selector.select(0, REPLICAS, new HashSet<String>(REPLICAS))));
+	}
+
+	@Test
+	public void testRoundRobin() {
+		ReplicaSelector selector = ReplicaSelectors.create(ReplicaSelectors.ROUND_ROBIN, new ReplicaStats());
+		for(int i = 0; i < 6; i++) {
+			assertEquals(REPLICAS.get(i % 3), selector.select(0, REPLICAS, Collections.<String> emptySet()));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownSelector() {
+		ReplicaSelectors.create("nonexistent", new ReplicaStats());
+	}
+}
@@ -0,0 +1,116 @@
+package com.splout.db.qnode;
+
+/*
+ * #%L
+ * Splout SQL Server
+ * %%
+ * Copyright (C) 2012 Datasalt Systems S.L.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.splout.db.common.PartitionEntry;
+import com.splout.db.common.PartitionMap;
+import com.splout.db.common.ReplicationEntry;
+import com.splout.db.common.ReplicationMap;
+import com.splout.db.common.Tablespace;
+
+public class TestRoutingTable {
+
+	private static Tablespace tablespace(String[][] ranges) {
+		List<PartitionEntry> partitions = new ArrayList<PartitionEntry>();
+		List<ReplicationEntry> replicas = new ArrayList<ReplicationEntry>();
+		for(int i = 0; i < ranges.length; i++) {
+			PartitionEntry entry = new PartitionEntry();
+			entry.setMin(ranges[i][0]);
+			entry.setMax(ranges[i][1]);
+			entry.setShard(i);
+			partitions.add(entry);
+			replicas.add(new ReplicationEntry(i, "dnode" + i, "dnode" + (i + 1)));
+		}
+		return new Tablespace(new PartitionMap(partitions), new ReplicationMap(replicas), 0l, 0l);
+	}
+
+	private static void assertSameRouting(Tablespace tablespace) {
+		RoutingTable routingTable = new RoutingTable("t1", 1l, tablespace);
+		PartitionMap partitionMap = tablespace.getPartitionMap();
+		List<String> keys = new ArrayList<String>();
+		for(char c = 'a' - 1; c <= 'z' + 1; c++) {
+			keys.add(c + "");
+			keys.add(c + "a");
+		}
+		for(String key : keys) {
+			assertEquals(key, partitionMap.findPartition(key), routingTable.findPartition(key));
+		}
+		keys.add(null);
+		for(String min : keys) {
+			for(String max : keys) {
+				assertEquals(min + "," + max, partitionMap.findPartitions(min, max),
+				    routingTable.findPartitions(min, max));
+			}
+		}
+	}
+
+	@Test
+	public void testContiguous() {
+		assertSameRouting(tablespace(new String[][] { { null, "c" }, { "c", "f" }, { "f", "m" }, { "m", null } }));
+		assertSameRouting(tablespace(new String[][] { { "b", "c" }, { "c", "c" }, { "c", "x" } }));
+		assertSameRouting(tablespace(new String[][] { { null, null } }));
+	}
+
+	@Test
+	public void testNotContiguous() {
+		assertSameRouting(tablespace(new String[][] { { "a", "c" }, { "d", "f" }, { "m", "x" } }));
+		assertSameRouting(tablespace(new String[][] { { "m", "x" }, { null, "c" }, { "c", "m" } }));
+	}
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(1);
+		for(int i = 0; i < 100; i++) {
+			String[] boundaries = new String[1 + random.nextInt(10)];
+			for(int j = 0; j < boundaries.length; j++) {
+				boundaries[j] = (char) ('a' + random.nextInt(26)) + "";
+			}
+			Arrays.sort(boundaries);
+			String[][] ranges = new String[boundaries.length + 1][];
+			for(int j = 0; j < ranges.length; j++) {
+				ranges[j] = new String[] { j == 0 ? null : boundaries[j - 1],
+				    j == boundaries.length ? null : boundaries[j] };
+			}
+			assertSameRouting(tablespace(ranges));
+		}
+	}
+
+	@Test
+	public void testReplicas() {
+		RoutingTable routingTable = new RoutingTable("t1", 1l, tablespace(new String[][] { { null, "c" },
+		    { "c", null } }));
+		assertEquals(Arrays.asList("dnode0", "dnode1"), routingTable.getReplicas(0));
+		assertEquals(Arrays.asList("dnode1", "dnode2"), routingTable.getReplicas(1));
+		assertNull(routingTable.getReplicas(2));
+		assertNull(routingTable.getReplicas(-1));
+	}
+}
@@ -66,7 +66,7 @@ public class TestVersionRotation {
 			handler.init(config);
 
 			for(int i = 0; i < 8; i++) {
-				handler.getContext().getTablespaceVersionsMap().put(new TablespaceVersion("t1", i), new Tablespace(null, null, i, 0l));
+				handler.getContext().putTablespaceVersion(new TablespaceVersion("t1", i), new Tablespace(null, null, i, 0l));
 			}
 			
 			Map<String, Long> versionsBeingServed = new HashMap<String, Long>();